@@ -0,0 +1,143 @@
+package ru.t1.account_processing.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.FixedBackOff;
+import ru.t1.account_processing.executor.AccountLaneExecutor;
+import ru.t1.account_processing.kafka.KafkaConsumerClientTransactionService;
+import ru.t1.account_processing.kafka.LaneOffsetTracker;
+
+/**
+ * Конфигурация исполнителя транзакций с упорядочиванием по счёту.
+ * <p>
+ * При переполнении дорожек ставит на паузу контейнер листенера {@code client_transactions}
+ * и возобновляет его после разгрузки очередей. Офсеты коммитятся вручную только после обработки
+ * записи в дорожке ({@link LaneOffsetTracker}), необработанные записи уходят в {@value #DEAD_LETTER_TOPIC}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "transactions.batch.enabled", havingValue = "false", matchIfMissing = true)
+public class AccountLaneExecutorConfig {
+
+    /** Топик для записей, не обработанных после всех повторов. */
+    public static final String DEAD_LETTER_TOPIC = "client_transactions.DLT";
+
+    /** Количество дорожек. */
+    @Value("${transactions.lanes.count}")
+    private int laneCount;
+
+    /** Ёмкость очереди одной дорожки. */
+    @Value("${transactions.lanes.queue-capacity}")
+    private int queueCapacity;
+
+    /** Максимальное время ожидания обработки очередей при остановке. */
+    @Value("${transactions.lanes.shutdown-timeout-ms}")
+    private long shutdownTimeoutMs;
+
+    /** Максимальное ожидание дорожек при отзыве партиций. */
+    @Value("${transactions.lanes.revoke-drain-timeout-ms}")
+    private long revokeDrainTimeoutMs;
+
+    /** Количество повторов обработки записи в дорожке. */
+    @Value("${transactions.lanes.retry-attempts}")
+    private long retryAttempts;
+
+    /** Пауза между повторами. */
+    @Value("${transactions.lanes.retry-interval-ms}")
+    private long retryIntervalMs;
+
+    /**
+     * Исполнитель останавливается при закрытии контекста — после остановки Kafka-контейнеров,
+     * поэтому дожидается обработки уже принятых сообщений.
+     *
+     * @param registry реестр Kafka-листенеров
+     * @return исполнитель транзакций
+     */
+    @Bean(destroyMethod = "close")
+    public AccountLaneExecutor accountLaneExecutor(KafkaListenerEndpointRegistry registry) {
+        return new AccountLaneExecutor(
+                laneCount,
+                queueCapacity,
+                () -> listenerContainer(registry).pause(),
+                () -> listenerContainer(registry).resume(),
+                shutdownTimeoutMs
+        );
+    }
+
+    /**
+     * @return учёт офсетов записей в дорожках
+     */
+    @Bean
+    public LaneOffsetTracker laneOffsetTracker() {
+        return new LaneOffsetTracker(revokeDrainTimeoutMs);
+    }
+
+    /**
+     * Фабрика контейнеров для листенера {@code client_transactions}: запись подтверждается
+     * дорожкой после обработки ({@code MANUAL}), а при отзыве партиций {@link LaneOffsetTracker}
+     * дожидается дорожек и коммитит достигнутые офсеты.
+     *
+     * @param configurer        настройщик Spring Boot (применяет параметры {@code spring.kafka.listener.*})
+     * @param consumerFactory   фабрика консьюмеров из {@code spring.kafka.consumer.*}
+     * @param laneOffsetTracker учёт офсетов записей в дорожках
+     * @return фабрика контейнеров
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> laneKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            LaneOffsetTracker laneOffsetTracker) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(laneOffsetTracker);
+        return factory;
+    }
+
+    /**
+     * Повторы выполняются в потоке дорожки: {@code CommonErrorHandler} контейнера не видит ошибок,
+     * возникших после передачи записи в исполнитель.
+     *
+     * @return политика повторов обработки записи
+     */
+    @Bean
+    public BackOff laneRetryBackOff() {
+        return new FixedBackOff(retryIntervalMs, retryAttempts);
+    }
+
+    /**
+     * @param kafkaOperations шаблон Kafka из {@code spring.kafka.producer.*}
+     * @return публикация необработанных записей в {@value #DEAD_LETTER_TOPIC}
+     */
+    @Bean
+    public ConsumerRecordRecoverer clientTransactionsRecoverer(KafkaOperations<?, ?> kafkaOperations) {
+        return new DeadLetterPublishingRecoverer(kafkaOperations,
+                (record, ex) -> new TopicPartition(DEAD_LETTER_TOPIC, -1));
+    }
+
+    @Bean
+    public NewTopic clientTransactionsDeadLetterTopic() {
+        return TopicBuilder.name(DEAD_LETTER_TOPIC)
+                .partitions(1)
+                .replicas(1)
+                .build();
+    }
+
+    private MessageListenerContainer listenerContainer(KafkaListenerEndpointRegistry registry) {
+        return registry.getListenerContainer(KafkaConsumerClientTransactionService.LISTENER_ID);
+    }
+}
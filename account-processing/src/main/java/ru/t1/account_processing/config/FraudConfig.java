@@ -0,0 +1,118 @@
+package ru.t1.account_processing.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import ru.t1.account_processing.fraud.CardVelocityCounter;
+import ru.t1.account_processing.fraud.ChangelogVelocityStore;
+import ru.t1.account_processing.fraud.InMemoryVelocityStore;
+import ru.t1.account_processing.fraud.VelocityStore;
+
+/**
+ * Конфигурация фрод-контроля частоты транзакций по картам.
+ */
+@Slf4j
+@Configuration
+@EnableScheduling
+public class FraudConfig {
+
+    /** Размер временного окна (в миллисекундах) для фрод-аналитики. */
+    @Value("${fraud.time-window-ms}")
+    private long timeWindowMs;
+
+    /** Максимальное количество одновременно отслеживаемых карт. */
+    @Value("${fraud.counter.capacity}")
+    private int capacity;
+
+    /** Количество временных корзин в окне. */
+    @Value("${fraud.counter.bucket-count}")
+    private int bucketCount;
+
+    /** Реализация {@link VelocityStore}: {@code memory} или {@code changelog}. */
+    @Value("${fraud.velocity-store}")
+    private String velocityStore;
+
+    /** Changelog-топик состояния фрод-счётчика. */
+    @Value("${fraud.changelog.topic}")
+    private String changelogTopic;
+
+    /**
+     * Счётчик частоты транзакций с метриками количества карт, переполнения и занимаемой памяти.
+     *
+     * @param meterRegistry реестр метрик
+     * @return счётчик частоты транзакций по картам
+     */
+    @Bean
+    public CardVelocityCounter cardVelocityCounter(MeterRegistry meterRegistry) {
+        boolean trackChanges = "changelog".equals(velocityStore);
+        CardVelocityCounter counter = new CardVelocityCounter(capacity, timeWindowMs, bucketCount, trackChanges);
+
+        Gauge.builder("fraud_velocity_tracked_cards", counter, CardVelocityCounter::trackedCards)
+                .description("Количество карт, отслеживаемых фрод-счётчиком")
+                .register(meterRegistry);
+        Gauge.builder("fraud_velocity_overflow_cards", counter, CardVelocityCounter::overflowCards)
+                .description("Активные карты, не поместившиеся в слоты счётчика (capacity мал для нагрузки)")
+                .register(meterRegistry);
+        Gauge.builder("fraud_velocity_memory_bytes", counter, CardVelocityCounter::memoryFootprintBytes)
+                .description("Объём памяти фрод-счётчика")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        log.info("Фрод-счётчик: ёмкость {} карт, {} корзин, {} байт",
+                counter.capacity(), bucketCount, counter.memoryFootprintBytes());
+        return counter;
+    }
+
+    /**
+     * Локальное хранилище (по умолчанию).
+     */
+    @Bean
+    @ConditionalOnProperty(name = "fraud.velocity-store", havingValue = "memory", matchIfMissing = true)
+    public VelocityStore inMemoryVelocityStore(CardVelocityCounter cardVelocityCounter) {
+        return new InMemoryVelocityStore(cardVelocityCounter);
+    }
+
+    /**
+     * Хранилище, реплицируемое через compacted-топик. Восстанавливается при создании бина,
+     * то есть до старта Kafka-листенеров.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(name = "fraud.velocity-store", havingValue = "changelog")
+    public ChangelogVelocityStore changelogVelocityStore(
+            CardVelocityCounter cardVelocityCounter,
+            KafkaProperties kafkaProperties,
+            @Value("${fraud.changelog.restore-timeout-ms}") long restoreTimeoutMs) {
+        return new ChangelogVelocityStore(
+                cardVelocityCounter,
+                changelogTopic,
+                restoreTimeoutMs,
+                kafkaProperties.buildProducerProperties(null),
+                kafkaProperties.buildConsumerProperties(null)
+        );
+    }
+
+    /**
+     * Changelog-топик: compaction хранит последний снимок карты, а удаление по времени
+     * убирает карты, давно вышедшие из окна.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "fraud.velocity-store", havingValue = "changelog")
+    public NewTopic cardVelocityChangelogTopic(@Value("${fraud.changelog.retention-ms}") long retentionMs) {
+        return TopicBuilder.name(changelogTopic)
+                .partitions(3)
+                .replicas(1)
+                .config(TopicConfig.CLEANUP_POLICY_CONFIG,
+                        TopicConfig.CLEANUP_POLICY_COMPACT + "," + TopicConfig.CLEANUP_POLICY_DELETE)
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(retentionMs))
+                .build();
+    }
+}
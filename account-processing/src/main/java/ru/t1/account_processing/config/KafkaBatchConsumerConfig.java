@@ -0,0 +1,45 @@
+package ru.t1.account_processing.config;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+/**
+ * Конфигурация пакетного режима консьюмера {@code client_transactions}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "transactions.batch.enabled", havingValue = "true")
+public class KafkaBatchConsumerConfig {
+
+    /** Максимальное количество записей, возвращаемых одним poll. */
+    @Value("${transactions.batch.max-poll-records}")
+    private int maxPollRecords;
+
+    /**
+     * Фабрика контейнеров для batch-листенеров с ручным подтверждением офсетов.
+     * Подтверждение коммитится синхронно ({@code MANUAL_IMMEDIATE}), а не при следующем poll,
+     * чтобы после коммита БД окно повторной доставки было минимальным.
+     *
+     * @param configurer      настройщик Spring Boot (применяет параметры {@code spring.kafka.listener.*})
+     * @param consumerFactory фабрика консьюмеров из {@code spring.kafka.consumer.*}
+     * @return фабрика контейнеров
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.getContainerProperties().getKafkaConsumerProperties()
+                .setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(maxPollRecords));
+        return factory;
+    }
+}
@@ -49,4 +49,9 @@ public class Account {
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private AccountStatus status = AccountStatus.ACTIVE;
+
+    /** Версия строки для оптимистической блокировки (увеличивается при каждом изменении) */
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
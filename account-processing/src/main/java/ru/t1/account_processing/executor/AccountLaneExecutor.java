@@ -0,0 +1,185 @@
+package ru.t1.account_processing.executor;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.t1.starter.trace.TraceContextHolder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Исполнитель задач с упорядочиванием по счёту.
+ * <p>
+ * Задачи распределяются по {@code laneCount} «дорожкам» по хешу {@code accountId}.
+ * Каждая дорожка — ограниченная очередь и один виртуальный поток, поэтому задачи одного счёта
+ * выполняются строго последовательно и в порядке поступления, а задачи разных счетов — параллельно.
+ * <p>
+ * Back-pressure: как только очередь любой дорожки заполняется до {@code highWatermark},
+ * вызывается {@code onSaturated} (например, пауза Kafka-контейнера). Когда все переполненные
+ * дорожки разгрузятся до {@code lowWatermark}, вызывается {@code onDrained}.
+ * Если очередь заполнена полностью, {@link #submit} блокирует вызывающий поток.
+ * <p>
+ * Контекст трассировки вызывающего потока запоминается при постановке задачи и восстанавливается
+ * в дорожке на время её выполнения.
+ */
+@Slf4j
+public class AccountLaneExecutor implements AutoCloseable {
+
+    /** Интервал, с которым простаивающая дорожка проверяет признак остановки. */
+    private static final long IDLE_POLL_MS = 100;
+
+    private final Lane[] lanes;
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final Runnable onSaturated;
+    private final Runnable onDrained;
+    private final long shutdownTimeoutMs;
+
+    /** Количество дорожек, находящихся выше верхней отметки. */
+    private final AtomicInteger saturatedLanes = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    /**
+     * @param laneCount     количество дорожек
+     * @param queueCapacity ёмкость очереди одной дорожки
+     * @param onSaturated   вызывается, когда хотя бы одна дорожка достигла верхней отметки
+     * @param onDrained     вызывается, когда все дорожки опустились до нижней отметки
+     * @param shutdownTimeoutMs максимальное время ожидания обработки очередей в {@link #close()}
+     */
+    public AccountLaneExecutor(int laneCount, int queueCapacity, Runnable onSaturated, Runnable onDrained,
+                               long shutdownTimeoutMs) {
+        if (laneCount <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("laneCount и queueCapacity должны быть положительными");
+        }
+        this.highWatermark = Math.max(1, queueCapacity * 3 / 4);
+        this.lowWatermark = queueCapacity / 4;
+        this.onSaturated = onSaturated;
+        this.onDrained = onDrained;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i, queueCapacity);
+        }
+    }
+
+    /**
+     * Ставит задачу в очередь дорожки, соответствующей счёту.
+     *
+     * @param accountId идентификатор счёта (ключ упорядочивания)
+     * @param task      задача (выполняется с контекстом трассировки вызывающего потока)
+     * @throws InterruptedException если поток прерван в ожидании места в очереди
+     */
+    public void submit(Long accountId, Runnable task) throws InterruptedException {
+        if (shutdown) {
+            throw new IllegalStateException("AccountLaneExecutor остановлен");
+        }
+        Lane lane = laneFor(accountId);
+        lane.queue.put(TraceContextHolder.wrap(task));
+        if (lane.queue.size() >= highWatermark && lane.saturated.compareAndSet(false, true)
+                && saturatedLanes.getAndIncrement() == 0) {
+            log.warn("Очередь дорожки {} заполнена до {}, включаю back-pressure", lane.index, highWatermark);
+            onSaturated.run();
+            // дорожка могла разгрузиться до установки флага — тогда снимаем back-pressure сразу
+            afterTask(lane);
+        }
+    }
+
+    /**
+     * @return суммарное количество задач, ожидающих выполнения
+     */
+    public int pendingTasks() {
+        int pending = 0;
+        for (Lane lane : lanes) {
+            pending += lane.queue.size();
+        }
+        return pending;
+    }
+
+    /**
+     * Прекращает приём задач и ожидает выполнения уже поставленных.
+     *
+     * @param timeoutMs максимальное время ожидания
+     * @return {@code true}, если все очереди обработаны до истечения таймаута
+     */
+    public boolean shutdown(long timeoutMs) throws InterruptedException {
+        shutdown = true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        boolean drained = true;
+        for (Lane lane : lanes) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !lane.worker.join(Duration.ofNanos(remaining))) {
+                drained = false;
+            }
+        }
+        if (!drained) {
+            log.warn("Не все задачи обработаны при остановке, осталось {}", pendingTasks());
+        }
+        return drained;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        log.info("Остановка AccountLaneExecutor, ожидает задач: {}", pendingTasks());
+        shutdown(shutdownTimeoutMs);
+    }
+
+    private Lane laneFor(Long accountId) {
+        int hash = accountId == null ? 0 : Long.hashCode(accountId);
+        hash ^= (hash >>> 16);
+        return lanes[Math.floorMod(hash, lanes.length)];
+    }
+
+    private void afterTask(Lane lane) {
+        if (lane.saturated.get() && lane.queue.size() <= lowWatermark && lane.saturated.compareAndSet(true, false)
+                && saturatedLanes.decrementAndGet() == 0) {
+            log.info("Очереди дорожек разгружены, снимаю back-pressure");
+            onDrained.run();
+        }
+    }
+
+    /**
+     * Дорожка: ограниченная очередь и обслуживающий её виртуальный поток.
+     */
+    private final class Lane {
+        private final int index;
+        private final BlockingQueue<Runnable> queue;
+        private final AtomicBoolean saturated = new AtomicBoolean();
+        private final Thread worker;
+
+        private Lane(int index, int capacity) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.worker = Thread.ofVirtual().name("account-lane-" + index).start(this::run);
+        }
+
+        private void run() {
+            while (true) {
+                Runnable task;
+                try {
+                    task = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (task != null) {
+                    execute(task);
+                } else if (shutdown) {
+                    return;
+                }
+            }
+        }
+
+        private void execute(Runnable task) {
+            try {
+                task.run();
+            } catch (Exception ex) {
+                log.error("Ошибка выполнения задачи в дорожке {}: {}", index, ex.getMessage(), ex);
+            } finally {
+                afterTask(this);
+            }
+        }
+    }
+}
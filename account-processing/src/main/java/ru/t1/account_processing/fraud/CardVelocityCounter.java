@@ -0,0 +1,453 @@
+package ru.t1.account_processing.fraud;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Счётчик частоты транзакций по картам в скользящем окне с фиксированным объёмом памяти.
+ * <p>
+ * Вместо {@code Map<Long, Deque<Instant>>} используется открытая адресация по примитивному {@code cardId}:
+ * <ul>
+ *     <li>{@code keys} — идентификаторы карт (пустой слот — {@link #EMPTY});</li>
+ *     <li>{@code lastSeen} — время последней транзакции по карте, используется для вытеснения;</li>
+ *     <li>{@code buckets} — на каждую карту кольцо из {@code bucketCount} временных корзин.
+ *     Значение корзины упаковано в {@code long}: номер интервала (epoch) в старших битах,
+ *     количество транзакций — в младших {@value #COUNT_BITS} битах.</li>
+ * </ul>
+ * Все обновления — CAS без блокировок. Окно делится на {@code bucketCount} корзин, поэтому
+ * учитываются транзакции за последние {@code timeWindowMs} с точностью до ширины одной корзины.
+ * <p>
+ * Карта ищется в окне из {@value #PROBE_WINDOW} слотов. Если свободного слота нет, занимается слот
+ * карты без транзакций дольше окна. Слот сначала помечается {@link #CLAIMING}, корзины обнуляются,
+ * и только затем публикуется {@code cardId}: конкурентный поток не увеличит корзину, которая ещё будет обнулена.
+ * <p>
+ * Активные карты не вытесняются — это сбросило бы их окно и ослабило проверку {@code fraud.max-transactions}.
+ * Если в окне поиска все карты активны, карта учитывается в резервной таблице ({@link #overflowCards()}),
+ * которая очищается вместе с неактивными слотами; её рост означает, что {@code capacity} мал для нагрузки.
+ * <p>
+ * В режиме {@code trackChanges} изменённые слоты отмечаются в битовой карте; их состояние выгружается
+ * через {@link #drainChanges} и может быть объединено на другом экземпляре через {@link #merge}.
+ */
+public class CardVelocityCounter {
+
+    /** Признак пустого слота. */
+    static final long EMPTY = Long.MIN_VALUE;
+
+    /** Признак слота, который занимается: корзины обнуляются, {@code cardId} ещё не опубликован. */
+    static final long CLAIMING = Long.MIN_VALUE + 1;
+
+    /** Количество слотов, просматриваемых при поиске карты. */
+    static final int PROBE_WINDOW = 8;
+
+    /** Количество бит под счётчик в значении корзины. */
+    static final int COUNT_BITS = 20;
+
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final int capacity;
+    private final int mask;
+    private final int bucketCount;
+    private final long bucketWidthMs;
+    private final long timeWindowMs;
+
+    private final AtomicLongArray keys;
+    private final AtomicLongArray lastSeen;
+    private final AtomicLongArray buckets;
+    private final AtomicInteger trackedCards = new AtomicInteger();
+    private final Map<Long, OverflowCard> overflow = new ConcurrentHashMap<>();
+
+    /** Битовая карта изменённых слотов; {@code null}, если отслеживание изменений выключено. */
+    private final AtomicLongArray dirty;
+
+    /**
+     * @param capacity     максимальное количество одновременно отслеживаемых карт (округляется до степени двойки)
+     * @param timeWindowMs размер окна в миллисекундах
+     * @param bucketCount  количество корзин в окне
+     */
+    public CardVelocityCounter(int capacity, long timeWindowMs, int bucketCount) {
+        this(capacity, timeWindowMs, bucketCount, false);
+    }
+
+    /**
+     * @param capacity     максимальное количество одновременно отслеживаемых карт (округляется до степени двойки)
+     * @param timeWindowMs размер окна в миллисекундах
+     * @param bucketCount  количество корзин в окне
+     * @param trackChanges отмечать изменённые карты для выгрузки через {@link #drainChanges}
+     */
+    public CardVelocityCounter(int capacity, long timeWindowMs, int bucketCount, boolean trackChanges) {
+        if (capacity <= 0 || timeWindowMs <= 0 || bucketCount <= 0) {
+            throw new IllegalArgumentException("capacity, timeWindowMs и bucketCount должны быть положительными");
+        }
+        this.capacity = Math.max(PROBE_WINDOW, Integer.highestOneBit(capacity - 1) << 1);
+        this.mask = this.capacity - 1;
+        this.bucketCount = bucketCount;
+        this.bucketWidthMs = Math.max(1, timeWindowMs / bucketCount);
+        this.timeWindowMs = timeWindowMs;
+
+        this.keys = new AtomicLongArray(this.capacity);
+        this.lastSeen = new AtomicLongArray(this.capacity);
+        this.buckets = new AtomicLongArray(this.capacity * bucketCount);
+        this.dirty = trackChanges ? new AtomicLongArray((this.capacity + Long.SIZE - 1) / Long.SIZE) : null;
+        for (int i = 0; i < this.capacity; i++) {
+            keys.set(i, EMPTY);
+        }
+    }
+
+    /**
+     * Регистрирует транзакцию по карте и возвращает количество транзакций в окне, включая текущую.
+     *
+     * @param cardId идентификатор карты
+     * @return количество транзакций по карте за последние {@code timeWindowMs}
+     */
+    public int recordAndCount(long cardId) {
+        return recordAndCount(cardId, System.currentTimeMillis());
+    }
+
+    int recordAndCount(long cardId, long nowMs) {
+        long epoch = nowMs / bucketWidthMs;
+        while (true) {
+            // карта остаётся в резервной таблице до конца своего окна, чтобы не потерять уже учтённые транзакции
+            OverflowCard overflowCard = overflow.isEmpty() ? null : overflow.get(cardId);
+            int slot = overflowCard == null ? findOrClaim(cardId, nowMs) : -1;
+            if (slot < 0) {
+                if (overflowCard == null) {
+                    overflowCard = overflow.computeIfAbsent(cardId, k -> new OverflowCard());
+                }
+                return overflowCard.recordAndCount(nowMs, epoch);
+            }
+            increment(slot * bucketCount + (int) (epoch % bucketCount), epoch);
+            lastSeen.set(slot, nowMs);
+            if (keys.get(slot) == cardId) {
+                markDirty(slot);
+                return count(slot, epoch);
+            }
+            // слот неактивной карты освобождён или перезанят во время обновления — учитываем заново
+        }
+    }
+
+    /**
+     * Объединяет с локальным состоянием снимок карты, полученный извне (например, из changelog-топика).
+     * Для каждой корзины побеждает более поздний интервал, при равном интервале — больший счётчик,
+     * поэтому повторное применение того же снимка не меняет состояние.
+     *
+     * @param cardId      идентификатор карты
+     * @param lastSeenMs  время последней транзакции по карте в снимке
+     * @param snapshot    значения корзин в формате счётчика (длина — {@link #bucketCount()})
+     */
+    public void merge(long cardId, long lastSeenMs, long[] snapshot) {
+        long nowMs = System.currentTimeMillis();
+        if (snapshot.length != bucketCount || nowMs - lastSeenMs > timeWindowMs) {
+            return;
+        }
+        OverflowCard overflowCard = overflow.isEmpty() ? null : overflow.get(cardId);
+        int slot = overflowCard == null ? findOrClaim(cardId, lastSeenMs) : -1;
+        if (slot < 0) {
+            if (overflowCard == null) {
+                overflowCard = overflow.computeIfAbsent(cardId, k -> new OverflowCard());
+            }
+            overflowCard.merge(lastSeenMs, snapshot);
+            return;
+        }
+        int base = slot * bucketCount;
+        for (int b = 0; b < bucketCount; b++) {
+            long remote = snapshot[b];
+            while (true) {
+                long local = buckets.get(base + b);
+                if (!isNewer(remote, local) || buckets.compareAndSet(base + b, local, remote)) {
+                    break;
+                }
+            }
+        }
+        lastSeen.accumulateAndGet(slot, lastSeenMs, Math::max);
+    }
+
+    /**
+     * Передаёт в {@code consumer} текущее состояние карт, изменившихся с предыдущего вызова.
+     * Массив корзин переиспользуется между вызовами {@code consumer}.
+     *
+     * @param consumer получатель снимков
+     * @return количество выгруженных карт
+     */
+    public int drainChanges(ChangeConsumer consumer) {
+        if (dirty == null) {
+            return 0;
+        }
+        long[] snapshot = new long[bucketCount];
+        int drained = 0;
+        for (int word = 0; word < dirty.length(); word++) {
+            long bits = dirty.getAndSet(word, 0);
+            while (bits != 0) {
+                int slot = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                long key = keys.get(slot);
+                if (key == EMPTY || key == CLAIMING) {
+                    continue;
+                }
+                int base = slot * bucketCount;
+                for (int b = 0; b < bucketCount; b++) {
+                    snapshot[b] = buckets.get(base + b);
+                }
+                consumer.accept(key, lastSeen.get(slot), snapshot);
+                drained++;
+            }
+        }
+        for (Map.Entry<Long, OverflowCard> entry : overflow.entrySet()) {
+            long lastSeenMs = entry.getValue().drain(snapshot);
+            if (lastSeenMs >= 0) {
+                consumer.accept(entry.getKey(), lastSeenMs, snapshot);
+                drained++;
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Освобождает слоты карт, по которым не было транзакций дольше окна.
+     *
+     * @return количество освобождённых слотов
+     */
+    public int evictIdle() {
+        return evictIdle(System.currentTimeMillis());
+    }
+
+    int evictIdle(long nowMs) {
+        int evicted = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            long key = keys.get(slot);
+            if (key != EMPTY && key != CLAIMING && isIdle(slot, nowMs) && keys.compareAndSet(slot, key, EMPTY)) {
+                trackedCards.decrementAndGet();
+                evicted++;
+            }
+        }
+        Iterator<OverflowCard> iterator = overflow.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isIdle(nowMs, timeWindowMs)) {
+                iterator.remove();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @return количество карт, отслеживаемых в слотах
+     */
+    public int trackedCards() {
+        return trackedCards.get();
+    }
+
+    /**
+     * @return количество активных карт, не поместившихся в слоты и учитываемых в резервной таблице
+     */
+    public int overflowCards() {
+        return overflow.size();
+    }
+
+    /**
+     * @return приблизительный объём памяти, занимаемый массивами счётчика, в байтах
+     */
+    public long memoryFootprintBytes() {
+        return (long) Long.BYTES * (keys.length() + lastSeen.length() + buckets.length());
+    }
+
+    /**
+     * @return максимальное количество отслеживаемых карт
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return количество корзин в окне
+     */
+    public int bucketCount() {
+        return bucketCount;
+    }
+
+    /**
+     * @return слот карты или {@code -1}, если в окне поиска нет свободных слотов и слотов неактивных карт
+     */
+    private int findOrClaim(long cardId, long nowMs) {
+        int start = spread(cardId) & mask;
+        while (true) {
+            // слоты могут освобождаться, поэтому окно просматривается целиком, без остановки на пустом слоте
+            int free = -1;
+            int idle = -1;
+            boolean claiming = false;
+            for (int i = 0; i < PROBE_WINDOW; i++) {
+                int slot = (start + i) & mask;
+                long key = keys.get(slot);
+                if (key == cardId) {
+                    return slot;
+                }
+                if (key == EMPTY) {
+                    if (free < 0) {
+                        free = slot;
+                    }
+                } else if (key == CLAIMING) {
+                    claiming = true;
+                } else if (idle < 0 && isIdle(slot, nowMs)) {
+                    idle = slot;
+                }
+            }
+            if (claiming) {
+                // слот занимается конкурентным потоком, возможно, для этой же карты — дожидаемся публикации
+                Thread.onSpinWait();
+                continue;
+            }
+            if (free >= 0 && claim(free, EMPTY, cardId, nowMs)) {
+                trackedCards.incrementAndGet();
+                return free;
+            }
+            if (free < 0 && idle >= 0) {
+                long idleKey = keys.get(idle);
+                if (idleKey != EMPTY && idleKey != CLAIMING && claim(idle, idleKey, cardId, nowMs)) {
+                    return idle;
+                }
+            }
+            if (free < 0 && idle < 0) {
+                return -1;
+            }
+            // слот перехвачен конкурентным потоком — повторяем поиск, а не вытесняем активную карту
+        }
+    }
+
+    private boolean claim(int slot, long expectedKey, long cardId, long nowMs) {
+        if (!keys.compareAndSet(slot, expectedKey, CLAIMING)) {
+            return false;
+        }
+        lastSeen.set(slot, nowMs);
+        int base = slot * bucketCount;
+        for (int b = 0; b < bucketCount; b++) {
+            buckets.set(base + b, 0);
+        }
+        keys.set(slot, cardId);
+        return true;
+    }
+
+    private void markDirty(int slot) {
+        if (dirty != null) {
+            long bit = 1L << (slot & (Long.SIZE - 1));
+            int word = slot / Long.SIZE;
+            if ((dirty.get(word) & bit) == 0) {
+                dirty.getAndAccumulate(word, bit, (current, mask) -> current | mask);
+            }
+        }
+    }
+
+    private static boolean isNewer(long candidate, long current) {
+        long candidateEpoch = candidate >>> COUNT_BITS;
+        long currentEpoch = current >>> COUNT_BITS;
+        return candidateEpoch > currentEpoch
+                || (candidateEpoch == currentEpoch && (candidate & COUNT_MASK) > (current & COUNT_MASK));
+    }
+
+    private void increment(int index, long epoch) {
+        while (true) {
+            long current = buckets.get(index);
+            long updated;
+            if (current >>> COUNT_BITS == epoch) {
+                long count = current & COUNT_MASK;
+                if (count == COUNT_MASK) {
+                    return;
+                }
+                updated = current + 1;
+            } else {
+                updated = (epoch << COUNT_BITS) | 1;
+            }
+            if (buckets.compareAndSet(index, current, updated)) {
+                return;
+            }
+        }
+    }
+
+    private int count(int slot, long epoch) {
+        int base = slot * bucketCount;
+        long total = 0;
+        for (int b = 0; b < bucketCount; b++) {
+            total += countIn(buckets.get(base + b), epoch);
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    private long countIn(long bucket, long epoch) {
+        return epoch - (bucket >>> COUNT_BITS) < bucketCount ? bucket & COUNT_MASK : 0;
+    }
+
+    private boolean isIdle(int slot, long nowMs) {
+        return nowMs - lastSeen.get(slot) > timeWindowMs;
+    }
+
+    private static int spread(long cardId) {
+        long h = cardId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Получатель снимков состояния карт.
+     */
+    @FunctionalInterface
+    public interface ChangeConsumer {
+        /**
+         * @param cardId     идентификатор карты
+         * @param lastSeenMs время последней транзакции
+         * @param snapshot   значения корзин (массив переиспользуется, копировать при необходимости)
+         */
+        void accept(long cardId, long lastSeenMs, long[] snapshot);
+    }
+
+    /**
+     * Карта из резервной таблицы: те же корзины, но под блокировкой записи.
+     */
+    private final class OverflowCard {
+        private final long[] cardBuckets = new long[bucketCount];
+        private long cardLastSeen;
+        private boolean changed;
+
+        synchronized int recordAndCount(long nowMs, long epoch) {
+            int index = (int) (epoch % bucketCount);
+            if (cardBuckets[index] >>> COUNT_BITS == epoch) {
+                if ((cardBuckets[index] & COUNT_MASK) != COUNT_MASK) {
+                    cardBuckets[index]++;
+                }
+            } else {
+                cardBuckets[index] = (epoch << COUNT_BITS) | 1;
+            }
+            cardLastSeen = Math.max(cardLastSeen, nowMs);
+            changed = dirty != null;
+            long total = 0;
+            for (long bucket : cardBuckets) {
+                total += countIn(bucket, epoch);
+            }
+            return (int) Math.min(total, Integer.MAX_VALUE);
+        }
+
+        synchronized void merge(long lastSeenMs, long[] snapshot) {
+            for (int b = 0; b < bucketCount; b++) {
+                if (isNewer(snapshot[b], cardBuckets[b])) {
+                    cardBuckets[b] = snapshot[b];
+                }
+            }
+            cardLastSeen = Math.max(cardLastSeen, lastSeenMs);
+        }
+
+        /**
+         * @return время последней транзакции или {@code -1}, если карта не менялась с прошлой выгрузки
+         */
+        synchronized long drain(long[] snapshot) {
+            if (!changed) {
+                return -1;
+            }
+            changed = false;
+            System.arraycopy(cardBuckets, 0, snapshot, 0, bucketCount);
+            return cardLastSeen;
+        }
+
+        synchronized boolean isIdle(long nowMs, long windowMs) {
+            return nowMs - cardLastSeen > windowMs;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.t1.account_processing.fraud;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Периодически освобождает в {@link CardVelocityCounter} слоты карт без активности дольше окна.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CardVelocityEvictionTask {
+
+    private final CardVelocityCounter cardVelocityCounter;
+
+    @Scheduled(fixedDelayString = "${fraud.counter.sweep-interval-ms}")
+    public void evictIdleCards() {
+        int evicted = cardVelocityCounter.evictIdle();
+        if (evicted > 0) {
+            log.debug("Фрод-счётчик: освобождено {} слотов", evicted);
+        }
+    }
+}
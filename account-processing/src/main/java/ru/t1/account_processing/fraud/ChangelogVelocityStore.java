@@ -0,0 +1,218 @@
+package ru.t1.account_processing.fraud;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Хранилище частоты транзакций, реплицируемое через compacted-топик.
+ * <p>
+ * Проверка выполняется по локальному {@link CardVelocityCounter}, поэтому сетевых обращений
+ * на транзакцию нет. Изменённые карты периодически ({@code fraud.changelog.flush-interval-ms})
+ * публикуются в changelog-топик с ключом {@code cardId}; compaction оставляет в топике
+ * только последний снимок каждой карты.
+ * <p>
+ * При старте топик читается с начала, и окно каждой карты восстанавливается до того,
+ * как начнут работать Kafka-листенеры. Далее фоновый поток дочитывает снимки других реплик,
+ * так что после ребалансировки партиций новая реплика уже знает историю карты.
+ * Снимки объединяются по корзинам (побеждает более поздний интервал), поэтому повторное
+ * применение собственных записей безопасно.
+ */
+@Slf4j
+public class ChangelogVelocityStore implements VelocityStore, AutoCloseable {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final CardVelocityCounter counter;
+    private final String topic;
+    private final long restoreTimeoutMs;
+    private final Map<String, Object> producerProperties;
+    private final Map<String, Object> consumerProperties;
+
+    private KafkaProducer<String, byte[]> producer;
+    private KafkaConsumer<String, byte[]> consumer;
+    private Thread tailThread;
+    private volatile boolean running;
+
+    /**
+     * @param counter            локальный счётчик (должен быть создан с {@code trackChanges = true})
+     * @param topic              changelog-топик
+     * @param restoreTimeoutMs   максимальное время восстановления при старте
+     * @param producerProperties базовые свойства продюсера ({@code spring.kafka.producer.*})
+     * @param consumerProperties базовые свойства консьюмера ({@code spring.kafka.consumer.*})
+     */
+    public ChangelogVelocityStore(CardVelocityCounter counter, String topic, long restoreTimeoutMs,
+                                  Map<String, Object> producerProperties, Map<String, Object> consumerProperties) {
+        this.counter = counter;
+        this.topic = topic;
+        this.restoreTimeoutMs = restoreTimeoutMs;
+        this.producerProperties = producerProperties;
+        this.consumerProperties = consumerProperties;
+    }
+
+    @Override
+    public int recordAndCount(long cardId) {
+        return counter.recordAndCount(cardId);
+    }
+
+    /**
+     * Восстанавливает состояние из changelog-топика и запускает фоновое чтение снимков других реплик.
+     */
+    public void start() {
+        Map<String, Object> producerProps = new HashMap<>(producerProperties);
+        producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        producer = new KafkaProducer<>(producerProps);
+
+        Map<String, Object> consumerProps = new HashMap<>(consumerProperties);
+        consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        consumerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        consumerProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        consumerProps.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        consumer = new KafkaConsumer<>(consumerProps);
+
+        restore();
+
+        running = true;
+        tailThread = Thread.ofPlatform().daemon().name("velocity-changelog-tail").start(this::tail);
+    }
+
+    /**
+     * Публикует снимки карт, изменившихся с предыдущей выгрузки.
+     */
+    @Scheduled(fixedDelayString = "${fraud.changelog.flush-interval-ms}")
+    public void flush() {
+        if (producer == null) {
+            return;
+        }
+        int flushed = counter.drainChanges((cardId, lastSeenMs, snapshot) ->
+                producer.send(new ProducerRecord<>(topic, String.valueOf(cardId), encode(lastSeenMs, snapshot)),
+                        (metadata, ex) -> {
+                            if (ex != null) {
+                                log.error("Не удалось отправить снимок карты {} в {}: {}", cardId, topic, ex.getMessage());
+                            }
+                        }));
+        if (flushed > 0) {
+            log.debug("В {} отправлено {} снимков карт", topic, flushed);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        if (consumer != null) {
+            consumer.wakeup();
+        }
+        if (tailThread != null) {
+            tailThread.join(POLL_TIMEOUT.toMillis() * 4);
+        }
+        if (producer != null) {
+            flush();
+            producer.close(Duration.ofSeconds(5));
+        }
+    }
+
+    private void restore() {
+        if (!assignPartitions()) {
+            log.warn("Топик {} недоступен, состояние фрод-счётчика не восстановлено", topic);
+            return;
+        }
+        consumer.seekToBeginning(consumer.assignment());
+        Map<TopicPartition, Long> endOffsets = consumer.endOffsets(consumer.assignment());
+
+        long deadline = System.currentTimeMillis() + restoreTimeoutMs;
+        int restored = 0;
+        while (!reachedEnd(endOffsets)) {
+            if (System.currentTimeMillis() > deadline) {
+                log.warn("Восстановление из {} прервано по таймауту {} мс", topic, restoreTimeoutMs);
+                break;
+            }
+            restored += apply(consumer.poll(POLL_TIMEOUT));
+        }
+        log.info("Из {} восстановлено {} снимков карт", topic, restored);
+    }
+
+    private void tail() {
+        try {
+            while (running) {
+                if (consumer.assignment().isEmpty() && !assignPartitions()) {
+                    Thread.sleep(POLL_TIMEOUT.toMillis());
+                    continue;
+                }
+                apply(consumer.poll(POLL_TIMEOUT));
+            }
+        } catch (WakeupException | InterruptedException ignored) {
+            // остановка
+        } catch (Exception ex) {
+            log.error("Ошибка чтения changelog-топика {}: {}", topic, ex.getMessage(), ex);
+        } finally {
+            consumer.close(Duration.ofSeconds(5));
+        }
+    }
+
+    private boolean assignPartitions() {
+        List<PartitionInfo> partitions = consumer.partitionsFor(topic);
+        if (partitions == null || partitions.isEmpty()) {
+            return false;
+        }
+        consumer.assign(partitions.stream()
+                .map(p -> new TopicPartition(p.topic(), p.partition()))
+                .toList());
+        return true;
+    }
+
+    private boolean reachedEnd(Map<TopicPartition, Long> endOffsets) {
+        for (Map.Entry<TopicPartition, Long> entry : endOffsets.entrySet()) {
+            if (consumer.position(entry.getKey()) < entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int apply(ConsumerRecords<String, byte[]> records) {
+        int applied = 0;
+        for (ConsumerRecord<String, byte[]> record : records) {
+            if (record.key() == null || record.value() == null) {
+                continue;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(record.value());
+            long lastSeenMs = buffer.getLong();
+            long[] snapshot = new long[buffer.remaining() / Long.BYTES];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = buffer.getLong();
+            }
+            counter.merge(Long.parseLong(record.key()), lastSeenMs, snapshot);
+            applied++;
+        }
+        return applied;
+    }
+
+    private static byte[] encode(long lastSeenMs, long[] snapshot) {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES * (snapshot.length + 1));
+        buffer.putLong(lastSeenMs);
+        for (long value : snapshot) {
+            buffer.putLong(value);
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,17 @@
+package ru.t1.account_processing.fraud;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Локальное хранилище частоты транзакций на базе {@link CardVelocityCounter}.
+ */
+@RequiredArgsConstructor
+public class InMemoryVelocityStore implements VelocityStore {
+
+    private final CardVelocityCounter counter;
+
+    @Override
+    public int recordAndCount(long cardId) {
+        return counter.recordAndCount(cardId);
+    }
+}
@@ -0,0 +1,23 @@
+package ru.t1.account_processing.fraud;
+
+/**
+ * Хранилище частоты транзакций по картам, используемое фрод-контролем.
+ * <p>
+ * Реализация выбирается параметром {@code fraud.velocity-store}:
+ * <ul>
+ *     <li>{@code memory} (по умолчанию) — {@link InMemoryVelocityStore}, состояние локально для JVM;</li>
+ *     <li>{@code changelog} — {@link ChangelogVelocityStore}, состояние реплицируется через compacted-топик
+ *     и переживает рестарты и ребалансировки.</li>
+ * </ul>
+ * Все реализации отвечают из локальной памяти, без сетевых обращений на каждую транзакцию.
+ */
+public interface VelocityStore {
+
+    /**
+     * Регистрирует транзакцию по карте.
+     *
+     * @param cardId идентификатор карты
+     * @return количество транзакций по карте в окне {@code fraud.time-window-ms}, включая текущую
+     */
+    int recordAndCount(long cardId);
+}
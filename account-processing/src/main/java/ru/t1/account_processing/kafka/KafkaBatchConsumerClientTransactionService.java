@@ -0,0 +1,64 @@
+package ru.t1.account_processing.kafka;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+import ru.t1.account_processing.service.TransactionBatchService;
+import ru.t1.dto.KafkaMessageClientTransaction;
+
+import java.util.List;
+
+/**
+ * Пакетный Kafka-консьюмер топика {@code client_transactions}.
+ * Включается параметром {@code transactions.batch.enabled=true} вместо {@link KafkaConsumerClientTransactionService}.
+ * <p>
+ * Получает все записи одного poll и передаёт их в {@link TransactionBatchService}.
+ * Офсеты коммитятся сразу после коммита транзакции БД; при ошибке пакет будет прочитан повторно.
+ * Ключи сообщений записываются в той же транзакции, что и балансы, поэтому пакет, повторно прочитанный
+ * после падения между коммитом БД и коммитом офсетов, не применяется второй раз.
+ * <p>
+ * Если счёт пакета изменён параллельно (например, консьюмером платежей), транзакция БД откатывается
+ * и пакет обрабатывается заново с перечитанными счетами — не больше {@code transactions.batch.max-attempts} раз.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "transactions.batch.enabled", havingValue = "true")
+public class KafkaBatchConsumerClientTransactionService {
+
+    private final TransactionBatchService transactionBatchService;
+
+    /** Максимальное количество попыток обработки пакета при конфликте версий счетов. */
+    @Value("${transactions.batch.max-attempts}")
+    private int maxAttempts;
+
+    /**
+     * Обрабатывает пакет сообщений о транзакциях.
+     *
+     * @param messages       сообщения одного poll
+     * @param acknowledgment подтверждение для ручного коммита офсетов
+     */
+    @KafkaListener(topics = "client_transactions", groupId = "account-processing-group",
+            containerFactory = "batchKafkaListenerContainerFactory")
+    public void consume(List<KafkaMessageClientTransaction> messages, Acknowledgment acknowledgment) {
+        log.info("Получен пакет из {} сообщений из топика client_transactions", messages.size());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionBatchService.processBatch(messages);
+                break;
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt >= maxAttempts) {
+                    throw ex;
+                }
+                log.warn("Конфликт версий счетов, пакет будет обработан повторно (попытка {} из {}): {}",
+                        attempt, maxAttempts, ex.getMessage());
+            }
+        }
+        acknowledgment.acknowledge();
+    }
+}
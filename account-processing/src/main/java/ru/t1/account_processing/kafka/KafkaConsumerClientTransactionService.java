@@ -2,39 +2,140 @@ package ru.t1.account_processing.kafka;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+import ru.t1.account_processing.executor.AccountLaneExecutor;
 import ru.t1.account_processing.service.TransactionService;
 import ru.t1.dto.KafkaMessageClientTransaction;
 
 /**
  * Kafka-консьюмер для обработки клиентских транзакций из топика {@code client_transactions}.
- * Делегирует бизнес-логику в {@link TransactionService}.
+ * Делегирует бизнес-логику в {@link TransactionService} через {@link AccountLaneExecutor}:
+ * транзакции одного счёта обрабатываются последовательно, разных счетов — параллельно.
+ * Повторно доставленные сообщения отсеиваются по {@code messageKey} (см. {@code MessageIdempotencyService}).
+ * Активен, пока не включён пакетный режим ({@link KafkaBatchConsumerClientTransactionService}).
+ * <p>
+ * Офсет записи коммитится только после её обработки в дорожке ({@link LaneOffsetTracker}), поэтому
+ * падение сервиса не теряет принятые, но не обработанные сообщения. Ошибка обработки повторяется
+ * по {@code transactions.lanes.retry-*}, после чего запись передаётся в {@link ConsumerRecordRecoverer}
+ * (dead-letter топик {@code client_transactions.DLT}). Пока публикация в dead-letter не удалась,
+ * дорожка повторяет её и не берёт следующие записи: очередь заполняется, и консьюмер встаёт на паузу.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "transactions.batch.enabled", havingValue = "false", matchIfMissing = true)
 public class KafkaConsumerClientTransactionService {
 
+    /** Идентификатор контейнера листенера (используется для паузы при back-pressure). */
+    public static final String LISTENER_ID = "clientTransactionsListener";
+
     private final TransactionService transactionService;
+    private final AccountLaneExecutor accountLaneExecutor;
+    private final LaneOffsetTracker laneOffsetTracker;
+    private final BackOff laneRetryBackOff;
+    private final ConsumerRecordRecoverer clientTransactionsRecoverer;
+
+    /** Пауза между попытками публикации в dead-letter топик. */
+    @Value("${transactions.lanes.dead-letter-retry-interval-ms}")
+    private long deadLetterRetryIntervalMs;
 
     /**
-     * Обрабатывает входящее сообщение о транзакции.
+     * Принимает входящее сообщение о транзакции и ставит его в дорожку счёта.
      *
-     * @param message сообщение с данными о транзакции
+     * @param record         запись с данными о транзакции
+     * @param acknowledgment подтверждение записи (вызывается после обработки в дорожке)
      */
-    @KafkaListener(topics = "client_transactions", groupId = "account-processing-group")
-    public void consume(KafkaMessageClientTransaction message) {
+    @KafkaListener(id = LISTENER_ID, topics = "client_transactions", groupId = "account-processing-group",
+            concurrency = "${transactions.listener-concurrency}",
+            containerFactory = "laneKafkaListenerContainerFactory")
+    public void consume(ConsumerRecord<String, KafkaMessageClientTransaction> record,
+                        Acknowledgment acknowledgment) throws InterruptedException {
+        KafkaMessageClientTransaction message = record.value();
         log.info("Получено сообщение из топика client_transactions: {}", message);
+        LaneOffsetTracker.InFlight inFlight = laneOffsetTracker.register(
+                new TopicPartition(record.topic(), record.partition()), record.offset(), acknowledgment);
+        accountLaneExecutor.submit(message.getAccountId(), () -> process(record, inFlight));
+    }
+
+    void process(ConsumerRecord<String, KafkaMessageClientTransaction> record, LaneOffsetTracker.InFlight inFlight) {
+        if (inFlight.isCancelled()) {
+            log.debug("Партиция {}-{} отозвана, запись {} обработает новый владелец",
+                    record.topic(), record.partition(), record.offset());
+            return;
+        }
         try {
-            transactionService.processTransaction(
-                    message.getAccountId(),
-                    message.getCardId(),
-                    message.getType(),
-                    message.getAmount()
-            );
+            processWithRetry(record.value());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return; // остановка: офсет не подтверждается, запись будет прочитана повторно
         } catch (Exception ex) {
-            log.error("Ошибка обработки Kafka сообщения: {}", ex.getMessage(), ex);
+            try {
+                if (!recover(record, ex, inFlight)) {
+                    return; // партиция отозвана: запись прочитает новый владелец
+                }
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        laneOffsetTracker.complete(inFlight);
+    }
+
+    private void processWithRetry(KafkaMessageClientTransaction message) throws InterruptedException {
+        BackOffExecution backOff = laneRetryBackOff.start();
+        while (true) {
+            try {
+                transactionService.processTransaction(
+                        message.getMessageKey(),
+                        message.getAccountId(),
+                        message.getCardId(),
+                        message.getType(),
+                        message.getAmount()
+                );
+                return;
+            } catch (IllegalArgumentException ex) {
+                throw ex; // неизвестный тип или счёт: повтор не поможет
+            } catch (RuntimeException ex) {
+                long delayMs = backOff.nextBackOff();
+                if (delayMs == BackOffExecution.STOP) {
+                    throw ex;
+                }
+                log.warn("Ошибка обработки сообщения по счёту {}, повтор через {} мс: {}",
+                        message.getAccountId(), delayMs, ex.getMessage());
+                Thread.sleep(delayMs);
+            }
+        }
+    }
+
+    /**
+     * Публикует необработанную запись в dead-letter топик, повторяя попытки, пока партиция принадлежит
+     * этому консьюмеру: иначе офсет партиции перестал бы продвигаться до ребалансировки.
+     *
+     * @return {@code false}, если партиция отозвана до успешной публикации
+     */
+    private boolean recover(ConsumerRecord<String, KafkaMessageClientTransaction> record, Exception cause,
+                            LaneOffsetTracker.InFlight inFlight) throws InterruptedException {
+        while (true) {
+            try {
+                clientTransactionsRecoverer.accept(record, cause);
+                return true;
+            } catch (Exception recoveryEx) {
+                if (inFlight.isCancelled()) {
+                    return false;
+                }
+                log.error("Не удалось передать в dead-letter запись {}-{}@{}, повтор через {} мс: {}", record.topic(),
+                        record.partition(), record.offset(), deadLetterRetryIntervalMs, recoveryEx.getMessage());
+                Thread.sleep(deadLetterRetryIntervalMs);
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,208 @@
+package ru.t1.account_processing.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Учёт офсетов записей, обрабатываемых в {@link ru.t1.account_processing.executor.AccountLaneExecutor}.
+ * <p>
+ * Дорожки завершают записи одной партиции не по порядку, поэтому офсет подтверждается только для
+ * непрерывного префикса завершённых записей: если запись 10 обработана раньше записи 5, коммит
+ * продвинется за 10 только после завершения 5. Подтверждение ({@link Acknowledgment}, режим {@code MANUAL})
+ * ставится в очередь и коммитится потоком консьюмера.
+ * <p>
+ * При отзыве партиций (ребалансировка, остановка) ждёт до {@code transactions.lanes.revoke-drain-timeout-ms},
+ * пока дорожки завершат принятые записи, синхронно коммитит достигнутые офсеты и отменяет оставшиеся задачи:
+ * новый владелец партиции прочитает их заново с закоммиченного офсета.
+ */
+@Slf4j
+public class LaneOffsetTracker implements ConsumerAwareRebalanceListener {
+
+    private final long revokeDrainTimeoutMs;
+    private final Map<TopicPartition, PartitionOffsets> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * @param revokeDrainTimeoutMs максимальное ожидание дорожек при отзыве партиций
+     *                             (должно быть заметно меньше {@code max.poll.interval.ms})
+     */
+    public LaneOffsetTracker(long revokeDrainTimeoutMs) {
+        this.revokeDrainTimeoutMs = revokeDrainTimeoutMs;
+    }
+
+    /**
+     * Регистрирует принятую запись. Вызывается потоком консьюмера в порядке офсетов.
+     *
+     * @param partition      партиция записи
+     * @param offset         офсет записи
+     * @param acknowledgment подтверждение записи
+     * @return запись в обработке
+     */
+    public InFlight register(TopicPartition partition, long offset, Acknowledgment acknowledgment) {
+        InFlight inFlight = new InFlight(partition, offset, acknowledgment);
+        partitions.computeIfAbsent(partition, PartitionOffsets::new).add(inFlight);
+        return inFlight;
+    }
+
+    /**
+     * Отмечает запись обработанной и подтверждает непрерывный префикс завершённых записей партиции.
+     *
+     * @param inFlight запись, возвращённая {@link #register}
+     */
+    public void complete(InFlight inFlight) {
+        PartitionOffsets offsets = partitions.get(inFlight.partition);
+        if (offsets == null) {
+            return; // партиция отозвана, офсет закоммитит новый владелец
+        }
+        InFlight last = offsets.complete(inFlight);
+        if (last != null) {
+            last.acknowledgment.acknowledge();
+        }
+    }
+
+    /**
+     * @param partition партиция
+     * @return количество принятых, но ещё не подтверждённых записей партиции
+     */
+    public int pending(TopicPartition partition) {
+        PartitionOffsets offsets = partitions.get(partition);
+        return offsets == null ? 0 : offsets.size();
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(revokeDrainTimeoutMs);
+        Map<TopicPartition, OffsetAndMetadata> commits = new HashMap<>();
+        int cancelled = 0;
+        for (TopicPartition partition : revoked) {
+            PartitionOffsets offsets = partitions.get(partition);
+            if (offsets == null) {
+                continue;
+            }
+            if (!offsets.awaitEmpty(deadline)) {
+                log.warn("Партиция {} отозвана до завершения {} записей, они будут обработаны новым владельцем",
+                        partition, offsets.size());
+            }
+            cancelled += offsets.cancel();
+            partitions.remove(partition);
+            if (offsets.nextOffset >= 0) {
+                commits.put(partition, new OffsetAndMetadata(offsets.nextOffset));
+            }
+        }
+        if (!commits.isEmpty()) {
+            // подтверждения дорожек ещё могут быть в очереди контейнера — коммитим достигнутые офсеты сами
+            consumer.commitSync(commits);
+        }
+        if (cancelled > 0) {
+            log.info("Отменено {} незавершённых задач отозванных партиций {}", cancelled, revoked);
+        }
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> lost) {
+        // коммит невозможен: партиции уже у другого владельца
+        for (TopicPartition partition : lost) {
+            PartitionOffsets offsets = partitions.remove(partition);
+            if (offsets != null) {
+                offsets.cancel();
+            }
+        }
+    }
+
+    /**
+     * Запись, переданная в дорожку.
+     */
+    public static final class InFlight {
+        private final TopicPartition partition;
+        private final long offset;
+        private final Acknowledgment acknowledgment;
+        private boolean done;
+        private volatile boolean cancelled;
+
+        private InFlight(TopicPartition partition, long offset, Acknowledgment acknowledgment) {
+            this.partition = partition;
+            this.offset = offset;
+            this.acknowledgment = acknowledgment;
+        }
+
+        /**
+         * @return {@code true}, если партиция отозвана и запись обработает новый владелец
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Незавершённые записи одной партиции в порядке офсетов.
+     */
+    private static final class PartitionOffsets {
+        private final TopicPartition partition;
+        private final NavigableMap<Long, InFlight> inFlight = new TreeMap<>();
+        /** Офсет для коммита: следующий после последней записи непрерывного завершённого префикса. */
+        private long nextOffset = -1;
+
+        private PartitionOffsets(TopicPartition partition) {
+            this.partition = partition;
+        }
+
+        synchronized void add(InFlight record) {
+            inFlight.put(record.offset, record);
+        }
+
+        synchronized InFlight complete(InFlight record) {
+            if (inFlight.get(record.offset) != record) {
+                return null;
+            }
+            record.done = true;
+            InFlight last = null;
+            while (!inFlight.isEmpty() && inFlight.firstEntry().getValue().done) {
+                last = inFlight.pollFirstEntry().getValue();
+            }
+            if (last != null) {
+                nextOffset = last.offset + 1;
+                if (inFlight.isEmpty()) {
+                    notifyAll();
+                }
+            }
+            return last;
+        }
+
+        synchronized int size() {
+            return inFlight.size();
+        }
+
+        synchronized boolean awaitEmpty(long deadlineNanos) {
+            while (!inFlight.isEmpty()) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+                if (remainingMs <= 0) {
+                    return false;
+                }
+                try {
+                    wait(remainingMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        synchronized int cancel() {
+            int cancelled = inFlight.size();
+            inFlight.values().forEach(record -> record.cancelled = true);
+            inFlight.clear();
+            if (cancelled > 0) {
+                log.debug("Партиция {}: отменено {} записей", partition, cancelled);
+            }
+            return cancelled;
+        }
+    }
+}
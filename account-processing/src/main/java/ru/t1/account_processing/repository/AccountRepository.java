@@ -1,10 +1,60 @@
 package ru.t1.account_processing.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.t1.account_processing.entity.Account;
 import ru.t1.starter.aop.annotation.Cached;
 
+import java.math.BigDecimal;
+
+/**
+ * Репозиторий счетов.
+ * <p>
+ * Баланс меняется только атомарными условными UPDATE (без чтения и {@code save()} сущности),
+ * поэтому параллельные консьюмеры транзакций и платежей не теряют изменения друг друга и не держат
+ * блокировку строки дольше одного запроса. Каждый UPDATE увеличивает {@code version}, и устаревшая
+ * копия {@link Account}, сохранённая через {@code save()}, получит ошибку оптимистической блокировки.
+ */
 public interface AccountRepository extends JpaRepository<Account, Long> {
    @Cached(cacheName = "Account")
    Account findByClientIdAndProductId(Long clientId, Long productId);
+
+   /**
+    * Изменяет баланс активного счёта на {@code delta}.
+    *
+    * @param id    идентификатор счёта
+    * @param delta изменение баланса (отрицательное — списание без проверки остатка)
+    * @return 1 — баланс изменён; 0 — счёт не найден или не {@code ACTIVE}
+    */
+   @Modifying(flushAutomatically = true)
+   @Query(value = "UPDATE accounts SET balance = balance + :delta, version = version + 1 " +
+           "WHERE id = :id AND status = 'ACTIVE'",
+           nativeQuery = true)
+   int addToBalance(@Param("id") Long id, @Param("delta") BigDecimal delta);
+
+   /**
+    * Списывает сумму с активного счёта, если на нём достаточно средств.
+    *
+    * @param id     идентификатор счёта
+    * @param amount сумма списания
+    * @return 1 — списано; 0 — недостаточно средств, счёт не найден или не {@code ACTIVE}
+    */
+   @Modifying(flushAutomatically = true)
+   @Query(value = "UPDATE accounts SET balance = balance - :amount, version = version + 1 " +
+           "WHERE id = :id AND status = 'ACTIVE' AND balance >= :amount",
+           nativeQuery = true)
+   int withdrawIfSufficient(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+   /**
+    * Блокирует счёт.
+    *
+    * @param id идентификатор счёта
+    * @return 1 — счёт заблокирован; 0 — счёт не найден
+    */
+   @Modifying(flushAutomatically = true)
+   @Query(value = "UPDATE accounts SET status = 'BLOCKED', version = version + 1 WHERE id = :id",
+           nativeQuery = true)
+   int block(@Param("id") Long id);
 }
@@ -0,0 +1,68 @@
+package ru.t1.account_processing.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * JDBC-репозиторий таблицы {@code processed_messages} — ключей уже применённых Kafka-сообщений.
+ * <p>
+ * Ключ «занимается» вставкой с {@code ON CONFLICT DO NOTHING}: первичный ключ гарантирует, что из
+ * нескольких транзакций с одним ключом вставку выполнит только одна (остальные дождутся её коммита
+ * и получат конфликт). Пакет ключей занимается одним запросом через {@code unnest}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProcessedMessageRepository {
+
+    private static final String CLAIM_SQL =
+            "INSERT INTO processed_messages (message_key) SELECT unnest(?) " +
+            "ON CONFLICT (message_key) DO NOTHING RETURNING message_key";
+
+    private static final String PURGE_SQL =
+            "DELETE FROM processed_messages WHERE message_key IN " +
+            "(SELECT message_key FROM processed_messages WHERE processed_at < :before LIMIT :limit)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Записывает ключи сообщений в текущей транзакции.
+     *
+     * @param messageKeys ключи сообщений (без повторов)
+     * @return ключи, которых ещё не было в таблице; остальные уже обработаны
+     */
+    public Set<UUID> claim(Collection<UUID> messageKeys) {
+        Set<UUID> claimed = new HashSet<>();
+        if (messageKeys.isEmpty()) {
+            return claimed;
+        }
+        jdbcTemplate.getJdbcTemplate().query(con -> {
+            PreparedStatement ps = con.prepareStatement(CLAIM_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", messageKeys.toArray()));
+            return ps;
+        }, rs -> {
+            claimed.add(rs.getObject(1, UUID.class));
+        });
+        return claimed;
+    }
+
+    /**
+     * Удаляет ключи, записанные раньше указанного момента.
+     *
+     * @param before граница хранения
+     * @param limit  максимальное количество удаляемых строк за вызов
+     * @return количество удалённых строк
+     */
+    public int purgeOlderThan(LocalDateTime before, int limit) {
+        return jdbcTemplate.update(PURGE_SQL, Map.of("before", Timestamp.valueOf(before), "limit", limit));
+    }
+}
@@ -0,0 +1,128 @@
+package ru.t1.account_processing.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.t1.account_processing.entity.Account;
+import ru.t1.account_processing.entity.Transaction;
+import ru.t1.account_processing.entity.enums.AccountStatus;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * JDBC-репозиторий для пакетной обработки транзакций.
+ * <p>
+ * В отличие от JPA-репозиториев (IDENTITY-ключи не позволяют Hibernate группировать INSERT),
+ * пишет строки {@code transactions} и {@code accounts} через JDBC batch — одним запросом на пакет.
+ * Счета обновляются с проверкой {@code version}: если счёт изменили после чтения, пакет откатывается.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionBatchRepository {
+
+    private static final String SELECT_ACCOUNTS_SQL =
+            "SELECT id, client_id, product_id, balance, interest_rate, is_recalc, card_exist, status, version " +
+            "FROM accounts WHERE id IN (:ids)";
+
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO transactions (account_id, card_id, type, amount, status, timestamp) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_ACCOUNT_SQL =
+            "UPDATE accounts SET balance = ?, status = ?, version = version + 1 WHERE id = ? AND version = ?";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Загружает счета одним запросом.
+     *
+     * @param accountIds идентификаторы счетов
+     * @return карта accountId → счёт (не управляется JPA, изменения не отслеживаются)
+     */
+    public Map<Long, Account> findAccountsByIds(Collection<Long> accountIds) {
+        if (accountIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Account> accounts = new HashMap<>();
+        jdbcTemplate.query(SELECT_ACCOUNTS_SQL, Map.of("ids", accountIds), rs -> {
+            Account account = new Account();
+            account.setId(rs.getLong("id"));
+            account.setClientId(rs.getLong("client_id"));
+            account.setProductId(rs.getLong("product_id"));
+            account.setBalance(rs.getBigDecimal("balance"));
+            account.setInterestRate(rs.getBigDecimal("interest_rate"));
+            account.setIsRecalc(rs.getBoolean("is_recalc"));
+            account.setCardExist(rs.getBoolean("card_exist"));
+            account.setStatus(AccountStatus.valueOf(rs.getString("status")));
+            account.setVersion(rs.getLong("version"));
+            accounts.put(account.getId(), account);
+        });
+        return accounts;
+    }
+
+    /**
+     * Вставляет транзакции одним JDBC batch.
+     *
+     * @param transactions транзакции для сохранения
+     */
+    public void insertTransactions(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_TRANSACTION_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Transaction transaction = transactions.get(i);
+                ps.setLong(1, transaction.getAccountId());
+                ps.setLong(2, transaction.getCardId());
+                ps.setString(3, transaction.getType().name());
+                ps.setBigDecimal(4, transaction.getAmount());
+                ps.setString(5, transaction.getStatus().name());
+                ps.setTimestamp(6, Timestamp.valueOf(transaction.getTimestamp()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return transactions.size();
+            }
+        });
+    }
+
+    /**
+     * Обновляет баланс и статус счетов одним JDBC batch, если их версия не изменилась с момента чтения.
+     *
+     * @param accounts изменённые счета
+     * @throws OptimisticLockingFailureException если хотя бы один счёт изменён параллельно
+     */
+    public void updateAccounts(List<Account> accounts) {
+        if (accounts.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.getJdbcTemplate().batchUpdate(UPDATE_ACCOUNT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Account account = accounts.get(i);
+                ps.setBigDecimal(1, account.getBalance());
+                ps.setString(2, account.getStatus().name());
+                ps.setLong(3, account.getId());
+                ps.setLong(4, account.getVersion());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return accounts.size();
+            }
+        });
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                throw new OptimisticLockingFailureException(
+                        "Счёт " + accounts.get(i).getId() + " изменён параллельно, версия " + accounts.get(i).getVersion());
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Service;
 import ru.t1.account_processing.entity.Account;
 import ru.t1.account_processing.entity.enums.AccountStatus;
 import ru.t1.account_processing.repository.AccountRepository;
+import ru.t1.starter.aop.annotation.CacheEvict;
 
 import java.math.BigDecimal;
 
@@ -26,6 +27,7 @@ public class AccountService {
      * @param clientId  идентификатор клиента
      * @param productId идентификатор продукта
      */
+    @CacheEvict(cacheName = "Account", method = "findByClientIdAndProductId", key = {"#p0", "#p1"})
     public void createAccountForClientProduct(Long clientId, Long productId) {
         Account account = new Account();
         account.setClientId(clientId);
@@ -0,0 +1,167 @@
+package ru.t1.account_processing.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.t1.account_processing.repository.ProcessedMessageRepository;
+import ru.t1.dto.KafkaMessageClientTransaction;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Идемпотентная обработка сообщений {@code client_transactions} по {@link KafkaMessageClientTransaction#getMessageKey()}.
+ * <p>
+ * Ключ сообщения записывается в {@code processed_messages} в той же транзакции БД, что и изменение баланса,
+ * поэтому повторно доставленное сообщение (после ребалансировки или падения до коммита офсета) не будет
+ * применено второй раз. Ключи закоммиченных транзакций хранятся в памяти ({@code transactions.idempotency.recent-keys}
+ * последних), и типичный повтор отсеивается без обращения к БД. Сообщения без ключа обрабатываются как раньше.
+ * <p>
+ * Строки старше {@code transactions.idempotency.retention-ms} периодически удаляются; срок должен превышать
+ * максимальную задержку повторной доставки.
+ */
+@Slf4j
+@Service
+public class MessageIdempotencyService {
+
+    private final ProcessedMessageRepository processedMessageRepository;
+
+    /** Ключи недавно закоммиченных сообщений в порядке обращения (LRU ограниченного размера). */
+    private final Map<UUID, Boolean> recentKeys;
+
+    /** Срок хранения ключей в БД. */
+    private final long retentionMs;
+
+    /** Максимум строк, удаляемых одним запросом при очистке. */
+    private final int purgeBatchSize;
+
+    public MessageIdempotencyService(ProcessedMessageRepository processedMessageRepository,
+                                     @Value("${transactions.idempotency.recent-keys:65536}") int recentKeysCapacity,
+                                     @Value("${transactions.idempotency.retention-ms:604800000}") long retentionMs,
+                                     @Value("${transactions.idempotency.purge-batch-size:10000}") int purgeBatchSize) {
+        this.processedMessageRepository = processedMessageRepository;
+        this.recentKeys = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+                return size() > recentKeysCapacity;
+            }
+        });
+        this.retentionMs = retentionMs;
+        this.purgeBatchSize = purgeBatchSize;
+    }
+
+    /**
+     * Занимает ключ сообщения в текущей транзакции.
+     *
+     * @param messageKey ключ сообщения (может быть {@code null})
+     * @return {@code true}, если сообщение нужно обработать; {@code false}, если оно уже обработано
+     */
+    public boolean claim(UUID messageKey) {
+        if (messageKey == null) {
+            return true;
+        }
+        if (isRecent(messageKey)) {
+            log.info("Сообщение {} уже обработано, повтор пропущен", messageKey);
+            return false;
+        }
+        if (processedMessageRepository.claim(List.of(messageKey)).isEmpty()) {
+            log.info("Сообщение {} уже обработано (по processed_messages), повтор пропущен", messageKey);
+            recentKeys.put(messageKey, Boolean.TRUE);
+            return false;
+        }
+        rememberAfterCommit(List.of(messageKey));
+        return true;
+    }
+
+    /**
+     * Занимает ключи пакета сообщений одним запросом в текущей транзакции.
+     * Повторы внутри пакета, недавно обработанные и уже записанные в БД сообщения отбрасываются.
+     *
+     * @param messages сообщения в порядке чтения из Kafka
+     * @return сообщения, которые нужно обработать, в исходном порядке
+     */
+    public List<KafkaMessageClientTransaction> claimAll(List<KafkaMessageClientTransaction> messages) {
+        Set<UUID> candidates = new LinkedHashSet<>();
+        for (KafkaMessageClientTransaction message : messages) {
+            UUID key = message.getMessageKey();
+            if (key != null && !isRecent(key)) {
+                candidates.add(key);
+            }
+        }
+        Set<UUID> claimed = processedMessageRepository.claim(candidates);
+
+        List<KafkaMessageClientTransaction> fresh = new ArrayList<>(messages.size());
+        for (KafkaMessageClientTransaction message : messages) {
+            UUID key = message.getMessageKey();
+            // remove: второе сообщение с тем же ключом в пакете тоже считается повтором
+            if (key == null || claimed.remove(key)) {
+                fresh.add(message);
+            }
+        }
+
+        int duplicates = messages.size() - fresh.size();
+        if (duplicates > 0) {
+            log.info("Пропущено повторно доставленных сообщений: {} из {}", duplicates, messages.size());
+        }
+        List<UUID> freshKeys = fresh.stream()
+                .map(KafkaMessageClientTransaction::getMessageKey)
+                .filter(Objects::nonNull)
+                .toList();
+        rememberAfterCommit(freshKeys);
+        return fresh;
+    }
+
+    /**
+     * Удаляет из {@code processed_messages} ключи старше срока хранения.
+     */
+    @Scheduled(fixedDelayString = "${transactions.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        LocalDateTime before = LocalDateTime.now().minus(Duration.ofMillis(retentionMs));
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = processedMessageRepository.purgeOlderThan(before, purgeBatchSize);
+            purged += deleted;
+        } while (deleted == purgeBatchSize);
+        if (purged > 0) {
+            log.debug("processed_messages: удалено {} устаревших ключей", purged);
+        }
+    }
+
+    /**
+     * Запоминает ключи в памяти после коммита: при откате сообщение должно обработаться повторно.
+     */
+    private void rememberAfterCommit(Collection<UUID> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remember(keys);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remember(keys);
+            }
+        });
+    }
+
+    /**
+     * Проверяет ключ через {@code get}: в отличие от {@code containsKey}, обращение поднимает ключ
+     * в порядке LRU, и часто повторяемые сообщения не вытесняются.
+     */
+    private boolean isRecent(UUID key) {
+        return recentKeys.get(key) != null;
+    }
+
+    private void remember(Collection<UUID> keys) {
+        for (UUID key : keys) {
+            recentKeys.put(key, Boolean.TRUE);
+        }
+    }
+}
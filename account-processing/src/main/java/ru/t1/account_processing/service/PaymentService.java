@@ -3,6 +3,7 @@ package ru.t1.account_processing.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.t1.account_processing.entity.Account;
 import ru.t1.account_processing.entity.Payment;
 import ru.t1.account_processing.entity.enums.PaymentType;
@@ -45,8 +46,9 @@ public class PaymentService {
      * @param amount    сумма платежа
      * @throws AccountNotFoundException если счёт не найден
      */
+    @Transactional
     @LogDatasourceError
-    @Metric
+    @Metric(limitMs = 500)
     public void processPayment(Long accountId, BigDecimal amount) {
         Account account = accountRepository.findById(accountId)
                 .orElseThrow(() -> new AccountNotFoundException("Счёт не найден: " + accountId));
@@ -71,7 +73,7 @@ public class PaymentService {
     /**
      * Выполняет полное погашение задолженности по счёту:
      * <ul>
-     *     <li>Списывает деньги с баланса счёта;</li>
+     *     <li>Списывает деньги с баланса счёта атомарным UPDATE (если счёт не активен — погашение не проводится);</li>
      *     <li>Создаёт запись о платеже;</li>
      *     <li>Обновляет все непогашенные платежи как оплаченные.</li>
      * </ul>
@@ -81,8 +83,10 @@ public class PaymentService {
      */
     private void performFullRepayment(Account account, BigDecimal amount) {
         // Пересчитываем баланс
-        account.setBalance(account.getBalance().subtract(amount));
-        accountRepository.save(account);
+        if (accountRepository.addToBalance(account.getId(), amount.negate()) == 0) {
+            log.warn("Счёт {} не активен, погашение на сумму {} не проведено", account.getId(), amount);
+            return;
+        }
 
         // Создаём запись о новом платеже
         Payment newPayment = new Payment();
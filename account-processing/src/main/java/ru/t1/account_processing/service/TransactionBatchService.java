@@ -0,0 +1,190 @@
+package ru.t1.account_processing.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.t1.account_processing.entity.Account;
+import ru.t1.account_processing.entity.Transaction;
+import ru.t1.account_processing.entity.enums.AccountStatus;
+import ru.t1.account_processing.entity.enums.TransactionStatus;
+import ru.t1.account_processing.entity.enums.TransactionType;
+import ru.t1.account_processing.repository.TransactionBatchRepository;
+import ru.t1.dto.KafkaMessageClientTransaction;
+import ru.t1.starter.aop.annotation.LogDatasourceError;
+import ru.t1.starter.aop.annotation.Metric;
+
+import java.util.*;
+
+/**
+ * Пакетная обработка транзакций из топика {@code client_transactions}.
+ * <p>
+ * Сообщения одного poll группируются по {@code accountId}, изменения баланса применяются в памяти,
+ * а строки {@code transactions} и {@code accounts} записываются JDBC batch-ем в одной транзакции БД.
+ * Кредитные счета ({@code isRecalc = true}) требуют построения графика платежей и обращения
+ * в credit-processing, поэтому обрабатываются поштучно через {@link TransactionService}, каждое сообщение
+ * в собственной транзакции БД.
+ * Повторно доставленные сообщения отбрасываются до обработки: ключи пакета записываются
+ * в {@code processed_messages} одним запросом в той же транзакции (см. {@link MessageIdempotencyService}).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransactionBatchService {
+
+    private final TransactionService transactionService;
+    private final TransactionBatchRepository transactionBatchRepository;
+    private final MessageIdempotencyService messageIdempotencyService;
+
+    /**
+     * Обрабатывает пакет сообщений о транзакциях.
+     *
+     * @param messages сообщения в порядке чтения из Kafka
+     */
+    @Transactional
+    @LogDatasourceError
+    @Metric
+    public void processBatch(List<KafkaMessageClientTransaction> messages) {
+        Set<Long> accountIds = new LinkedHashSet<>();
+        for (KafkaMessageClientTransaction message : messages) {
+            accountIds.add(message.getAccountId());
+        }
+        Map<Long, Account> accounts = transactionBatchRepository.findAccountsByIds(accountIds);
+
+        // Сообщения по кредитным счетам обрабатываются в собственных транзакциях со своим ключом,
+        // поэтому в общий claimAll пакета не попадают
+        List<KafkaMessageClientTransaction> creditMessages = new ArrayList<>();
+        List<KafkaMessageClientTransaction> batchMessages = new ArrayList<>(messages.size());
+        for (KafkaMessageClientTransaction message : messages) {
+            Account account = accounts.get(message.getAccountId());
+            if (account != null && Boolean.TRUE.equals(account.getIsRecalc())) {
+                creditMessages.add(message);
+            } else {
+                batchMessages.add(message);
+            }
+        }
+
+        List<KafkaMessageClientTransaction> freshMessages = messageIdempotencyService.claimAll(batchMessages);
+        Map<Long, List<KafkaMessageClientTransaction>> messagesByAccount = new LinkedHashMap<>();
+        for (KafkaMessageClientTransaction message : freshMessages) {
+            messagesByAccount.computeIfAbsent(message.getAccountId(), k -> new ArrayList<>()).add(message);
+        }
+
+        List<Transaction> transactions = new ArrayList<>(freshMessages.size());
+        List<Account> changedAccounts = new ArrayList<>();
+
+        for (Map.Entry<Long, List<KafkaMessageClientTransaction>> entry : messagesByAccount.entrySet()) {
+            Account account = accounts.get(entry.getKey());
+            boolean changed = false;
+            for (KafkaMessageClientTransaction message : entry.getValue()) {
+                Transaction transaction = createTransaction(message);
+                if (transaction == null) {
+                    continue;
+                }
+                changed |= applyInMemory(account, transaction, message.getMessageKey());
+                transactions.add(transaction);
+            }
+            if (changed) {
+                changedAccounts.add(account);
+            }
+        }
+
+        transactionBatchRepository.insertTransactions(transactions);
+        transactionBatchRepository.updateAccounts(changedAccounts);
+        creditMessages.forEach(this::processSingle);
+
+        log.info("Пакет обработан: сообщений={}, новых={}, счетов={}, записано транзакций={}, обновлено счетов={}, по кредитным счетам={}",
+                messages.size(), freshMessages.size(), messagesByAccount.size(), transactions.size(),
+                changedAccounts.size(), creditMessages.size());
+    }
+
+    /**
+     * Применяет транзакцию к счёту в памяти по тем же правилам, что и {@link TransactionService}.
+     *
+     * @param account     счёт (может быть {@code null}, если не найден)
+     * @param transaction транзакция, статус которой будет выставлен
+     * @param messageKey  ключ сообщения: при ретрае пакета транзакция не учитывается в частоте по карте повторно
+     * @return {@code true}, если баланс или статус счёта изменился
+     */
+    private boolean applyInMemory(Account account, Transaction transaction, UUID messageKey) {
+        if (transactionService.isSuspicious(messageKey, transaction.getCardId())) {
+            log.warn("Обнаружена подозрительная активность по карте {}", transaction.getCardId());
+            if (account == null) {
+                return false;
+            }
+            account.setStatus(AccountStatus.BLOCKED);
+            transaction.setStatus(TransactionStatus.FROZEN);
+            log.warn("Счёт {} заблокирован из-за фрода", account.getId());
+            return true;
+        }
+
+        if (account == null) {
+            log.warn("Счёт не найден: {}", transaction.getAccountId());
+            return false;
+        }
+
+        if (account.getStatus() == AccountStatus.BLOCKED || account.getStatus() == AccountStatus.ARRESTED) {
+            log.warn("Счёт {} заблокирован или арестован, транзакция отклонена", account.getId());
+            transaction.setStatus(TransactionStatus.CANCELLED);
+            return false;
+        }
+
+        if (transaction.getType() == TransactionType.WITHDRAW) {
+            if (account.getBalance().compareTo(transaction.getAmount()) < 0) {
+                log.warn("Недостаточно средств на счёте {} для списания {}", account.getId(), transaction.getAmount());
+                transaction.setStatus(TransactionStatus.CANCELLED);
+                return false;
+            }
+            account.setBalance(account.getBalance().subtract(transaction.getAmount()));
+        } else {
+            account.setBalance(account.getBalance().add(transaction.getAmount()));
+        }
+        transaction.setStatus(TransactionStatus.COMPLETE);
+        return true;
+    }
+
+    /**
+     * Создаёт транзакцию в статусе {@link TransactionStatus#PROCESSING} без сохранения.
+     *
+     * @param message сообщение из Kafka
+     * @return транзакция или {@code null}, если тип транзакции не распознан
+     */
+    private Transaction createTransaction(KafkaMessageClientTransaction message) {
+        TransactionType type;
+        try {
+            type = TransactionType.valueOf(message.getType().toUpperCase());
+        } catch (RuntimeException ex) {
+            log.error("Неизвестный тип транзакции {} в сообщении {}", message.getType(), message);
+            return null;
+        }
+        Transaction transaction = new Transaction();
+        transaction.setAccountId(message.getAccountId());
+        transaction.setCardId(message.getCardId());
+        transaction.setType(type);
+        transaction.setAmount(message.getAmount());
+        transaction.setStatus(TransactionStatus.PROCESSING);
+        return transaction;
+    }
+
+    /**
+     * Поштучная обработка сообщения по кредитному счёту в отдельной транзакции БД
+     * ({@link TransactionService#processTransactionInNewTransaction}): ключ сообщения занимается в ней же,
+     * а ошибка откатывает только это сообщение и не помечает транзакцию пакета как rollback-only.
+     *
+     * @param message сообщение из Kafka
+     */
+    private void processSingle(KafkaMessageClientTransaction message) {
+        try {
+            transactionService.processTransactionInNewTransaction(
+                    message.getMessageKey(),
+                    message.getAccountId(),
+                    message.getCardId(),
+                    message.getType(),
+                    message.getAmount()
+            );
+        } catch (Exception ex) {
+            log.error("Ошибка обработки транзакции по кредитному счёту {}: {}",
+                    message.getAccountId(), ex.getMessage(), ex);
+        }
+    }
+}
@@ -4,11 +4,14 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import ru.t1.account_processing.client.CreditProcessingClient;
 import ru.t1.account_processing.entity.Account;
 import ru.t1.account_processing.entity.Payment;
 import ru.t1.account_processing.entity.Transaction;
 import ru.t1.account_processing.entity.enums.*;
+import ru.t1.account_processing.fraud.VelocityStore;
 import ru.t1.account_processing.repository.AccountRepository;
 import ru.t1.account_processing.repository.PaymentRepository;
 import ru.t1.account_processing.repository.TransactionRepository;
@@ -17,10 +20,8 @@ import ru.t1.starter.aop.annotation.Metric;
 import ru.t1.dto.ProductRegistryInfo;
 
 import java.math.BigDecimal;
-import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Бизнес-сервис для обработки транзакций клиентов.
@@ -33,17 +34,29 @@ public class TransactionService {
     private final TransactionRepository transactionRepository;
     private final PaymentRepository paymentRepository;
     private final CreditProcessingClient creditProcessingClient;
+    private final MessageIdempotencyService messageIdempotencyService;
 
-    /** Карта историй транзакций: cardId → очередь временных меток транзакций. */
-    private final ConcurrentHashMap<Long, Deque<Instant>> transactionHistory = new ConcurrentHashMap<>();
+    /** Хранилище частоты транзакций по картам в скользящем окне {@code fraud.time-window-ms}. */
+    private final VelocityStore velocityStore;
 
     /** Максимальное количество транзакций, допустимых в пределах заданного окна времени. */
     @Value("${fraud.max-transactions}")
     private int maxTransactions;
 
-    /** Размер временного окна (в миллисекундах), в пределах которого учитываются транзакции для фрод-аналитики. */
-    @Value("${fraud.time-window-ms}")
-    private long timeWindowMs;
+    /** Сколько последних решений фрод-контроля по ключам сообщений хранить в памяти. */
+    @Value("${fraud.verdict-cache-size:65536}")
+    private int verdictCacheSize;
+
+    /**
+     * Решения фрод-контроля по ключам сообщений: повторная обработка того же сообщения (ретрай пакета,
+     * повторная доставка) берёт прежнее решение и не учитывается в частоте по карте второй раз.
+     */
+    private final Map<UUID, Boolean> fraudVerdicts = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+            return size() > verdictCacheSize;
+        }
+    });
 
     /** Константа: количество месяцев в году. */
     private static final int MONTHS_IN_YEAR = 12;
@@ -56,16 +69,37 @@ public class TransactionService {
      * @param type тип транзакции ({@code DEPOSIT} или {@code WITHDRAW})
      * @param amount сумма транзакции
      */
+    @Transactional
     @LogDatasourceError
-    @Metric
+    @Metric(limitMs = 500)
     public void processTransaction(Long accountId, Long cardId, String type, BigDecimal amount) {
+        processTransaction(null, accountId, cardId, type, amount);
+    }
+
+    /**
+     * Обрабатывает транзакцию из Kafka-сообщения ровно один раз: ключ сообщения записывается
+     * в той же транзакции БД, что и изменение баланса (см. {@link MessageIdempotencyService}).
+     *
+     * @param messageKey ключ сообщения ({@code null} — без проверки повторов)
+     * @param accountId идентификатор счёта
+     * @param cardId идентификатор карты
+     * @param type тип транзакции ({@code DEPOSIT} или {@code WITHDRAW})
+     * @param amount сумма транзакции
+     */
+    @Transactional
+    @LogDatasourceError
+    @Metric(limitMs = 500)
+    public void processTransaction(UUID messageKey, Long accountId, Long cardId, String type, BigDecimal amount) {
+        if (messageKey != null && !messageIdempotencyService.claim(messageKey)) {
+            return;
+        }
         log.info("Обработка транзакции: accountId={}, cardId={}, type={}, amount={}",
                 accountId, cardId, type, amount);
 
         TransactionType transactionType = TransactionType.valueOf(type.toUpperCase());
         Transaction transaction = createTransaction(accountId, cardId, transactionType, amount);
 
-        if (isSuspicious(cardId)) {
+        if (isSuspicious(messageKey, cardId)) {
             handleFraudulentTransaction(transaction);
             return;
         }
@@ -89,6 +123,24 @@ public class TransactionService {
         applyTransaction(account, transaction);
     }
 
+    /**
+     * То же, что {@link #processTransaction(UUID, Long, Long, String, BigDecimal)}, но в отдельной транзакции БД.
+     * Используется пакетной обработкой для кредитных счетов: откат одного сообщения не затрагивает пакет.
+     *
+     * @param messageKey ключ сообщения ({@code null} — без проверки повторов)
+     * @param accountId идентификатор счёта
+     * @param cardId идентификатор карты
+     * @param type тип транзакции ({@code DEPOSIT} или {@code WITHDRAW})
+     * @param amount сумма транзакции
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @LogDatasourceError
+    @Metric(limitMs = 500)
+    public void processTransactionInNewTransaction(UUID messageKey, Long accountId, Long cardId,
+                                                   String type, BigDecimal amount) {
+        processTransaction(messageKey, accountId, cardId, type, amount);
+    }
+
     /**
      * Создаёт и сохраняет новую транзакцию в статусе {@link TransactionStatus#PROCESSING}.
      *
@@ -116,13 +168,11 @@ public class TransactionService {
      */
     private void handleFraudulentTransaction(Transaction transaction) {
         log.warn("Обнаружена подозрительная активность по карте {}", transaction.getCardId());
-        accountRepository.findById(transaction.getAccountId()).ifPresent(account -> {
-            account.setStatus(AccountStatus.BLOCKED);
-            accountRepository.save(account);
+        if (accountRepository.block(transaction.getAccountId()) > 0) {
             transaction.setStatus(TransactionStatus.FROZEN);
             transactionRepository.save(transaction);
-            log.warn("Счёт {} заблокирован из-за фрода", account.getId());
-        });
+            log.warn("Счёт {} заблокирован из-за фрода", transaction.getAccountId());
+        }
     }
 
     /**
@@ -131,52 +181,64 @@ public class TransactionService {
      * @param cardId идентификатор карты
      * @return {@code true}, если количество транзакций превысило лимит за установленное окно времени
      */
-    private boolean isSuspicious(Long cardId) {
-        Instant now = Instant.now();
-        Deque<Instant> history = transactionHistory.computeIfAbsent(cardId, k -> new ArrayDeque<>());
+    boolean isSuspicious(Long cardId) {
+        return velocityStore.recordAndCount(cardId) > maxTransactions;
+    }
 
-        synchronized (history) {
-            while (!history.isEmpty() && history.peekFirst().isBefore(now.minusMillis(timeWindowMs))) {
-                history.pollFirst();
-            }
-            history.addLast(now);
-            return history.size() > maxTransactions;
+    /**
+     * Проверяет транзакцию из Kafka-сообщения; транзакция учитывается в частоте по карте один раз
+     * на ключ сообщения, повторные вызовы с тем же ключом возвращают прежнее решение.
+     *
+     * @param messageKey ключ сообщения ({@code null} — транзакция учитывается при каждом вызове)
+     * @param cardId идентификатор карты
+     * @return {@code true}, если количество транзакций превысило лимит за установленное окно времени
+     */
+    boolean isSuspicious(UUID messageKey, Long cardId) {
+        if (messageKey == null) {
+            return isSuspicious(cardId);
         }
+        return fraudVerdicts.computeIfAbsent(messageKey, k -> isSuspicious(cardId));
     }
 
     /**
-     * Применяет транзакцию к счёту:
+     * Применяет транзакцию к счёту атомарным условным UPDATE (см. {@link AccountRepository}):
      * <ul>
      *     <li>При {@code DEPOSIT} — увеличивает баланс и проверяет кредитные платежи</li>
      *     <li>При {@code WITHDRAW} — уменьшает баланс (при наличии средств)</li>
      * </ul>
+     * Если счёт успели заблокировать или средств не хватило, транзакция отменяется.
      *
-     * @param account счёт, к которому применяется транзакция
+     * @param account счёт, к которому применяется транзакция (не изменяется)
      * @param transaction текущая транзакция
      */
     private void applyTransaction(Account account, Transaction transaction) {
         switch (transaction.getType()) {
             case DEPOSIT -> {
-                account.setBalance(account.getBalance().add(transaction.getAmount()));
+                if (accountRepository.addToBalance(account.getId(), transaction.getAmount()) == 0) {
+                    cancel(transaction, "Счёт {} больше не активен, пополнение на {} отклонено");
+                    return;
+                }
                 if (Boolean.TRUE.equals(account.getIsRecalc())) {
                     processCreditRepayment(transaction, account);
                 }
             }
             case WITHDRAW -> {
-                if (account.getBalance().compareTo(transaction.getAmount()) < 0) {
-                    log.warn("Недостаточно средств на счёте {} для списания {}", account.getId(), transaction.getAmount());
-                    transaction.setStatus(TransactionStatus.CANCELLED);
-                    transactionRepository.save(transaction);
+                if (accountRepository.withdrawIfSufficient(account.getId(), transaction.getAmount()) == 0) {
+                    cancel(transaction, "Недостаточно средств на счёте {} для списания {}");
                     return;
                 }
-                account.setBalance(account.getBalance().subtract(transaction.getAmount()));
             }
         }
-        accountRepository.save(account);
         transaction.setStatus(TransactionStatus.COMPLETE);
         transactionRepository.save(transaction);
     }
 
+    private void cancel(Transaction transaction, String message) {
+        log.warn(message, transaction.getAccountId(), transaction.getAmount());
+        transaction.setStatus(TransactionStatus.CANCELLED);
+        transactionRepository.save(transaction);
+    }
+
     /**
      * Формирует график платежей по кредитному счёту.
      *
@@ -204,7 +266,7 @@ public class TransactionService {
     /**
      * Обрабатывает автоматическое погашение кредита:
      * если на балансе достаточно средств — списывает сумму следующего платежа и помечает его как оплаченный,
-     * иначе — помечает платёж как просроченный.
+     * иначе — помечает платёж как просроченный. Проверка остатка и списание выполняются одним UPDATE.
      *
      * @param transaction исходная транзакция
      * @param account счёт, с которого производится погашение
@@ -217,10 +279,7 @@ public class TransactionService {
         if (nextPaymentOpt.isEmpty()) return;
 
         Payment nextPayment = nextPaymentOpt.get();
-        if (account.getBalance().compareTo(nextPayment.getAmount()) >= 0) {
-            account.setBalance(account.getBalance().subtract(nextPayment.getAmount()));
-            accountRepository.save(account);
-
+        if (accountRepository.withdrawIfSufficient(account.getId(), nextPayment.getAmount()) > 0) {
             nextPayment.setPayedAt(LocalDateTime.now());
             paymentRepository.save(nextPayment);
 
@@ -0,0 +1,103 @@
+package ru.t1.account_processing.executor;
+
+import org.junit.jupiter.api.Test;
+import ru.t1.starter.trace.Span;
+import ru.t1.starter.trace.SpanExporter;
+import ru.t1.starter.trace.SpanKind;
+import ru.t1.starter.trace.TraceContext;
+import ru.t1.starter.trace.TraceContextHolder;
+import ru.t1.starter.trace.Tracer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountLaneExecutorTest {
+
+    @Test
+    void submit_ShouldPreserveOrderPerAccount() throws Exception {
+        // Arrange
+        AccountLaneExecutor executor = new AccountLaneExecutor(4, 1000, () -> { }, () -> { }, 5000);
+        Map<Long, List<Integer>> processed = new ConcurrentHashMap<>();
+
+        // Act
+        for (int i = 0; i < 500; i++) {
+            for (long accountId = 1; accountId <= 10; accountId++) {
+                int seq = i;
+                long id = accountId;
+                executor.submit(id, () -> processed
+                        .computeIfAbsent(id, k -> Collections.synchronizedList(new ArrayList<>()))
+                        .add(seq));
+            }
+        }
+        assertTrue(executor.shutdown(5000));
+
+        // Assert
+        assertEquals(10, processed.size());
+        for (List<Integer> sequence : processed.values()) {
+            assertEquals(500, sequence.size());
+            for (int i = 0; i < sequence.size(); i++) {
+                assertEquals(i, sequence.get(i));
+            }
+        }
+    }
+
+    @Test
+    void submit_ShouldSignalBackPressure_WhenLaneFillsAndDrains() throws Exception {
+        // Arrange
+        AtomicInteger paused = new AtomicInteger();
+        AtomicInteger resumed = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        AccountLaneExecutor executor = new AccountLaneExecutor(1, 8,
+                paused::incrementAndGet, resumed::incrementAndGet, 5000);
+
+        // Act: первая задача блокирует дорожку, остальные копятся в очереди
+        executor.submit(1L, () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 0; i < 6; i++) {
+            executor.submit(1L, () -> { });
+        }
+
+        // Assert
+        assertEquals(1, paused.get());
+        assertEquals(0, resumed.get());
+
+        release.countDown();
+        assertTrue(executor.shutdown(5000));
+        assertEquals(1, resumed.get());
+        assertEquals(0, executor.pendingTasks());
+    }
+
+    @Test
+    void submit_ShouldRunTaskWithTraceContextOfCaller() throws Exception {
+        // Arrange
+        AccountLaneExecutor executor = new AccountLaneExecutor(1, 8, () -> { }, () -> { }, 5000);
+        Span span = new Tracer(SpanExporter.NOOP, "test-service", 1.0).startSpan("receive", SpanKind.CONSUMER);
+        AtomicReference<TraceContext> inLane = new AtomicReference<>();
+        AtomicReference<TraceContext> afterTask = new AtomicReference<>();
+
+        // Act
+        try (Span.Scope ignored = span.makeCurrent()) {
+            executor.submit(1L, () -> inLane.set(TraceContextHolder.get()));
+        }
+        executor.submit(1L, () -> afterTask.set(TraceContextHolder.get()));
+        assertTrue(executor.shutdown(5000));
+
+        // Assert
+        assertEquals(span.context(), inLane.get());
+        assertNull(afterTask.get());
+    }
+}
@@ -0,0 +1,168 @@
+package ru.t1.account_processing.fraud;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardVelocityCounterTest {
+
+    private static final long WINDOW_MS = 60_000L;
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void recordAndCount_ShouldCountTransactionsWithinWindow() {
+        // Arrange
+        CardVelocityCounter counter = new CardVelocityCounter(64, WINDOW_MS, 12);
+
+        // Act & Assert
+        for (int i = 1; i <= 6; i++) {
+            assertEquals(i, counter.recordAndCount(100L, NOW + i * 1000L));
+        }
+        assertEquals(1, counter.recordAndCount(200L, NOW));
+    }
+
+    @Test
+    void recordAndCount_ShouldForgetTransactionsOutsideWindow() {
+        // Arrange
+        CardVelocityCounter counter = new CardVelocityCounter(64, WINDOW_MS, 12);
+        for (int i = 0; i < 5; i++) {
+            counter.recordAndCount(100L, NOW);
+        }
+
+        // Act
+        int count = counter.recordAndCount(100L, NOW + WINDOW_MS + 5_000L);
+
+        // Assert
+        assertEquals(1, count);
+    }
+
+    @Test
+    void evictIdle_ShouldReleaseIdleCards() {
+        // Arrange
+        CardVelocityCounter counter = new CardVelocityCounter(64, WINDOW_MS, 12);
+        counter.recordAndCount(100L, NOW);
+        counter.recordAndCount(200L, NOW + WINDOW_MS);
+
+        // Act
+        int evicted = counter.evictIdle(NOW + WINDOW_MS + 1);
+
+        // Assert
+        assertEquals(1, evicted);
+        assertEquals(1, counter.trackedCards());
+    }
+
+    @Test
+    void recordAndCount_ShouldReuseSlotsOfIdleCards_WhenMoreCardsThanCapacity() {
+        // Arrange
+        CardVelocityCounter counter = new CardVelocityCounter(64, WINDOW_MS, 12);
+        long footprint = counter.memoryFootprintBytes();
+
+        // Act
+        for (long cardId = 0; cardId < 10_000; cardId++) {
+            assertEquals(1, counter.recordAndCount(cardId, NOW + cardId * (WINDOW_MS + 1)));
+        }
+
+        // Assert
+        assertEquals(counter.capacity(), counter.trackedCards());
+        assertEquals(0, counter.overflowCards());
+        assertEquals(footprint, counter.memoryFootprintBytes());
+    }
+
+    @Test
+    void recordAndCount_ShouldNotEvictActiveCards_WhenSlotsExhausted() {
+        // Arrange
+        CardVelocityCounter counter = new CardVelocityCounter(64, WINDOW_MS, 12);
+        for (long cardId = 0; cardId < 1_000; cardId++) {
+            counter.recordAndCount(cardId, NOW);
+        }
+
+        // Act & Assert: окно каждой активной карты сохраняется, лишние карты учитываются в резервной таблице
+        for (long cardId = 0; cardId < 1_000; cardId++) {
+            assertEquals(2, counter.recordAndCount(cardId, NOW + 1));
+        }
+        assertTrue(counter.overflowCards() > 0);
+        assertEquals(1_000, counter.trackedCards() + counter.overflowCards());
+
+        // Act: все карты неактивны дольше окна
+        int evicted = counter.evictIdle(NOW + WINDOW_MS + 2);
+
+        // Assert
+        assertEquals(1_000, evicted);
+        assertEquals(0, counter.trackedCards());
+        assertEquals(0, counter.overflowCards());
+    }
+
+    @Test
+    void drainChangesAndMerge_ShouldTransferWindowBetweenInstances() {
+        // Arrange
+        long now = System.currentTimeMillis();
+        CardVelocityCounter source = new CardVelocityCounter(64, WINDOW_MS, 12, true);
+        CardVelocityCounter target = new CardVelocityCounter(64, WINDOW_MS, 12);
+        for (int i = 0; i < 4; i++) {
+            source.recordAndCount(100L, now);
+        }
+        Map<Long, long[]> published = new HashMap<>();
+
+        // Act
+        int drained = source.drainChanges((cardId, lastSeenMs, snapshot) -> {
+            published.put(cardId, snapshot.clone());
+            target.merge(cardId, lastSeenMs, snapshot);
+            target.merge(cardId, lastSeenMs, snapshot);
+        });
+
+        // Assert
+        assertEquals(1, drained);
+        assertEquals(0, source.drainChanges((cardId, lastSeenMs, snapshot) -> fail()));
+        assertTrue(published.containsKey(100L));
+        assertEquals(5, target.recordAndCount(100L, now));
+    }
+
+    @Test
+    void recordAndCount_ShouldClaimSingleSlot_WhenNewCardRecordedConcurrently() throws Exception {
+        // Arrange
+        int threads = 16;
+        int perThread = 1_000;
+        CardVelocityCounter counter = new CardVelocityCounter(64, WINDOW_MS, 12);
+        for (long cardId = 1; cardId <= 8; cardId++) {
+            counter.recordAndCount(cardId, NOW);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        counter.recordAndCount(100L, NOW);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Assert
+        assertEquals(9, counter.trackedCards());
+        assertEquals(threads * perThread + 1, counter.recordAndCount(100L, NOW));
+        for (long cardId = 1; cardId <= 8; cardId++) {
+            assertEquals(2, counter.recordAndCount(cardId, NOW));
+        }
+    }
+}
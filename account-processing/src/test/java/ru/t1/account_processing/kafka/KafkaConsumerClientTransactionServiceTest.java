@@ -0,0 +1,109 @@
+package ru.t1.account_processing.kafka;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.backoff.FixedBackOff;
+import ru.t1.account_processing.executor.AccountLaneExecutor;
+import ru.t1.account_processing.service.TransactionService;
+import ru.t1.dto.KafkaMessageClientTransaction;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class KafkaConsumerClientTransactionServiceTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("client_transactions", 0);
+
+    private final TransactionService transactionService = mock(TransactionService.class);
+    private final ConsumerRecordRecoverer recoverer = mock(ConsumerRecordRecoverer.class);
+    private final LaneOffsetTracker tracker = new LaneOffsetTracker(10);
+    private KafkaConsumerClientTransactionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new KafkaConsumerClientTransactionService(transactionService, mock(AccountLaneExecutor.class),
+                tracker, new FixedBackOff(0, 1), recoverer);
+        ReflectionTestUtils.setField(service, "deadLetterRetryIntervalMs", 1L);
+    }
+
+    @Test
+    void process_ShouldAcknowledgeAfterSuccessfulProcessing() {
+        // Arrange
+        Acknowledgment ack = mock(Acknowledgment.class);
+        ConsumerRecord<String, KafkaMessageClientTransaction> record = record(5);
+
+        // Act
+        service.process(record, tracker.register(PARTITION, 5, ack));
+
+        // Assert
+        verify(ack).acknowledge();
+        verifyNoInteractions(recoverer);
+    }
+
+    @Test
+    void process_WhenDeadLetterPublishFails_ShouldRetryUntilPublished() {
+        // Arrange
+        Acknowledgment ack = mock(Acknowledgment.class);
+        ConsumerRecord<String, KafkaMessageClientTransaction> record = record(5);
+        doThrow(new IllegalStateException("db down"))
+                .when(transactionService).processTransaction(any(), anyLong(), anyLong(), anyString(), any());
+        doThrow(new IllegalStateException("broker down")).doThrow(new IllegalStateException("broker down"))
+                .doNothing().when(recoverer).accept(eq(record), any());
+
+        // Act
+        service.process(record, tracker.register(PARTITION, 5, ack));
+
+        // Assert
+        verify(transactionService, times(2)).processTransaction(any(), anyLong(), anyLong(), anyString(), any());
+        verify(recoverer, times(3)).accept(eq(record), any());
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    void process_WhenPartitionRevokedDuringDeadLetterRetries_ShouldNotAcknowledge() throws Exception {
+        // Arrange
+        Acknowledgment ack = mock(Acknowledgment.class);
+        ConsumerRecord<String, KafkaMessageClientTransaction> record = record(5);
+        LaneOffsetTracker.InFlight inFlight = tracker.register(PARTITION, 5, ack);
+        doThrow(new IllegalArgumentException("Счёт не найден"))
+                .when(transactionService).processTransaction(any(), anyLong(), anyLong(), anyString(), any());
+        CountDownLatch deadLetterAttempted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            deadLetterAttempted.countDown();
+            throw new IllegalStateException("broker down");
+        }).when(recoverer).accept(eq(record), any());
+        Thread lane = new Thread(() -> service.process(record, inFlight));
+
+        // Act
+        lane.start();
+        assertTrue(deadLetterAttempted.await(5, TimeUnit.SECONDS));
+        tracker.onPartitionsRevokedBeforeCommit(mock(Consumer.class), List.of(PARTITION));
+        lane.join(5000);
+
+        // Assert
+        assertFalse(lane.isAlive());
+        verifyNoInteractions(ack);
+        verify(transactionService, times(1)).processTransaction(any(), anyLong(), anyLong(), anyString(), any());
+    }
+
+    private static ConsumerRecord<String, KafkaMessageClientTransaction> record(long offset) {
+        KafkaMessageClientTransaction message = new KafkaMessageClientTransaction();
+        message.setAccountId(1L);
+        message.setCardId(2L);
+        message.setType("DEPOSIT");
+        message.setAmount(BigDecimal.TEN);
+        return new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, "1", message);
+    }
+}
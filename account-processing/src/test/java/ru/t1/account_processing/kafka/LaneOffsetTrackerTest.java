@@ -0,0 +1,109 @@
+package ru.t1.account_processing.kafka;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LaneOffsetTrackerTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("client_transactions", 0);
+
+    @Test
+    void complete_ShouldAcknowledgeOnlyContiguousPrefix() {
+        // Arrange
+        LaneOffsetTracker tracker = new LaneOffsetTracker(100);
+        Acknowledgment ack5 = mock(Acknowledgment.class);
+        Acknowledgment ack6 = mock(Acknowledgment.class);
+        Acknowledgment ack7 = mock(Acknowledgment.class);
+        LaneOffsetTracker.InFlight first = tracker.register(PARTITION, 5, ack5);
+        LaneOffsetTracker.InFlight second = tracker.register(PARTITION, 6, ack6);
+        LaneOffsetTracker.InFlight third = tracker.register(PARTITION, 7, ack7);
+
+        // Act
+        tracker.complete(third);
+        tracker.complete(second);
+
+        // Assert
+        verifyNoInteractions(ack5, ack6, ack7);
+        assertEquals(3, tracker.pending(PARTITION));
+
+        // Act
+        tracker.complete(first);
+
+        // Assert
+        verify(ack7).acknowledge();
+        verifyNoInteractions(ack5, ack6);
+        assertEquals(0, tracker.pending(PARTITION));
+    }
+
+    @Test
+    void onPartitionsRevoked_ShouldCommitCompletedPrefixAndCancelRest() {
+        // Arrange
+        LaneOffsetTracker tracker = new LaneOffsetTracker(50);
+        Consumer<?, ?> consumer = mock(Consumer.class);
+        LaneOffsetTracker.InFlight first = tracker.register(PARTITION, 5, mock(Acknowledgment.class));
+        LaneOffsetTracker.InFlight second = tracker.register(PARTITION, 6, mock(Acknowledgment.class));
+        LaneOffsetTracker.InFlight third = tracker.register(PARTITION, 7, mock(Acknowledgment.class));
+        tracker.complete(first);
+        tracker.complete(third);
+
+        // Act
+        tracker.onPartitionsRevokedBeforeCommit(consumer, List.of(PARTITION));
+
+        // Assert
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(6)));
+        assertTrue(second.isCancelled());
+        assertFalse(first.isCancelled());
+        assertEquals(0, tracker.pending(PARTITION));
+    }
+
+    @Test
+    void onPartitionsRevoked_ShouldWaitForLanesToFinish() throws Exception {
+        // Arrange
+        LaneOffsetTracker tracker = new LaneOffsetTracker(5000);
+        Consumer<?, ?> consumer = mock(Consumer.class);
+        LaneOffsetTracker.InFlight inFlight = tracker.register(PARTITION, 10, mock(Acknowledgment.class));
+        Thread lane = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            tracker.complete(inFlight);
+        });
+
+        // Act
+        lane.start();
+        tracker.onPartitionsRevokedBeforeCommit(consumer, List.of(PARTITION));
+        lane.join();
+
+        // Assert
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(11)));
+        assertFalse(inFlight.isCancelled());
+    }
+
+    @Test
+    void onPartitionsLost_ShouldCancelWithoutCommit() {
+        // Arrange
+        LaneOffsetTracker tracker = new LaneOffsetTracker(50);
+        Consumer<?, ?> consumer = mock(Consumer.class);
+        Acknowledgment ack = mock(Acknowledgment.class);
+        LaneOffsetTracker.InFlight inFlight = tracker.register(PARTITION, 1, ack);
+
+        // Act
+        tracker.onPartitionsLost(consumer, List.of(PARTITION));
+        tracker.complete(inFlight);
+
+        // Assert
+        assertTrue(inFlight.isCancelled());
+        verifyNoInteractions(consumer, ack);
+    }
+}
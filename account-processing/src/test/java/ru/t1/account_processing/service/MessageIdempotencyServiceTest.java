@@ -0,0 +1,125 @@
+package ru.t1.account_processing.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.t1.account_processing.repository.ProcessedMessageRepository;
+import ru.t1.dto.KafkaMessageClientTransaction;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageIdempotencyServiceTest {
+
+    @Mock
+    private ProcessedMessageRepository processedMessageRepository;
+
+    private MessageIdempotencyService messageIdempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        messageIdempotencyService = new MessageIdempotencyService(processedMessageRepository, 2, 60_000L, 100);
+    }
+
+    @Test
+    void claim_ShouldRejectRepeat_WithoutDatabaseHit() {
+        // Arrange
+        UUID key = UUID.randomUUID();
+        when(processedMessageRepository.claim(List.of(key))).thenReturn(Set.of(key));
+
+        // Act
+        boolean first = messageIdempotencyService.claim(key);
+        boolean second = messageIdempotencyService.claim(key);
+
+        // Assert
+        assertTrue(first);
+        assertFalse(second);
+        verify(processedMessageRepository, times(1)).claim(anyCollection());
+    }
+
+    @Test
+    void claim_ShouldReject_WhenKeyAlreadyInDatabase() {
+        // Arrange
+        UUID key = UUID.randomUUID();
+        when(processedMessageRepository.claim(List.of(key))).thenReturn(new HashSet<>());
+
+        // Act & Assert
+        assertFalse(messageIdempotencyService.claim(key));
+        assertFalse(messageIdempotencyService.claim(key));
+        verify(processedMessageRepository, times(1)).claim(anyCollection());
+    }
+
+    @Test
+    void claim_ShouldCheckDatabaseAgain_AfterKeyEvictedFromMemory() {
+        // Arrange
+        UUID evicted = UUID.randomUUID();
+        when(processedMessageRepository.claim(anyCollection()))
+                .thenAnswer(invocation -> new HashSet<>(invocation.<Collection<UUID>>getArgument(0)));
+        messageIdempotencyService.claim(evicted);
+        messageIdempotencyService.claim(UUID.randomUUID());
+        messageIdempotencyService.claim(UUID.randomUUID());
+        when(processedMessageRepository.claim(List.of(evicted))).thenReturn(new HashSet<>());
+
+        // Act
+        boolean claimed = messageIdempotencyService.claim(evicted);
+
+        // Assert
+        assertFalse(claimed);
+        verify(processedMessageRepository, times(4)).claim(anyCollection());
+    }
+
+    @Test
+    void claim_ShouldKeepRecentlyRepeatedKey_WhenOlderKeyEvicted() {
+        // Arrange
+        UUID repeated = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        when(processedMessageRepository.claim(anyCollection()))
+                .thenAnswer(invocation -> new HashSet<>(invocation.<Collection<UUID>>getArgument(0)));
+        messageIdempotencyService.claim(repeated);
+        messageIdempotencyService.claim(other);
+        messageIdempotencyService.claim(repeated); // обращение поднимает ключ в порядке LRU
+
+        // Act
+        messageIdempotencyService.claim(UUID.randomUUID());
+        boolean repeatedClaimed = messageIdempotencyService.claim(repeated);
+
+        // Assert
+        assertFalse(repeatedClaimed);
+        verify(processedMessageRepository, times(3)).claim(anyCollection());
+    }
+
+    @Test
+    void claimAll_ShouldDropRepeatsWithinBatchAndAlreadyProcessed() {
+        // Arrange
+        UUID processed = UUID.randomUUID();
+        UUID fresh = UUID.randomUUID();
+        KafkaMessageClientTransaction first = message(fresh);
+        KafkaMessageClientTransaction repeatInBatch = message(fresh);
+        KafkaMessageClientTransaction alreadyProcessed = message(processed);
+        KafkaMessageClientTransaction withoutKey = message(null);
+        when(processedMessageRepository.claim(Set.of(fresh, processed))).thenReturn(new HashSet<>(Set.of(fresh)));
+
+        // Act
+        List<KafkaMessageClientTransaction> result = messageIdempotencyService.claimAll(
+                List.of(first, repeatInBatch, alreadyProcessed, withoutKey));
+
+        // Assert
+        assertEquals(2, result.size());
+        assertSame(first, result.get(0));
+        assertSame(withoutKey, result.get(1));
+        assertFalse(messageIdempotencyService.claim(fresh));
+    }
+
+    private KafkaMessageClientTransaction message(UUID key) {
+        KafkaMessageClientTransaction message = new KafkaMessageClientTransaction();
+        message.setMessageKey(key);
+        message.setAccountId(1L);
+        return message;
+    }
+}
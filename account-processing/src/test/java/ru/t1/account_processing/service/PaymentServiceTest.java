@@ -55,6 +55,7 @@ class PaymentServiceTest {
         unpaidPayment2.setPayedAt(null);
 
         when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
+        when(accountRepository.addToBalance(accountId, new BigDecimal("-1000.00"))).thenReturn(1);
         when(paymentRepository.findAllByAccountIdAndIsCreditTrueAndPayedAtIsNull(accountId))
                 .thenReturn(Arrays.asList(unpaidPayment1, unpaidPayment2));
         when(paymentRepository.findAllByAccountId(accountId))
@@ -66,10 +67,9 @@ class PaymentServiceTest {
         // Assert
         verify(accountRepository).findById(accountId);
 
-        // Проверяем обновление баланса
-        verify(accountRepository).save(argThat(acc ->
-                acc.getBalance().equals(new BigDecimal("4000.00"))
-        ));
+        // Проверяем атомарное списание с баланса
+        verify(accountRepository).addToBalance(accountId, new BigDecimal("-1000.00"));
+        verify(accountRepository, never()).save(any(Account.class));
 
         // Проверяем создание нового платежа
         verify(paymentRepository).save(argThat(payment ->
@@ -87,6 +87,31 @@ class PaymentServiceTest {
         ));
     }
 
+    @Test
+    void processPayment_ShouldNotClosePayments_WhenAccountNotActive() {
+        // Arrange
+        Long accountId = 1L;
+        BigDecimal paymentAmount = new BigDecimal("500.00");
+
+        Account account = new Account();
+        account.setId(accountId);
+
+        Payment unpaidPayment = new Payment();
+        unpaidPayment.setId(1L);
+        unpaidPayment.setAmount(paymentAmount);
+
+        when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
+        when(paymentRepository.findAllByAccountIdAndIsCreditTrueAndPayedAtIsNull(accountId))
+                .thenReturn(List.of(unpaidPayment));
+        when(accountRepository.addToBalance(accountId, paymentAmount.negate())).thenReturn(0);
+
+        // Act
+        paymentService.processPayment(accountId, paymentAmount);
+
+        // Assert
+        verify(paymentRepository, never()).save(any(Payment.class));
+    }
+
     @Test
     void processPayment_ShouldNotPerformRepayment_WhenAmountNotEqualToDebt() {
         // Arrange
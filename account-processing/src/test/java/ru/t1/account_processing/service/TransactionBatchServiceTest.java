@@ -0,0 +1,182 @@
+package ru.t1.account_processing.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.t1.account_processing.entity.Account;
+import ru.t1.account_processing.entity.Transaction;
+import ru.t1.account_processing.entity.enums.AccountStatus;
+import ru.t1.account_processing.entity.enums.TransactionStatus;
+import ru.t1.account_processing.repository.TransactionBatchRepository;
+import ru.t1.dto.KafkaMessageClientTransaction;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionBatchServiceTest {
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private TransactionBatchRepository transactionBatchRepository;
+
+    @Mock
+    private MessageIdempotencyService messageIdempotencyService;
+
+    @InjectMocks
+    private TransactionBatchService transactionBatchService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(messageIdempotencyService.claimAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void processBatch_ShouldApplyAllMessagesAndFlushOnce() {
+        // Arrange
+        Account account = account(1L, "1000.00", false);
+        when(transactionBatchRepository.findAccountsByIds(anyCollection())).thenReturn(Map.of(1L, account));
+
+        List<KafkaMessageClientTransaction> messages = List.of(
+                message(1L, "DEPOSIT", "500.00"),
+                message(1L, "WITHDRAW", "200.00"),
+                message(1L, "WITHDRAW", "5000.00")
+        );
+
+        // Act
+        transactionBatchService.processBatch(messages);
+
+        // Assert
+        ArgumentCaptor<List<Transaction>> transactionsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(transactionBatchRepository, times(1)).insertTransactions(transactionsCaptor.capture());
+        List<Transaction> transactions = transactionsCaptor.getValue();
+        assertEquals(3, transactions.size());
+        assertEquals(TransactionStatus.COMPLETE, transactions.get(0).getStatus());
+        assertEquals(TransactionStatus.COMPLETE, transactions.get(1).getStatus());
+        assertEquals(TransactionStatus.CANCELLED, transactions.get(2).getStatus());
+
+        ArgumentCaptor<List<Account>> accountsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(transactionBatchRepository, times(1)).updateAccounts(accountsCaptor.capture());
+        assertEquals(1, accountsCaptor.getValue().size());
+        assertEquals(new BigDecimal("1300.00"), accountsCaptor.getValue().get(0).getBalance());
+
+        verify(transactionService, never()).processTransactionInNewTransaction(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void processBatch_ShouldBlockAccount_WhenSuspicious() {
+        // Arrange
+        Account account = account(1L, "1000.00", false);
+        when(transactionBatchRepository.findAccountsByIds(anyCollection())).thenReturn(Map.of(1L, account));
+        when(transactionService.isSuspicious(any(UUID.class), eq(100L))).thenReturn(true);
+
+        // Act
+        transactionBatchService.processBatch(List.of(message(1L, "DEPOSIT", "500.00")));
+
+        // Assert
+        ArgumentCaptor<List<Transaction>> transactionsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(transactionBatchRepository).insertTransactions(transactionsCaptor.capture());
+        assertEquals(TransactionStatus.FROZEN, transactionsCaptor.getValue().get(0).getStatus());
+        assertEquals(AccountStatus.BLOCKED, account.getStatus());
+        assertEquals(new BigDecimal("1000.00"), account.getBalance());
+    }
+
+    @Test
+    void processBatch_ShouldDelegateCreditAccounts_ToTransactionService() {
+        // Arrange
+        Account creditAccount = account(2L, "0.00", true);
+        when(transactionBatchRepository.findAccountsByIds(anyCollection())).thenReturn(Map.of(2L, creditAccount));
+
+        KafkaMessageClientTransaction message = message(2L, "DEPOSIT", "300.00");
+
+        // Act
+        transactionBatchService.processBatch(List.of(message));
+
+        // Assert
+        verify(transactionService).processTransactionInNewTransaction(
+                message.getMessageKey(), 2L, 100L, "DEPOSIT", new BigDecimal("300.00"));
+        verify(messageIdempotencyService).claimAll(List.of());
+        verify(transactionBatchRepository).insertTransactions(List.of());
+        verify(transactionBatchRepository).updateAccounts(List.of());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void processBatch_ShouldCommitOtherMessages_WhenCreditAccountMessageFails() {
+        // Arrange
+        Account account = account(1L, "1000.00", false);
+        Account creditAccount = account(2L, "0.00", true);
+        when(transactionBatchRepository.findAccountsByIds(anyCollection()))
+                .thenReturn(Map.of(1L, account, 2L, creditAccount));
+        KafkaMessageClientTransaction failing = message(2L, "DEPOSIT", "300.00");
+        KafkaMessageClientTransaction regular = message(1L, "DEPOSIT", "500.00");
+        doThrow(new IllegalStateException("credit-processing недоступен"))
+                .when(transactionService).processTransactionInNewTransaction(
+                        eq(failing.getMessageKey()), any(), any(), any(), any());
+
+        // Act
+        assertDoesNotThrow(() -> transactionBatchService.processBatch(List.of(failing, regular)));
+
+        // Assert
+        verify(messageIdempotencyService).claimAll(List.of(regular));
+        ArgumentCaptor<List<Transaction>> transactionsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(transactionBatchRepository).insertTransactions(transactionsCaptor.capture());
+        assertEquals(1, transactionsCaptor.getValue().size());
+        assertEquals(TransactionStatus.COMPLETE, transactionsCaptor.getValue().get(0).getStatus());
+        assertEquals(new BigDecimal("1500.00"), account.getBalance());
+        verify(transactionBatchRepository).updateAccounts(List.of(account));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void processBatch_ShouldSkipRedeliveredMessages() {
+        // Arrange
+        Account account = account(1L, "1000.00", false);
+        KafkaMessageClientTransaction fresh = message(1L, "DEPOSIT", "500.00");
+        KafkaMessageClientTransaction redelivered = message(1L, "DEPOSIT", "500.00");
+        when(messageIdempotencyService.claimAll(List.of(redelivered, fresh))).thenReturn(List.of(fresh));
+        when(transactionBatchRepository.findAccountsByIds(anyCollection())).thenReturn(Map.of(1L, account));
+
+        // Act
+        transactionBatchService.processBatch(List.of(redelivered, fresh));
+
+        // Assert
+        ArgumentCaptor<List<Transaction>> transactionsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(transactionBatchRepository).insertTransactions(transactionsCaptor.capture());
+        assertEquals(1, transactionsCaptor.getValue().size());
+        assertEquals(new BigDecimal("1500.00"), account.getBalance());
+    }
+
+    private Account account(Long id, String balance, boolean isRecalc) {
+        Account account = new Account();
+        account.setId(id);
+        account.setBalance(new BigDecimal(balance));
+        account.setStatus(AccountStatus.ACTIVE);
+        account.setIsRecalc(isRecalc);
+        return account;
+    }
+
+    private KafkaMessageClientTransaction message(Long accountId, String type, String amount) {
+        KafkaMessageClientTransaction message = new KafkaMessageClientTransaction();
+        message.setMessageKey(UUID.randomUUID());
+        message.setAccountId(accountId);
+        message.setCardId(100L);
+        message.setType(type);
+        message.setAmount(new BigDecimal(amount));
+        return message;
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import ru.t1.account_processing.client.CreditProcessingClient;
@@ -13,18 +14,19 @@ import ru.t1.account_processing.entity.Account;
 import ru.t1.account_processing.entity.Payment;
 import ru.t1.account_processing.entity.Transaction;
 import ru.t1.account_processing.entity.enums.*;
+import ru.t1.account_processing.fraud.CardVelocityCounter;
+import ru.t1.account_processing.fraud.InMemoryVelocityStore;
+import ru.t1.account_processing.fraud.VelocityStore;
 import ru.t1.account_processing.repository.AccountRepository;
 import ru.t1.account_processing.repository.PaymentRepository;
 import ru.t1.account_processing.repository.TransactionRepository;
 import ru.t1.dto.ProductRegistryInfo;
 
 import java.math.BigDecimal;
-import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -45,13 +47,38 @@ class TransactionServiceTest {
     @Mock
     private CreditProcessingClient creditProcessingClient;
 
+    @Mock
+    private MessageIdempotencyService messageIdempotencyService;
+
+    @Spy
+    private VelocityStore velocityStore = new InMemoryVelocityStore(new CardVelocityCounter(1024, 60000L, 12));
+
     @InjectMocks
     private TransactionService transactionService;
 
     @BeforeEach
     void setUp() {
         ReflectionTestUtils.setField(transactionService, "maxTransactions", 5);
-        ReflectionTestUtils.setField(transactionService, "timeWindowMs", 60000L);
+        ReflectionTestUtils.setField(transactionService, "verdictCacheSize", 1024);
+    }
+
+    @Test
+    void isSuspicious_ShouldCountMessageOnce_WhenBatchIsRetried() {
+        // Arrange
+        Long cardId = 200L;
+        List<UUID> batchKeys = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                UUID.randomUUID(), UUID.randomUUID());
+
+        // Act: тот же пакет обрабатывается трижды (ретраи после конфликта версий)
+        for (int attempt = 0; attempt < 3; attempt++) {
+            for (UUID key : batchKeys) {
+                assertFalse(transactionService.isSuspicious(key, cardId));
+            }
+        }
+
+        // Assert: в окне по-прежнему 5 транзакций, шестое сообщение — первое сверх лимита
+        assertTrue(transactionService.isSuspicious(UUID.randomUUID(), cardId));
+        assertFalse(transactionService.isSuspicious(batchKeys.get(0), cardId));
     }
 
     @Test
@@ -69,6 +96,7 @@ class TransactionServiceTest {
         account.setIsRecalc(false);
 
         when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
+        when(accountRepository.addToBalance(accountId, amount)).thenReturn(1);
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
             Transaction t = invocation.getArgument(0);
             t.setId(1L);
@@ -79,9 +107,8 @@ class TransactionServiceTest {
         transactionService.processTransaction(accountId, cardId, type, amount);
 
         // Assert
-        verify(accountRepository).save(argThat(acc ->
-                acc.getBalance().equals(new BigDecimal("6000.00"))
-        ));
+        verify(accountRepository).addToBalance(accountId, amount);
+        verify(accountRepository, never()).save(any(Account.class));
 
         // Проверяем что транзакция завершена успешно (второй вызов save)
         verify(transactionRepository, atLeastOnce()).save(argThat(transaction ->
@@ -89,6 +116,19 @@ class TransactionServiceTest {
         ));
     }
 
+    @Test
+    void processTransaction_ShouldSkipRedeliveredMessage() {
+        // Arrange
+        UUID messageKey = UUID.randomUUID();
+        when(messageIdempotencyService.claim(messageKey)).thenReturn(false);
+
+        // Act
+        transactionService.processTransaction(messageKey, 1L, 100L, "DEPOSIT", new BigDecimal("1000.00"));
+
+        // Assert
+        verifyNoInteractions(accountRepository, transactionRepository, velocityStore);
+    }
+
     @Test
     void processTransaction_ShouldProcessWithdraw_WhenSufficientBalance() {
         // Arrange
@@ -104,6 +144,7 @@ class TransactionServiceTest {
         account.setIsRecalc(false);
 
         when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
+        when(accountRepository.withdrawIfSufficient(accountId, amount)).thenReturn(1);
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
             Transaction t = invocation.getArgument(0);
             t.setId(1L);
@@ -114,9 +155,8 @@ class TransactionServiceTest {
         transactionService.processTransaction(accountId, cardId, type, amount);
 
         // Assert
-        verify(accountRepository).save(argThat(acc ->
-                acc.getBalance().equals(new BigDecimal("4000.00"))
-        ));
+        verify(accountRepository).withdrawIfSufficient(accountId, amount);
+        verify(accountRepository, never()).save(any(Account.class));
 
         // Проверяем успешное завершение
         verify(transactionRepository, atLeastOnce()).save(argThat(transaction ->
@@ -192,6 +232,31 @@ class TransactionServiceTest {
         assertEquals(TransactionStatus.CANCELLED, savedTransactions.get(1).getStatus());
     }
 
+    @Test
+    void processTransaction_ShouldCancelDeposit_WhenAccountBlockedConcurrently() {
+        // Arrange
+        Long accountId = 1L;
+        BigDecimal amount = new BigDecimal("1000.00");
+
+        Account account = new Account();
+        account.setId(accountId);
+        account.setStatus(AccountStatus.ACTIVE);
+        account.setIsRecalc(false);
+
+        when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
+        when(accountRepository.addToBalance(accountId, amount)).thenReturn(0);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        transactionService.processTransaction(accountId, 100L, "DEPOSIT", amount);
+
+        // Assert
+        ArgumentCaptor<Transaction> transactionCaptor = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionRepository, times(2)).save(transactionCaptor.capture());
+        assertEquals(TransactionStatus.CANCELLED, transactionCaptor.getAllValues().get(1).getStatus());
+        verify(accountRepository, never()).save(any(Account.class));
+    }
+
     @Test
     void processTransaction_ShouldHandleFraud_WhenSuspiciousActivity() {
         // Arrange
@@ -204,7 +269,7 @@ class TransactionServiceTest {
         account.setId(accountId);
         account.setStatus(AccountStatus.ACTIVE);
 
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
+        when(accountRepository.block(accountId)).thenReturn(1);
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
             Transaction t = invocation.getArgument(0);
             t.setId(1L);
@@ -212,22 +277,15 @@ class TransactionServiceTest {
         });
 
         // Симулируем подозрительную активность
-        ConcurrentHashMap<Long, Deque<Instant>> transactionHistory =
-                (ConcurrentHashMap<Long, Deque<Instant>>) ReflectionTestUtils.getField(transactionService, "transactionHistory");
-
-        Deque<Instant> history = new java.util.ArrayDeque<>();
         for (int i = 0; i < 6; i++) {
-            history.add(Instant.now());
+            velocityStore.recordAndCount(cardId);
         }
-        transactionHistory.put(cardId, history);
 
         // Act
         transactionService.processTransaction(accountId, cardId, type, amount);
 
         // Assert
-        verify(accountRepository).save(argThat(acc ->
-                acc.getStatus() == AccountStatus.BLOCKED
-        ));
+        verify(accountRepository).block(accountId);
 
         // Проверяем что транзакция заморожена
         ArgumentCaptor<Transaction> transactionCaptor = ArgumentCaptor.forClass(Transaction.class);
@@ -257,6 +315,7 @@ class TransactionServiceTest {
 
         when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
         when(creditProcessingClient.getProductRegistryByAccount(accountId)).thenReturn(registryInfo);
+        when(accountRepository.addToBalance(accountId, amount)).thenReturn(1);
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
             Transaction t = invocation.getArgument(0);
             t.setId(1L);
@@ -294,6 +353,8 @@ class TransactionServiceTest {
         nextPayment.setPaymentDate(LocalDateTime.now().minusDays(1));
 
         when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
+        when(accountRepository.addToBalance(accountId, amount)).thenReturn(1);
+        when(accountRepository.withdrawIfSufficient(accountId, new BigDecimal("500.00"))).thenReturn(1);
         when(paymentRepository.findFirstByAccountIdAndIsCreditTrueAndIsExpiredFalseAndPaymentDateBeforeOrderByPaymentDateAsc(
                 any(), any())).thenReturn(Optional.of(nextPayment));
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
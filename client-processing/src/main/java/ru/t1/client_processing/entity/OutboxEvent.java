@@ -0,0 +1,62 @@
+package ru.t1.client_processing.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие для отправки в Kafka (transactional outbox).
+ * Записывается в одной транзакции с изменением данных и отправляется
+ * {@link ru.t1.client_processing.kafka.OutboxRelay} после коммита.
+ */
+@Entity
+@Table(name = "outbox_events")
+@Getter
+@Setter
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Топик назначения. */
+    @Column(nullable = false)
+    private String topic;
+
+    /** Ключ сообщения Kafka (события одного ключа попадают в одну партицию по порядку). */
+    @Column(name = "message_key")
+    private String messageKey;
+
+    /** Класс сообщения для десериализации {@link #payload}. */
+    @Column(name = "payload_type", nullable = false)
+    private String payloadType;
+
+    /** Сообщение в JSON. */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    /** Контекст трассировки операции, породившей событие. */
+    @Column
+    private String traceparent;
+
+    /** Время записи события. */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /** Время подтверждения отправки брокером ({@code null} — ещё не отправлено). */
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    /** Количество попыток отправки. */
+    @Column(nullable = false)
+    private int attempts;
+
+    /** Не раньше этого момента релей возьмёт событие (задержка перед повтором или аренда текущей попытки). */
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    /** Время перевода в dead-letter после {@code outbox.relay.max-attempts} неудачных попыток. */
+    @Column(name = "dead_at")
+    private LocalDateTime deadAt;
+}
@@ -2,12 +2,22 @@ package ru.t1.client_processing.kafka;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
+import ru.t1.starter.trace.Span;
+import ru.t1.starter.trace.SpanKind;
+import ru.t1.starter.trace.TraceContext;
+import ru.t1.starter.trace.Tracer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Сервис для отправки сообщений в Kafka.
- * Оборачивает {@link KafkaTemplate}, добавляя логирование и обработку ошибок.
+ * Оборачивает {@link KafkaTemplate}, добавляя логирование, обработку ошибок
+ * и передачу контекста трассировки в заголовке {@value TraceContext#HEADER}.
  */
 @Slf4j
 @Service
@@ -15,6 +25,7 @@ import org.springframework.stereotype.Service;
 public class KafkaProducerService {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final Tracer tracer;
 
     /**
      * Отправка сообщения в указанный Kafka-топик.
@@ -24,16 +35,44 @@ public class KafkaProducerService {
      */
     public void sendMessage(String topic, Object message) {
         if (topic != null) {
-            kafkaTemplate.send(topic, message)
-                    .whenComplete((result, ex) -> {
-                        if (ex != null) {
-                            log.error("Ошибка при отправке сообщения в Kafka topic {}", topic, ex);
-                        } else {
-                            log.info("Сообщение отправлено в Kafka topic {}: {}", topic, message);
-                        }
-                    });
+            send(topic, null, message, null);
         } else {
             log.error("Топик не определен (null)");
         }
     }
+
+    /**
+     * Асинхронная отправка сообщения с ключом.
+     *
+     * @param topic       название топика
+     * @param key         ключ сообщения (может быть {@code null})
+     * @param message     объект-сообщение (будет сериализован)
+     * @param traceparent контекст трассировки родительской операции; {@code null} — текущий контекст потока
+     * @return результат отправки, завершается по подтверждению брокера
+     */
+    public CompletableFuture<SendResult<String, Object>> send(String topic, String key, Object message,
+                                                              String traceparent) {
+        // Контекст трассировки уходит в заголовке traceparent, спан закрывается по подтверждению брокера
+        Span span = tracer.startSpan("send " + topic, SpanKind.PRODUCER, traceparent).tag("messaging.destination", topic);
+        ProducerRecord<String, Object> record = new ProducerRecord<>(topic, key, message);
+        record.headers().add(TraceContext.HEADER, span.traceparent().getBytes(StandardCharsets.UTF_8));
+
+        return kafkaTemplate.send(record)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        span.error(ex).end();
+                        log.error("Ошибка при отправке сообщения в Kafka topic {}", topic, ex);
+                    } else {
+                        span.end();
+                        log.info("Сообщение отправлено в Kafka topic {}: {}", topic, message);
+                    }
+                });
+    }
+
+    /**
+     * Отправляет накопленные продюсером записи, не дожидаясь {@code linger.ms}.
+     */
+    public void flush() {
+        kafkaTemplate.flush();
+    }
 }
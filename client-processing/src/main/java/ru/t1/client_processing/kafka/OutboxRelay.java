@@ -0,0 +1,413 @@
+package ru.t1.client_processing.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.t1.client_processing.entity.OutboxEvent;
+import ru.t1.client_processing.repository.OutboxEventRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Отправка событий из {@code outbox_events} в Kafka.
+ * <p>
+ * Раз в {@code outbox.relay.poll-interval-ms} (и сразу после коммита транзакции с новым событием)
+ * релей в короткой транзакции блокирует до {@code outbox.relay.batch-size} готовых к отправке строк
+ * ({@code FOR UPDATE SKIP LOCKED}, поэтому реплики делят очередь без дублей) и занимает их: увеличивает
+ * счётчик попыток и откладывает повторную выборку на время отправки. После коммита события отправляются,
+ * сгруппированные по топику, подтверждения брокера ожидаются одним общим сроком на пачку, а результат
+ * записывается второй короткой транзакцией — транзакция БД не держится открытой на время сетевых вызовов.
+ * <p>
+ * События одного {@code message_key} отправляются строго по порядку: в пачку попадает только самое раннее
+ * неотправленное событие ключа, а если отправка события не удалась, следующие события того же ключа в пачке
+ * не отправляются и возвращаются в очередь без учёта попытки.
+ * <p>
+ * Неподтверждённое событие отправляется повторно с экспоненциальной задержкой
+ * ({@code outbox.relay.retry-backoff-ms} … {@code outbox.relay.max-retry-backoff-ms}); после
+ * {@code outbox.relay.max-attempts} попыток оно переводится в dead-letter ({@code dead_at}) и больше не выбирается.
+ * Продюсер идемпотентный ({@code enable.idempotence}), поэтому повторы на уровне продюсера не создают дублей
+ * в топике; повторная отправка после сбоя релея возможна (at-least-once).
+ * <p>
+ * Метрики: {@code outbox.relay.published} (по топику и результату {@code success|failure|dead}) — пропускная
+ * способность, {@code outbox.relay.batch.latency}, {@code outbox.relay.batch.size}, {@code outbox.pending}
+ * и {@code outbox.dead}. Последние два пересчитываются релеем раз в {@code outbox.relay.backlog-refresh-interval-ms},
+ * а не при каждом опросе метрик.
+ */
+@Slf4j
+@Component
+public class OutboxRelay implements SmartLifecycle {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaProducerService kafkaProducerService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    /** Максимальное количество событий за один проход. */
+    private final int batchSize;
+    private final long pollIntervalMs;
+    /** Максимальное ожидание подтверждений брокера для пачки. */
+    private final long sendTimeoutMs;
+    /** Количество попыток отправки, после которого событие переводится в dead-letter. */
+    private final int maxAttempts;
+    /** Задержка перед первым повтором; удваивается с каждой попыткой. */
+    private final long retryBackoffMs;
+    private final long maxRetryBackoffMs;
+    /** Срок хранения отправленных событий. */
+    private final long retentionMs;
+    private final long purgeIntervalMs;
+    private final long backlogRefreshIntervalMs;
+
+    private final Timer batchLatency;
+    private final DistributionSummary batchSizeSummary;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Class<?>> payloadTypes = new ConcurrentHashMap<>();
+    /** Последние посчитанные размеры очереди и dead-letter для метрик. */
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final AtomicLong deadEvents = new AtomicLong();
+
+    private final ScheduledExecutorService relay = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** Запуск по {@link #wakeUp()} уже поставлен в очередь. */
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+    private volatile boolean running;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       KafkaProducerService kafkaProducerService,
+                       TransactionTemplate transactionTemplate,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${outbox.relay.poll-interval-ms:500}") long pollIntervalMs,
+                       @Value("${outbox.relay.send-timeout-ms:10000}") long sendTimeoutMs,
+                       @Value("${outbox.relay.retention-ms:86400000}") long retentionMs,
+                       @Value("${outbox.relay.purge-interval-ms:600000}") long purgeIntervalMs,
+                       @Value("${outbox.relay.max-attempts:10}") int maxAttempts,
+                       @Value("${outbox.relay.retry-backoff-ms:1000}") long retryBackoffMs,
+                       @Value("${outbox.relay.max-retry-backoff-ms:300000}") long maxRetryBackoffMs,
+                       @Value("${outbox.relay.backlog-refresh-interval-ms:15000}") long backlogRefreshIntervalMs) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaProducerService = kafkaProducerService;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.retentionMs = retentionMs;
+        this.purgeIntervalMs = purgeIntervalMs;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxRetryBackoffMs = maxRetryBackoffMs;
+        this.backlogRefreshIntervalMs = backlogRefreshIntervalMs;
+        this.batchLatency = Timer.builder("outbox.relay.batch.latency")
+                .description("Время отправки пачки событий outbox с ожиданием подтверждений")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("outbox.relay.batch.size")
+                .description("Количество событий в пачке outbox")
+                .register(meterRegistry);
+        Gauge.builder("outbox.pending", pendingEvents, AtomicLong::get)
+                .description("Количество неотправленных событий outbox")
+                .register(meterRegistry);
+        Gauge.builder("outbox.dead", deadEvents, AtomicLong::get)
+                .description("Количество событий outbox в dead-letter")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запрашивает внеочередной проход (например, после коммита транзакции с новым событием).
+     * Несколько запросов до начала прохода схлопываются в один.
+     */
+    public void wakeUp() {
+        if (running && wakeUpPending.compareAndSet(false, true)) {
+            try {
+                relay.execute(this::relaySafely);
+            } catch (RejectedExecutionException e) {
+                // остановка: события отправит следующий запуск сервиса
+            }
+        }
+    }
+
+    /**
+     * Отправляет неотправленные события пачками, пока очередь не опустеет.
+     *
+     * @return количество отправленных событий
+     */
+    public int relayPending() {
+        wakeUpPending.set(false);
+        int total = 0;
+        int sent;
+        do {
+            sent = relayBatch();
+            total += sent;
+        } while (sent == batchSize);
+        return total;
+    }
+
+    /**
+     * Отправляет одну пачку событий.
+     *
+     * @return количество событий, подтверждённых брокером
+     */
+    int relayBatch() {
+        long start = System.nanoTime();
+        List<OutboxEvent> events = claimNextBatch();
+        if (events.isEmpty()) {
+            return 0;
+        }
+        batchSizeSummary.record(events.size());
+
+        // Группировка по топику: записи одного топика уходят в продюсер подряд и попадают в общие пачки
+        Map<String, List<OutboxEvent>> eventsByTopic = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            eventsByTopic.computeIfAbsent(event.getTopic(), k -> new ArrayList<>()).add(event);
+        }
+
+        List<OutboxEvent> pending = new ArrayList<>(events.size());
+        List<CompletableFuture<SendResult<String, Object>>> futures = new ArrayList<>(events.size());
+        List<OutboxEvent> failed = new ArrayList<>();
+        List<OutboxEvent> deferred = new ArrayList<>();
+        // Ключи, по которым отправка не удалась: более поздние события ключа не должны обогнать неудачное
+        Set<String> blockedKeys = new HashSet<>();
+        for (List<OutboxEvent> topicEvents : eventsByTopic.values()) {
+            for (OutboxEvent event : topicEvents) {
+                if (event.getMessageKey() != null && blockedKeys.contains(event.getMessageKey())) {
+                    deferred.add(event);
+                    continue;
+                }
+                try {
+                    futures.add(kafkaProducerService.send(event.getTopic(), event.getMessageKey(),
+                            readPayload(event), event.getTraceparent()));
+                    pending.add(event);
+                } catch (Exception e) {
+                    log.error("Событие outbox {} не отправлено: {}", event.getId(), e.getMessage());
+                    failed.add(event);
+                    if (event.getMessageKey() != null) {
+                        blockedKeys.add(event.getMessageKey());
+                    }
+                }
+            }
+        }
+        if (!deferred.isEmpty()) {
+            log.debug("Отложено событий outbox после неудачной отправки по тому же ключу: {}", deferred.size());
+        }
+        kafkaProducerService.flush();
+        awaitAcks(futures);
+
+        List<OutboxEvent> sent = new ArrayList<>(pending.size());
+        for (int i = 0; i < pending.size(); i++) {
+            OutboxEvent event = pending.get(i);
+            CompletableFuture<SendResult<String, Object>> future = futures.get(i);
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                sent.add(event);
+            } else {
+                log.warn("Событие outbox {} не подтверждено брокером: {}", event.getId(), failureReason(future));
+                failed.add(event);
+            }
+        }
+        recordResults(sent, failed, deferred);
+        batchLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return sent.size();
+    }
+
+    /**
+     * Первая транзакция: выбирает и занимает пачку на время отправки.
+     */
+    private List<OutboxEvent> claimNextBatch() {
+        List<OutboxEvent> events = transactionTemplate.execute(status -> {
+            List<OutboxEvent> locked = outboxEventRepository.lockNextBatch(batchSize);
+            if (!locked.isEmpty()) {
+                // аренда с запасом: результат пачки записывается не позже, чем через sendTimeoutMs после отправки
+                LocalDateTime leaseUntil = LocalDateTime.now().plus(Duration.ofMillis(2 * sendTimeoutMs));
+                outboxEventRepository.claim(ids(locked), leaseUntil);
+            }
+            return locked;
+        });
+        return events != null ? events : List.of();
+    }
+
+    /**
+     * Ждёт подтверждений всех отправленных событий пачки одним общим сроком.
+     */
+    private void awaitAcks(List<CompletableFuture<SendResult<String, Object>>> futures) {
+        if (futures.isEmpty()) {
+            return;
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // результат каждого события разбирается по его future
+        }
+    }
+
+    /**
+     * Вторая транзакция: отмечает подтверждённые события, откладывает повтор остальных,
+     * переводит в dead-letter исчерпавшие попытки и возвращает в очередь неотправленные.
+     */
+    private void recordResults(List<OutboxEvent> sent, List<OutboxEvent> failed, List<OutboxEvent> deferred) {
+        List<OutboxEvent> retry = new ArrayList<>(failed.size());
+        List<OutboxEvent> dead = new ArrayList<>();
+        for (OutboxEvent event : failed) {
+            // attempts загружен до claim, текущая попытка — attempts + 1
+            if (event.getAttempts() + 1 >= maxAttempts) {
+                dead.add(event);
+            } else {
+                retry.add(event);
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sent.isEmpty()) {
+                outboxEventRepository.markSent(ids(sent));
+            }
+            if (!retry.isEmpty()) {
+                outboxEventRepository.scheduleRetry(ids(retry), retryBackoffMs, maxRetryBackoffMs);
+            }
+            if (!dead.isEmpty()) {
+                outboxEventRepository.markDead(ids(dead));
+            }
+            if (!deferred.isEmpty()) {
+                outboxEventRepository.release(ids(deferred));
+            }
+        });
+        sent.forEach(event -> counter(event.getTopic(), "success").increment());
+        retry.forEach(event -> counter(event.getTopic(), "failure").increment());
+        for (OutboxEvent event : dead) {
+            log.error("Событие outbox {} (топик {}) переведено в dead-letter после {} попыток",
+                    event.getId(), event.getTopic(), maxAttempts);
+            counter(event.getTopic(), "dead").increment();
+        }
+    }
+
+    /**
+     * Удаляет отправленные события старше срока хранения.
+     */
+    public void purgeSent() {
+        LocalDateTime before = LocalDateTime.now().minus(Duration.ofMillis(retentionMs));
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> outboxEventRepository.deleteSentBefore(before, batchSize));
+            purged += deleted;
+        } while (deleted == batchSize);
+        if (purged > 0) {
+            log.debug("outbox_events: удалено {} отправленных событий", purged);
+        }
+    }
+
+    private static String failureReason(CompletableFuture<?> future) {
+        if (!future.isDone()) {
+            return "нет подтверждения за отведённое время";
+        }
+        try {
+            future.join();
+            return "";
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return cause.getMessage();
+        }
+    }
+
+    private static List<Long> ids(List<OutboxEvent> events) {
+        List<Long> ids = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            ids.add(event.getId());
+        }
+        return ids;
+    }
+
+    private Object readPayload(OutboxEvent event) throws Exception {
+        Class<?> type = payloadTypes.computeIfAbsent(event.getPayloadType(), name -> {
+            try {
+                return Class.forName(name);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Неизвестный тип события outbox: " + name, e);
+            }
+        });
+        return objectMapper.readValue(event.getPayload(), type);
+    }
+
+    private Counter counter(String topic, String result) {
+        return counters.computeIfAbsent(topic + '|' + result, k -> Counter.builder("outbox.relay.published")
+                .description("События outbox, отправленные в Kafka")
+                .tag("topic", topic)
+                .tag("result", result)
+                .register(meterRegistry));
+    }
+
+    /**
+     * Пересчитывает размеры очереди и dead-letter для метрик {@code outbox.pending} и {@code outbox.dead}.
+     */
+    void refreshBacklog() {
+        pendingEvents.set(outboxEventRepository.countPending());
+        deadEvents.set(outboxEventRepository.countDead());
+    }
+
+    private void relaySafely() {
+        try {
+            relayPending();
+        } catch (Exception e) {
+            log.error("Ошибка отправки событий outbox: {}", e.getMessage(), e);
+        }
+    }
+
+    private void refreshBacklogSafely() {
+        try {
+            refreshBacklog();
+        } catch (Exception e) {
+            log.warn("Не удалось пересчитать размер outbox_events: {}", e.getMessage());
+        }
+    }
+
+    private void purgeSafely() {
+        try {
+            purgeSent();
+        } catch (Exception e) {
+            log.error("Ошибка очистки outbox_events: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void start() {
+        relay.scheduleWithFixedDelay(this::relaySafely, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        relay.scheduleWithFixedDelay(this::purgeSafely, purgeIntervalMs, purgeIntervalMs, TimeUnit.MILLISECONDS);
+        relay.scheduleWithFixedDelay(this::refreshBacklogSafely, 0, backlogRefreshIntervalMs, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        relay.shutdown();
+        try {
+            if (!relay.awaitTermination(sendTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Релей outbox не завершил проход за {} мс", sendTimeoutMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
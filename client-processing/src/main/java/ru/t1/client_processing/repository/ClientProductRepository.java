@@ -6,6 +6,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.t1.client_processing.entity.enums.ProductKey;
 import ru.t1.client_processing.entity.enums.ProductStatus;
+import ru.t1.starter.aop.annotation.CacheEvict;
 import ru.t1.starter.aop.annotation.Cached;
 import ru.t1.client_processing.entity.ClientProduct;
 
@@ -17,6 +18,20 @@ public interface ClientProductRepository extends JpaRepository<ClientProduct, Lo
     @Cached(cacheName = "Client")
     List<ClientProduct> findByClientId(Long clientId);
 
+    /**
+     * Сохранение продукта клиента; список продуктов клиента в кэше становится неактуальным.
+     */
+    @Override
+    @CacheEvict(cacheName = "Client", method = "findByClientId", key = "#p0.client.id")
+    <S extends ClientProduct> S save(S clientProduct);
+
+    /**
+     * Удаление продукта клиента; список продуктов клиента в кэше становится неактуальным.
+     */
+    @Override
+    @CacheEvict(cacheName = "Client", method = "findByClientId", key = "#p0.client.id")
+    void delete(ClientProduct clientProduct);
+
     boolean existsByClientIdAndProductId(Long clientId, Long productId);
 
     @Query("SELECT COUNT(cp) FROM ClientProduct cp WHERE cp.product.key = :productKey AND cp.status = :status")
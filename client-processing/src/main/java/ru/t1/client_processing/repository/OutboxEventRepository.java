@@ -0,0 +1,110 @@
+package ru.t1.client_processing.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.t1.client_processing.entity.OutboxEvent;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Блокирует очередную пачку событий, готовых к отправке, в порядке записи.
+     * По каждому {@code message_key} выбирается только самое раннее неотправленное событие: следующее
+     * ждёт, пока предыдущее не будет отправлено или переведено в dead-letter, поэтому события одного ключа
+     * не обгоняют друг друга при повторах. Строки, заблокированные релеем другой реплики, пропускаются.
+     *
+     * @param limit размер пачки
+     * @return события для отправки
+     */
+    @Query(value = "SELECT * FROM outbox_events e " +
+            "WHERE e.sent_at IS NULL AND e.dead_at IS NULL AND e.next_attempt_at <= now() " +
+            "AND NOT EXISTS (SELECT 1 FROM outbox_events earlier " +
+            "WHERE earlier.message_key = e.message_key AND earlier.id < e.id " +
+            "AND earlier.sent_at IS NULL AND earlier.dead_at IS NULL) " +
+            "ORDER BY e.id LIMIT :limit FOR UPDATE OF e SKIP LOCKED",
+            nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("limit") int limit);
+
+    /**
+     * Занимает события на время отправки: увеличивает счётчик попыток и откладывает следующую выборку
+     * до {@code leaseUntil}. Если релей упадёт, не отметив результат, события вернутся в очередь по истечении аренды.
+     *
+     * @param ids        события пачки
+     * @param leaseUntil окончание аренды
+     * @return количество занятых строк
+     */
+    @Modifying
+    @Query(value = "UPDATE outbox_events SET attempts = attempts + 1, next_attempt_at = :leaseUntil " +
+            "WHERE id IN (:ids)",
+            nativeQuery = true)
+    int claim(@Param("ids") Collection<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Возвращает занятые, но не отправленные события в очередь без учёта попытки.
+     *
+     * @param ids события, отправка которых отложена
+     * @return количество строк
+     */
+    @Modifying
+    @Query(value = "UPDATE outbox_events SET attempts = attempts - 1, next_attempt_at = now() WHERE id IN (:ids)",
+            nativeQuery = true)
+    int release(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "UPDATE outbox_events SET sent_at = now() WHERE id IN (:ids)", nativeQuery = true)
+    int markSent(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Откладывает повтор неподтверждённых событий с экспоненциальной задержкой по числу попыток:
+     * {@code min(maxBackoffMs, backoffMs * 2^(attempts - 1))}.
+     *
+     * @param ids          неподтверждённые события
+     * @param backoffMs    задержка после первой попытки
+     * @param maxBackoffMs максимальная задержка
+     * @return количество строк
+     */
+    @Modifying
+    @Query(value = "UPDATE outbox_events SET next_attempt_at = now() + " +
+            "make_interval(secs => LEAST(:maxBackoffMs, :backoffMs * power(2, GREATEST(attempts - 1, 0))) / 1000.0) " +
+            "WHERE id IN (:ids)",
+            nativeQuery = true)
+    int scheduleRetry(@Param("ids") Collection<Long> ids,
+                      @Param("backoffMs") long backoffMs,
+                      @Param("maxBackoffMs") long maxBackoffMs);
+
+    /**
+     * Переводит события в dead-letter: релей их больше не выбирает.
+     *
+     * @param ids события, исчерпавшие попытки
+     * @return количество строк
+     */
+    @Modifying
+    @Query(value = "UPDATE outbox_events SET dead_at = now() WHERE id IN (:ids)", nativeQuery = true)
+    int markDead(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT COUNT(*) FROM outbox_events WHERE sent_at IS NULL AND dead_at IS NULL", nativeQuery = true)
+    long countPending();
+
+    @Query(value = "SELECT COUNT(*) FROM outbox_events WHERE dead_at IS NOT NULL", nativeQuery = true)
+    long countDead();
+
+    /**
+     * Удаляет отправленные события старше указанного момента.
+     *
+     * @param before граница хранения
+     * @param limit  максимальное количество удаляемых строк за вызов
+     * @return количество удалённых строк
+     */
+    @Modifying
+    @Query(value = "DELETE FROM outbox_events WHERE id IN " +
+            "(SELECT id FROM outbox_events WHERE sent_at < :before LIMIT :limit)",
+            nativeQuery = true)
+    int deleteSentBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
@@ -17,7 +17,6 @@ import ru.t1.client_processing.exception.ClientNotFoundException;
 import ru.t1.client_processing.exception.ClientProductAlreadyExistsException;
 import ru.t1.client_processing.exception.ClientProductNotFoundException;
 import ru.t1.client_processing.exception.ProductNotFoundException;
-import ru.t1.client_processing.kafka.KafkaProducerService;
 import ru.t1.client_processing.repository.ClientProductRepository;
 import ru.t1.client_processing.repository.ClientRepository;
 import ru.t1.client_processing.repository.ProductRepository;
@@ -31,7 +30,8 @@ import java.util.stream.Collectors;
 
 /**
  * Сервис для управления продуктами клиента.
- * Выполняет CRUD-операции и отправляет события о них в Kafka.
+ * Выполняет CRUD-операции и отправляет события о них в Kafka через outbox ({@link OutboxService}):
+ * событие записывается в той же транзакции, что и изменение продукта клиента.
  */
 @Slf4j
 @Service
@@ -41,7 +41,7 @@ public class ClientProductService {
     private final ClientProductRepository clientProductRepository;
     private final ClientRepository clientRepository;
     private final ProductRepository productRepository;
-    private final KafkaProducerService kafkaProducerService;
+    private final OutboxService outboxService;
     private final ProductMetricsService productMetricsService;
 
     @Value("${app.kafka.topics.client-products}")
@@ -201,54 +201,54 @@ public class ClientProductService {
     }
 
     /**
-     * Вспомогательный метод для отправки сообщений в Kafka
+     * Вспомогательный метод для записи сообщения в outbox
      * @param operation Вид операции
      * @param clientProduct Клиентский продукт
      */
     private void sendKafkaMessage(String operation, ClientProduct clientProduct) {
-        try {
-            KafkaMessageClientProduct message = new KafkaMessageClientProduct();
-            message.setOperation(operation);
-            message.setClientProductId(clientProduct.getId());
-            message.setProductName(clientProduct.getProduct().getName());
-            message.setClientId(clientProduct.getClient().getId());
-            message.setProductId(clientProduct.getProduct().getId());
-            message.setProductKey(clientProduct.getProduct().getKey().name());
-            message.setOpenDate(clientProduct.getOpenDate());
-            message.setCloseDate(clientProduct.getCloseDate());
-            message.setTimestamp(LocalDateTime.now());
-            message.setStatus(clientProduct.getStatus().toString());
-
-            // Определяем в какой топик отправлять
-            ProductKey productKey = clientProduct.getProduct().getKey();
-            String topic = getTopicForProductKey(productKey);
-
-            kafkaProducerService.sendMessage(topic, message);
-            log.info("Message sent to Kafka topic {} for product key {}", topic, productKey);
-
-        } catch (Exception e) {
-            log.error("Failed to send message to Kafka for client product {}", clientProduct.getId(), e);
-            // Не прерываем основную операцию из-за ошибки Kafka
-        }
+        KafkaMessageClientProduct message = new KafkaMessageClientProduct();
+        message.setOperation(operation);
+        message.setClientProductId(clientProduct.getId());
+        message.setProductName(clientProduct.getProduct().getName());
+        message.setClientId(clientProduct.getClient().getId());
+        message.setProductId(clientProduct.getProduct().getId());
+        message.setProductKey(clientProduct.getProduct().getKey().name());
+        message.setOpenDate(clientProduct.getOpenDate());
+        message.setCloseDate(clientProduct.getCloseDate());
+        message.setTimestamp(LocalDateTime.now());
+        message.setStatus(clientProduct.getStatus().toString());
+
+        // Определяем в какой топик отправлять
+        enqueue(clientProduct.getProduct().getKey(), message);
     }
 
     private void sendKafkaMessageForDelete(ClientProductResponse response) {
-        try {
-            KafkaMessageClientProduct message = new KafkaMessageClientProduct();
-            message.setOperation("DELETE");
-            message.setClientProductId(response.getId());
-            message.setClientId(response.getClientId());
-            message.setProductId(response.getProductId());
-            message.setProductKey(response.getProductKey().name());
-            message.setTimestamp(LocalDateTime.now());
-
-            String topic = getTopicForProductKey(response.getProductKey());
-            kafkaProducerService.sendMessage(topic, message);
-            log.info("Delete message sent to Kafka topic {}", topic);
-
-        } catch (Exception e) {
-            log.error("Failed to send delete message to Kafka for client product {}", response.getId(), e);
+        KafkaMessageClientProduct message = new KafkaMessageClientProduct();
+        message.setOperation("DELETE");
+        message.setClientProductId(response.getId());
+        message.setClientId(response.getClientId());
+        message.setProductId(response.getProductId());
+        message.setProductKey(response.getProductKey().name());
+        message.setTimestamp(LocalDateTime.now());
+
+        enqueue(response.getProductKey(), message);
+    }
+
+    /**
+     * Запись события в outbox в текущей транзакции.
+     * Ключ сообщения — идентификатор продукта клиента, поэтому его события читаются в порядке записи.
+     * @param productKey Ключ продукта
+     * @param message Сообщение
+     */
+    private void enqueue(ProductKey productKey, KafkaMessageClientProduct message) {
+        String topic = getTopicForProductKey(productKey);
+        if (topic == null) {
+            log.error("Топик не определен для продукта {}, событие не отправляется", productKey);
+            return;
         }
+        outboxService.enqueue(topic, String.valueOf(message.getClientProductId()), message);
+        log.info("{} event for client product {} queued for Kafka topic {}",
+                message.getOperation(), message.getClientProductId(), topic);
     }
 
     /**
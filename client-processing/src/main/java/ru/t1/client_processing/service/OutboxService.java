@@ -0,0 +1,73 @@
+package ru.t1.client_processing.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.t1.client_processing.entity.OutboxEvent;
+import ru.t1.client_processing.kafka.OutboxRelay;
+import ru.t1.client_processing.repository.OutboxEventRepository;
+import ru.t1.starter.trace.TraceContext;
+import ru.t1.starter.trace.TraceContextHolder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запись событий в outbox-таблицу {@code outbox_events}.
+ * <p>
+ * Событие сохраняется в транзакции вызывающего метода: при откате изменения данных событие тоже
+ * откатывается, а после коммита гарантированно будет отправлено {@link OutboxRelay}
+ * (at-least-once: при сбое между отправкой и отметкой о ней событие может уйти повторно).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final OutboxRelay outboxRelay;
+
+    /**
+     * Добавляет событие в outbox в текущей транзакции.
+     *
+     * @param topic   топик назначения
+     * @param key     ключ сообщения (может быть {@code null})
+     * @param message сообщение
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String topic, String key, Object message) {
+        OutboxEvent event = new OutboxEvent();
+        event.setTopic(topic);
+        event.setMessageKey(key);
+        event.setPayloadType(message.getClass().getName());
+        event.setPayload(toJson(message));
+        TraceContext traceContext = TraceContextHolder.get();
+        event.setTraceparent(traceContext != null ? traceContext.toTraceparent() : null);
+        event.setCreatedAt(LocalDateTime.now());
+        event.setNextAttemptAt(event.getCreatedAt());
+        outboxEventRepository.save(event);
+        log.debug("Событие для топика {} записано в outbox", topic);
+
+        // Не дожидаемся очередного опроса: релей запустится сразу после коммита
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxRelay.wakeUp();
+            }
+        });
+    }
+
+    private String toJson(Object message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Не удалось сериализовать сообщение " + message.getClass().getName(), e);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.t1.starter.aop.annotation.CacheEvict;
+import ru.t1.starter.aop.annotation.CachePut;
 import ru.t1.starter.aop.annotation.Cached;
 import ru.t1.starter.aop.annotation.LogDatasourceError;
 import ru.t1.client_processing.dto.ProductRequest;
@@ -36,6 +38,7 @@ public class ProductService {
      */
     @Transactional
     @LogDatasourceError
+    @CacheEvict(method = "getAllProducts")
     public Product createProduct(ProductRequest request) {
         log.info("Creating product: {}", request.getName());
 
@@ -89,6 +92,9 @@ public class ProductService {
      */
     @LogDatasourceError
     @Transactional
+    @CachePut(cacheName = "product", method = "getProductByProductId", key = "#p0")
+    @CachePut(cacheName = "Product", method = "findByProductId", key = "#p0", value = "T(java.util.Optional).of(#result)")
+    @CacheEvict(method = "getAllProducts")
     public Product updateProduct(String productId, ProductRequest request) {
         log.info("Updating product with id: {}", productId);
 
@@ -112,6 +118,9 @@ public class ProductService {
      */
     @Transactional
     @LogDatasourceError
+    @CacheEvict(cacheName = "product", method = "getProductByProductId", key = "#p0")
+    @CacheEvict(cacheName = "Product", method = "findByProductId", key = "#p0")
+    @CacheEvict(method = "getAllProducts")
     public void deleteProduct(String productId) {
         log.info("Deleting product with id: {}", productId);
 
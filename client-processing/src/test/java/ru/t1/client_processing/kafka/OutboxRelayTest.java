@@ -0,0 +1,235 @@
+package ru.t1.client_processing.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.t1.client_processing.entity.OutboxEvent;
+import ru.t1.client_processing.repository.OutboxEventRepository;
+import ru.t1.dto.KafkaMessageClientProduct;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private KafkaProducerService kafkaProducerService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRelay = new OutboxRelay(outboxEventRepository, kafkaProducerService,
+                new TransactionTemplate(transactionManager), objectMapper, meterRegistry,
+                3, 500, 1000, 86_400_000, 600_000, 3, 1000, 60_000, 15_000);
+    }
+
+    @Test
+    void relayBatch_ShouldSendGroupedByTopic_AndMarkAcknowledgedEventsSent() throws Exception {
+        // Arrange
+        OutboxEvent first = event(1L, "client_products");
+        OutboxEvent credit = event(2L, "client_credit_products");
+        OutboxEvent second = event(3L, "client_products");
+        when(outboxEventRepository.lockNextBatch(3)).thenReturn(List.of(first, credit, second));
+        when(kafkaProducerService.send(anyString(), anyString(), any(), any())).thenReturn(acked());
+
+        // Act
+        int sent = outboxRelay.relayBatch();
+
+        // Assert
+        assertEquals(3, sent);
+        InOrder inOrder = inOrder(kafkaProducerService);
+        inOrder.verify(kafkaProducerService).send(eq("client_products"), eq("1"), any(KafkaMessageClientProduct.class), isNull());
+        inOrder.verify(kafkaProducerService).send(eq("client_products"), eq("3"), any(KafkaMessageClientProduct.class), isNull());
+        inOrder.verify(kafkaProducerService).send(eq("client_credit_products"), eq("2"), any(KafkaMessageClientProduct.class), isNull());
+        inOrder.verify(kafkaProducerService).flush();
+        verify(outboxEventRepository).markSent(List.of(1L, 3L, 2L));
+        assertEquals(2, meterRegistry.get("outbox.relay.published")
+                .tag("topic", "client_products").tag("result", "success").counter().count());
+    }
+
+    @Test
+    void relayBatch_ShouldScheduleRetry_WhenBrokerDidNotAcknowledge() throws Exception {
+        // Arrange
+        OutboxEvent ok = event(1L, "client_products");
+        OutboxEvent failed = event(2L, "client_products");
+        when(outboxEventRepository.lockNextBatch(3)).thenReturn(List.of(ok, failed));
+        when(kafkaProducerService.send(anyString(), eq("1"), any(), any())).thenReturn(acked());
+        when(kafkaProducerService.send(anyString(), eq("2"), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")));
+
+        // Act
+        int sent = outboxRelay.relayBatch();
+
+        // Assert
+        assertEquals(1, sent);
+        verify(outboxEventRepository).markSent(List.of(1L));
+        verify(outboxEventRepository).scheduleRetry(List.of(2L), 1000, 60_000);
+        verify(outboxEventRepository, never()).markDead(anyCollection());
+        assertEquals(1, meterRegistry.get("outbox.relay.published")
+                .tag("topic", "client_products").tag("result", "failure").counter().count());
+    }
+
+    @Test
+    void relayBatch_ShouldMoveEventToDeadLetter_WhenAttemptsExhausted() throws Exception {
+        // Arrange
+        OutboxEvent exhausted = event(1L, "client_products");
+        exhausted.setAttempts(2);
+        when(outboxEventRepository.lockNextBatch(3)).thenReturn(List.of(exhausted));
+        when(kafkaProducerService.send(anyString(), anyString(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("record too large")));
+
+        // Act
+        int sent = outboxRelay.relayBatch();
+
+        // Assert
+        assertEquals(0, sent);
+        verify(outboxEventRepository).markDead(List.of(1L));
+        verify(outboxEventRepository, never()).scheduleRetry(anyCollection(), anyLong(), anyLong());
+        verify(outboxEventRepository, never()).markSent(anyCollection());
+        assertEquals(1, meterRegistry.get("outbox.relay.published")
+                .tag("topic", "client_products").tag("result", "dead").counter().count());
+    }
+
+    @Test
+    void relayBatch_ShouldSendOutsideDatabaseTransaction() throws Exception {
+        // Arrange
+        when(outboxEventRepository.lockNextBatch(3)).thenReturn(List.of(event(1L, "client_products")));
+        when(kafkaProducerService.send(anyString(), anyString(), any(), any())).thenReturn(acked());
+
+        // Act
+        outboxRelay.relayBatch();
+
+        // Assert: claim коммитится до отправки, результат пишется отдельной транзакцией после подтверждений
+        InOrder inOrder = inOrder(transactionManager, outboxEventRepository, kafkaProducerService);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(outboxEventRepository).claim(eq(List.of(1L)), any(LocalDateTime.class));
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(kafkaProducerService).send(anyString(), anyString(), any(), any());
+        inOrder.verify(kafkaProducerService).flush();
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(outboxEventRepository).markSent(List.of(1L));
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void relayBatch_ShouldRetryUnacknowledgedEvents_AfterBatchDeadline() throws Exception {
+        // Arrange
+        when(outboxEventRepository.lockNextBatch(3)).thenReturn(List.of(event(1L, "t"), event(2L, "t")));
+        when(kafkaProducerService.send(anyString(), eq("1"), any(), any())).thenReturn(acked());
+        when(kafkaProducerService.send(anyString(), eq("2"), any(), any())).thenReturn(new CompletableFuture<>());
+
+        // Act
+        long start = System.nanoTime();
+        int sent = outboxRelay.relayBatch();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Assert: один общий срок на пачку, а не send-timeout на каждое событие
+        assertEquals(1, sent);
+        assertTrue(elapsedMs < 2_000, "ожидание подтверждений заняло " + elapsedMs + " мс");
+        verify(outboxEventRepository).markSent(List.of(1L));
+        verify(outboxEventRepository).scheduleRetry(List.of(2L), 1000, 60_000);
+    }
+
+    @Test
+    void relayBatch_ShouldDeferLaterEventsOfKey_WhenEarlierSendFailed() throws Exception {
+        // Arrange
+        OutboxEvent failed = event(1L, "client_products");
+        OutboxEvent newer = event(2L, "client_products");
+        newer.setMessageKey(failed.getMessageKey());
+        OutboxEvent otherKey = event(3L, "client_products");
+        when(outboxEventRepository.lockNextBatch(3)).thenReturn(List.of(failed, newer, otherKey));
+        when(kafkaProducerService.send(anyString(), eq("1"), any(), any()))
+                .thenThrow(new IllegalStateException("buffer exhausted"));
+        when(kafkaProducerService.send(anyString(), eq("3"), any(), any())).thenReturn(acked());
+
+        // Act
+        int sent = outboxRelay.relayBatch();
+
+        // Assert: более позднее событие ключа не обгоняет неудачное и не тратит попытку
+        assertEquals(1, sent);
+        verify(kafkaProducerService, times(1)).send(anyString(), eq("1"), any(), any());
+        verify(outboxEventRepository).markSent(List.of(3L));
+        verify(outboxEventRepository).scheduleRetry(List.of(1L), 1000, 60_000);
+        verify(outboxEventRepository).release(List.of(2L));
+    }
+
+    @Test
+    void gauges_ShouldReportRefreshedBacklog_WithoutQueryPerScrape() {
+        // Arrange
+        when(outboxEventRepository.countPending()).thenReturn(7L);
+        when(outboxEventRepository.countDead()).thenReturn(2L);
+
+        // Act
+        outboxRelay.refreshBacklog();
+        double pending = meterRegistry.get("outbox.pending").gauge().value();
+        double dead = meterRegistry.get("outbox.dead").gauge().value();
+        meterRegistry.get("outbox.pending").gauge().value();
+
+        // Assert
+        assertEquals(7, pending);
+        assertEquals(2, dead);
+        verify(outboxEventRepository, times(1)).countPending();
+        verify(outboxEventRepository, times(1)).countDead();
+    }
+
+    @Test
+    void relayPending_ShouldDrainUntilBatchIsNotFull() throws Exception {
+        // Arrange
+        when(outboxEventRepository.lockNextBatch(3))
+                .thenReturn(List.of(event(1L, "t"), event(2L, "t"), event(3L, "t")))
+                .thenReturn(List.of(event(4L, "t")));
+        when(kafkaProducerService.send(anyString(), anyString(), any(), any())).thenReturn(acked());
+
+        // Act
+        int sent = outboxRelay.relayPending();
+
+        // Assert
+        assertEquals(4, sent);
+        verify(outboxEventRepository, times(2)).lockNextBatch(3);
+        verify(outboxEventRepository, times(2)).markSent(anyCollection());
+    }
+
+    private OutboxEvent event(Long id, String topic) throws Exception {
+        KafkaMessageClientProduct message = new KafkaMessageClientProduct();
+        message.setOperation("CREATE");
+        message.setClientProductId(id);
+        message.setTimestamp(LocalDateTime.now());
+
+        OutboxEvent event = new OutboxEvent();
+        event.setId(id);
+        event.setTopic(topic);
+        event.setMessageKey(String.valueOf(id));
+        event.setPayloadType(KafkaMessageClientProduct.class.getName());
+        event.setPayload(objectMapper.writeValueAsString(message));
+        event.setCreatedAt(LocalDateTime.now());
+        return event;
+    }
+
+    private static CompletableFuture<SendResult<String, Object>> acked() {
+        return CompletableFuture.completedFuture(null);
+    }
+}
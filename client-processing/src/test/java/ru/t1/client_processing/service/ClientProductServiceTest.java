@@ -17,7 +17,6 @@ import ru.t1.client_processing.exception.ClientNotFoundException;
 import ru.t1.client_processing.exception.ClientProductAlreadyExistsException;
 import ru.t1.client_processing.exception.ClientProductNotFoundException;
 import ru.t1.client_processing.exception.ProductNotFoundException;
-import ru.t1.client_processing.kafka.KafkaProducerService;
 import ru.t1.client_processing.repository.ClientProductRepository;
 import ru.t1.client_processing.repository.ClientRepository;
 import ru.t1.client_processing.repository.ProductRepository;
@@ -44,7 +43,10 @@ class ClientProductServiceTest {
     private ProductRepository productRepository;
 
     @Mock
-    private KafkaProducerService kafkaProducerService;
+    private OutboxService outboxService;
+
+    @Mock
+    private ProductMetricsService productMetricsService;
 
     @InjectMocks
     private ClientProductService clientProductService;
@@ -105,7 +107,7 @@ class ClientProductServiceTest {
         verify(productRepository).findById(productId);
         verify(clientProductRepository).existsByClientIdAndProductId(clientId, productId);
         verify(clientProductRepository).save(any(ClientProduct.class));
-        verify(kafkaProducerService).sendMessage(eq(CLIENT_PRODUCTS_TOPIC), any());
+        verify(outboxService).enqueue(eq(CLIENT_PRODUCTS_TOPIC), eq("1"), any());
     }
 
     @Test
@@ -335,7 +337,7 @@ class ClientProductServiceTest {
 
         verify(clientProductRepository).findById(clientProductId);
         verify(clientProductRepository).save(existingClientProduct);
-        verify(kafkaProducerService).sendMessage(eq(CLIENT_PRODUCTS_TOPIC), any());
+        verify(outboxService).enqueue(eq(CLIENT_PRODUCTS_TOPIC), eq("1"), any());
     }
 
     @Test
@@ -404,7 +406,7 @@ class ClientProductServiceTest {
         // Assert
         verify(clientProductRepository).findById(clientProductId);
         verify(clientProductRepository).delete(clientProduct);
-        verify(kafkaProducerService).sendMessage(eq(CLIENT_PRODUCTS_TOPIC), any());
+        verify(outboxService).enqueue(eq(CLIENT_PRODUCTS_TOPIC), eq("1"), any());
     }
 
     @Test
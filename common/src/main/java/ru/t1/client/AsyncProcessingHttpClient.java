@@ -0,0 +1,55 @@
+package ru.t1.client;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import ru.t1.dto.ClientInfoResponse;
+import ru.t1.dto.ProductRegistryInfo;
+import ru.t1.starter.trace.TraceContextHolder;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Асинхронные варианты запросов {@link ProcessingHttpClient}.
+ * <p>
+ * Каждый вызов выполняется в отдельном виртуальном потоке, поэтому независимые запросы
+ * к разным сервисам можно запускать параллельно и ожидать их вместе: задержка равна
+ * самому долгому вызову, а не сумме. Запросы идут через прокси {@link ProcessingHttpClient},
+ * так что логирование {@code @HttpOutcomeRequestLog} и пул соединений сохраняются.
+ * Контекст трассировки вызывающего потока переносится в виртуальный поток.
+ */
+@Component
+public class AsyncProcessingHttpClient implements DisposableBean {
+
+    private final ProcessingHttpClient processingHttpClient;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("processing-http-", 0).factory());
+
+    public AsyncProcessingHttpClient(ProcessingHttpClient processingHttpClient) {
+        this.processingHttpClient = processingHttpClient;
+    }
+
+    public CompletableFuture<Long> sendGetAccountIdRequestAsync(String url, Map<String, Object> params) {
+        return CompletableFuture.supplyAsync(
+                TraceContextHolder.wrap(() -> processingHttpClient.sendGetAccountIdRequest(url, params)), executor);
+    }
+
+    public CompletableFuture<ClientInfoResponse> sendGetClientInfoRequestAsync(String url, Map<String, Object> params) {
+        return CompletableFuture.supplyAsync(
+                TraceContextHolder.wrap(() -> processingHttpClient.sendGetClientInfoRequest(url, params)), executor);
+    }
+
+    public CompletableFuture<ProductRegistryInfo> sendGetProductRegistryByAccountRequestAsync(String url,
+                                                                                            Map<String, Object> params) {
+        return CompletableFuture.supplyAsync(
+                TraceContextHolder.wrap(() -> processingHttpClient.sendGetProductRegistryByAccountRequest(url, params)),
+                executor);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
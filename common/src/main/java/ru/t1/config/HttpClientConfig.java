@@ -0,0 +1,92 @@
+package ru.t1.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URISyntaxException;
+import java.util.Map;
+
+/**
+ * Конфигурация межсервисного HTTP-клиента.
+ * <p>
+ * Вместо {@code new RestTemplate()} (новое TCP-соединение на каждый вызов, без таймаутов)
+ * используется Apache HttpClient 5 с пулом keep-alive соединений, лимитами на маршрут,
+ * таймаутами и фоновым закрытием простаивающих соединений.
+ * Метрики пула (leased / pending / available) публикуются в Micrometer
+ * под именами {@code httpcomponents.httpclient.pool.*} с тегом {@code httpclient=processing-http-client}.
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(HttpClientProperties.class)
+public class HttpClientConfig {
+
+    /** Имя пула в тегах метрик. */
+    public static final String POOL_NAME = "processing-http-client";
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager processingConnectionManager(HttpClientProperties properties) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxTotal())
+                .setMaxConnPerRoute(properties.getDefaultMaxPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(properties.getConnectTimeoutMs()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(properties.getResponseTimeoutMs()))
+                        .setValidateAfterInactivity(TimeValue.ofMilliseconds(properties.getValidateAfterInactivityMs()))
+                        .build())
+                .build();
+
+        for (Map.Entry<String, Integer> route : properties.getMaxPerRoute().entrySet()) {
+            try {
+                HttpHost host = HttpHost.create("http://" + route.getKey());
+                connectionManager.setMaxPerRoute(new HttpRoute(host), route.getValue());
+            } catch (URISyntaxException e) {
+                log.warn("Некорректный маршрут в http.client.max-per-route: {}", route.getKey());
+            }
+        }
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient processingApacheHttpClient(PoolingHttpClientConnectionManager processingConnectionManager,
+                                                    HttpClientProperties properties) {
+        return HttpClients.custom()
+                .setConnectionManager(processingConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(properties.getConnectionRequestTimeoutMs()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(properties.getResponseTimeoutMs()))
+                        .setConnectionKeepAlive(TimeValue.ofMilliseconds(properties.getKeepAliveMs()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(properties.getIdleEvictMs()))
+                .build();
+    }
+
+    @Bean
+    public RestTemplate processingRestTemplate(CloseableHttpClient processingApacheHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(processingApacheHttpClient));
+    }
+
+    /**
+     * Метрики пула соединений; регистрируются автоматически, если в приложении есть {@code MeterRegistry}.
+     */
+    @Bean
+    public MeterBinder processingConnectionPoolMetrics(PoolingHttpClientConnectionManager processingConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(processingConnectionManager, POOL_NAME);
+    }
+}
@@ -0,0 +1,44 @@
+package ru.t1.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Настройки пула соединений межсервисного HTTP-клиента ({@code http.client.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "http.client")
+public class HttpClientProperties {
+
+    /** Максимальное количество соединений в пуле. */
+    private int maxTotal = 100;
+
+    /** Максимальное количество соединений на один маршрут (хост:порт) по умолчанию. */
+    private int defaultMaxPerRoute = 20;
+
+    /** Индивидуальные лимиты соединений по маршрутам: {@code "host:port" → max}. */
+    private Map<String, Integer> maxPerRoute = new HashMap<>();
+
+    /** Таймаут установки TCP-соединения. */
+    private long connectTimeoutMs = 2000;
+
+    /** Таймаут ожидания ответа (чтения). */
+    private long responseTimeoutMs = 5000;
+
+    /** Таймаут ожидания свободного соединения из пула. */
+    private long connectionRequestTimeoutMs = 1000;
+
+    /** Время жизни keep-alive соединения, если сервер не указал своё. */
+    private long keepAliveMs = 30000;
+
+    /** Соединения, простаивающие дольше этого времени, закрываются фоновым потоком. */
+    private long idleEvictMs = 30000;
+
+    /** Перед выдачей из пула проверять соединения, простаивавшие дольше этого времени. */
+    private long validateAfterInactivityMs = 2000;
+}
@@ -1,5 +1,6 @@
 package ru.t1.security;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
@@ -8,6 +9,7 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import ru.t1.starter.trace.Tracer;
 
 @Configuration
 @EnableWebSecurity
@@ -20,8 +22,13 @@ public class CommonSecurityConfig {
     }
 
     @Bean
-    public JwtAuthFilter jwtAuthFilter(JwtUtil jwtUtil) {
-        return new JwtAuthFilter(jwtUtil);
+    public VerifiedTokenCache verifiedTokenCache(@Value("${jwt.verified-cache.max-size}") int maxSize) {
+        return new VerifiedTokenCache(maxSize);
+    }
+
+    @Bean
+    public JwtAuthFilter jwtAuthFilter(JwtUtil jwtUtil, VerifiedTokenCache verifiedTokenCache, Tracer tracer) {
+        return new JwtAuthFilter(jwtUtil, verifiedTokenCache, tracer);
     }
 
     @Bean
@@ -1,6 +1,7 @@
 package ru.t1.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,6 +13,10 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.security.core.context.SecurityContextHolder;
+import ru.t1.starter.trace.Span;
+import ru.t1.starter.trace.SpanKind;
+import ru.t1.starter.trace.TraceContext;
+import ru.t1.starter.trace.Tracer;
 
 import java.io.IOException;
 import java.util.Collections;
@@ -20,23 +25,32 @@ import java.util.Date;
 /**
  * Фильтр для проверки JWT токенов во входящих HTTP запросах.
  * Устанавливается в микросервисах, которые принимают запросы от других сервисов.
+ * <p>
+ * Токен разбирается и проверяется один раз; результат кэшируется в {@link VerifiedTokenCache}
+ * до истечения токена, поэтому повторные вызовы с тем же токеном не выполняют криптографию.
+ * <p>
+ * Обработка запроса записывается спаном {@link SpanKind#SERVER}, продолжающим трассу
+ * из заголовка {@value TraceContext#HEADER} вызывающего сервиса.
  * */
 @Slf4j
 @RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final Tracer tracer;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
         String jwt = parseJwt(request);
+        Claims claims = jwt != null ? verify(jwt) : null;
 
-        if (jwt != null && jwtUtil.validateToken(jwt)) {
-            logIncomingJwt(jwt, request);
-            String serviceName = jwtUtil.extractServiceName(jwt);
-            String tokenType = jwtUtil.extractTokenType(jwt);
+        if (claims != null) {
+            logIncomingJwt(claims, request);
+            String serviceName = claims.getSubject();
+            String tokenType = claims.get("type", String.class);
 
             if ("SERVICE".equals(tokenType)) {
                 log.info("✅ JWT token validated. Service: {}", serviceName);
@@ -60,7 +74,40 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             // НЕ блокируем запрос - разрешаем как анонимный
         }
 
-        filterChain.doFilter(request, response);
+        // Продолжаем трассу вызывающего сервиса (заголовок traceparent) или начинаем новую
+        Span span = tracer.startSpan(request.getMethod() + " " + request.getRequestURI(), SpanKind.SERVER,
+                        request.getHeader(TraceContext.HEADER))
+                .tag("http.method", request.getMethod())
+                .tag("http.target", request.getRequestURI())
+                .tag("peer.service", claims != null ? claims.getSubject() : null);
+        try (Span.Scope ignored = span.makeCurrent()) {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.tag("http.status_code", response.getStatus());
+            span.end();
+        }
+    }
+
+    /**
+     * Возвращает claims токена из кэша или после однократной проверки подписи.
+     *
+     * @return claims либо {@code null}, если токен невалиден
+     */
+    private Claims verify(String jwt) {
+        Claims claims = verifiedTokenCache.get(jwt);
+        if (claims != null) {
+            return claims;
+        }
+        try {
+            claims = jwtUtil.parseClaims(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        verifiedTokenCache.put(jwt, claims);
+        return claims;
     }
 
     private String parseJwt(HttpServletRequest request) {
@@ -73,9 +120,8 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     /**
      * Логирует информацию о входящем JWT токене
      */
-    private void logIncomingJwt(String jwtToken, HttpServletRequest request) {
+    private void logIncomingJwt(Claims claims, HttpServletRequest request) {
         try {
-            Claims claims = jwtUtil.decodeToken(jwtToken);
             String serviceName = claims.getSubject();
             String tokenType = claims.get("type", String.class);
             Date expiration = claims.getExpiration();
@@ -1,6 +1,8 @@
 package ru.t1.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import org.springframework.beans.factory.annotation.Value;
@@ -27,32 +29,85 @@ public class JwtUtil {
     @Value("${jwt.expiration-ms}") // 1 час по умолчанию
     private long expirationMs;
 
+    /** Ключ подписи, декодируется из {@code jwt.secret} один раз. */
+    private volatile SecretKey signingKey;
+
+    /** Парсер с проверкой подписи; потокобезопасен и создаётся один раз. */
+    private volatile JwtParser parser;
+
+    public JwtUtil() {
+    }
+
+    JwtUtil(String secret, String serviceName, long expirationMs) {
+        this.secret = secret;
+        this.serviceName = serviceName;
+        this.expirationMs = expirationMs;
+    }
+
     public SecretKey getSigningKey() {
-        byte[] keyBytes = Base64.getDecoder().decode(secret);
-        return new SecretKeySpec(keyBytes, SignatureAlgorithm.HS256.getJcaName());
+        SecretKey key = signingKey;
+        if (key == null) {
+            byte[] keyBytes = Base64.getDecoder().decode(secret);
+            key = new SecretKeySpec(keyBytes, SignatureAlgorithm.HS256.getJcaName());
+            signingKey = key;
+        }
+        return key;
     }
 
     /** Генерирует JWT токен для межсервисного общения
      * @return JWT токен*/
     public String generateServiceToken() {
+        return generateServiceToken(System.currentTimeMillis());
+    }
+
+    /** Генерирует JWT токен для межсервисного общения
+     * @param issuedAtMs время выпуска токена
+     * @return JWT токен, действительный до {@code issuedAtMs + jwt.expiration-ms}*/
+    public String generateServiceToken(long issuedAtMs) {
         return Jwts.builder()
                 .setSubject(serviceName) // имя сервиса, который генерирует токен
                 .claim("type", "SERVICE") // тип токена для межсервисного общения
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + expirationMs))
+                .setIssuedAt(new Date(issuedAtMs))
+                .setExpiration(new Date(issuedAtMs + expirationMs))
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /** @return время жизни выпускаемых токенов в миллисекундах */
+    public long getExpirationMs() {
+        return expirationMs;
+    }
+
+    /** @return имя текущего сервиса (subject выпускаемых токенов) */
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    /**
+     * Проверяет подпись и срок действия токена и возвращает его claims.
+     * Единственная точка разбора токена: остальные методы используют её результат.
+     *
+     * @param token JWT токен
+     * @return claims проверенного токена
+     * @throws JwtException если токен невалиден или истёк
+     */
+    public Claims parseClaims(String token) {
+        JwtParser jwtParser = parser;
+        if (jwtParser == null) {
+            jwtParser = Jwts.parserBuilder()
+                    .setSigningKey(getSigningKey())
+                    .build();
+            parser = jwtParser;
+        }
+        return jwtParser.parseClaimsJws(token).getBody();
+    }
+
     /** Проверяет валидность JWT токена
      * @param token JWT токен
      * @return если токен валиден*/
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
+            parseClaims(token);
             return true;
         } catch (Exception e) {
             return false;
@@ -63,12 +118,7 @@ public class JwtUtil {
      * @param token JWT токен
      * @return имя сервиса*/
     public String extractServiceName(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
+        return parseClaims(token).getSubject();
     }
 
     /** Извлекает тип токена из JWT токена
@@ -76,23 +126,14 @@ public class JwtUtil {
      * @return тип токена
      **/
     public String extractTokenType(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.get("type", String.class);
+        return parseClaims(token).get("type", String.class);
     }
 
     /**
      * Декодирует и возвращает claims JWT токена (для логирования)
      */
     public Claims decodeToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parseClaims(token);
     }
 
     /**
@@ -0,0 +1,108 @@
+package ru.t1.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кэш JWT токена для межсервисных вызовов.
+ * <p>
+ * Один подписанный токен переиспользуется всеми исходящими запросами и перевыпускается
+ * фоновым потоком за {@code jwt.refresh-ahead-ms} до истечения. Если фоновое обновление
+ * не успело (например, после долгой паузы JVM), токен перевыпускается синхронно при обращении.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ServiceTokenProvider implements DisposableBean {
+
+    private final JwtUtil jwtUtil;
+
+    /** За сколько миллисекунд до истечения токен перевыпускается. */
+    @Value("${jwt.refresh-ahead-ms}")
+    private long refreshAheadMs;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "service-token-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile CachedToken current;
+
+    /**
+     * @return действующий JWT токен текущего сервиса
+     */
+    public String getToken() {
+        CachedToken token = current;
+        if (token == null || System.currentTimeMillis() >= token.refreshAtMs()) {
+            token = refresh(token);
+        }
+        return token.value();
+    }
+
+    private synchronized CachedToken refresh(CachedToken seen) {
+        CachedToken token = current;
+        if (token != seen && token != null && System.currentTimeMillis() < token.refreshAtMs()) {
+            return token; // уже обновлён другим потоком
+        }
+        long issuedAtMs = System.currentTimeMillis();
+        long expiresAtMs = issuedAtMs + jwtUtil.getExpirationMs();
+        long refreshAtMs = expiresAtMs - Math.min(refreshAheadMs, jwtUtil.getExpirationMs() / 2);
+
+        token = new CachedToken(jwtUtil.generateServiceToken(issuedAtMs), refreshAtMs);
+        current = token;
+        logToken(token.value(), expiresAtMs);
+
+        if (!scheduler.isShutdown()) {
+            scheduler.schedule(this::backgroundRefresh, refreshAtMs - issuedAtMs, TimeUnit.MILLISECONDS);
+        }
+        return token;
+    }
+
+    private void backgroundRefresh() {
+        try {
+            CachedToken token = current;
+            if (token != null && System.currentTimeMillis() >= token.refreshAtMs()) {
+                refresh(token);
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Failed to refresh service JWT: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Логирует payload выпущенного токена (только на уровне DEBUG и только при перевыпуске).
+     */
+    private void logToken(String jwtToken, long expiresAtMs) {
+        if (!log.isDebugEnabled()) {
+            return;
+        }
+        String[] parts = jwtToken.split("\\.");
+        if (parts.length >= 2) {
+            log.debug("🔐 Generated JWT Token for service: {}", jwtUtil.getServiceName());
+            log.debug("📋 JWT Payload: {}", new String(Base64.getUrlDecoder().decode(parts[1])));
+            log.debug("⏰ JWT Expires at: {}", new Date(expiresAtMs));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * @param value       подписанный токен
+     * @param refreshAtMs момент, после которого токен нужно перевыпустить
+     */
+    private record CachedToken(String value, long refreshAtMs) {
+    }
+}
@@ -0,0 +1,125 @@
+package ru.t1.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ограниченный LRU-кэш уже проверенных JWT токенов.
+ * <p>
+ * Ключ — SHA-256 от токена (сам токен не хранится), значение — claims и момент истечения из {@code exp}.
+ * Повторные межсервисные вызовы с тем же токеном проходят без проверки подписи.
+ * Токены без {@code exp} не кэшируются; записи удаляются при обращении после истечения
+ * или вытесняются как давно неиспользуемые при достижении {@code maxSize}.
+ * <p>
+ * Записи разбиты на сегменты по хэшу токена, каждый — LRU {@link LinkedHashMap} под собственной
+ * блокировкой, поэтому параллельные запросы с разными токенами не выстраиваются в очередь на одном мониторе.
+ */
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    });
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 64;
+
+    private final Map<Digest, Entry>[] segments;
+
+    /**
+     * @param maxSize максимальное количество закэшированных токенов; {@code 0} отключает кэширование
+     */
+    @SuppressWarnings("unchecked")
+    public VerifiedTokenCache(int maxSize) {
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxSize / MIN_SEGMENT_SIZE)));
+        int segmentSize = (maxSize + segmentCount - 1) / segmentCount;
+        this.segments = new Map[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Digest, Entry> eldest) {
+                    return size() > segmentSize;
+                }
+            };
+        }
+    }
+
+    /**
+     * @param token JWT токен
+     * @return claims ранее проверенного и ещё не истёкшего токена либо {@code null}
+     */
+    public Claims get(String token) {
+        Digest digest = digest(token);
+        Map<Digest, Entry> entries = segmentFor(digest);
+        synchronized (entries) {
+            Entry entry = entries.get(digest);
+            if (entry == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() >= entry.expiresAtMs()) {
+                entries.remove(digest);
+                return null;
+            }
+            return entry.claims();
+        }
+    }
+
+    /**
+     * Запоминает claims проверенного токена до его истечения.
+     *
+     * @param token  JWT токен
+     * @param claims claims, полученные при проверке подписи
+     */
+    public void put(String token, Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            return;
+        }
+        Digest digest = digest(token);
+        Map<Digest, Entry> entries = segmentFor(digest);
+        synchronized (entries) {
+            entries.put(digest, new Entry(claims, expiration.getTime()));
+        }
+    }
+
+    /**
+     * @return текущее количество записей
+     */
+    public int size() {
+        int size = 0;
+        for (Map<Digest, Entry> entries : segments) {
+            synchronized (entries) {
+                size += entries.size();
+            }
+        }
+        return size;
+    }
+
+    private Map<Digest, Entry> segmentFor(Digest digest) {
+        // биты SHA-256 распределены равномерно, дополнительное перемешивание не нужно
+        return segments[(int) digest.h0() & (segments.length - 1)];
+    }
+
+    private static Digest digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        ByteBuffer buffer = ByteBuffer.wrap(hash);
+        return new Digest(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+
+    /** SHA-256 токена, упакованный в четыре {@code long} для дешёвых equals/hashCode. */
+    private record Digest(long h0, long h1, long h2, long h3) {
+    }
+
+    private record Entry(Claims claims, long expiresAtMs) {
+    }
+}
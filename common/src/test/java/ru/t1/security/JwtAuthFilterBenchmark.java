@@ -0,0 +1,142 @@
+package ru.t1.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.t1.starter.trace.SpanExporter;
+import ru.t1.starter.trace.Tracer;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.security.Key;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение пропускной способности {@link JwtAuthFilter}:
+ * <ul>
+ *     <li>{@code legacy} — прежняя логика: до четырёх разборов токена с новым парсером и декодированием ключа;</li>
+ *     <li>{@code singleParse} — один разбор без кэша проверенных токенов;</li>
+ *     <li>{@code cached} — один разбор и {@link VerifiedTokenCache} (повторный токен без криптографии).</li>
+ * </ul>
+ * Запуск: {@code main} из IDE или {@code java -cp <test-classpath> ru.t1.security.JwtAuthFilterBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtAuthFilterBenchmark {
+
+    private static final String SECRET = "bXlTdXBlclNlY3JldEtleUZvckpXVFRva2VuR2VuZXJhdGlvbkluTWljcm9zZXJ2aWNlczEyMyE=";
+    private static final FilterChain NOOP_CHAIN = (request, response) -> { };
+
+    private String authorization;
+    private OncePerRequestFilter legacyFilter;
+    private OncePerRequestFilter singleParseFilter;
+    private OncePerRequestFilter cachedFilter;
+
+    @Setup
+    public void setUp() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, "benchmark-service", 3_600_000L);
+        authorization = "Bearer " + jwtUtil.generateServiceToken();
+        legacyFilter = new LegacyJwtAuthFilter(SECRET);
+        Tracer tracer = new Tracer(SpanExporter.NOOP, "benchmark-service", 0);
+        singleParseFilter = new JwtAuthFilter(jwtUtil, new VerifiedTokenCache(0), tracer);
+        cachedFilter = new JwtAuthFilter(jwtUtil, new VerifiedTokenCache(1024), tracer);
+    }
+
+    @Benchmark
+    public Object legacy() throws Exception {
+        return run(legacyFilter);
+    }
+
+    @Benchmark
+    public Object singleParse() throws Exception {
+        return run(singleParseFilter);
+    }
+
+    @Benchmark
+    public Object cached() throws Exception {
+        return run(cachedFilter);
+    }
+
+    private Object run(OncePerRequestFilter filter) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/accounts");
+        request.addHeader("Authorization", authorization);
+        filter.doFilter(request, new MockHttpServletResponse(), NOOP_CHAIN);
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * Прежняя реализация фильтра: каждый шаг заново декодирует ключ, строит парсер и проверяет подпись.
+     */
+    static class LegacyJwtAuthFilter extends OncePerRequestFilter {
+
+        private final String secret;
+
+        LegacyJwtAuthFilter(String secret) {
+            this.secret = secret;
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                        FilterChain filterChain) throws ServletException, IOException {
+            String jwt = request.getHeader("Authorization").substring(7);
+            if (validate(jwt)) {
+                parse(jwt); // logIncomingJwt -> decodeToken
+                String serviceName = parse(jwt).getSubject();
+                String tokenType = parse(jwt).get("type", String.class);
+                if ("SERVICE".equals(tokenType)) {
+                    SecurityContextHolder.getContext().setAuthentication(
+                            new UsernamePasswordAuthenticationToken(serviceName, null, List.of()));
+                }
+            }
+            filterChain.doFilter(request, response);
+        }
+
+        private boolean validate(String token) {
+            try {
+                parse(token);
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        private Claims parse(String token) {
+            return Jwts.parserBuilder()
+                    .setSigningKey(signingKey())
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
+        }
+
+        private Key signingKey() {
+            return new SecretKeySpec(Base64.getDecoder().decode(secret), SignatureAlgorithm.HS256.getJcaName());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package ru.t1.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import ru.t1.starter.trace.SpanExporter;
+import ru.t1.starter.trace.Tracer;
+
+import java.util.Base64;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+
+    private static final String SECRET = "bXlTdXBlclNlY3JldEtleUZvckpXVFRva2VuR2VuZXJhdGlvbkluTWljcm9zZXJ2aWNlczEyMyE=";
+    private static final long HOUR_MS = 3_600_000L;
+
+    private final JwtUtil jwtUtil = new JwtUtil(SECRET, "test-service", HOUR_MS);
+    private final Tracer tracer = new Tracer(SpanExporter.NOOP, "test-service", 0);
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void get_ShouldReturnClaims_WhenTokenCachedAndNotExpired() {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(16);
+        String token = jwtUtil.generateServiceToken();
+        Claims claims = jwtUtil.parseClaims(token);
+
+        // Act
+        cache.put(token, claims);
+
+        // Assert
+        assertSame(claims, cache.get(token));
+        assertNull(cache.get(jwtUtil.generateServiceToken(System.currentTimeMillis() - 1000)));
+    }
+
+    @Test
+    void get_ShouldDropEntry_WhenTokenExpired() {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(16);
+        Claims claims = Jwts.claims().setSubject("test-service");
+        claims.setExpiration(new Date(System.currentTimeMillis() - 1));
+        cache.put("expired-token", claims);
+        assertEquals(1, cache.size());
+
+        // Act
+        Claims cached = cache.get("expired-token");
+
+        // Assert
+        assertNull(cached);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void put_ShouldSkipToken_WhenNoExpiration() {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(16);
+
+        // Act
+        cache.put("no-exp-token", Jwts.claims().setSubject("test-service"));
+
+        // Assert
+        assertNull(cache.get("no-exp-token"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void put_ShouldEvictLeastRecentlyUsed_WhenMaxSizeReached() {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(2);
+        Claims claims = jwtUtil.parseClaims(jwtUtil.generateServiceToken());
+        cache.put("first", claims);
+        cache.put("second", claims);
+        cache.get("first");
+
+        // Act
+        cache.put("third", claims);
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("first"));
+        assertNull(cache.get("second"));
+        assertNotNull(cache.get("third"));
+    }
+
+    @Test
+    void put_ShouldKeepSizeWithinBound_WhenManyTokens() {
+        // Arrange
+        int maxSize = 1024;
+        VerifiedTokenCache cache = new VerifiedTokenCache(maxSize);
+        Claims claims = jwtUtil.parseClaims(jwtUtil.generateServiceToken());
+
+        // Act
+        for (int i = 0; i < maxSize * 4; i++) {
+            cache.put("token-" + i, claims);
+        }
+
+        // Assert
+        assertTrue(cache.size() <= maxSize);
+        assertNotNull(cache.get("token-" + (maxSize * 4 - 1)));
+    }
+
+    @Test
+    void put_ShouldNotCache_WhenMaxSizeZero() {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(0);
+        String token = jwtUtil.generateServiceToken();
+
+        // Act
+        cache.put(token, jwtUtil.parseClaims(token));
+
+        // Assert
+        assertNull(cache.get(token));
+    }
+
+    @Test
+    void filter_ShouldRejectAndNotCache_WhenTokenTampered() throws Exception {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(16);
+        JwtAuthFilter filter = new JwtAuthFilter(jwtUtil, cache, tracer);
+        String token = jwtUtil.generateServiceToken();
+        String[] parts = token.split("\\.");
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"sub\":\"intruder\",\"type\":\"SERVICE\",\"exp\":9999999999}".getBytes());
+        String tampered = parts[0] + "." + forgedPayload + "." + parts[2];
+
+        // Act
+        filter.doFilter(bearer(tampered), new MockHttpServletResponse(), (request, response) -> { });
+
+        // Assert
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void filter_ShouldRejectAndNotCache_WhenTokenExpired() throws Exception {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(16);
+        JwtAuthFilter filter = new JwtAuthFilter(jwtUtil, cache, tracer);
+        String expired = jwtUtil.generateServiceToken(System.currentTimeMillis() - 2 * HOUR_MS);
+
+        // Act
+        filter.doFilter(bearer(expired), new MockHttpServletResponse(), (request, response) -> { });
+
+        // Assert
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void filter_ShouldAuthenticateFromCache_WhenTokenSeenBefore() throws Exception {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(16);
+        JwtAuthFilter filter = new JwtAuthFilter(jwtUtil, cache, tracer);
+        String token = jwtUtil.generateServiceToken();
+        filter.doFilter(bearer(token), new MockHttpServletResponse(), (request, response) -> { });
+        SecurityContextHolder.clearContext();
+
+        // Act
+        filter.doFilter(bearer(token), new MockHttpServletResponse(), (request, response) -> { });
+
+        // Assert
+        assertEquals(1, cache.size());
+        assertEquals("test-service", SecurityContextHolder.getContext().getAuthentication().getName());
+    }
+
+    private static MockHttpServletRequest bearer(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
@@ -2,9 +2,11 @@ package ru.t1.credit_processing.client;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
+import ru.t1.client.AsyncProcessingHttpClient;
 import ru.t1.client.ProcessingHttpClient;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Клиент для взаимодействия с микросервисом account-processing (МС-2).
@@ -17,6 +19,7 @@ public class AccountProcessingClient {
     private static final String BASE_URL = "http://localhost:8082/api/accounts";
 
     private final ProcessingHttpClient httpClient;
+    private final AsyncProcessingHttpClient asyncHttpClient;
 
     /**
      * Получение идентификатора счёта по идентификатору клиента и продукта.
@@ -30,4 +33,17 @@ public class AccountProcessingClient {
         Map<String, Object> params = Map.of("clientId", clientId, "productId", productId);
         return httpClient.sendGetAccountIdRequest(url, params);
     }
+
+    /**
+     * Асинхронное получение идентификатора счёта (запрос выполняется в виртуальном потоке).
+     *
+     * @param clientId  идентификатор клиента
+     * @param productId идентификатор продукта
+     * @return future с идентификатором счёта или {@code null}, если счёт не найден
+     */
+    public CompletableFuture<Long> getAccountIdAsync(Long clientId, Long productId) {
+        String url = BASE_URL + "/get/by-client/{clientId}/product/{productId}";
+        Map<String, Object> params = Map.of("clientId", clientId, "productId", productId);
+        return asyncHttpClient.sendGetAccountIdRequestAsync(url, params);
+    }
 }
@@ -2,10 +2,12 @@ package ru.t1.credit_processing.client;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
+import ru.t1.client.AsyncProcessingHttpClient;
 import ru.t1.client.ProcessingHttpClient;
 import ru.t1.dto.ClientInfoResponse;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Клиент для взаимодействия с микросервисом client-processing (МС-1).
@@ -18,6 +20,7 @@ public class ClientProcessingClient {
     private static final String BASE_URL = "http://localhost:8081/api/clients/get";
 
     private final ProcessingHttpClient httpClient;
+    private final AsyncProcessingHttpClient asyncHttpClient;
 
     /**
      * Получение информации о клиенте по ID из МС-1 (Client Processing).
@@ -30,4 +33,16 @@ public class ClientProcessingClient {
         Map<String, Object> params = Map.of("clientId", clientId);
         return httpClient.sendGetClientInfoRequest(url, params);
     }
+
+    /**
+     * Асинхронное получение информации о клиенте (запрос выполняется в виртуальном потоке).
+     *
+     * @param clientId идентификатор клиента
+     * @return future с данными о клиенте {@link ClientInfoResponse}
+     */
+    public CompletableFuture<ClientInfoResponse> getClientInfoAsync(Long clientId) {
+        String url = BASE_URL + "/{clientId}";
+        Map<String, Object> params = Map.of("clientId", clientId);
+        return asyncHttpClient.sendGetClientInfoRequestAsync(url, params);
+    }
 }
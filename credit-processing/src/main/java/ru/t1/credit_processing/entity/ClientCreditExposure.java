@@ -0,0 +1,44 @@
+package ru.t1.credit_processing.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Накопленная кредитная нагрузка клиента.
+ * <p>
+ * Строка обновляется инкрементально: при открытии продукта
+ * ({@code ClientCreditExposureRepository#addProduct}) и триггером БД при изменении признака
+ * просрочки платежа. Поэтому проверки лимита и истории не читают {@code product_registry}
+ * и {@code payment_registry}.
+ */
+@Entity
+@Table(name = "client_credit_exposure")
+@Getter
+@Setter
+public class ClientCreditExposure {
+
+    /** Идентификатор клиента. */
+    @Id
+    @Column(name = "client_id")
+    private Long clientId;
+
+    /** Сумма всех выданных клиенту кредитов. */
+    @Column(name = "total_principal", nullable = false)
+    private BigDecimal totalPrincipal;
+
+    /** Количество просроченных платежей. */
+    @Column(name = "expired_payment_count", nullable = false)
+    private int expiredPaymentCount;
+
+    /** Количество кредитных продуктов. */
+    @Column(name = "product_count", nullable = false)
+    private int productCount;
+
+    /** Время последнего изменения. */
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
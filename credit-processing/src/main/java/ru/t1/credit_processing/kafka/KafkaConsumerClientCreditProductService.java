@@ -5,23 +5,29 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
+import ru.t1.credit_processing.client.AccountProcessingClient;
 import ru.t1.credit_processing.client.ClientProcessingClient;
 import ru.t1.credit_processing.entity.PaymentRegistry;
 import ru.t1.credit_processing.entity.ProductRegistry;
-import ru.t1.credit_processing.service.CreditHistoryService;
-import ru.t1.credit_processing.service.CreditLimitService;
+import ru.t1.credit_processing.service.CreditDecisionService;
 import ru.t1.credit_processing.service.PaymentScheduleService;
 import ru.t1.credit_processing.service.ProductRegistryService;
 import ru.t1.dto.ClientInfoResponse;
 import ru.t1.dto.KafkaMessageClientProduct;
 
 import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Kafka-консьюмер для обработки сообщений о кредитных продуктах клиентов.
  *
  * Слушает топик {@code client_credit_products} и обрабатывает события
  * создания новых кредитных продуктов.
+ * <p>
+ * Запросы в client-processing (данные клиента) и account-processing (accountId) независимы,
+ * поэтому запускаются параллельно сразу при получении сообщения, а проверки лимита и просрочек
+ * по локальной БД выполняются, пока запросы в полёте.
  */
 @Slf4j
 @Service
@@ -29,8 +35,8 @@ import java.math.BigDecimal;
 public class KafkaConsumerClientCreditProductService {
 
     private final ClientProcessingClient clientProcessingClient;
-    private final CreditLimitService creditLimitService;
-    private final CreditHistoryService creditHistoryService;
+    private final AccountProcessingClient accountProcessingClient;
+    private final CreditDecisionService creditDecisionService;
     private final ProductRegistryService productRegistryService;
     private final PaymentScheduleService paymentScheduleService;
 
@@ -49,8 +55,18 @@ public class KafkaConsumerClientCreditProductService {
         log.info("Получено сообщение из топика client_credit_products: {}", message);
 
         if ("CREATE".equalsIgnoreCase(message.getOperation())) {
-            // Обращение к МС-1, GET-запрос за ФИО и номером документа
-            ClientInfoResponse clientInfo = clientProcessingClient.getClientInfo(message.getClientId());
+            // Обращение к МС-1 (ФИО и номер документа) и к МС-2 (accountId) — параллельно
+            CompletableFuture<ClientInfoResponse> clientInfoFuture =
+                    clientProcessingClient.getClientInfoAsync(message.getClientId());
+            CompletableFuture<Long> accountIdFuture =
+                    accountProcessingClient.getAccountIdAsync(message.getClientId(), message.getProductId());
+
+            // Проверки по локальной БД (один агрегирующий запрос) выполняются, пока HTTP-запросы в полёте
+            CreditDecisionService.CreditDecision decision = creditDecisionService.decide(message.getClientId(), amount);
+            boolean overLimit = decision.overLimit();
+            boolean hasExpiredPayments = decision.hasExpiredPayments();
+
+            ClientInfoResponse clientInfo = await(clientInfoFuture);
             if (clientInfo == null) {
                 log.warn("Клиент {} не найден в ClientProcessing", message.getClientId());
                 return;
@@ -67,7 +83,7 @@ public class KafkaConsumerClientCreditProductService {
             /* Если есть существующие кредитные продукты (A, B …), и новый
             желаемый продукт в сумме (A + B + C) выходит за лимит N,
             устанавливаемый в конфиге, то отказать. */
-            if (creditLimitService.isOverLimit(message.getClientId(), amount)) {
+            if (overLimit) {
                 log.warn("Отказ: клиент {} превысил кредитный лимит при запросе суммы {}",
                         message.getClientId(), amount);
                 return;
@@ -76,7 +92,7 @@ public class KafkaConsumerClientCreditProductService {
             /* Если есть существующие кредитные продукты И новый продукт в
             суммарной задолженности по продуктам НЕ выходит за лимит И по
             текущим были просрочки, то отказать. */
-            if (creditHistoryService.hasExpiredPayments(message.getClientId())) {
+            if (hasExpiredPayments) {
                 log.warn("Отказ: у клиента {} были просрочки по платежам, новый кредит не одобрен",
                         message.getClientId());
                 return;
@@ -86,7 +102,7 @@ public class KafkaConsumerClientCreditProductService {
                     message.getClientId(), amount);
 
             ProductRegistry registry = productRegistryService.openProduct(message.getClientId(),
-                    message.getProductId(), message.getOpenDate());
+                    message.getProductId(), message.getOpenDate(), await(accountIdFuture));
 
             /*if (registry == null) {
                 log.warn("Открытие продукта отменено — accountId не найден");
@@ -105,4 +121,18 @@ public class KafkaConsumerClientCreditProductService {
             log.info("Операция {} пока не поддерживается", message.getOperation());
         }
     }
+
+    /**
+     * Ожидает результат запроса, пробрасывая исходное исключение вместо {@link CompletionException}.
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
 }
@@ -0,0 +1,42 @@
+package ru.t1.credit_processing.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.t1.credit_processing.entity.ClientCreditExposure;
+
+import java.math.BigDecimal;
+
+@Repository
+public interface ClientCreditExposureRepository extends JpaRepository<ClientCreditExposure, Long> {
+
+    /**
+     * Учитывает новый кредитный продукт клиента одним атомарным UPSERT
+     * (без чтения строки, поэтому параллельные открытия не теряют обновления).
+     * <p>
+     * Если строки ещё нет (продукты создавались в обход ledger), она заполняется агрегатом по
+     * {@code product_registry} и {@code payment_registry} так же, как при начальном заполнении таблицы.
+     * Вызывается после сохранения продукта, поэтому агрегат уже включает новый продукт.
+     *
+     * @param clientId идентификатор клиента
+     * @param amount   сумма нового кредита
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO client_credit_exposure AS exposure " +
+            "(client_id, total_principal, expired_payment_count, product_count, updated_at) " +
+            "SELECT :clientId, COALESCE(SUM(prod.amount), 0), " +
+            "COALESCE(SUM(expired.payment_count), 0), COUNT(prod.id), now() " +
+            "FROM product_registry prod " +
+            "LEFT JOIN (SELECT product_registry_id, COUNT(*) AS payment_count " +
+            "FROM payment_registry WHERE expired = true " +
+            "GROUP BY product_registry_id) expired ON expired.product_registry_id = prod.id " +
+            "WHERE prod.client_id = :clientId " +
+            "ON CONFLICT (client_id) DO UPDATE SET " +
+            "total_principal = exposure.total_principal + :amount, " +
+            "product_count = exposure.product_count + 1, " +
+            "updated_at = now()",
+            nativeQuery = true)
+    void addProduct(@Param("clientId") Long clientId, @Param("amount") BigDecimal amount);
+}
@@ -0,0 +1,19 @@
+package ru.t1.credit_processing.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Сводка по кредитным продуктам клиента для решения о выдаче нового кредита.
+ * Заполняется одним агрегирующим запросом {@link ProductRegistryRepository#findCreditDecisionSummary}.
+ */
+public interface CreditDecisionSummary {
+
+    /** @return сумма всех кредитных продуктов клиента (0, если продуктов нет) */
+    BigDecimal getTotalAmount();
+
+    /** @return количество кредитных продуктов клиента */
+    long getProductCount();
+
+    /** @return {@code true}, если по продуктам клиента есть хотя бы одна просрочка */
+    boolean getHasExpiredPayments();
+}
@@ -0,0 +1,70 @@
+package ru.t1.credit_processing.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.t1.credit_processing.entity.PaymentRegistry;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * JDBC-репозиторий для пакетной записи графика платежей.
+ * <p>
+ * IDENTITY-ключ {@code payment_registry} не позволяет Hibernate группировать INSERT, поэтому
+ * {@code saveAll} графика на {@code n} месяцев — это {@code n} запросов. Здесь идентификаторы
+ * резервируются одним запросом из последовательности столбца, а строки пишутся одним JDBC batch
+ * (с {@code reWriteBatchedInserts} драйвер собирает его в multi-row INSERT).
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentRegistryBatchRepository {
+
+    private static final String NEXT_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence('payment_registry', 'id')) FROM generate_series(1, ?)";
+
+    private static final String INSERT_PAYMENT_SQL =
+            "INSERT INTO payment_registry (id, product_registry_id, payment_date, amount, interest_rate_amount, " +
+            "debt_amount, expired, payment_expiration_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Сохраняет платежи одним JDBC batch и проставляет им идентификаторы.
+     *
+     * @param payments платежи одного или нескольких графиков (продукты уже сохранены)
+     * @return те же платежи с заполненным id
+     */
+    public List<PaymentRegistry> insertAll(List<PaymentRegistry> payments) {
+        if (payments.isEmpty()) {
+            return payments;
+        }
+        List<Long> ids = jdbcTemplate.queryForList(NEXT_IDS_SQL, Long.class, payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            payments.get(i).setId(ids.get(i));
+        }
+        jdbcTemplate.batchUpdate(INSERT_PAYMENT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                PaymentRegistry payment = payments.get(i);
+                ps.setLong(1, payment.getId());
+                ps.setLong(2, payment.getProductRegistry().getId());
+                ps.setDate(3, Date.valueOf(payment.getPaymentDate()));
+                ps.setBigDecimal(4, payment.getAmount());
+                ps.setBigDecimal(5, payment.getInterestRateAmount());
+                ps.setBigDecimal(6, payment.getDebtAmount());
+                ps.setBoolean(7, payment.getExpired());
+                ps.setDate(8, Date.valueOf(payment.getPaymentExpirationDate()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return payments.size();
+            }
+        });
+        return payments;
+    }
+}
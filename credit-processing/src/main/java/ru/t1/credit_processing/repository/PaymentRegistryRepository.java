@@ -13,8 +13,7 @@ public interface PaymentRegistryRepository extends JpaRepository<PaymentRegistry
 
     // ищем хотя бы одну просрочку по всем продуктам клиента
     @Query("SELECT COUNT(payReg) > 0 FROM PaymentRegistry payReg " +
-            "JOIN ProductRegistry prodReg ON payReg.productRegistry.productId = prodReg.productId " +
-            "WHERE prodReg.clientId = :clientId AND payReg.expired = true")
+            "WHERE payReg.productRegistry.clientId = :clientId AND payReg.expired = true")
     boolean existsExpiredPaymentsByClientId(@Param("clientId") Long clientId);
 
 }
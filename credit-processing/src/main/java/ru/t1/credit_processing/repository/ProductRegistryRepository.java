@@ -1,6 +1,8 @@
 package ru.t1.credit_processing.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.t1.starter.aop.annotation.Cached;
 import ru.t1.credit_processing.entity.ProductRegistry;
@@ -14,4 +16,17 @@ public interface ProductRegistryRepository extends JpaRepository<ProductRegistry
 
     @Cached(cacheName = "Account")
     ProductRegistry findByAccountId(Long accountId);
+
+    /**
+     * Сумма продуктов клиента и наличие просрочек за один запрос, без загрузки сущностей.
+     * Использует индексы {@code product_registry(client_id, id, amount)}
+     * и {@code payment_registry(product_registry_id, expired)}.
+     */
+    @Query(value = "SELECT COALESCE(SUM(prodReg.amount), 0) AS \"totalAmount\", " +
+            "COUNT(*) AS \"productCount\", " +
+            "COALESCE(BOOL_OR(EXISTS (SELECT 1 FROM payment_registry payReg " +
+            "WHERE payReg.product_registry_id = prodReg.id AND payReg.expired = true)), false) AS \"hasExpiredPayments\" " +
+            "FROM product_registry prodReg WHERE prodReg.client_id = :clientId",
+            nativeQuery = true)
+    CreditDecisionSummary findCreditDecisionSummary(@Param("clientId") Long clientId);
 }
@@ -0,0 +1,127 @@
+package ru.t1.credit_processing.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кэш аннуитетных коэффициентов и готовых графиков.
+ * <p>
+ * Ставка, срок и сумма кредита берутся из {@code credit.*}, поэтому почти все графики одинаковы
+ * с точностью до дат. При старте для них один раз рассчитываются коэффициент и полный
+ * {@link AnnuityTemplate}; эти записи неизменяемы и читаются без блокировок. Коэффициенты для
+ * других сочетаний ставки и срока (например, после смены настроек) хранятся в ограниченном LRU
+ * на {@code credit.scheduleCacheSize} записей.
+ * <p>
+ * Готовый график переиспользуется только при совпадении суммы: проценты каждого месяца
+ * округляются от остатка в копейках, и масштабирование графика на единицу суммы дало бы
+ * расхождение в копейках с построчным расчётом.
+ */
+@Slf4j
+@Component
+public class AnnuityFactorCache {
+
+    /** Коэффициент для ставки и срока из настроек. */
+    private final Factor configuredFactor;
+
+    /** График для ставки, срока и суммы из настроек. */
+    private final AnnuityTemplate configuredTemplate;
+
+    /** Коэффициенты для остальных сочетаний ставки и срока. */
+    private final Map<Key, Factor> factors;
+
+    /**
+     * @param interestRate годовая ставка по умолчанию ({@code credit.interestRate})
+     * @param monthCount   срок по умолчанию ({@code credit.monthCount})
+     * @param amount       сумма кредита по умолчанию ({@code credit.amount})
+     * @param maxSize      размер LRU для остальных сочетаний ({@code credit.scheduleCacheSize})
+     */
+    public AnnuityFactorCache(@Value("${credit.interestRate}") BigDecimal interestRate,
+                              @Value("${credit.monthCount}") int monthCount,
+                              @Value("${credit.amount}") BigDecimal amount,
+                              @Value("${credit.scheduleCacheSize:256}") int maxSize) {
+        this.factors = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Factor> eldest) {
+                return size() > maxSize;
+            }
+        };
+        if (interestRate.signum() > 0 && monthCount > 0) {
+            this.configuredFactor = compute(key(interestRate, monthCount));
+            this.configuredTemplate = AnnuityTemplate.compute(configuredFactor.key().rate(),
+                    configuredFactor.factor(), monthCount, cents(amount));
+            log.info("Аннуитетный график по умолчанию: ставка {}%, срок {} мес., сумма {}, платёж {}",
+                    interestRate, monthCount, amount, BigDecimal.valueOf(configuredTemplate.payment(), 2));
+        } else {
+            this.configuredFactor = null;
+            this.configuredTemplate = null;
+        }
+    }
+
+    /**
+     * Возвращает график для ставки, срока и суммы: готовый из кэша или рассчитанный по кэшированному коэффициенту.
+     *
+     * @param annualRate годовая ставка в процентах (больше нуля)
+     * @param n          срок в месяцах
+     * @param principal  сумма кредита в копейках
+     */
+    public AnnuityTemplate template(BigDecimal annualRate, int n, long principal) {
+        Key key = key(annualRate, n);
+        if (configuredTemplate != null && configuredTemplate.principal() == principal
+                && configuredFactor.key().equals(key)) {
+            return configuredTemplate;
+        }
+        Factor factor = factor(key);
+        return AnnuityTemplate.compute(key.rate(), factor.factor(), n, principal);
+    }
+
+    private Factor factor(Key key) {
+        if (configuredFactor != null && configuredFactor.key().equals(key)) {
+            return configuredFactor;
+        }
+        synchronized (factors) {
+            Factor factor = factors.get(key);
+            if (factor != null) {
+                return factor;
+            }
+        }
+        Factor factor = compute(key);
+        synchronized (factors) {
+            factors.put(key, factor);
+        }
+        return factor;
+    }
+
+    private static Factor compute(Key key) {
+        BigDecimal i = BigDecimal.valueOf(key.rate(), AnnuityTemplate.RATE_SCALE);
+        return new Factor(key, AnnuityTemplate.factor(i, key.months()));
+    }
+
+    /**
+     * Ключ по месячной ставке, а не годовой: {@code 22} из настроек и {@code 22.00} из БД совпадают.
+     */
+    private static Key key(BigDecimal annualRate, int n) {
+        return new Key(AnnuityTemplate.monthlyRate(annualRate).unscaledValue().longValueExact(), n);
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * @param rate   месячная ставка, умноженная на {@code 10^10}
+     * @param months срок в месяцах
+     */
+    private record Key(long rate, int months) {}
+
+    /**
+     * @param key    ставка и срок
+     * @param factor аннуитетный коэффициент
+     */
+    private record Factor(Key key, BigDecimal factor) {}
+}
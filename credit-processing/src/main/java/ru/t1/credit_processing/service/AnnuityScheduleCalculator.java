@@ -0,0 +1,83 @@
+package ru.t1.credit_processing.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.t1.credit_processing.entity.PaymentRegistry;
+import ru.t1.credit_processing.entity.ProductRegistry;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Расчёт аннуитетного графика платежей.
+ * <p>
+ * Суммы по месяцам берутся из {@link AnnuityTemplate}: для ставки, срока и суммы из настроек — готовые
+ * из {@link AnnuityFactorCache}, для остальных — расчёт за один проход в копейках по кэшированному
+ * коэффициенту. Правила округления прежние: месячная ставка — до 10 знаков, проценты за месяц
+ * и платёж — до копеек (HALF_UP), тело последнего платежа равно остатку долга.
+ */
+@Component
+@RequiredArgsConstructor
+public class AnnuityScheduleCalculator {
+
+    /** Через сколько дней после даты платежа он считается просроченным. */
+    static final int EXPIRATION_DAYS = 5;
+
+    private final AnnuityFactorCache annuityFactorCache;
+
+    /**
+     * Строит график платежей по кредитному продукту (без сохранения).
+     *
+     * @param registry кредитный продукт: сумма, годовая ставка, срок и дата открытия
+     * @return платежи по месяцам
+     */
+    public List<PaymentRegistry> calculate(ProductRegistry registry) {
+        int n = registry.getMonthCount();
+        long principal = registry.getAmount().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        BigDecimal annualRate = registry.getInterestRate();
+
+        if (annualRate.signum() == 0) {
+            return zeroInterest(registry, principal, n);
+        }
+
+        AnnuityTemplate template = annuityFactorCache.template(annualRate, n, principal);
+        BigDecimal payment = BigDecimal.valueOf(template.payment(), 2);
+        List<PaymentRegistry> schedule = new ArrayList<>(n);
+        for (int month = 0; month < n; month++) {
+            schedule.add(createPayment(registry, month + 1, payment,
+                    BigDecimal.valueOf(template.interest()[month], 2), template.debt()[month]));
+        }
+        return schedule;
+    }
+
+    private List<PaymentRegistry> zeroInterest(ProductRegistry registry, long principal, int n) {
+        BigDecimal payment = BigDecimal.valueOf(principal, 2).divide(BigDecimal.valueOf(n), 2, RoundingMode.HALF_UP);
+        long paymentCents = payment.unscaledValue().longValueExact();
+        List<PaymentRegistry> schedule = new ArrayList<>(n);
+        long remaining = principal;
+        for (int month = 1; month <= n; month++) {
+            // Для последнего платежа корректируем сумму, чтобы избежать погрешности
+            long debt = month == n ? remaining : paymentCents;
+            remaining -= debt;
+            schedule.add(createPayment(registry, month, payment, BigDecimal.ZERO, debt));
+        }
+        return schedule;
+    }
+
+    private static PaymentRegistry createPayment(ProductRegistry registry, int month, BigDecimal amount,
+                                                 BigDecimal interest, long debt) {
+        LocalDate paymentDate = registry.getOpenDate().plusMonths(month);
+        PaymentRegistry payment = new PaymentRegistry();
+        payment.setProductRegistry(registry);
+        payment.setPaymentDate(paymentDate);
+        payment.setPaymentExpirationDate(paymentDate.plusDays(EXPIRATION_DAYS));
+        payment.setAmount(amount);
+        payment.setInterestRateAmount(interest);
+        payment.setDebtAmount(BigDecimal.valueOf(debt, 2));
+        payment.setExpired(false);
+        return payment;
+    }
+}
@@ -0,0 +1,92 @@
+package ru.t1.credit_processing.service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Рассчитанный аннуитетный график без дат: платёж, проценты и тело по месяцам в копейках.
+ * <p>
+ * Не изменяется после создания, поэтому один экземпляр разделяется всеми графиками
+ * с той же ставкой, сроком и суммой (см. {@link AnnuityFactorCache}).
+ *
+ * @param principal сумма кредита в копейках
+ * @param payment   аннуитетный платёж в копейках
+ * @param interest  проценты по месяцам в копейках
+ * @param debt      тело кредита по месяцам в копейках
+ */
+record AnnuityTemplate(long principal, long payment, long[] interest, long[] debt) {
+
+    /** Масштаб месячной ставки. */
+    static final int RATE_SCALE = 10;
+
+    private static final long RATE_UNIT = 10_000_000_000L;
+    private static final BigDecimal MONTHS_PERCENT = BigDecimal.valueOf(12 * 100);
+
+    /** @return срок в месяцах */
+    int months() {
+        return interest.length;
+    }
+
+    /**
+     * @param annualRate годовая ставка в процентах
+     * @return месячная ставка {@code i = годовая / 12 / 100} с масштабом {@link #RATE_SCALE}
+     */
+    static BigDecimal monthlyRate(BigDecimal annualRate) {
+        return annualRate.divide(MONTHS_PERCENT, RATE_SCALE, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Аннуитетный коэффициент {@code i × (1 + i)^n / ((1 + i)^n - 1)}.
+     * <p>
+     * Считается в {@link MathContext#DECIMAL128} (34 значащие цифры) вместо точного {@code (1 + i)^n},
+     * у которого масштаб растёт как {@code 10 × n}.
+     *
+     * @param i месячная ставка
+     * @param n срок в месяцах
+     */
+    static BigDecimal factor(BigDecimal i, int n) {
+        BigDecimal pow = BigDecimal.ONE.add(i).pow(n, MathContext.DECIMAL128);
+        return i.multiply(pow, MathContext.DECIMAL128).divide(pow.subtract(BigDecimal.ONE), MathContext.DECIMAL128);
+    }
+
+    /**
+     * Рассчитывает график за один проход в копейках: проценты за месяц — остаток × i с округлением HALF_UP,
+     * тело — платёж минус проценты, в последнем месяце — весь остаток долга.
+     *
+     * @param rate      месячная ставка, умноженная на {@code 10^10}
+     * @param factor    аннуитетный коэффициент
+     * @param n         срок в месяцах
+     * @param principal сумма кредита в копейках
+     */
+    static AnnuityTemplate compute(long rate, BigDecimal factor, int n, long principal) {
+        // платёж A = S × коэффициент, округлённый до копеек
+        long payment = BigDecimal.valueOf(principal, 2).multiply(factor, MathContext.DECIMAL128)
+                .setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        long[] interest = new long[n];
+        long[] debt = new long[n];
+        long remaining = principal;
+        for (int month = 0; month < n; month++) {
+            interest[month] = interestCents(remaining, rate);
+            debt[month] = month == n - 1 ? remaining : payment - interest[month];
+            remaining -= debt[month];
+        }
+        return new AnnuityTemplate(principal, payment, interest, debt);
+    }
+
+    /**
+     * Проценты за месяц в копейках: {@code remaining × rate / 10^10} с округлением HALF_UP.
+     */
+    static long interestCents(long remaining, long rate) {
+        try {
+            long product = Math.multiplyExact(remaining, rate);
+            long interest = product / RATE_UNIT;
+            long rest = Math.abs(product % RATE_UNIT);
+            return rest * 2 >= RATE_UNIT ? interest + Long.signum(product) : interest;
+        } catch (ArithmeticException e) {
+            return BigDecimal.valueOf(remaining).multiply(BigDecimal.valueOf(rate))
+                    .divide(BigDecimal.valueOf(RATE_UNIT), 0, RoundingMode.HALF_UP)
+                    .longValueExact();
+        }
+    }
+}
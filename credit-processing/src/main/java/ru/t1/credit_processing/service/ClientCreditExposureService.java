@@ -0,0 +1,164 @@
+package ru.t1.credit_processing.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.t1.credit_processing.entity.ClientCreditExposure;
+import ru.t1.credit_processing.repository.ClientCreditExposureRepository;
+import ru.t1.credit_processing.repository.CreditDecisionSummary;
+import ru.t1.credit_processing.repository.ProductRegistryRepository;
+import ru.t1.starter.cache.BoundedCache;
+import ru.t1.starter.cache.CacheInvalidationPublisher;
+import ru.t1.starter.cache.CacheRegistry;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Кредитная нагрузка клиентов: таблица {@code client_credit_exposure} и кэш над ней.
+ * <p>
+ * Чтение идёт через кэш {@value #CACHE_NAME} из {@link CacheRegistry} (размер и TTL задаются в
+ * {@code cache.caches.clientcreditexposure}): при промахе загружается одна строка по ключу, поэтому
+ * проверка клиента не зависит от количества его продуктов. После старта кэш прогревается
+ * {@code credit.exposureWarmUpSize} недавно изменёнными строками. Если строки нет (продукты созданы в обход
+ * {@link ProductRegistryService#openProduct}), нагрузка считается агрегирующим запросом по продуктам,
+ * а при следующем открытии продукта строка заполняется тем же агрегатом.
+ * <p>
+ * Открытие продукта обновляет строку в той же транзакции и удаляет запись кэша после коммита
+ * (в том числе на других репликах при {@code cache.invalidation.enabled}). Признак просрочки платежа
+ * учитывается триггером БД, поэтому кэш видит его с задержкой не больше TTL.
+ */
+@Slf4j
+@Service
+public class ClientCreditExposureService {
+
+    /** Имя кэша нагрузки клиентов. */
+    public static final String CACHE_NAME = "ClientCreditExposure";
+
+    private final ClientCreditExposureRepository clientCreditExposureRepository;
+    private final ProductRegistryRepository productRegistryRepository;
+    private final BoundedCache cache;
+    private final CacheInvalidationPublisher invalidationPublisher;
+
+    /** Сколько строк загрузить в кэш при старте. */
+    private final int warmUpSize;
+
+    public ClientCreditExposureService(ClientCreditExposureRepository clientCreditExposureRepository,
+                                       ProductRegistryRepository productRegistryRepository,
+                                       CacheRegistry cacheRegistry,
+                                       ObjectProvider<CacheInvalidationPublisher> invalidationPublisher,
+                                       @Value("${credit.exposureWarmUpSize:10000}") int warmUpSize) {
+        this.clientCreditExposureRepository = clientCreditExposureRepository;
+        this.productRegistryRepository = productRegistryRepository;
+        this.cache = cacheRegistry.getCache(CACHE_NAME);
+        this.invalidationPublisher = invalidationPublisher.getIfAvailable(() -> CacheInvalidationPublisher.NOOP);
+        this.warmUpSize = (int) Math.min(warmUpSize, cache.getMaxSize());
+    }
+
+    /**
+     * Загружает в кэш нагрузку недавно активных клиентов.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (warmUpSize <= 0) {
+            return;
+        }
+        PageRequest page = PageRequest.of(0, warmUpSize, Sort.by(Sort.Direction.DESC, "updatedAt"));
+        int loaded = 0;
+        for (ClientCreditExposure exposure : clientCreditExposureRepository.findAll(page)) {
+            cache.put(exposure.getClientId(), Exposure.of(exposure));
+            loaded++;
+        }
+        log.info("Кэш {} прогрет: {} клиентов", CACHE_NAME, loaded);
+    }
+
+    /**
+     * @param clientId идентификатор клиента
+     * @return кредитная нагрузка клиента (нулевая, если продуктов нет)
+     */
+    public Exposure getExposure(Long clientId) {
+        try {
+            return (Exposure) cache.get(clientId, cache.getTtlMs(), this::load, clientId, Objects::nonNull);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Учитывает открытый кредитный продукт.
+     *
+     * @param clientId идентификатор клиента
+     * @param amount   сумма кредита
+     */
+    @Transactional
+    public void recordProductOpened(Long clientId, BigDecimal amount) {
+        clientCreditExposureRepository.addProduct(clientId, amount);
+        evictAfterCommit(clientId);
+    }
+
+    private Exposure load(Long clientId) {
+        return clientCreditExposureRepository.findById(clientId)
+                .map(Exposure::of)
+                .orElseGet(() -> {
+                    CreditDecisionSummary summary = productRegistryRepository.findCreditDecisionSummary(clientId);
+                    if (summary.getProductCount() == 0) {
+                        return Exposure.EMPTY;
+                    }
+                    log.warn("Нет строки client_credit_exposure для клиента {} с {} продуктами, нагрузка посчитана по продуктам",
+                            clientId, summary.getProductCount());
+                    return new Exposure(summary.getTotalAmount(),
+                            summary.getHasExpiredPayments() ? 1 : 0, (int) summary.getProductCount());
+                });
+    }
+
+    private void evictAfterCommit(Long clientId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(clientId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(clientId);
+            }
+        });
+    }
+
+    private void evict(Long clientId) {
+        cache.invalidate(clientId);
+        invalidationPublisher.keyInvalidated(CACHE_NAME, clientId);
+    }
+
+    /**
+     * Неизменяемый снимок нагрузки клиента (значение кэша).
+     *
+     * @param totalPrincipal      сумма всех кредитов
+     * @param expiredPaymentCount количество просроченных платежей (при расчёте по продуктам — 0 или 1)
+     * @param productCount        количество кредитных продуктов
+     */
+    public record Exposure(BigDecimal totalPrincipal, int expiredPaymentCount, int productCount) {
+
+        /** Нагрузка клиента без продуктов. */
+        public static final Exposure EMPTY = new Exposure(BigDecimal.ZERO, 0, 0);
+
+        static Exposure of(ClientCreditExposure exposure) {
+            return new Exposure(exposure.getTotalPrincipal(), exposure.getExpiredPaymentCount(),
+                    exposure.getProductCount());
+        }
+
+        /** @return {@code true}, если по продуктам клиента есть просрочки */
+        public boolean hasExpiredPayments() {
+            return expiredPaymentCount > 0;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.t1.credit_processing.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+
+/**
+ * Сервис решения о выдаче нового кредита.
+ * <p>
+ * Сумма существующих продуктов клиента и наличие просрочек по ним берутся из одной строки
+ * {@code client_credit_exposure} (через кэш {@link ClientCreditExposureService}), поэтому стоимость
+ * проверки не зависит от количества продуктов у клиента.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CreditDecisionService {
+
+    private final ClientCreditExposureService clientCreditExposureService;
+    private final CreditLimitService creditLimitService;
+
+    /**
+     * Проверяет кредитный лимит и историю платежей клиента.
+     *
+     * @param clientId идентификатор клиента
+     * @param newProductAmount сумма нового кредитного продукта
+     * @return результат проверок
+     */
+    public CreditDecision decide(Long clientId, BigDecimal newProductAmount) {
+        ClientCreditExposureService.Exposure exposure = clientCreditExposureService.getExposure(clientId);
+        boolean overLimit = creditLimitService.isOverLimit(exposure.totalPrincipal(), newProductAmount);
+
+        log.debug("Клиент {}: продуктов {}, сумма {}, просрочек {}", clientId,
+                exposure.productCount(), exposure.totalPrincipal(), exposure.expiredPaymentCount());
+        return new CreditDecision(exposure.totalPrincipal(), overLimit, exposure.hasExpiredPayments());
+    }
+
+    /**
+     * Результат проверки клиента перед открытием кредита.
+     *
+     * @param totalExisting      сумма существующих кредитных продуктов
+     * @param overLimit          сумма с новым продуктом превышает лимит
+     * @param hasExpiredPayments по существующим продуктам были просрочки
+     */
+    public record CreditDecision(BigDecimal totalExisting, boolean overLimit, boolean hasExpiredPayments) {}
+}
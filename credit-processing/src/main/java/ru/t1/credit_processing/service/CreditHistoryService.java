@@ -2,7 +2,6 @@ package ru.t1.credit_processing.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import ru.t1.credit_processing.repository.PaymentRegistryRepository;
 
 /**
  * Сервис для проверки кредитной истории клиента.
@@ -12,15 +11,16 @@ import ru.t1.credit_processing.repository.PaymentRegistryRepository;
 @RequiredArgsConstructor
 public class CreditHistoryService {
 
-    private final PaymentRegistryRepository paymentRegistryRepository;
+    private final ClientCreditExposureService clientCreditExposureService;
 
     /**
      * Проверяет, есть ли у клиента просроченные платежи.
+     * Счётчик просрочек берётся из {@link ClientCreditExposureService}.
      *
      * @param clientId идентификатор клиента
      * @return true, если есть хотя бы один просроченный платёж
      */
     public boolean hasExpiredPayments(Long clientId) {
-        return paymentRegistryRepository.existsExpiredPaymentsByClientId(clientId);
+        return clientCreditExposureService.getExposure(clientId).hasExpiredPayments();
     }
 }
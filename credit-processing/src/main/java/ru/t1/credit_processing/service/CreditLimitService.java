@@ -3,11 +3,8 @@ package ru.t1.credit_processing.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import ru.t1.credit_processing.entity.ProductRegistry;
-import ru.t1.credit_processing.repository.ProductRegistryRepository;
 
 import java.math.BigDecimal;
-import java.util.List;
 
 /**
  * Сервис для проверки кредитных лимитов клиента.
@@ -17,7 +14,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CreditLimitService {
 
-    private final ProductRegistryRepository productRegistryRepository;
+    private final ClientCreditExposureService clientCreditExposureService;
 
     /** Кредитный лимит клиента (берётся из настроек). */
     @Value("${credit.limit}")
@@ -25,18 +22,24 @@ public class CreditLimitService {
 
     /**
      * Проверяет, не превышает ли сумма существующих и нового кредитов лимит.
+     * Сумма существующих продуктов берётся из {@link ClientCreditExposureService}.
      *
      * @param clientId идентификатор клиента
      * @param newProductAmount сумма нового кредитного продукта
      * @return true, если лимит превышен
      */
     public boolean isOverLimit(Long clientId, BigDecimal newProductAmount) {
-        List<ProductRegistry> products = productRegistryRepository.findByClientId(clientId);
-
-        BigDecimal totalExisting = products.stream()
-                .map(ProductRegistry::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return isOverLimit(clientCreditExposureService.getExposure(clientId).totalPrincipal(), newProductAmount);
+    }
 
+    /**
+     * Проверяет лимит по уже известной сумме существующих кредитов.
+     *
+     * @param totalExisting сумма существующих кредитных продуктов клиента
+     * @param newProductAmount сумма нового кредитного продукта
+     * @return true, если лимит превышен
+     */
+    public boolean isOverLimit(BigDecimal totalExisting, BigDecimal newProductAmount) {
         BigDecimal totalWithNew = totalExisting.add(newProductAmount);
 
         return totalWithNew.compareTo(creditLimit) > 0;
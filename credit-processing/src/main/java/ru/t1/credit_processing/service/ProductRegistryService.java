@@ -25,6 +25,7 @@ import java.time.LocalDateTime;
 public class ProductRegistryService {
     private final ProductRegistryRepository productRegistryRepository;
     private final AccountProcessingClient accountProcessingClient;
+    private final ClientCreditExposureService clientCreditExposureService;
 
     /** Процентная ставка по умолчанию (из настроек). */
     @Value("${credit.interestRate}")
@@ -46,6 +47,7 @@ public class ProductRegistryService {
      *     <li>пытается получить accountId клиента из account-processing;</li>
      *     <li>создаёт новую запись {@link ProductRegistry};</li>
      *     <li>сохраняет её в базе данных;</li>
+     *     <li>учитывает её в кредитной нагрузке клиента ({@link ClientCreditExposureService});</li>
      *     <li>возвращает сохранённую сущность.</li>
      * </ul>
      *
@@ -70,7 +72,6 @@ public class ProductRegistryService {
             return null; // или можно вернуть Optional.empty()
         }*/
 
-        ProductRegistry registry = new ProductRegistry();
         /* Я не понял как достать account_id,
         так как МС-2 (account-processing) создает счет (Account) только при сообщениях топика client_products,
         но не при client_credit_products, поэтому я не знаю как мне account_id доставать.
@@ -78,6 +79,22 @@ public class ProductRegistryService {
 
         // Все же я решил пытаться доставать accountId, но даже если это не получится, то он будет просто null
         Long accountId = accountProcessingClient.getAccountId(clientId, productId);
+        return openProduct(clientId, productId, openDate, accountId);
+    }
+
+    /**
+     * Открывает новый кредитный продукт с уже полученным accountId.
+     * Используется, когда accountId запрошен в account-processing заранее, параллельно с другими проверками.
+     *
+     * @param clientId идентификатор клиента
+     * @param productId идентификатор кредитного продукта
+     * @param openDate дата открытия продукта
+     * @param accountId идентификатор счёта (может быть {@code null})
+     * @return сохранённый объект {@link ProductRegistry}
+     */
+    @Transactional
+    public ProductRegistry openProduct(Long clientId, Long productId, LocalDateTime openDate, Long accountId) {
+        ProductRegistry registry = new ProductRegistry();
         if (accountId == null) {
             log.warn("Не найден accountId для clientId={} и productId={}. Будем считать его за null.",
                     clientId, productId);
@@ -92,6 +109,7 @@ public class ProductRegistryService {
         registry.setMonthCount(monthCount);
 
         ProductRegistry saved = productRegistryRepository.save(registry);
+        clientCreditExposureService.recordProductOpened(clientId, amount);
         log.info("Открыт кредитный продукт {} для клиента {}, сумма {}",
                 saved.getId(), saved.getClientId(), saved.getAmount());
 
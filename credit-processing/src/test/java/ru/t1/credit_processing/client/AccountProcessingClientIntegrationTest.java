@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ActiveProfiles;
+import ru.t1.client.AsyncProcessingHttpClient;
 import ru.t1.client.ProcessingHttpClient;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -21,6 +22,9 @@ class AccountProcessingClientIntegrationTest {
     @MockBean
     private ProcessingHttpClient processingHttpClient;
 
+    @MockBean
+    private AsyncProcessingHttpClient asyncProcessingHttpClient;
+
     @Test
     void getAccountId_ShouldReturnAccountId_WhenValidClientIdAndProductId() {
         // Arrange
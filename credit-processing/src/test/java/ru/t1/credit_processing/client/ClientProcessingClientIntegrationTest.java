@@ -5,9 +5,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ActiveProfiles;
+import ru.t1.client.AsyncProcessingHttpClient;
 import ru.t1.client.ProcessingHttpClient;
 import ru.t1.dto.ClientInfoResponse;
 
+import java.util.concurrent.CompletableFuture;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -22,6 +25,9 @@ class ClientProcessingClientIntegrationTest {
     @MockBean
     private ProcessingHttpClient processingHttpClient;
 
+    @MockBean
+    private AsyncProcessingHttpClient asyncProcessingHttpClient;
+
     @Test
     void getClientInfo_ShouldReturnClientInfo_WhenValidClientId() {
         // Arrange
@@ -138,4 +144,28 @@ class ClientProcessingClientIntegrationTest {
                 argThat(params -> params.get("clientId").equals(secondClientId))
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void getClientInfoAsync_ShouldDelegateToAsyncClient() {
+        // Arrange
+        Long clientId = 100L;
+        String expectedUrl = "http://localhost:8081/api/clients/get/{clientId}";
+
+        ClientInfoResponse expectedResponse = new ClientInfoResponse();
+        expectedResponse.setFirstName("Иван");
+
+        when(asyncProcessingHttpClient.sendGetClientInfoRequestAsync(eq(expectedUrl), anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(expectedResponse));
+
+        // Act
+        ClientInfoResponse result = clientProcessingClient.getClientInfoAsync(clientId).join();
+
+        // Assert
+        assertEquals("Иван", result.getFirstName());
+        verify(asyncProcessingHttpClient).sendGetClientInfoRequestAsync(
+                eq(expectedUrl),
+                argThat(params -> params.get("clientId").equals(clientId))
+        );
+        verifyNoInteractions(processingHttpClient);
+    }
+}
@@ -0,0 +1,175 @@
+package ru.t1.credit_processing.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import ru.t1.credit_processing.entity.ClientCreditExposure;
+import ru.t1.credit_processing.repository.ClientCreditExposureRepository;
+import ru.t1.credit_processing.repository.CreditDecisionSummary;
+import ru.t1.credit_processing.repository.ProductRegistryRepository;
+import ru.t1.starter.cache.CacheInvalidationPublisher;
+import ru.t1.starter.cache.CacheProperties;
+import ru.t1.starter.cache.CacheRegistry;
+import ru.t1.starter.cache.CacheStatsRecorder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClientCreditExposureServiceTest {
+
+    @Mock
+    private ClientCreditExposureRepository clientCreditExposureRepository;
+
+    @Mock
+    private ProductRegistryRepository productRegistryRepository;
+
+    @Mock
+    private ObjectProvider<CacheInvalidationPublisher> invalidationPublisherProvider;
+
+    @Mock
+    private CacheInvalidationPublisher invalidationPublisher;
+
+    private CacheRegistry cacheRegistry;
+    private ClientCreditExposureService clientCreditExposureService;
+
+    @BeforeEach
+    void setUp() {
+        CacheProperties properties = new CacheProperties();
+        properties.setSweepIntervalMs(0);
+        cacheRegistry = new CacheRegistry(properties, CacheStatsRecorder.NOOP);
+        when(invalidationPublisherProvider.getIfAvailable(any())).thenReturn(invalidationPublisher);
+        clientCreditExposureService = new ClientCreditExposureService(clientCreditExposureRepository,
+                productRegistryRepository, cacheRegistry, invalidationPublisherProvider, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheRegistry.close();
+    }
+
+    @Test
+    void getExposure_ShouldReadLedgerOnce_AndServeRepeatedLookupsFromCache() {
+        // Arrange
+        when(clientCreditExposureRepository.findById(1L)).thenReturn(Optional.of(row(1L, "300000.00", 2, 3)));
+
+        // Act
+        ClientCreditExposureService.Exposure first = clientCreditExposureService.getExposure(1L);
+        ClientCreditExposureService.Exposure second = clientCreditExposureService.getExposure(1L);
+
+        // Assert
+        assertEquals(new BigDecimal("300000.00"), first.totalPrincipal());
+        assertEquals(3, first.productCount());
+        assertTrue(first.hasExpiredPayments());
+        assertSame(first, second);
+        verify(clientCreditExposureRepository, times(1)).findById(1L);
+        verifyNoInteractions(productRegistryRepository);
+    }
+
+    @Test
+    void getExposure_ShouldReturnEmpty_WhenClientHasNoProducts() {
+        // Arrange
+        when(clientCreditExposureRepository.findById(2L)).thenReturn(Optional.empty());
+        when(productRegistryRepository.findCreditDecisionSummary(2L)).thenReturn(summary("0", 0, false));
+
+        // Act
+        ClientCreditExposureService.Exposure exposure = clientCreditExposureService.getExposure(2L);
+
+        // Assert
+        assertSame(ClientCreditExposureService.Exposure.EMPTY, exposure);
+        assertFalse(exposure.hasExpiredPayments());
+    }
+
+    @Test
+    void getExposure_ShouldFallBackToProductAggregate_WhenLedgerRowIsMissing() {
+        // Arrange
+        when(clientCreditExposureRepository.findById(3L)).thenReturn(Optional.empty());
+        when(productRegistryRepository.findCreditDecisionSummary(3L)).thenReturn(summary("200000.00", 2, true));
+
+        // Act
+        ClientCreditExposureService.Exposure exposure = clientCreditExposureService.getExposure(3L);
+
+        // Assert
+        assertEquals(new BigDecimal("200000.00"), exposure.totalPrincipal());
+        assertEquals(2, exposure.productCount());
+        assertTrue(exposure.hasExpiredPayments());
+    }
+
+    @Test
+    void recordProductOpened_ShouldUpdateLedger_AndEvictCachedExposure() {
+        // Arrange
+        when(clientCreditExposureRepository.findById(1L))
+                .thenReturn(Optional.of(row(1L, "100000.00", 0, 1)))
+                .thenReturn(Optional.of(row(1L, "200000.00", 0, 2)));
+        clientCreditExposureService.getExposure(1L);
+
+        // Act
+        clientCreditExposureService.recordProductOpened(1L, new BigDecimal("100000.00"));
+        ClientCreditExposureService.Exposure exposure = clientCreditExposureService.getExposure(1L);
+
+        // Assert
+        verify(clientCreditExposureRepository).addProduct(1L, new BigDecimal("100000.00"));
+        verify(invalidationPublisher).keyInvalidated(ClientCreditExposureService.CACHE_NAME, 1L);
+        assertEquals(new BigDecimal("200000.00"), exposure.totalPrincipal());
+        assertEquals(2, exposure.productCount());
+    }
+
+    @Test
+    void recordProductOpened_ShouldSwitchFromProductAggregateToSeededLedgerRow_WhenRowWasMissing() {
+        // Arrange
+        when(clientCreditExposureRepository.findById(4L))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(row(4L, "350000.00", 1, 3)));
+        when(productRegistryRepository.findCreditDecisionSummary(4L)).thenReturn(summary("200000.00", 2, true));
+        ClientCreditExposureService.Exposure beforeOpening = clientCreditExposureService.getExposure(4L);
+
+        // Act
+        clientCreditExposureService.recordProductOpened(4L, new BigDecimal("150000.00"));
+        ClientCreditExposureService.Exposure afterOpening = clientCreditExposureService.getExposure(4L);
+
+        // Assert
+        assertEquals(2, beforeOpening.productCount());
+        verify(clientCreditExposureRepository).addProduct(4L, new BigDecimal("150000.00"));
+        assertEquals(new BigDecimal("350000.00"), afterOpening.totalPrincipal());
+        assertEquals(3, afterOpening.productCount());
+        assertTrue(afterOpening.hasExpiredPayments());
+        verify(productRegistryRepository, times(1)).findCreditDecisionSummary(4L);
+    }
+
+    private static ClientCreditExposure row(Long clientId, String totalPrincipal, int expiredPayments, int products) {
+        ClientCreditExposure exposure = new ClientCreditExposure();
+        exposure.setClientId(clientId);
+        exposure.setTotalPrincipal(new BigDecimal(totalPrincipal));
+        exposure.setExpiredPaymentCount(expiredPayments);
+        exposure.setProductCount(products);
+        exposure.setUpdatedAt(LocalDateTime.now());
+        return exposure;
+    }
+
+    private static CreditDecisionSummary summary(String totalAmount, long productCount, boolean hasExpiredPayments) {
+        return new CreditDecisionSummary() {
+            @Override
+            public BigDecimal getTotalAmount() {
+                return new BigDecimal(totalAmount);
+            }
+
+            @Override
+            public long getProductCount() {
+                return productCount;
+            }
+
+            @Override
+            public boolean getHasExpiredPayments() {
+                return hasExpiredPayments;
+            }
+        };
+    }
+}
@@ -0,0 +1,138 @@
+package ru.t1.credit_processing.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import ru.t1.credit_processing.entity.ProductRegistry;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость проверки клиента перед открытием кредита в зависимости от количества его продуктов:
+ * <ul>
+ *     <li>{@code legacy} — прежняя схема: загрузка всех {@link ProductRegistry} клиента, сумма в Java
+ *     и отдельный запрос просрочек;</li>
+ *     <li>{@code aggregate} — один агрегирующий запрос, как в
+ *     {@code ProductRegistryRepository#findCreditDecisionSummary}.</li>
+ * </ul>
+ * Нужна PostgreSQL со схемой credit-processing (после Liquibase); адрес задаётся
+ * {@code -Dbenchmark.db.url}, {@code -Dbenchmark.db.username}, {@code -Dbenchmark.db.password}.
+ * Тестовый клиент с отрицательным id создаётся в {@code @Setup} и удаляется в {@code @TearDown}.
+ * Запуск: {@code main} из IDE или {@code java -cp <test-classpath> ru.t1.credit_processing.service.CreditDecisionBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CreditDecisionBenchmark {
+
+    private static final long CLIENT_ID = -20_250_001L;
+    private static final int PAYMENTS_PER_PRODUCT = 12;
+
+    private static final String SELECT_PRODUCTS_SQL =
+            "SELECT id, client_id, account_id, product_id, interest_rate, open_date, month_count, amount " +
+            "FROM product_registry WHERE client_id = ?";
+
+    private static final String LEGACY_EXPIRED_SQL =
+            "SELECT COUNT(payReg.id) > 0 FROM payment_registry payReg " +
+            "JOIN product_registry payProd ON payProd.id = payReg.product_registry_id " +
+            "JOIN product_registry prodReg ON payProd.product_id = prodReg.product_id " +
+            "WHERE prodReg.client_id = ? AND payReg.expired = true";
+
+    private static final String AGGREGATE_SQL =
+            "SELECT COALESCE(SUM(prodReg.amount), 0), COUNT(*), " +
+            "COALESCE(BOOL_OR(EXISTS (SELECT 1 FROM payment_registry payReg " +
+            "WHERE payReg.product_registry_id = prodReg.id AND payReg.expired = true)), false) " +
+            "FROM product_registry prodReg WHERE prodReg.client_id = ?";
+
+    @Param({"1", "10", "100", "1000"})
+    private int products;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource(
+                System.getProperty("benchmark.db.url", "jdbc:postgresql://localhost:5432/credit_processing_db"),
+                System.getProperty("benchmark.db.username", "postgres"),
+                System.getProperty("benchmark.db.password", "2003"),
+                true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        deleteClient();
+
+        LocalDate openDate = LocalDate.of(2024, 1, 1);
+        for (int p = 0; p < products; p++) {
+            Long productRegistryId = jdbcTemplate.queryForObject(
+                    "INSERT INTO product_registry (client_id, product_id, interest_rate, open_date, month_count, amount) " +
+                    "VALUES (?, ?, 22, ?, ?, 100000) RETURNING id",
+                    Long.class, CLIENT_ID, CLIENT_ID - p, Date.valueOf(openDate), PAYMENTS_PER_PRODUCT);
+            List<Object[]> payments = new ArrayList<>(PAYMENTS_PER_PRODUCT);
+            for (int m = 1; m <= PAYMENTS_PER_PRODUCT; m++) {
+                LocalDate paymentDate = openDate.plusMonths(m);
+                payments.add(new Object[]{productRegistryId, Date.valueOf(paymentDate), Date.valueOf(paymentDate.plusDays(5))});
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO payment_registry (product_registry_id, payment_date, amount, interest_rate_amount, " +
+                    "debt_amount, expired, payment_expiration_date) VALUES (?, ?, 9000, 1000, 8000, false, ?)",
+                    payments);
+        }
+        jdbcTemplate.execute("ANALYZE product_registry");
+        jdbcTemplate.execute("ANALYZE payment_registry");
+    }
+
+    @TearDown
+    public void tearDown() {
+        deleteClient();
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public boolean legacy() {
+        List<ProductRegistry> registries = jdbcTemplate.query(SELECT_PRODUCTS_SQL, (rs, rowNum) -> {
+            ProductRegistry registry = new ProductRegistry();
+            registry.setId(rs.getLong("id"));
+            registry.setClientId(rs.getLong("client_id"));
+            registry.setAccountId(rs.getObject("account_id", Long.class));
+            registry.setProductId(rs.getLong("product_id"));
+            registry.setInterestRate(rs.getBigDecimal("interest_rate"));
+            registry.setOpenDate(rs.getDate("open_date").toLocalDate());
+            registry.setMonthCount(rs.getInt("month_count"));
+            registry.setAmount(rs.getBigDecimal("amount"));
+            return registry;
+        }, CLIENT_ID);
+        BigDecimal total = registries.stream()
+                .map(ProductRegistry::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Boolean expired = jdbcTemplate.queryForObject(LEGACY_EXPIRED_SQL, Boolean.class, CLIENT_ID);
+        return total.signum() > 0 && Boolean.TRUE.equals(expired);
+    }
+
+    @Benchmark
+    public boolean aggregate() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(AGGREGATE_SQL,
+                (rs, rowNum) -> rs.getBigDecimal(1).signum() > 0 && rs.getBoolean(3), CLIENT_ID));
+    }
+
+    private void deleteClient() {
+        jdbcTemplate.update("DELETE FROM payment_registry WHERE product_registry_id IN " +
+                "(SELECT id FROM product_registry WHERE client_id = ?)", CLIENT_ID);
+        jdbcTemplate.update("DELETE FROM product_registry WHERE client_id = ?", CLIENT_ID);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CreditDecisionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
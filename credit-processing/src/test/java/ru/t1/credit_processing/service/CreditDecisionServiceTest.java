@@ -0,0 +1,76 @@
+package ru.t1.credit_processing.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CreditDecisionServiceTest {
+
+    @Mock
+    private ClientCreditExposureService clientCreditExposureService;
+
+    private CreditDecisionService creditDecisionService;
+
+    @BeforeEach
+    void setUp() {
+        CreditLimitService creditLimitService = new CreditLimitService(clientCreditExposureService);
+        ReflectionTestUtils.setField(creditLimitService, "creditLimit", new BigDecimal("2000000"));
+        creditDecisionService = new CreditDecisionService(clientCreditExposureService, creditLimitService);
+    }
+
+    @Test
+    void decide_ShouldApprove_WhenClientHasNoProducts() {
+        // Arrange
+        when(clientCreditExposureService.getExposure(1L)).thenReturn(exposure("0", 0, false));
+
+        // Act
+        CreditDecisionService.CreditDecision decision = creditDecisionService.decide(1L, new BigDecimal("100000"));
+
+        // Assert
+        assertFalse(decision.overLimit());
+        assertFalse(decision.hasExpiredPayments());
+        assertEquals(0, decision.totalExisting().signum());
+        verify(clientCreditExposureService, times(1)).getExposure(1L);
+        verifyNoMoreInteractions(clientCreditExposureService);
+    }
+
+    @Test
+    void decide_ShouldReportOverLimit_WhenTotalWithNewExceedsLimit() {
+        // Arrange: 19 продуктов по 100 000 + новый на 100 001 > 2 000 000
+        when(clientCreditExposureService.getExposure(1L)).thenReturn(exposure("1900000.00", 19, false));
+
+        // Act
+        CreditDecisionService.CreditDecision decision = creditDecisionService.decide(1L, new BigDecimal("100001"));
+
+        // Assert
+        assertTrue(decision.overLimit());
+    }
+
+    @Test
+    void decide_ShouldNotReportOverLimit_WhenTotalWithNewEqualsLimit() {
+        // Arrange
+        when(clientCreditExposureService.getExposure(1L)).thenReturn(exposure("1900000.00", 19, true));
+
+        // Act
+        CreditDecisionService.CreditDecision decision = creditDecisionService.decide(1L, new BigDecimal("100000"));
+
+        // Assert
+        assertFalse(decision.overLimit());
+        assertTrue(decision.hasExpiredPayments());
+    }
+
+    private static ClientCreditExposureService.Exposure exposure(String totalAmount, int productCount,
+                                                                 boolean hasExpiredPayments) {
+        return new ClientCreditExposureService.Exposure(new BigDecimal(totalAmount),
+                hasExpiredPayments ? 1 : 0, productCount);
+    }
+}
@@ -0,0 +1,114 @@
+package ru.t1.credit_processing.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.t1.credit_processing.entity.PaymentRegistry;
+import ru.t1.credit_processing.entity.ProductRegistry;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время расчёта 10 000 графиков платежей (без записи в БД):
+ * <ul>
+ *     <li>{@code legacy} — прежний расчёт: точное {@code (1 + i)^n} и остаток долга в {@link BigDecimal};</li>
+ *     <li>{@code calculator} — {@link AnnuityScheduleCalculator}: платёж в {@code DECIMAL128}, строки в копейках,
+ *     готовый график из {@link AnnuityFactorCache} для продукта из настроек.</li>
+ * </ul>
+ * Три из пяти графиков — продукт из {@code credit.*} (100 000 под 22% на 60 месяцев),
+ * остальные — случайные суммы с другими ставками и сроками.
+ * Запуск: {@code main} из IDE или {@code java -cp <test-classpath> ru.t1.credit_processing.service.PaymentScheduleBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentScheduleBenchmark {
+
+    private static final int SCHEDULES = 10_000;
+    private static final String[] RATES = {"22", "22", "22", "12.50", "8.90"};
+    private static final int[] TERMS = {60, 60, 60, 36, 240};
+
+    private static final BigDecimal CONFIGURED_AMOUNT = BigDecimal.valueOf(100_000);
+
+    private final AnnuityScheduleCalculator calculator = new AnnuityScheduleCalculator(
+            new AnnuityFactorCache(new BigDecimal(RATES[0]), TERMS[0], CONFIGURED_AMOUNT, 256));
+    private List<ProductRegistry> registries;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        registries = new ArrayList<>(SCHEDULES);
+        for (int i = 0; i < SCHEDULES; i++) {
+            ProductRegistry registry = new ProductRegistry();
+            registry.setId((long) i);
+            registry.setAmount(i % RATES.length < 3 ? CONFIGURED_AMOUNT
+                    : BigDecimal.valueOf(10_000 + random.nextInt(1_990_000)));
+            registry.setInterestRate(new BigDecimal(RATES[i % RATES.length]));
+            registry.setMonthCount(TERMS[i % TERMS.length]);
+            registry.setOpenDate(LocalDate.of(2024, 1, 1).plusDays(i % 365));
+            registries.add(registry);
+        }
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        for (ProductRegistry registry : registries) {
+            blackhole.consume(legacySchedule(registry));
+        }
+    }
+
+    @Benchmark
+    public void calculator(Blackhole blackhole) {
+        for (ProductRegistry registry : registries) {
+            blackhole.consume(calculator.calculate(registry));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PaymentScheduleBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * Прежняя реализация {@link PaymentScheduleService#generateSchedule} без сохранения.
+     */
+    static List<PaymentRegistry> legacySchedule(ProductRegistry registry) {
+        BigDecimal S = registry.getAmount();
+        int n = registry.getMonthCount();
+        BigDecimal i = registry.getInterestRate().divide(BigDecimal.valueOf(12 * 100), 10, RoundingMode.HALF_UP);
+        BigDecimal pow = BigDecimal.ONE.add(i).pow(n);
+        BigDecimal A = S.multiply(i).multiply(pow).divide(pow.subtract(BigDecimal.ONE), 2, RoundingMode.HALF_UP);
+
+        List<PaymentRegistry> schedule = new ArrayList<>();
+        BigDecimal remainingDebt = S;
+        for (int month = 1; month <= n; month++) {
+            LocalDate paymentDate = registry.getOpenDate().plusMonths(month);
+            BigDecimal interest = remainingDebt.multiply(i).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal debtPart = month == n ? remainingDebt : A.subtract(interest).setScale(2, RoundingMode.HALF_UP);
+            remainingDebt = remainingDebt.subtract(debtPart).setScale(2, RoundingMode.HALF_UP);
+
+            PaymentRegistry payment = new PaymentRegistry();
+            payment.setProductRegistry(registry);
+            payment.setPaymentDate(paymentDate);
+            payment.setPaymentExpirationDate(paymentDate.plusDays(5));
+            payment.setAmount(A);
+            payment.setInterestRateAmount(interest);
+            payment.setDebtAmount(debtPart);
+            payment.setExpired(false);
+            schedule.add(payment);
+        }
+        return schedule;
+    }
+}
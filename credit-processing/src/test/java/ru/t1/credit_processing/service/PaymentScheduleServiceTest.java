@@ -5,10 +5,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.t1.credit_processing.entity.PaymentRegistry;
 import ru.t1.credit_processing.entity.ProductRegistry;
-import ru.t1.credit_processing.repository.PaymentRegistryRepository;
+import ru.t1.credit_processing.repository.PaymentRegistryBatchRepository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -22,7 +23,13 @@ import static org.mockito.Mockito.*;
 class PaymentScheduleServiceTest {
 
     @Mock
-    private PaymentRegistryRepository paymentRegistryRepository;
+    private PaymentRegistryBatchRepository paymentRegistryBatchRepository;
+
+    private final AnnuityFactorCache annuityFactorCache =
+            new AnnuityFactorCache(new BigDecimal("12"), 12, new BigDecimal("100000"), 16);
+
+    @Spy
+    private AnnuityScheduleCalculator calculator = new AnnuityScheduleCalculator(annuityFactorCache);
 
     @InjectMocks
     private PaymentScheduleService paymentScheduleService;
@@ -37,7 +44,7 @@ class PaymentScheduleServiceTest {
         registry.setMonthCount(12); // 12 месяцев
         registry.setOpenDate(LocalDate.of(2024, 1, 1));
 
-        when(paymentRegistryRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentRegistryBatchRepository.insertAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
         List<PaymentRegistry> result = paymentScheduleService.generateSchedule(registry);
@@ -61,7 +68,7 @@ class PaymentScheduleServiceTest {
         PaymentRegistry lastPayment = result.get(11);
         assertEquals(LocalDate.of(2025, 01, 1), lastPayment.getPaymentDate());
 
-        verify(paymentRegistryRepository).saveAll(anyList());
+        verify(paymentRegistryBatchRepository).insertAll(anyList());
     }
 
     @Test
@@ -74,7 +81,7 @@ class PaymentScheduleServiceTest {
         registry.setMonthCount(6); // 6 месяцев
         registry.setOpenDate(LocalDate.of(2024, 1, 1));
 
-        when(paymentRegistryRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentRegistryBatchRepository.insertAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
         List<PaymentRegistry> result = paymentScheduleService.generateSchedule(registry);
@@ -114,7 +121,7 @@ class PaymentScheduleServiceTest {
         registry.setMonthCount(12); // 12 месяцев
         registry.setOpenDate(LocalDate.of(2024, 1, 1));
 
-        when(paymentRegistryRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentRegistryBatchRepository.insertAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
         List<PaymentRegistry> result = paymentScheduleService.generateSchedule(registry);
@@ -142,7 +149,7 @@ class PaymentScheduleServiceTest {
         registry.setMonthCount(1); // 1 месяц
         registry.setOpenDate(LocalDate.of(2024, 1, 1));
 
-        when(paymentRegistryRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentRegistryBatchRepository.insertAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
         List<PaymentRegistry> result = paymentScheduleService.generateSchedule(registry);
@@ -171,7 +178,7 @@ class PaymentScheduleServiceTest {
         LocalDate openDate = LocalDate.of(2024, 3, 15);
         registry.setOpenDate(openDate);
 
-        when(paymentRegistryRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentRegistryBatchRepository.insertAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
         List<PaymentRegistry> result = paymentScheduleService.generateSchedule(registry);
@@ -201,13 +208,13 @@ class PaymentScheduleServiceTest {
         registry.setOpenDate(LocalDate.of(2024, 1, 1));
 
         ArgumentCaptor<List<PaymentRegistry>> captor = ArgumentCaptor.forClass(List.class);
-        when(paymentRegistryRepository.saveAll(captor.capture())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentRegistryBatchRepository.insertAll(captor.capture())).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
         List<PaymentRegistry> result = paymentScheduleService.generateSchedule(registry);
 
         // Assert
-        verify(paymentRegistryRepository).saveAll(anyList());
+        verify(paymentRegistryBatchRepository).insertAll(anyList());
 
         List<PaymentRegistry> savedPayments = captor.getValue();
         assertNotNull(savedPayments);
@@ -235,7 +242,7 @@ class PaymentScheduleServiceTest {
         registry.setMonthCount(240); // 20 лет
         registry.setOpenDate(LocalDate.of(2024, 1, 1));
 
-        when(paymentRegistryRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentRegistryBatchRepository.insertAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
         List<PaymentRegistry> result = paymentScheduleService.generateSchedule(registry);
@@ -267,7 +274,7 @@ class PaymentScheduleServiceTest {
         registry.setMonthCount(12); // 12 месяцев
         registry.setOpenDate(LocalDate.of(2024, 1, 1));
 
-        when(paymentRegistryRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentRegistryBatchRepository.insertAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
         List<PaymentRegistry> result = paymentScheduleService.generateSchedule(registry);
@@ -283,4 +290,51 @@ class PaymentScheduleServiceTest {
         assertTrue(remainingAfterLastPayment.abs().compareTo(new BigDecimal("0.10")) < 0,
                 "Остаток после последнего платежа должен быть близок к нулю");
     }
-}
\ No newline at end of file
+
+    @Test
+    void generateSchedule_ShouldMatchLegacyBigDecimalCalculation() {
+        int[][] cases = {{100_000, 12}, {1_000_000, 240}, {50_000, 6}, {1, 360}, {999_999, 84}};
+        String[] rates = {"12.00", "8.50", "24.00", "0.01", "19.99"};
+
+        when(paymentRegistryBatchRepository.insertAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        for (int c = 0; c < cases.length; c++) {
+            ProductRegistry registry = new ProductRegistry();
+            registry.setId(1L);
+            registry.setAmount(new BigDecimal(cases[c][0]).setScale(2));
+            registry.setInterestRate(new BigDecimal(rates[c]));
+            registry.setMonthCount(cases[c][1]);
+            registry.setOpenDate(LocalDate.of(2024, 1, 31));
+
+            List<PaymentRegistry> result = paymentScheduleService.generateSchedule(registry);
+            List<PaymentRegistry> expected = PaymentScheduleBenchmark.legacySchedule(registry);
+
+            assertEquals(expected.size(), result.size());
+            for (int m = 0; m < expected.size(); m++) {
+                PaymentRegistry legacy = expected.get(m);
+                PaymentRegistry payment = result.get(m);
+                assertEquals(legacy.getAmount(), payment.getAmount(), "платёж, месяц " + (m + 1));
+                assertEquals(legacy.getInterestRateAmount(), payment.getInterestRateAmount(), "проценты, месяц " + (m + 1));
+                assertEquals(legacy.getDebtAmount(), payment.getDebtAmount(), "тело, месяц " + (m + 1));
+                assertEquals(legacy.getPaymentExpirationDate(), payment.getPaymentExpirationDate());
+            }
+        }
+    }
+
+    @Test
+    void generateSchedule_ShouldReuseConfiguredTemplate_AndMatchAdHocCalculation() {
+        // Ставка из БД с масштабом 2 совпадает со ставкой из настроек
+        AnnuityTemplate configured = annuityFactorCache.template(new BigDecimal("12.00"), 12, 10_000_000L);
+        assertSame(configured, annuityFactorCache.template(new BigDecimal("12"), 12, 10_000_000L));
+
+        // Другая сумма считается по тому же коэффициенту и совпадает с расчётом без кэша
+        AnnuityTemplate other = annuityFactorCache.template(new BigDecimal("12.00"), 12, 10_000_001L);
+        assertNotSame(configured, other);
+        BigDecimal i = new BigDecimal("0.0100000000");
+        AnnuityTemplate expected = AnnuityTemplate.compute(i.unscaledValue().longValueExact(),
+                AnnuityTemplate.factor(i, 12), 12, 10_000_001L);
+        assertEquals(expected.payment(), other.payment());
+        assertArrayEquals(expected.interest(), other.interest());
+        assertArrayEquals(expected.debt(), other.debt());
+    }
+}
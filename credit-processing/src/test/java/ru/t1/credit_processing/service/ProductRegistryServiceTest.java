@@ -29,6 +29,9 @@ class ProductRegistryServiceTest {
     @Mock
     private AccountProcessingClient accountProcessingClient;
 
+    @Mock
+    private ClientCreditExposureService clientCreditExposureService;
+
     @InjectMocks
     private ProductRegistryService productRegistryService;
 
@@ -68,6 +71,28 @@ class ProductRegistryServiceTest {
 
         verify(accountProcessingClient).getAccountId(clientId, productId);
         verify(productRegistryRepository).save(any(ProductRegistry.class));
+        verify(clientCreditExposureService).recordProductOpened(clientId, AMOUNT);
+    }
+
+    @Test
+    void openProduct_ShouldUsePrefetchedAccountId_WithoutCallingAccountProcessing() {
+        // Arrange
+        Long clientId = 1L;
+        Long productId = 100L;
+        Long accountId = 500L;
+        LocalDateTime openDate = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+        setupConfiguration();
+
+        when(productRegistryRepository.save(any(ProductRegistry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        ProductRegistry result = productRegistryService.openProduct(clientId, productId, openDate, accountId);
+
+        // Assert
+        assertEquals(accountId, result.getAccountId());
+        assertEquals(clientId, result.getClientId());
+        verifyNoInteractions(accountProcessingClient);
     }
 
     @Test
@@ -5,142 +5,191 @@ import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.springframework.beans.factory.annotation.Value;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.t1.starter.aop.annotation.CacheEvict;
+import ru.t1.starter.aop.annotation.CachePut;
 import ru.t1.starter.aop.annotation.Cached;
+import ru.t1.starter.cache.BoundedCache;
+import ru.t1.starter.cache.CacheInvalidationPublisher;
+import ru.t1.starter.cache.CacheKey;
+import ru.t1.starter.cache.CacheRegistry;
 
-import java.time.Instant;
+import java.lang.reflect.Method;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
+/**
+ * Кэширует результаты методов, помеченных {@link Cached}.
+ * <p>
+ * Записи хранятся в ограниченных кэшах {@link CacheRegistry}: размер и TTL задаются
+ * в {@code cache.caches.<name>} (или глобально в {@code cache.*}).
+ * Одновременные промахи по одному ключу выполняют метод один раз (single-flight),
+ * а при заданном {@code refresh-ahead-fraction} запись обновляется в фоне до истечения TTL.
+ * Методы, изменяющие данные, поддерживают кэш в актуальном состоянии через {@link CacheEvict} и {@link CachePut};
+ * эти изменения передаются другим репликам через {@link CacheInvalidationPublisher}.
+ */
 @Slf4j
 @Aspect
 @RequiredArgsConstructor
 public class CachedAspect {
 
-    @Value("${cache.ttl-ms}")
-    private long defaultTtlMs;
+    private static final ExpressionParser PARSER = new SpelExpressionParser();
+    private static final ParameterNameDiscoverer PARAMETER_NAMES = new DefaultParameterNameDiscoverer();
+    private static final BoundedCache.Loader<ProceedingJoinPoint> PROCEED = ProceedingJoinPoint::proceed;
+    private static final Predicate<Object> CACHEABLE = result -> !isEmptyResult(result);
 
-    // Хранилище для индивидуальных кэшей (по типам сущностей)
-    private final Map<String, Map<List<Object>, CacheEntry>> individualCaches = new ConcurrentHashMap<>();
+    private final CacheRegistry cacheRegistry;
+    private final CacheInvalidationPublisher invalidationPublisher;
 
-    // Общее хранилище для всех сущностей
-    private final Map<Integer, CacheEntry> commonCache = new ConcurrentHashMap<>();
+    // Кэш, TTL и идентификатор метода, вычисленные один раз для каждого метода с @Cached
+    private final Map<Method, CachedMethod> cachedMethods = new ConcurrentHashMap<>();
+
+    // Разобранные аннотации и SpEL-выражения по методам
+    private final Map<Method, CacheOperations> cacheOperations = new ConcurrentHashMap<>();
 
     @Around("@annotation(cached)")
     public Object cacheMethodResult(ProceedingJoinPoint joinPoint, Cached cached) throws Throwable {
-        String cacheName = cached.cacheName();
-        long ttl = cached.ttl() > 0 ? cached.ttl() : defaultTtlMs;
-
-        // Генерируем ключ для поиска в кэше ДО выполнения метода
-        CacheKeyInfo keyInfo = generateCacheKey(cacheName, joinPoint);
-
-        // Пытаемся найти значение в кэше
-        Object cachedValue = getFromCache(cacheName, keyInfo);
-        if (cachedValue != null) {
-            log.info("Возвращаем значение из кэша [{}] для ключа {}",
-                    cacheName.isEmpty() ? "common" : cacheName, keyInfo.getKey());
-            return cachedValue;
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        CachedMethod cachedMethod = cachedMethods.get(signature.getMethod());
+        if (cachedMethod == null) {
+            cachedMethod = cachedMethods.computeIfAbsent(signature.getMethod(), method -> describe(signature, cached));
         }
 
-        // Если в кэше нет - выполняем метод
-        Object result = joinPoint.proceed();
+        // Генерируем ключ для поиска в кэше ДО выполнения метода
+        Object[] args = joinPoint.getArgs();
+        CacheKey key = args.length == 0 ? cachedMethod.noArgsKey() : CacheKey.of(cachedMethod.methodId(), args);
 
-        // Сохраняем результат в кэш (если он не пустой)
-        if (result != null && !isEmptyResult(result)) {
-            saveToCache(cacheName, keyInfo, result, ttl);
-            log.info("Сохранили значение в кэш [{}] для ключа {} с TTL {} мс",
-                    cacheName.isEmpty() ? "common" : cacheName, keyInfo.getKey(), ttl);
-        }
+        // Промахи по одному ключу выполняют метод один раз, остальные вызовы ждут его результат
+        return cachedMethod.cache().get(key, cachedMethod.ttl(), PROCEED, joinPoint, CACHEABLE);
+    }
 
-        return result;
+    private CachedMethod describe(MethodSignature signature, Cached cached) {
+        BoundedCache cache = cacheRegistry.getCache(cached.cacheName());
+        String methodId = methodId(cached.cacheName(), signature.getDeclaringType().getSimpleName(), signature.getName());
+        long ttl = cached.ttl() > 0 ? cached.ttl() : cache.getTtlMs();
+        return new CachedMethod(cache, methodId, ttl, CacheKey.noArgs(methodId));
     }
 
     /**
-     * Генерирует информацию о ключе для кэша
+     * Обновляет кэш после изменения данных методом, помеченным {@link CacheEvict} и/или {@link CachePut}.
+     * <p>
+     * Ключи и значения вычисляются сразу после вызова, а применяются после коммита транзакции
+     * (если она есть), чтобы параллельное чтение не вернуло в кэш данные до коммита.
      */
-    private CacheKeyInfo generateCacheKey(String cacheName, ProceedingJoinPoint joinPoint) {
+    @Around("@annotation(ru.t1.starter.aop.annotation.CacheEvict) || @annotation(ru.t1.starter.aop.annotation.CacheEvict.List)"
+            + " || @annotation(ru.t1.starter.aop.annotation.CachePut) || @annotation(ru.t1.starter.aop.annotation.CachePut.List)")
+    public Object updateCache(ProceedingJoinPoint joinPoint) throws Throwable {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        CacheOperations operations = cacheOperations.computeIfAbsent(signature.getMethod(),
+                method -> CacheOperations.of(method, signature.getDeclaringType().getSimpleName()));
         Object[] args = joinPoint.getArgs();
 
-        if (!cacheName.isEmpty()) {
-            // Для индивидуального кэша используем ВСЕ АРГУМЕНТЫ как составной ключ
-            String methodName = joinPoint.getSignature().getName();
-            List<Object> keyList = new ArrayList<>();
-            keyList.add(methodName); // для уникальности добавляем сигнатуру метода
-            keyList.addAll(Arrays.asList(args.length > 0 ? args : new Object[]{"default"}));
-
-            return new CacheKeyInfo(keyList, args);
-        } else {
-            // Для общего кэша генерируем хэш из всех аргументов
-            int keyHash = generateArgsHash(joinPoint);
-            return new CacheKeyInfo(keyHash, args);
+        List<Runnable> before = new ArrayList<>();
+        for (EvictOperation evict : operations.evicts()) {
+            if (evict.beforeInvocation()) {
+                before.add(prepareEvict(evict, signature.getMethod(), args, null));
+            }
         }
-    }
+        before.forEach(Runnable::run);
 
-    /**
-     * Получает значение из кэша
-     */
+        Object result = joinPoint.proceed();
 
-    private Object getFromCache(String cacheName, CacheKeyInfo keyInfo) {
-        if (!cacheName.isEmpty()) {
-            // Индивидуальный кэш
-            Map<List<Object>, CacheEntry> entityCache = individualCaches.get(cacheName);
-            if (entityCache != null) {
-                CacheEntry entry = entityCache.get(keyInfo.getKey());
-                if (entry != null && !entry.isExpired()) {
-                    return entry.value();
-                }
-                // Удаляем просроченную запись
-                if (entry != null && entry.isExpired()) {
-                    entityCache.remove(keyInfo.getKey());
-                }
-            }
-        } else {
-            // Общий кэш
-            CacheEntry entry = commonCache.get(keyInfo.getKey());
-            if (entry != null && !entry.isExpired()) {
-                return entry.value();
-            }
-            // Удаляем просроченную запись
-            if (entry != null && entry.isExpired()) {
-                commonCache.remove(keyInfo.getKey());
+        List<Runnable> after = new ArrayList<>();
+        for (EvictOperation evict : operations.evicts()) {
+            if (!evict.beforeInvocation()) {
+                after.add(prepareEvict(evict, signature.getMethod(), args, result));
             }
         }
-        return null;
+        for (PutOperation put : operations.puts()) {
+            after.add(preparePut(put, signature.getMethod(), args, result));
+        }
+        runAfterCommit(after);
+        return result;
     }
 
     /**
-     * Сохраняет значение в кэш
+     * Идентификатор метода в ключе: для индивидуального кэша — имя метода,
+     * для общего — ещё и имя класса, так как в нём хранятся результаты разных сервисов.
+     * Та же схема используется {@link CacheEvict} и {@link CachePut}.
      */
-    private void saveToCache(String cacheName, CacheKeyInfo keyInfo, Object result, long ttl) {
-        CacheEntry entry = new CacheEntry(result, Instant.now().plusMillis(ttl));
-
-        if (!cacheName.isEmpty()) {
-            // Индивидуальный кэш
-            Map<List<Object>, CacheEntry> entityCache = individualCaches
-                    .computeIfAbsent(cacheName, k -> new ConcurrentHashMap<>());
-            entityCache.put((List<Object>) keyInfo.getKey(), entry);
-        } else {
-            // Общий кэш
-            commonCache.put((Integer) keyInfo.getKey(), entry);
+    private static String methodId(String cacheName, String typeName, String methodName) {
+        if (cacheName.isEmpty() && methodName.indexOf('.') < 0) {
+            return (typeName + "." + methodName).intern();
         }
+        return methodName.intern();
     }
 
-    private int generateArgsHash(ProceedingJoinPoint joinPoint) {
-        String fullMethodName = joinPoint.getSignature().toShortString(); // Class.method
-        Object[] args = joinPoint.getArgs();
+    private Runnable prepareEvict(EvictOperation evict, Method method, Object[] args, Object result) {
+        Object[] keyArgs = evict.allEntries() ? null : evaluateArgs(evict.key(), method, args, result);
+        return () -> {
+            for (int i = 0; i < evict.cacheNames().length; i++) {
+                String cacheName = evict.cacheNames()[i];
+                BoundedCache cache = cacheRegistry.getCache(cacheName);
+                if (evict.allEntries()) {
+                    cache.invalidateAll();
+                    invalidationPublisher.cacheCleared(cacheName);
+                    log.info("Очищен кэш [{}]", cache.getName());
+                } else {
+                    CacheKey cacheKey = CacheKey.of(evict.methodIds()[i], keyArgs);
+                    cache.invalidate(cacheKey);
+                    invalidationPublisher.keyInvalidated(cacheName, cacheKey);
+                    log.info("Удалили значение из кэша [{}] для ключа {}", cache.getName(), cacheKey);
+                }
+            }
+        };
+    }
 
-        Object[] keyElements = new Object[args.length + 1];
-        keyElements[0] = fullMethodName;
-        System.arraycopy(args, 0, keyElements, 1, args.length);
+    private Runnable preparePut(PutOperation put, Method method, Object[] args, Object result) {
+        Object[] keyArgs = evaluateArgs(put.key(), method, args, result);
+        Object value = evaluate(put.value(), method, args, result);
+        return () -> {
+            for (int i = 0; i < put.cacheNames().length; i++) {
+                String cacheName = put.cacheNames()[i];
+                BoundedCache cache = cacheRegistry.getCache(cacheName);
+                CacheKey cacheKey = CacheKey.of(put.methodIds()[i], keyArgs);
+                if (value == null || isEmptyResult(value)) {
+                    cache.invalidate(cacheKey);
+                } else {
+                    cache.put(cacheKey, value, put.ttl() > 0 ? put.ttl() : cache.getTtlMs());
+                    log.info("Обновили значение в кэше [{}] для ключа {}", cache.getName(), cacheKey);
+                }
+                // другие реплики просто удаляют ключ и перечитают значение при следующем обращении
+                invalidationPublisher.keyInvalidated(cacheName, cacheKey);
+            }
+        };
+    }
 
-        return Arrays.hashCode(keyElements);
+    private void runAfterCommit(List<Runnable> actions) {
+        if (actions.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    actions.forEach(Runnable::run);
+                }
+            });
+        } else {
+            actions.forEach(Runnable::run);
+        }
     }
 
     /**
      * Проверяет, является ли результат "пустым" (не нужно кэшировать)
      */
 
-    private boolean isEmptyResult(Object result) {
+    private static boolean isEmptyResult(Object result) {
         if (result instanceof Optional) {
             return ((Optional<?>) result).isEmpty();
         }
@@ -151,29 +200,71 @@ public class CachedAspect {
     }
 
     /**
-     * Вспомогательный класс для информации о ключе кэша
+     * Описание метода с {@link Cached}: кэш, TTL, идентификатор для ключей и готовый ключ вызова без аргументов.
      */
-    private static class CacheKeyInfo {
-        private final Object key;
-        private final Object[] methodArgs;
+    private record CachedMethod(BoundedCache cache, String methodId, long ttl, CacheKey noArgsKey) {
+    }
 
-        public CacheKeyInfo(Object key, Object[] methodArgs) {
-            this.key = key;
-            this.methodArgs = methodArgs;
-        }
+    private static Object evaluate(Expression expression, Method method, Object[] args, Object result) {
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(null, method, args, PARAMETER_NAMES);
+        context.setVariable("result", result);
+        return expression.getValue(context);
+    }
 
-        public Object getKey() {
-            return key;
+    private static Expression[] parse(String[] expressions) {
+        Expression[] parsed = new Expression[expressions.length];
+        for (int i = 0; i < expressions.length; i++) {
+            parsed[i] = PARSER.parseExpression(expressions[i]);
         }
+        return parsed;
+    }
 
-        public Object[] getMethodArgs() {
-            return methodArgs;
+    private static Object[] evaluateArgs(Expression[] key, Method method, Object[] args, Object result) {
+        Object[] keyArgs = new Object[key.length];
+        for (int i = 0; i < key.length; i++) {
+            keyArgs[i] = evaluate(key[i], method, args, result);
         }
+        return keyArgs;
     }
 
-    private record CacheEntry(Object value, Instant expiresAt) {
-        boolean isExpired() {
-            return Instant.now().isAfter(expiresAt);
+    /**
+     * Операции {@link CacheEvict} и {@link CachePut} метода с разобранными выражениями.
+     */
+    private record CacheOperations(List<EvictOperation> evicts, List<PutOperation> puts) {
+
+        static CacheOperations of(Method method, String typeName) {
+            List<EvictOperation> evicts = new ArrayList<>();
+            for (CacheEvict evict : AnnotatedElementUtils.findMergedRepeatableAnnotations(method, CacheEvict.class)) {
+                if (!evict.allEntries() && evict.method().isEmpty()) {
+                    throw new IllegalStateException("@CacheEvict на " + method + " должен указывать method или allEntries");
+                }
+                evicts.add(new EvictOperation(evict.cacheName(), methodIds(evict.cacheName(), typeName, evict.method()),
+                        parse(evict.key()),
+                        evict.allEntries(), evict.beforeInvocation()));
+            }
+            List<PutOperation> puts = new ArrayList<>();
+            for (CachePut put : AnnotatedElementUtils.findMergedRepeatableAnnotations(method, CachePut.class)) {
+                puts.add(new PutOperation(put.cacheName(), methodIds(put.cacheName(), typeName, put.method()),
+                        parse(put.key()),
+                        PARSER.parseExpression(put.value()), put.ttl()));
+            }
+            return new CacheOperations(List.copyOf(evicts), List.copyOf(puts));
         }
+
+        private static String[] methodIds(String[] cacheNames, String typeName, String method) {
+            String[] ids = new String[cacheNames.length];
+            for (int i = 0; i < cacheNames.length; i++) {
+                ids[i] = methodId(cacheNames[i], typeName, method);
+            }
+            return ids;
+        }
+    }
+
+    private record EvictOperation(String[] cacheNames, String[] methodIds, Expression[] key,
+                                  boolean allEntries, boolean beforeInvocation) {
+    }
+
+    private record PutOperation(String[] cacheNames, String[] methodIds, Expression[] key,
+                                Expression value, long ttl) {
     }
 }
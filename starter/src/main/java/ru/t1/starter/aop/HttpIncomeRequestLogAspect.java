@@ -1,34 +1,39 @@
 package ru.t1.starter.aop;
 
 import jakarta.servlet.http.HttpServletRequest;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.support.MessageBuilder;
-import org.springframework.stereotype.Component;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
-import org.springframework.web.method.HandlerMethod;
-import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 import ru.t1.starter.aop.annotation.HttpIncomeRequestLog;
+import ru.t1.starter.log.HttpIncomeLogProperties;
+import ru.t1.starter.log.LogPipeline;
+import ru.t1.starter.log.TokenBucket;
 
+import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * AOP-аспект для логирования входящих HTTP-запросов.
  *
  * <p>Аспект перехватывает методы, аннотированные {@link HttpIncomeRequestLog},
  * извлекает информацию о запросе (URI, HTTP-метод, параметры, тело)
- * и публикует событие в Kafka-топик.</p>
+ * и публикует событие в Kafka-топик через {@link LogPipeline}, не блокируя поток запроса.</p>
  *
  * <p>Каждое сообщение включает:
  * <ul>
@@ -36,96 +41,177 @@ import java.util.Map;
  *     <li>сигнатуру метода,</li>
  *     <li>URI и HTTP-метод,</li>
  *     <li>параметры пути и запроса,</li>
- *     <li>тело запроса.</li>
+ *     <li>тело запроса,</li>
+ *     <li>длительность и исход обработки.</li>
  * </ul>
  * </p>
+ *
+ * <p>Чтобы стоимость логирования не росла вместе с RPS, успешные запросы логируются выборочно
+ * ({@code http-income-log.sample-percent} или процент эндпоинта) и не чаще
+ * {@code http-income-log.rate-limit-per-second}. Запросы с исключением и медленные запросы
+ * логируются всегда. Разбор параметров метода контроллера выполняется один раз на метод.</p>
  */
 @Slf4j
 @Aspect
-@RequiredArgsConstructor
 public class HttpIncomeRequestLogAspect {
-    /** Kafka-шаблон для отправки сообщений о входящих запросах. */
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    /** Асинхронная отправка сообщений о входящих запросах в Kafka. */
+    private final LogPipeline logPipeline;
+
+    /** Настройки выборки и ограничения частоты. */
+    private final HttpIncomeLogProperties properties;
 
-    /** Маппинг обработчиков Spring MVC для определения метода контроллера. */
-    private final RequestMappingHandlerMapping handlerMapping;
+    /** Ограничение частоты логирования успешных запросов, {@code null} — без ограничения. */
+    private final TokenBucket rateLimiter;
 
-    /** Название Kafka-топика для логов сервисов. */
-    @Value("${app.kafka.topics.service-logs}")
-    private String topic;
+    /** Разобранные параметры методов контроллеров. */
+    private final Map<Method, Endpoint> endpoints = new ConcurrentHashMap<>();
 
-    /** Имя текущего сервиса (используется как ключ Kafka-сообщения). */
-    @Value("${app.service-name}")
-    private String serviceName;
+    public HttpIncomeRequestLogAspect(LogPipeline logPipeline, HttpIncomeLogProperties properties) {
+        this.logPipeline = logPipeline;
+        this.properties = properties;
+        this.rateLimiter = properties.getRateLimitPerSecond() > 0
+                ? new TokenBucket(properties.getRateLimitPerSecond(), properties.getRateLimitBurst())
+                : null;
+    }
 
     /**
-     * Аспект, выполняющий логирование перед выполнением любого метода,
+     * Аспект, выполняющий логирование вокруг любого метода,
      * аннотированного {@link HttpIncomeRequestLog}.
      *
-     * <p>Собирает информацию о текущем HTTP-запросе (URI, параметры, тело)
-     * и публикует JSON-сообщение в Kafka.</p>
+     * <p>Решение о выборке принимается до вызова; если запрос не попал в выборку,
+     * он всё равно логируется при исключении или превышении {@code slow-threshold-ms}.</p>
      *
      * @param joinPoint контекст выполняемого метода (переданный Spring AOP)
+     * @return результат метода контроллера
+     * @throws Throwable исключение метода контроллера
      */
-    @Before("@annotation(ru.t1.starter.aop.annotation.HttpIncomeRequestLog)")
-    public void logIncomingRequest(JoinPoint joinPoint) {
+    @Around("@annotation(ru.t1.starter.aop.annotation.HttpIncomeRequestLog)")
+    public Object logIncomingRequest(ProceedingJoinPoint joinPoint) throws Throwable {
+        Endpoint endpoint = endpoint(joinPoint);
+        boolean sampled = sample(endpoint);
+        long start = System.nanoTime();
+        Throwable failure = null;
         try {
-            // Извлекаем текущий HTTP-запрос
-            HttpServletRequest request =
-                    ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes())
-                            .getRequest();
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            long durationMs = (System.nanoTime() - start) / 1_000_000;
+            boolean slow = properties.getSlowThresholdMs() > 0 && durationMs >= properties.getSlowThresholdMs();
+            boolean error = failure != null && properties.isAlwaysLogErrors();
+            if (sampled || slow || error) {
+                publish(joinPoint, endpoint, durationMs, failure);
+            }
+        }
+    }
+
+    /**
+     * Head-выборка: процент эндпоинта, затем общий лимит частоты.
+     */
+    private boolean sample(Endpoint endpoint) {
+        double percent = endpoint.samplePercent();
+        if (percent <= 0 || percent < 100 && ThreadLocalRandom.current().nextDouble(100) >= percent) {
+            return false;
+        }
+        return rateLimiter == null || rateLimiter.tryAcquire();
+    }
 
-            // Определяем контроллерный метод, обрабатывающий этот запрос
-            HandlerMethod handlerMethod =
-                    (HandlerMethod) handlerMapping.getHandler(request).getHandler();
+    private void publish(ProceedingJoinPoint joinPoint, Endpoint endpoint, long durationMs, Throwable failure) {
+        try {
+            // Извлекаем текущий HTTP-запрос
+            RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+            HttpServletRequest request = attributes instanceof ServletRequestAttributes servletAttributes
+                    ? servletAttributes.getRequest() : null;
 
-            Parameter[] parameters = handlerMethod.getMethod().getParameters();
             Object[] args = joinPoint.getArgs();
-
             Map<String, Object> pathAndQueryParams = new HashMap<>();
-            Object body = null;
-
-            // Извлекаем параметры пути, запроса и тело
-            for (int i = 0; i < parameters.length; i++) {
-                Parameter param = parameters[i];
-                Object value = args[i];
-
-                if (param.isAnnotationPresent(org.springframework.web.bind.annotation.PathVariable.class)) {
-                    String name = param.getAnnotation(org.springframework.web.bind.annotation.PathVariable.class).value();
-                    pathAndQueryParams.put(name.isEmpty() ? param.getName() : name, value);
-                } else if (param.isAnnotationPresent(org.springframework.web.bind.annotation.RequestParam.class)) {
-                    String name = param.getAnnotation(org.springframework.web.bind.annotation.RequestParam.class).value();
-                    pathAndQueryParams.put(name.isEmpty() ? param.getName() : name, value);
-                } else if (param.isAnnotationPresent(org.springframework.web.bind.annotation.RequestBody.class)) {
-                    body = value;
-                }
+            for (Binding binding : endpoint.params()) {
+                pathAndQueryParams.put(binding.name(), args[binding.index()]);
             }
+            Object body = endpoint.bodyIndex() >= 0 ? args[endpoint.bodyIndex()] : null;
 
             // Формируем сообщение для Kafka
             HttpIncomeLogMessage logMessage = new HttpIncomeLogMessage(
-                    LocalDateTime.now(),
-                    joinPoint.getSignature().toShortString(),
-                    request.getRequestURI(),
-                    request.getMethod(),
+                    LocalDateTime.now().minus(Duration.ofMillis(durationMs)),
+                    endpoint.signature(),
+                    request != null ? request.getRequestURI() : null,
+                    request != null ? request.getMethod() : null,
                     pathAndQueryParams,
-                    body
+                    body,
+                    durationMs,
+                    failure != null ? failure.toString() : null
             );
 
-            // Подготавливаем и отправляем сообщение в Kafka
-            Message<HttpIncomeLogMessage> message = MessageBuilder
-                    .withPayload(logMessage)
-                    .setHeader(KafkaHeaders.KEY, serviceName)
-                    .setHeader("type", "INFO")
-                    .setHeader(KafkaHeaders.TOPIC, topic)
-                    .build();
-
-            kafkaTemplate.send(message).get();
-            log.info("Входящий HTTP-запрос залогирован: {}", logMessage);
+            // Ставим сообщение в очередь отправки в Kafka, не дожидаясь брокера
+            logPipeline.publish(failure != null ? "ERROR" : "INFO", logMessage);
+            log.debug("Входящий HTTP-запрос залогирован: {}", logMessage);
         } catch (Exception e) {
             log.error("Ошибка при логировании входящего HTTP-запроса", e);
         }
     }
 
+    private Endpoint endpoint(ProceedingJoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Endpoint endpoint = endpoints.get(method);
+        return endpoint != null ? endpoint : endpoints.computeIfAbsent(method, m -> resolve(joinPoint, m));
+    }
+
+    /**
+     * Разбирает параметры метода контроллера: имена параметров пути и запроса, позицию тела.
+     */
+    private Endpoint resolve(ProceedingJoinPoint joinPoint, Method method) {
+        Parameter[] parameters = method.getParameters();
+        List<Binding> params = new ArrayList<>();
+        int bodyIndex = -1;
+
+        // Извлекаем параметры пути, запроса и тело
+        for (int i = 0; i < parameters.length; i++) {
+            Parameter param = parameters[i];
+            PathVariable pathVariable = param.getAnnotation(PathVariable.class);
+            RequestParam requestParam = param.getAnnotation(RequestParam.class);
+            if (pathVariable != null) {
+                params.add(new Binding(name(pathVariable.value(), pathVariable.name(), param), i));
+            } else if (requestParam != null) {
+                params.add(new Binding(name(requestParam.value(), requestParam.name(), param), i));
+            } else if (param.isAnnotationPresent(RequestBody.class)) {
+                bodyIndex = i;
+            }
+        }
+
+        String key = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        Double configured = properties.getEndpoints().get(key);
+        double annotated = method.getAnnotation(HttpIncomeRequestLog.class).samplePercent();
+        double samplePercent = configured != null ? configured
+                : annotated >= 0 ? annotated : properties.getSamplePercent();
+
+        return new Endpoint(joinPoint.getSignature().toShortString(), params.toArray(Binding[]::new),
+                bodyIndex, samplePercent);
+    }
+
+    private static String name(String value, String name, Parameter param) {
+        if (!value.isEmpty()) {
+            return value;
+        }
+        return name.isEmpty() ? param.getName() : name;
+    }
+
+    /**
+     * Метаданные метода контроллера, вычисленные один раз.
+     *
+     * @param signature     сигнатура метода
+     * @param params        параметры пути и запроса
+     * @param bodyIndex     позиция {@code @RequestBody} или {@code -1}
+     * @param samplePercent доля логируемых успешных запросов
+     */
+    private record Endpoint(String signature, Binding[] params, int bodyIndex, double samplePercent) {}
+
+    /**
+     * @param name  имя параметра в логе
+     * @param index позиция аргумента
+     */
+    private record Binding(String name, int index) {}
+
     /**
      * DTO для логирования входящих HTTP-запросов.
      *
@@ -135,6 +221,8 @@ public class HttpIncomeRequestLogAspect {
      * @param httpMethod HTTP-метод (GET, POST и т.п.)
      * @param params карта параметров пути и запроса
      * @param body тело запроса
+     * @param durationMs время обработки запроса в миллисекундах
+     * @param error исключение, которым завершилась обработка, или {@code null}
      */
     private record HttpIncomeLogMessage(
             LocalDateTime timestamp,
@@ -142,6 +230,8 @@ public class HttpIncomeRequestLogAspect {
             String uri,
             String httpMethod,
             Map<String, Object> params,
-            Object body
+            Object body,
+            long durationMs,
+            String error
     ) {}
 }
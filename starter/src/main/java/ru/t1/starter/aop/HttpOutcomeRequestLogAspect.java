@@ -5,12 +5,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.AfterReturning;
 import org.aspectj.lang.annotation.Aspect;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.support.MessageBuilder;
 import ru.t1.starter.aop.annotation.HttpOutcomeRequestLog;
+import ru.t1.starter.log.LogPipeline;
 
 import java.time.LocalDateTime;
 import java.util.Map;
@@ -20,22 +16,14 @@ import java.util.Map;
  *
  * <p>Аспект перехватывает методы, аннотированные {@link HttpOutcomeRequestLog},
  * и выполняет логирование информации об исходящем HTTP-запросе и его ответе.
- * Данные публикуются в Kafka-топик.</p>
+ * Данные публикуются в Kafka-топик асинхронно через {@link LogPipeline}.</p>
  */
 @Slf4j
 @Aspect
 @RequiredArgsConstructor
 public class HttpOutcomeRequestLogAspect {
-    /** Kafka-шаблон для отправки сообщений о внешних HTTP-запросах. */
-    private final KafkaTemplate<String, Object> kafkaTemplate;
-
-    /** Название Kafka-топика для логов сервисов. */
-    @Value("${app.kafka.topics.service-logs}")
-    private String topic;
-
-    /** Имя текущего сервиса (используется как ключ Kafka-сообщения). */
-    @Value("${app.service-name}")
-    private String serviceName;
+    /** Асинхронная отправка сообщений о внешних HTTP-запросах в Kafka. */
+    private final LogPipeline logPipeline;
 
     /**
      * Логирует результат выполнения метода, аннотированного {@link HttpOutcomeRequestLog}.
@@ -60,15 +48,8 @@ public class HttpOutcomeRequestLogAspect {
                     response
             );
 
-            // Подготавливаем и отправляем сообщение в Kafka
-            Message<HttpOutcomeLogMessage> message = MessageBuilder
-                    .withPayload(logMessage)
-                    .setHeader(KafkaHeaders.KEY, serviceName)
-                    .setHeader("type", "INFO")
-                    .setHeader(KafkaHeaders.TOPIC, topic)
-                    .build();
-
-            kafkaTemplate.send(message).get();
+            // Ставим сообщение в очередь отправки в Kafka, не дожидаясь брокера
+            logPipeline.publish("INFO", logMessage);
 
             log.info("Отправлено лог-сообщение о HTTP запросе: {}", logMessage);
 
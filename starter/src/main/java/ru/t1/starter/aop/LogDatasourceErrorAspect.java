@@ -7,15 +7,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.AfterThrowing;
 import org.aspectj.lang.annotation.Aspect;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.support.MessageBuilder;
-import ru.t1.starter.entity.ErrorLog;
 import ru.t1.starter.entity.enums.LogType;
-import ru.t1.starter.repository.ErrorLogRepository;
 import ru.t1.starter.aop.annotation.LogDatasourceError;
+import ru.t1.starter.log.LogPipeline;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -28,23 +22,13 @@ import java.util.Arrays;
 @Aspect
 @RequiredArgsConstructor
 public class LogDatasourceErrorAspect {
-    /** Kafka-шаблон для публикации сообщений об ошибках. */
-    private final KafkaTemplate<String, Object> kafkaTemplate;
-
-    /** Репозиторий для сохранения ошибок в случае недоступности Kafka. */
-    private final ErrorLogRepository errorLogRepository;
-
-    /** Название Kafka-топика для логов сервисов. */
-    @Value("${app.kafka.topics.service-logs}")
-    private String topic;
-
-    /** Имя текущего сервиса (используется как ключ Kafka-сообщения). */
-    @Value("${app.service-name}")
-    private String serviceName;
+    /** Асинхронная отправка сообщений об ошибках в Kafka. */
+    private final LogPipeline logPipeline;
 
     /**
      * Перехватывает все исключения, выброшенные методами, аннотированными {@link LogDatasourceError},
-     * и логирует их в Kafka или в базу данных при недоступности брокера.
+     * и логирует их в Kafka; при недоступности брокера сообщение сохраняется в локальный журнал
+     * и позже переотправляется или переносится в таблицу error_log ({@link ru.t1.starter.log.LogSpoolDrainer}).
      *
      * @param joinPoint точка соединения, содержащая информацию о методе и его аргументах
      * @param ex         перехваченное исключение
@@ -65,30 +49,16 @@ public class LogDatasourceErrorAspect {
             // Определяем тип сообщения (INFO, WARNING, ERROR)
             String messageType = String.valueOf(determineMessageType(ex));
 
-            // Формируем Kafka-сообщение
-            Message<ErrorMessage> message = MessageBuilder
-                    .withPayload(errorMessage)
-                    .setHeader(KafkaHeaders.KEY, serviceName) // ключ сообщения = название микросервиса
-                    .setHeader("type", messageType)
-                    .setHeader(KafkaHeaders.TOPIC, topic)
-                    .build();
-
-            kafkaTemplate.send(message).get();
-
-            log.error("Отправлено сообщение об ошибке в Kafka из сервиса {}: {}",
-                    message.getHeaders().get(KafkaHeaders.KEY), message.getPayload());
-
-        } catch (Exception kafkaException) {
-            log.error("Не удалось отправить сообщение в Kafka, сохраняем в БД", kafkaException);
-
-            ErrorLog errorLog = new ErrorLog();
-            errorLog.setTimestamp(LocalDateTime.now());
-            errorLog.setMethodSignature(joinPoint.getSignature().toShortString());
-            errorLog.setExceptionMessage(ex.getMessage());
-            errorLog.setStackTrace(Arrays.toString(ex.getStackTrace()));
-            errorLog.setMethodArgs(Arrays.toString(joinPoint.getArgs()));
+            // Ставим сообщение в очередь отправки; если Kafka недоступна, оно попадёт в локальный журнал
+            if (logPipeline.publish(messageType, errorMessage)) {
+                log.debug("Сообщение об ошибке поставлено в очередь отправки: {}", errorMessage);
+            } else {
+                log.warn("Сообщение об ошибке в методе {} отброшено политикой переполнения очереди отправки",
+                        errorMessage.methodSignature());
+            }
 
-            errorLogRepository.save(errorLog);
+        } catch (Exception e) {
+            log.error("Не удалось поставить сообщение об ошибке в очередь отправки", e);
         }
     }
 
@@ -1,98 +1,125 @@
 package ru.t1.starter.aop;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.support.MessageBuilder;
+import org.aspectj.lang.reflect.MethodSignature;
 import ru.t1.starter.aop.annotation.Metric;
-import org.springframework.messaging.Message;
+import ru.t1.starter.metric.MetricProperties;
+import ru.t1.starter.metric.SlowCallAggregator;
+import ru.t1.starter.trace.Span;
+import ru.t1.starter.trace.SpanKind;
+import ru.t1.starter.trace.Tracer;
 
-import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Аспект аннотации {@link Metric}.
+ * <p>
+ * Каждый вызов записывается в {@link Timer} Micrometer (теги {@code class}, {@code method},
+ * {@code outcome}) с процентилями {@code metric.percentiles} и SLO-бакетами {@code metric.slo-ms},
+ * которые публикуются в Prometheus. Вызовы дольше лимита ({@code @Metric(limitMs)} или
+ * {@code metric.execution-limit-ms}) передаются в {@link SlowCallAggregator}, который отправляет
+ * в Kafka одну сводку на метод за окно. Каждый вызов также записывается спаном трассы
+ * ({@link SpanKind#INTERNAL}), чтобы время метода было видно внутри сквозного запроса.
+ */
 @Slf4j
 @Aspect
-@RequiredArgsConstructor
 public class MetricAspect {
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final MetricProperties properties;
+    private final SlowCallAggregator slowCalls;
+    private final Tracer tracer;
 
-    /** Название Kafka-топика для логов сервисов. */
-    @Value("${app.kafka.topics.service-logs}")
-    private String topic;
+    /** Таймеры и лимиты методов, вычисленные при первом вызове. */
+    private final Map<Method, MethodMetric> metrics = new ConcurrentHashMap<>();
 
-    /** Имя микросервиса, используется как Kafka key. */
-    @Value("${app.service-name}")
-    private String serviceName;
-
-    /** Лимит времени выполнения метода (в миллисекундах). */
-    @Value("${metric.execution-limit-ms}")
-    private long executionLimitMs;
+    public MetricAspect(MeterRegistry meterRegistry, MetricProperties properties, SlowCallAggregator slowCalls,
+                        Tracer tracer) {
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+        this.slowCalls = slowCalls;
+        this.tracer = tracer;
+    }
 
     /**
      * Измеряет время выполнения метода, аннотированного {@link Metric}.
-     * Если превышен лимит {@code executionLimitMs}, сообщение отправляется в Kafka.
+     * Если превышен лимит метода, вызов учитывается в сводке медленных вызовов.
      *
      * @param joinPoint точка соединения с методом
      * @return результат выполнения метода
      * @throws Throwable пробрасывает исключение, если метод выбросил его
      */
-
     @Around("@annotation(ru.t1.starter.aop.annotation.Metric)")
     public Object measureExecutionTime(ProceedingJoinPoint joinPoint) throws Throwable {
+        MethodMetric metric = metric(joinPoint);
+        Span span = tracer.startSpan(metric.signature(), SpanKind.INTERNAL);
         long start = System.nanoTime();
-        log.info("Метод {} начинает выполняться", joinPoint.getSignature().getName());
-
-        try {
-            return joinPoint.proceed();
+        boolean success = false;
+        try (Span.Scope ignored = span.makeCurrent()) {
+            Object result = joinPoint.proceed();
+            success = true;
+            return result;
+        } catch (Throwable e) {
+            span.error(e);
+            throw e;
         } finally {
-            long durationMs = (System.nanoTime() - start) / 1_000_000;
+            span.end();
+            long durationNanos = System.nanoTime() - start;
+            (success ? metric.success() : metric.error()).record(durationNanos, TimeUnit.NANOSECONDS);
+
+            if (durationNanos > metric.limitNanos()) {
+                slowCalls.record(metric.signature(), metric.limitMs(),
+                        TimeUnit.NANOSECONDS.toMillis(durationNanos), joinPoint.getArgs());
+            }
+        }
+    }
 
-            if (durationMs > executionLimitMs) {
-                log.warn("Метод {} выполнялся {} мс (превышен лимит {} мс)",
-                        joinPoint.getSignature(), durationMs, executionLimitMs);
+    private MethodMetric metric(ProceedingJoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        MethodMetric metric = metrics.get(method);
+        return metric != null ? metric : metrics.computeIfAbsent(method, m -> create(joinPoint, m));
+    }
 
-                MetricMessage messagePayload = new MetricMessage(
-                        LocalDateTime.now(),
-                        joinPoint.getSignature().toShortString(),
-                        durationMs,
-                        Arrays.toString(joinPoint.getArgs())
-                );
+    private MethodMetric create(ProceedingJoinPoint joinPoint, Method method) {
+        Metric annotation = method.getAnnotation(Metric.class);
+        String name = annotation.name().isEmpty() ? properties.getTimerName() : annotation.name();
+        long limitMs = annotation.limitMs() >= 0 ? annotation.limitMs() : properties.getExecutionLimitMs();
+        String className = joinPoint.getSignature().getDeclaringType().getSimpleName();
 
-                Message<MetricMessage> message = MessageBuilder
-                        .withPayload(messagePayload)
-                        .setHeader(KafkaHeaders.KEY, serviceName)
-                        .setHeader("type", "WARNING")
-                        .setHeader(KafkaHeaders.TOPIC, topic)
-                        .build();
+        log.info("Метрика метода {}.{}: таймер {}, лимит {} мс", className, method.getName(), name, limitMs);
+        return new MethodMetric(
+                joinPoint.getSignature().toShortString(),
+                limitMs,
+                TimeUnit.MILLISECONDS.toNanos(limitMs),
+                timer(name, className, method.getName(), "success"),
+                timer(name, className, method.getName(), "error"));
+    }
 
-                try {
-                    kafkaTemplate.send(message).get();
-                    log.info("Отправлено предупреждение о медленном методе в Kafka: {}", messagePayload);
-                } catch (Exception e) {
-                    log.error("Ошибка при отправке метрики в Kafka", e);
-                }
-            }
-        }
+    private Timer timer(String name, String className, String methodName, String outcome) {
+        return Timer.builder(name)
+                .description("Время выполнения методов с @Metric")
+                .tag("class", className)
+                .tag("method", methodName)
+                .tag("outcome", outcome)
+                .publishPercentiles(properties.getPercentiles().stream().mapToDouble(Double::doubleValue).toArray())
+                .serviceLevelObjectives(properties.getSloMs().stream().map(Duration::ofMillis).toArray(Duration[]::new))
+                .register(meterRegistry);
     }
 
     /**
-     * DTO для Kafka-сообщений о превышении лимита выполнения метода.
-     *
-     * @param timestamp время регистрации события
-     * @param methodSignature сигнатура метода
-     * @param executionTimeMs время выполнения в миллисекундах
-     * @param args аргументы метода в виде строки
+     * @param signature  сигнатура метода для сообщений
+     * @param limitMs    лимит метода
+     * @param limitNanos лимит в наносекундах
+     * @param success    таймер успешных вызовов
+     * @param error      таймер вызовов с исключением
      */
-    private record MetricMessage(
-            LocalDateTime timestamp,
-            String methodSignature,
-            long executionTimeMs,
-            String args
-    ) {}
+    private record MethodMetric(String signature, long limitMs, long limitNanos, Timer success, Timer error) {}
 }
-
@@ -0,0 +1,55 @@
+package ru.t1.starter.aop.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Удаляет из кэша {@link Cached} записи, которые устарели после выполнения метода.
+ * <p>
+ * Ключ строится по той же схеме, что и у {@link Cached}: имя кэшируемого метода {@link #method()}
+ * и его аргументы, вычисленные SpEL-выражениями {@link #key()} по аргументам текущего метода
+ * ({@code #p0}, {@code #a0}, по имени — если классы скомпилированы с {@code -parameters}).
+ * Внутри транзакции удаление выполняется после коммита.
+ * <pre>
+ * &#64;CacheEvict(cacheName = "Product", method = "findByProductId", key = "#p0")
+ * public void deleteProduct(String productId)
+ * </pre>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Repeatable(CacheEvict.List.class)
+public @interface CacheEvict {
+    /**
+     * Имена кэшей; пустое имя — общий кэш.
+     */
+    String[] cacheName() default {""};
+
+    /**
+     * Имя метода, помеченного {@link Cached}. Для общего кэша указывается как
+     * {@code Класс.метод}; без имени класса берётся класс текущего метода.
+     */
+    String method() default "";
+
+    /**
+     * SpEL-выражения аргументов кэшируемого метода (по порядку).
+     * Пусто — метод без аргументов.
+     */
+    String[] key() default {};
+
+    /**
+     * Удалить все записи кэша вместо одного ключа.
+     */
+    boolean allEntries() default false;
+
+    /**
+     * Удалить записи до вызова метода (и независимо от исключения).
+     */
+    boolean beforeInvocation() default false;
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @Documented
+    @interface List {
+        CacheEvict[] value();
+    }
+}
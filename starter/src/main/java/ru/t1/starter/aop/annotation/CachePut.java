@@ -0,0 +1,53 @@
+package ru.t1.starter.aop.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Записывает в кэш {@link Cached} актуальное значение после успешного выполнения метода,
+ * чтобы следующее чтение не обращалось к базе данных.
+ * <p>
+ * Ключ строится так же, как для {@link CacheEvict}: {@link #method()} и аргументы из {@link #key()}.
+ * Значение по умолчанию — результат метода ({@code #result}); {@code null} и пустые результаты
+ * не кэшируются, а удаляют запись. Внутри транзакции запись выполняется после коммита.
+ * <pre>
+ * &#64;CachePut(cacheName = "product", method = "getProductByProductId", key = "#p0")
+ * public Product updateProduct(String productId, ProductRequest request)
+ * </pre>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Repeatable(CachePut.List.class)
+public @interface CachePut {
+    /**
+     * Имена кэшей; пустое имя — общий кэш.
+     */
+    String[] cacheName() default {""};
+
+    /**
+     * Имя метода, помеченного {@link Cached} (для общего кэша — {@code Класс.метод}).
+     */
+    String method();
+
+    /**
+     * SpEL-выражения аргументов кэшируемого метода (по порядку).
+     */
+    String[] key() default {};
+
+    /**
+     * SpEL-выражение значения; доступен {@code #result}.
+     */
+    String value() default "#result";
+
+    /**
+     * Время жизни записи (в миллисекундах); по умолчанию — TTL кэша.
+     */
+    long ttl() default -1;
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @Documented
+    @interface List {
+        CachePut[] value();
+    }
+}
@@ -7,4 +7,10 @@ import java.lang.annotation.*;
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
 public @interface HttpIncomeRequestLog {
+
+    /**
+     * Доля логируемых успешных запросов в процентах (0..100).
+     * По умолчанию ({@code -1}) берётся {@code http-income-log.sample-percent}.
+     */
+    double samplePercent() default -1;
 }
@@ -6,4 +6,16 @@ import java.lang.annotation.*;
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
 public @interface Metric {
+
+    /**
+     * Имя таймера Micrometer. По умолчанию — {@code metric.timer-name};
+     * метод и класс передаются тегами.
+     */
+    String name() default "";
+
+    /**
+     * Порог медленного вызова в миллисекундах.
+     * По умолчанию ({@code -1}) берётся {@code metric.execution-limit-ms}.
+     */
+    long limitMs() default -1;
 }
@@ -0,0 +1,374 @@
+package ru.t1.starter.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+
+/**
+ * Ограниченный по количеству записей кэш с TTL.
+ * <p>
+ * Записи разбиты на сегменты по хэшу ключа; каждый сегмент — LRU {@link LinkedHashMap}
+ * в порядке доступа под собственной блокировкой, поэтому обращения к разным ключам
+ * почти не конкурируют. При превышении {@code maxSize} сегмент вытесняет давно неиспользуемую запись.
+ * Просроченные записи удаляются при чтении и фоновой очисткой {@link #evictExpired()}.
+ * <p>
+ * {@link #get(Object, long, Loader, Object, Predicate)} загружает отсутствующее значение не более
+ * одного раза одновременно: параллельные промахи по тому же ключу ждут общий {@link CompletableFuture}.
+ * Если задан {@code refreshAheadFraction}, запись старше этой доли TTL перезагружается
+ * в фоне, а вызывающие до окончания загрузки получают прежнее значение.
+ */
+@Slf4j
+public class BoundedCache {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 64;
+
+    private final String name;
+    private final long maxSize;
+    private final long ttlMs;
+    private final double refreshAheadFraction;
+    private final Executor refreshExecutor;
+    private final CacheStatsRecorder.CacheStats stats;
+    private final Segment[] segments;
+    private final Map<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * Кэш без фонового обновления записей.
+     */
+    public BoundedCache(String name, long maxSize, long ttlMs, CacheStatsRecorder stats) {
+        this(name, maxSize, ttlMs, 0, null, stats);
+    }
+
+    /**
+     * @param name                 имя кэша (для метрик и логов)
+     * @param maxSize              максимальное количество записей
+     * @param ttlMs                время жизни записи по умолчанию
+     * @param refreshAheadFraction доля TTL, после которой запись перезагружается в фоне ({@code 0} — отключено)
+     * @param refreshExecutor      исполнитель фоновой перезагрузки
+     * @param stats                получатель статистики
+     */
+    public BoundedCache(String name, long maxSize, long ttlMs, double refreshAheadFraction,
+                        Executor refreshExecutor, CacheStatsRecorder stats) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("max-size кэша " + name + " должен быть больше нуля");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        this.refreshAheadFraction = refreshExecutor != null && refreshAheadFraction > 0 && refreshAheadFraction < 1
+                ? refreshAheadFraction : 0;
+        this.refreshExecutor = refreshExecutor;
+        this.stats = stats.forCache(name);
+
+        int segmentCount = Integer.highestOneBit((int) Math.max(1, Math.min(MAX_SEGMENTS, maxSize / MIN_SEGMENT_SIZE)));
+        long segmentSize = (maxSize + segmentCount - 1) / segmentCount;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * @param key ключ
+     * @return значение или {@code null}, если записи нет или она просрочена
+     */
+    public Object get(Object key) {
+        Entry entry = lookup(key, System.currentTimeMillis());
+        return entry != null ? entry.value() : null;
+    }
+
+    /**
+     * Возвращает значение из кэша, при промахе загружая его через {@code loader}.
+     * <p>
+     * Одновременные промахи по одному ключу выполняют {@code loader} один раз; остальные
+     * вызывающие получают тот же результат или то же исключение.
+     *
+     * @param key       ключ
+     * @param ttlMs     время жизни новой записи
+     * @param loader    загрузка значения (вызов целевого метода)
+     * @param context   аргумент {@code loader}: позволяет передавать лямбду без захвата переменных
+     * @param cacheable какие загруженные значения сохранять в кэш ({@code null} не сохраняется никогда)
+     * @return значение из кэша или результат загрузки
+     */
+    public <C> Object get(Object key, long ttlMs, Loader<C> loader, C context,
+                          Predicate<Object> cacheable) throws Throwable {
+        long now = System.currentTimeMillis();
+        Entry entry = lookup(key, now);
+        if (entry != null) {
+            if (now >= entry.refreshAtMs()) {
+                refreshAsync(key, ttlMs, loader, context, cacheable);
+            }
+            return entry.value();
+        }
+
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loading.putIfAbsent(key, own);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            // значение могло быть сохранено, пока мы регистрировали загрузку
+            Entry loaded = peek(key, System.currentTimeMillis());
+            Object value = loaded != null ? loaded.value() : load(key, own, ttlMs, loader, context, cacheable);
+            own.complete(value);
+            return value;
+        } catch (Throwable e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, own);
+        }
+    }
+
+    /**
+     * Сохраняет значение с TTL кэша.
+     */
+    public void put(Object key, Object value) {
+        put(key, value, ttlMs);
+    }
+
+    /**
+     * @param key   ключ
+     * @param value значение (не {@code null})
+     * @param ttlMs время жизни записи
+     */
+    public void put(Object key, Object value, long ttlMs) {
+        Segment segment = segmentFor(key);
+        Entry entry = newEntry(value, ttlMs);
+        synchronized (segment) {
+            segment.entries.put(key, entry);
+            loading.remove(key); // выполняющаяся загрузка не перезапишет новое значение
+        }
+    }
+
+    /**
+     * Удаляет запись по ключу. Выполняющаяся загрузка этого ключа не сохранит свой результат.
+     */
+    public void invalidate(Object key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.entries.remove(key);
+            loading.remove(key);
+        }
+    }
+
+    /**
+     * Удаляет записи, ключ которых имеет указанный {@code hashCode}
+     * (инвалидация, пришедшая с другой реплики, где известен только хэш ключа).
+     *
+     * @return количество удалённых записей
+     */
+    public int invalidateByHash(int keyHash) {
+        Segment segment = segmentForHash(keyHash);
+        int removed = 0;
+        synchronized (segment) {
+            Iterator<Object> iterator = segment.entries.keySet().iterator();
+            while (iterator.hasNext()) {
+                Object key = iterator.next();
+                if (key.hashCode() == keyHash) {
+                    iterator.remove();
+                    loading.remove(key);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Удаляет все записи кэша.
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+            }
+        }
+        loading.clear();
+    }
+
+    /**
+     * Удаляет все просроченные записи.
+     *
+     * @return количество удалённых записей
+     */
+    public int evictExpired() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                Iterator<Entry> iterator = segment.entries.values().iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().expiresAtMs() <= now) {
+                        iterator.remove();
+                        evicted++;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < evicted; i++) {
+            stats.recordEviction(CacheStatsRecorder.EvictionCause.EXPIRED);
+        }
+        return evicted;
+    }
+
+    /**
+     * @return текущее количество записей (включая ещё не удалённые просроченные)
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTtlMs() {
+        return ttlMs;
+    }
+
+    private Entry lookup(Object key, long now) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            Entry entry = segment.entries.get(key);
+            if (entry != null && entry.expiresAtMs() > now) {
+                stats.recordHit();
+                return entry;
+            }
+            if (entry != null) {
+                segment.entries.remove(key);
+                stats.recordEviction(CacheStatsRecorder.EvictionCause.EXPIRED);
+            }
+        }
+        stats.recordMiss();
+        return null;
+    }
+
+    /**
+     * Чтение без учёта в статистике.
+     */
+    private Entry peek(Object key, long now) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            Entry entry = segment.entries.get(key);
+            return entry != null && entry.expiresAtMs() > now ? entry : null;
+        }
+    }
+
+    /**
+     * Выполняет загрузку и сохраняет результат, только если её не отменил {@link #invalidate(Object)}:
+     * иначе значение, прочитанное до изменения данных, попало бы в кэш уже после инвалидации.
+     */
+    private <C> Object load(Object key, CompletableFuture<Object> own, long ttlMs, Loader<C> loader, C context,
+                            Predicate<Object> cacheable) throws Throwable {
+        Object value = loader.load(context);
+        log.debug("Загружено значение для кэша [{}] по ключу {}", name, key);
+        boolean store = value != null && cacheable.test(value);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            if (loading.get(key) == own) {
+                if (store) {
+                    segment.entries.put(key, newEntry(value, ttlMs));
+                } else {
+                    segment.entries.remove(key);
+                }
+            }
+        }
+        return value;
+    }
+
+    private <C> void refreshAsync(Object key, long ttlMs, Loader<C> loader, C context, Predicate<Object> cacheable) {
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        if (loading.putIfAbsent(key, own) != null) {
+            return; // уже загружается
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    own.complete(load(key, own, ttlMs, loader, context, cacheable));
+                } catch (Throwable e) {
+                    own.completeExceptionally(e);
+                    log.warn("Не удалось обновить запись кэша [{}] для ключа {}: {}", name, key, e.getMessage());
+                } finally {
+                    loading.remove(key, own);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loading.remove(key, own);
+            own.completeExceptionally(e);
+        }
+    }
+
+    private Entry newEntry(Object value, long ttlMs) {
+        long now = System.currentTimeMillis();
+        long refreshAtMs = refreshAheadFraction > 0 ? now + (long) (ttlMs * refreshAheadFraction) : Long.MAX_VALUE;
+        return new Entry(value, now + ttlMs, refreshAtMs);
+    }
+
+    private static Object await(CompletableFuture<Object> future) throws Throwable {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    private Segment segmentFor(Object key) {
+        return segmentForHash(key.hashCode());
+    }
+
+    private Segment segmentForHash(int h) {
+        h ^= (h >>> 16);
+        return segments[h & (segments.length - 1)];
+    }
+
+    private final class Segment {
+
+        private final Map<Object, Entry> entries;
+
+        private Segment(long capacity) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                    if (size() > capacity) {
+                        stats.recordEviction(CacheStatsRecorder.EvictionCause.SIZE);
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    /**
+     * Загрузка значения при промахе.
+     */
+    @FunctionalInterface
+    public interface Loader<C> {
+        Object load(C context) throws Throwable;
+    }
+
+    private record Entry(Object value, long expiresAtMs, long refreshAtMs) {
+    }
+}
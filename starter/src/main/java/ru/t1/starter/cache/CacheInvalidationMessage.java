@@ -0,0 +1,24 @@
+package ru.t1.starter.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Пачка инвалидаций одной реплики для топика {@code cache.invalidation.topic}.
+ * Ключи передаются только хэшами ({@code hashCode()} ключа {@link ru.t1.starter.aop.annotation.Cached}).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidationMessage {
+    /** Идентификатор реплики-отправителя (свои сообщения она пропускает). */
+    private String origin;
+    /** Хэши удалённых ключей по имени кэша. */
+    private Map<String, Set<Integer>> keys;
+    /** Полностью очищенные кэши. */
+    private Set<String> cleared;
+}
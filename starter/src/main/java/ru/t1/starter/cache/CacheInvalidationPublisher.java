@@ -0,0 +1,24 @@
+package ru.t1.starter.cache;
+
+/**
+ * Получатель удалений из кэша, которые нужно повторить на других репликах сервиса.
+ */
+public interface CacheInvalidationPublisher {
+
+    /** Реализация без рассылки (одна реплика или {@code cache.invalidation.enabled=false}). */
+    CacheInvalidationPublisher NOOP = new CacheInvalidationPublisher() {
+    };
+
+    /**
+     * @param cacheName имя кэша ({@code ""} — общий кэш)
+     * @param key       удалённый или перезаписанный ключ
+     */
+    default void keyInvalidated(String cacheName, Object key) {
+    }
+
+    /**
+     * @param cacheName очищенный кэш ({@code ""} — общий кэш)
+     */
+    default void cacheCleared(String cacheName) {
+    }
+}
@@ -0,0 +1,121 @@
+package ru.t1.starter.cache;
+
+import java.util.Arrays;
+
+/**
+ * Ключ записи кэша {@link ru.t1.starter.aop.annotation.Cached}: идентификатор метода и его аргументы.
+ * <p>
+ * Для типичных репозиторных поисков с одним аргументом используются компактные ключи
+ * {@link LongKey} и {@link StringKey} без массивов и списков; остальные вызовы — {@link ArgsKey}.
+ * Вид ключа определяется по фактическим аргументам, поэтому {@code @Cached}, {@code @CacheEvict}
+ * и {@code @CachePut} для одного метода и аргументов всегда получают равные ключи.
+ * Хэш зависит только от строк и значений аргументов и совпадает на всех репликах.
+ */
+public abstract sealed class CacheKey permits CacheKey.LongKey, CacheKey.StringKey, CacheKey.ArgsKey {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    /** Идентификатор метода: имя для именованных кэшей, {@code Класс.метод} для общего. */
+    final String method;
+    private final int hash;
+
+    private CacheKey(String method, int valueHash) {
+        this.method = method;
+        this.hash = 31 * method.hashCode() + valueHash;
+    }
+
+    /**
+     * @param method идентификатор метода
+     * @param args   аргументы вызова
+     * @return ключ записи
+     */
+    public static CacheKey of(String method, Object[] args) {
+        if (args.length == 1) {
+            Object arg = args[0];
+            if (arg instanceof Long value) {
+                return new LongKey(method, value);
+            }
+            if (arg instanceof String value) {
+                return new StringKey(method, value);
+            }
+        }
+        return new ArgsKey(method, args);
+    }
+
+    /**
+     * @param method идентификатор метода без аргументов
+     * @return ключ, который можно вычислить один раз и переиспользовать
+     */
+    public static CacheKey noArgs(String method) {
+        return new ArgsKey(method, NO_ARGS);
+    }
+
+    @Override
+    public final int hashCode() {
+        return hash;
+    }
+
+    boolean sameMethod(CacheKey other) {
+        return hash == other.hash && (method == other.method || method.equals(other.method));
+    }
+
+    /** Ключ метода с единственным аргументом {@code Long}. */
+    public static final class LongKey extends CacheKey {
+        private final long value;
+
+        LongKey(String method, long value) {
+            super(method, Long.hashCode(value));
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof LongKey other && value == other.value && sameMethod(other);
+        }
+
+        @Override
+        public String toString() {
+            return method + "(" + value + ")";
+        }
+    }
+
+    /** Ключ метода с единственным аргументом {@code String}. */
+    public static final class StringKey extends CacheKey {
+        private final String value;
+
+        StringKey(String method, String value) {
+            super(method, value.hashCode());
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof StringKey other && sameMethod(other) && value.equals(other.value);
+        }
+
+        @Override
+        public String toString() {
+            return method + "(" + value + ")";
+        }
+    }
+
+    /** Ключ с произвольными аргументами; сравнивается поэлементно. */
+    public static final class ArgsKey extends CacheKey {
+        private final Object[] args;
+
+        ArgsKey(String method, Object[] args) {
+            super(method, Arrays.hashCode(args));
+            this.args = args;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof ArgsKey other && sameMethod(other) && Arrays.equals(args, other.args);
+        }
+
+        @Override
+        public String toString() {
+            return method + Arrays.toString(args);
+        }
+    }
+}
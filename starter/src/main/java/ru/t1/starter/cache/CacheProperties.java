@@ -0,0 +1,98 @@
+package ru.t1.starter.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Настройки кэшей аннотации {@link ru.t1.starter.aop.annotation.Cached} ({@code cache.*}).
+ * <p>
+ * Глобальные {@code ttl-ms} и {@code max-size} применяются ко всем кэшам,
+ * для которых нет отдельной секции {@code cache.caches.<name>}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cache")
+public class CacheProperties {
+
+    /** Время жизни записи по умолчанию. */
+    private long ttlMs = 60_000;
+
+    /** Максимальное количество записей в одном кэше по умолчанию. */
+    private long maxSize = 10_000;
+
+    /**
+     * Доля TTL, после которой запись перезагружается в фоне, пока вызывающие получают прежнее значение
+     * ({@code 0} — без фонового обновления, запись просто истекает).
+     */
+    private double refreshAheadFraction = 0;
+
+    /** Период фоновой очистки просроченных записей. */
+    private long sweepIntervalMs = 30_000;
+
+    /** Настройки отдельных кэшей по {@code cacheName} (общий кэш — {@code common}). */
+    private Map<String, Spec> caches = new HashMap<>();
+
+    /** Рассылка инвалидаций между репликами сервиса. */
+    private Invalidation invalidation = new Invalidation();
+
+    /**
+     * @param cacheName имя кэша
+     * @return настройки кэша с подставленными глобальными значениями
+     */
+    public Spec specFor(String cacheName) {
+        Spec spec = caches.get(cacheName);
+        if (spec == null) {
+            // ключи map в yml без [] Spring приводит к нижнему регистру
+            spec = caches.get(cacheName.toLowerCase(Locale.ROOT));
+        }
+        Spec resolved = new Spec();
+        resolved.setMaxSize(spec != null && spec.getMaxSize() > 0 ? spec.getMaxSize() : maxSize);
+        resolved.setTtlMs(spec != null && spec.getTtlMs() > 0 ? spec.getTtlMs() : ttlMs);
+        resolved.setRefreshAheadFraction(spec != null && spec.getRefreshAheadFraction() != null
+                ? spec.getRefreshAheadFraction() : refreshAheadFraction);
+        return resolved;
+    }
+
+    @Getter
+    @Setter
+    public static class Spec {
+
+        /** Максимальное количество записей; при превышении вытесняются давно неиспользуемые. */
+        private long maxSize;
+
+        /** Время жизни записи. */
+        private long ttlMs;
+
+        /** Доля TTL для фонового обновления; если не задана, берётся глобальная. */
+        private Double refreshAheadFraction;
+    }
+
+    @Getter
+    @Setter
+    public static class Invalidation {
+
+        /** Публиковать удаления из кэша в Kafka и применять удаления других реплик. */
+        private boolean enabled = false;
+
+        /** Топик инвалидаций. */
+        private String topic = "cache_invalidation";
+
+        /** Период отправки накопленных инвалидаций одним сообщением. */
+        private long flushIntervalMs = 100;
+
+        /** Максимум ключей в одном сообщении; при достижении пачка отправляется сразу. */
+        private int maxBatchSize = 500;
+
+        /**
+         * Постоянный идентификатор реплики: из него строится consumer group, поэтому перезапуск
+         * не оставляет в брокере брошенных групп. Если не задан — {@code spring.application.name}
+         * и имя хоста.
+         */
+        private String instanceId;
+    }
+}
@@ -0,0 +1,100 @@
+package ru.t1.starter.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Реестр кэшей аннотации {@link ru.t1.starter.aop.annotation.Cached}.
+ * <p>
+ * Кэш создаётся при первом обращении по имени с настройками из {@link CacheProperties}.
+ * Фоновый поток раз в {@code cache.sweep-interval-ms} удаляет просроченные записи,
+ * чтобы холодные ключи не занимали память до следующего чтения.
+ * Фоновое обновление записей (refresh-ahead) выполняется на виртуальных потоках.
+ */
+@Slf4j
+public class CacheRegistry implements AutoCloseable {
+
+    /** Имя общего кэша (аннотация без {@code cacheName}). */
+    public static final String COMMON = "common";
+
+    private final CacheProperties properties;
+    private final CacheStatsRecorder stats;
+    private final Map<String, BoundedCache> caches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cached-expiry-sweep");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService refreshExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("cached-refresh-", 0).factory());
+
+    public CacheRegistry(CacheProperties properties, CacheStatsRecorder stats) {
+        this.properties = properties;
+        this.stats = stats;
+        long interval = properties.getSweepIntervalMs();
+        if (interval > 0) {
+            sweeper.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @param cacheName имя кэша ({@code ""} — общий кэш)
+     * @return кэш с указанным именем
+     */
+    public BoundedCache getCache(String cacheName) {
+        String name = cacheName.isEmpty() ? COMMON : cacheName;
+        BoundedCache cache = caches.get(name);
+        return cache != null ? cache : caches.computeIfAbsent(name, this::create);
+    }
+
+    /**
+     * @param cacheName имя кэша ({@code ""} — общий кэш)
+     * @return уже созданный кэш или {@code null}
+     */
+    public BoundedCache findCache(String cacheName) {
+        return caches.get(cacheName.isEmpty() ? COMMON : cacheName);
+    }
+
+    public Collection<BoundedCache> getCaches() {
+        return caches.values();
+    }
+
+    /**
+     * Удаляет просроченные записи во всех кэшах.
+     */
+    public void sweep() {
+        for (BoundedCache cache : caches.values()) {
+            try {
+                int evicted = cache.evictExpired();
+                if (evicted > 0) {
+                    log.debug("Из кэша [{}] удалено {} просроченных записей", cache.getName(), evicted);
+                }
+            } catch (Exception e) {
+                log.warn("Ошибка очистки кэша [{}]: {}", cache.getName(), e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        refreshExecutor.shutdownNow();
+    }
+
+    private BoundedCache create(String name) {
+        CacheProperties.Spec spec = properties.specFor(name);
+        BoundedCache cache = new BoundedCache(name, spec.getMaxSize(), spec.getTtlMs(),
+                spec.getRefreshAheadFraction(), refreshExecutor, stats);
+        stats.registerCache(cache);
+        log.info("Создан кэш [{}]: max-size={}, ttl-ms={}, refresh-ahead-fraction={}",
+                name, spec.getMaxSize(), spec.getTtlMs(), spec.getRefreshAheadFraction());
+        return cache;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.t1.starter.cache;
+
+/**
+ * Получатель статистики обращений к {@link BoundedCache}.
+ */
+public interface CacheStatsRecorder {
+
+    /** Реализация без сбора статистики (нет {@code MeterRegistry} в контексте). */
+    CacheStatsRecorder NOOP = new CacheStatsRecorder() {
+    };
+
+    /**
+     * Вызывается при создании кэша (например, для регистрации gauge размера).
+     */
+    default void registerCache(BoundedCache cache) {
+    }
+
+    /**
+     * Возвращает счётчики одного кэша. Вызывается один раз при создании кэша,
+     * поэтому на каждое обращение к кэшу не тратится поиск метрики по имени.
+     *
+     * @param cacheName имя кэша
+     * @return счётчики кэша
+     */
+    default CacheStats forCache(String cacheName) {
+        return CacheStats.NOOP;
+    }
+
+    /**
+     * Счётчики одного кэша.
+     */
+    interface CacheStats {
+
+        CacheStats NOOP = new CacheStats() {
+        };
+
+        default void recordHit() {
+        }
+
+        default void recordMiss() {
+        }
+
+        /**
+         * @param cause причина вытеснения
+         */
+        default void recordEviction(EvictionCause cause) {
+        }
+    }
+
+    enum EvictionCause {
+        /** Превышен {@code max-size}, удалена давно неиспользуемая запись. */
+        SIZE,
+        /** Истёк TTL записи. */
+        EXPIRED
+    }
+}
@@ -0,0 +1,214 @@
+package ru.t1.starter.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.KafkaMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шина инвалидаций кэша между репликами сервиса через Kafka.
+ * <p>
+ * Удаления и перезаписи ключей, выполненные {@link ru.t1.starter.aop.CachedAspect}, копятся
+ * в множестве (повторы одного ключа схлопываются) и раз в {@code cache.invalidation.flush-interval-ms}
+ * отправляются одним сообщением {@link CacheInvalidationMessage} через общий {@link KafkaTemplate}.
+ * Массовое обновление поэтому даёт несколько сообщений, а не одно на каждую запись.
+ * <p>
+ * Каждая реплика читает топик в собственной consumer group ({@code cache-invalidation-<instance-id>},
+ * идентификатор постоянный между перезапусками) и удаляет у себя записи с указанными хэшами ключей;
+ * собственные сообщения пропускаются.
+ */
+@Slf4j
+public class KafkaCacheInvalidationBus implements CacheInvalidationPublisher, SmartLifecycle {
+
+    private final CacheRegistry cacheRegistry;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final CacheProperties.Invalidation properties;
+    private final Map<String, Object> consumerProperties;
+    /** Постоянный идентификатор реплики для consumer group. */
+    private final String instanceId;
+    /** Идентификатор запуска: отличает собственные сообщения от сообщений других реплик. */
+    private final String origin = UUID.randomUUID().toString();
+
+    private final Object lock = new Object();
+    private Map<String, Set<Integer>> pendingKeys = new HashMap<>();
+    private Set<String> pendingCleared = new HashSet<>();
+    private int pendingCount;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cache-invalidation-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private KafkaMessageListenerContainer<String, CacheInvalidationMessage> container;
+    private volatile boolean running;
+
+    /**
+     * @param cacheRegistry      локальные кэши
+     * @param kafkaTemplate      шаблон, общий с остальными аспектами стартера
+     * @param properties         настройки {@code cache.invalidation.*}
+     * @param consumerProperties базовые свойства консьюмера ({@code spring.kafka.consumer.*})
+     * @param instanceId         постоянный идентификатор реплики
+     */
+    public KafkaCacheInvalidationBus(CacheRegistry cacheRegistry, KafkaTemplate<String, Object> kafkaTemplate,
+                                     CacheProperties.Invalidation properties, Map<String, Object> consumerProperties,
+                                     String instanceId) {
+        this.cacheRegistry = cacheRegistry;
+        this.kafkaTemplate = kafkaTemplate;
+        this.properties = properties;
+        this.consumerProperties = consumerProperties;
+        this.instanceId = instanceId;
+    }
+
+    @Override
+    public void keyInvalidated(String cacheName, Object key) {
+        boolean full;
+        synchronized (lock) {
+            if (pendingKeys.computeIfAbsent(normalize(cacheName), k -> new HashSet<>()).add(key.hashCode())) {
+                pendingCount++;
+            }
+            full = pendingCount >= properties.getMaxBatchSize();
+        }
+        if (full) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // остановка: накопленное отправит stop()
+            }
+        }
+    }
+
+    @Override
+    public void cacheCleared(String cacheName) {
+        synchronized (lock) {
+            String name = normalize(cacheName);
+            pendingCleared.add(name);
+            Set<Integer> keys = pendingKeys.remove(name); // очистка кэша покрывает отдельные ключи
+            if (keys != null) {
+                pendingCount -= keys.size();
+            }
+        }
+    }
+
+    /**
+     * Отправляет накопленные инвалидации одним сообщением.
+     */
+    public void flush() {
+        CacheInvalidationMessage message;
+        synchronized (lock) {
+            if (pendingKeys.isEmpty() && pendingCleared.isEmpty()) {
+                return;
+            }
+            message = new CacheInvalidationMessage(origin, pendingKeys, pendingCleared);
+            pendingKeys = new HashMap<>();
+            pendingCleared = new HashSet<>();
+            pendingCount = 0;
+        }
+        try {
+            kafkaTemplate.send(properties.getTopic(), origin, message).whenComplete((result, ex) -> {
+                if (ex != null) {
+                    log.error("Не удалось отправить инвалидации кэша в {}: {}", properties.getTopic(), ex.getMessage());
+                }
+            });
+        } catch (Exception e) {
+            log.error("Не удалось отправить инвалидации кэша в {}: {}", properties.getTopic(), e.getMessage());
+        }
+    }
+
+    /**
+     * Применяет инвалидации другой реплики к локальным кэшам.
+     */
+    void apply(CacheInvalidationMessage message) {
+        if (message == null || origin.equals(message.getOrigin())) {
+            return;
+        }
+        if (message.getCleared() != null) {
+            for (String cacheName : message.getCleared()) {
+                BoundedCache cache = cacheRegistry.findCache(cacheName);
+                if (cache != null) {
+                    cache.invalidateAll();
+                }
+            }
+        }
+        if (message.getKeys() != null) {
+            int removed = 0;
+            for (Map.Entry<String, Set<Integer>> entry : message.getKeys().entrySet()) {
+                BoundedCache cache = cacheRegistry.findCache(entry.getKey());
+                if (cache == null) {
+                    continue;
+                }
+                for (Integer keyHash : entry.getValue()) {
+                    removed += cache.invalidateByHash(keyHash);
+                }
+            }
+            log.debug("Применены инвалидации реплики {}: удалено {} записей", message.getOrigin(), removed);
+        }
+    }
+
+    @Override
+    public void start() {
+        Map<String, Object> props = new HashMap<>(consumerProperties);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        JsonDeserializer<CacheInvalidationMessage> valueDeserializer =
+                new JsonDeserializer<>(CacheInvalidationMessage.class, false);
+        valueDeserializer.addTrustedPackages(CacheInvalidationMessage.class.getPackageName());
+
+        ContainerProperties containerProperties = new ContainerProperties(properties.getTopic());
+        // своя группа у каждой реплики: сообщение должны получить все экземпляры сервиса;
+        // идентификатор постоянный, поэтому перезапуски не плодят группы в брокере
+        containerProperties.setGroupId("cache-invalidation-" + instanceId);
+        containerProperties.setMessageListener((MessageListener<String, CacheInvalidationMessage>) record -> {
+            try {
+                apply(record.value());
+            } catch (Exception e) {
+                log.warn("Ошибка применения инвалидаций кэша: {}", e.getMessage());
+            }
+        });
+
+        container = new KafkaMessageListenerContainer<>(
+                new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), valueDeserializer),
+                containerProperties);
+        container.setBeanName("cacheInvalidationContainer");
+        container.start();
+
+        long interval = properties.getFlushIntervalMs();
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        flusher.shutdown();
+        flush();
+        if (container != null) {
+            container.stop();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private static String normalize(String cacheName) {
+        return cacheName.isEmpty() ? CacheRegistry.COMMON : cacheName;
+    }
+}
@@ -0,0 +1,65 @@
+package ru.t1.starter.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Публикует статистику кэшей в Micrometer:
+ * {@code cached_gets_total{cache, result=hit|miss}},
+ * {@code cached_evictions_total{cache, cause=size|expired}} и {@code cached_size{cache}}.
+ * <p>
+ * Счётчики регистрируются один раз при создании кэша и хранятся в самом кэше.
+ */
+public class MicrometerCacheStatsRecorder implements CacheStatsRecorder {
+
+    private final MeterRegistry registry;
+
+    public MicrometerCacheStatsRecorder(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void registerCache(BoundedCache cache) {
+        Gauge.builder("cached.size", cache, BoundedCache::size)
+                .tag("cache", cache.getName())
+                .register(registry);
+    }
+
+    @Override
+    public CacheStats forCache(String cacheName) {
+        Counter hits = counter("cached.gets", cacheName, "result", "hit");
+        Counter misses = counter("cached.gets", cacheName, "result", "miss");
+        Map<EvictionCause, Counter> evictions = new EnumMap<>(EvictionCause.class);
+        for (EvictionCause cause : EvictionCause.values()) {
+            evictions.put(cause, counter("cached.evictions", cacheName, "cause", cause.name().toLowerCase(Locale.ROOT)));
+        }
+        return new CacheStats() {
+            @Override
+            public void recordHit() {
+                hits.increment();
+            }
+
+            @Override
+            public void recordMiss() {
+                misses.increment();
+            }
+
+            @Override
+            public void recordEviction(EvictionCause cause) {
+                evictions.get(cause).increment();
+            }
+        };
+    }
+
+    private Counter counter(String name, String cacheName, String tag, String value) {
+        return Counter.builder(name)
+                .tag("cache", cacheName)
+                .tag(tag, value)
+                .register(registry);
+    }
+}
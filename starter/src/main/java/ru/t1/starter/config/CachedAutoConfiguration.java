@@ -1,19 +1,99 @@
 package ru.t1.starter.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.util.StringUtils;
 import ru.t1.starter.aop.CachedAspect;
+import ru.t1.starter.cache.CacheInvalidationPublisher;
+import ru.t1.starter.cache.CacheProperties;
+import ru.t1.starter.cache.CacheRegistry;
+import ru.t1.starter.cache.CacheStatsRecorder;
+import ru.t1.starter.cache.KafkaCacheInvalidationBus;
+import ru.t1.starter.cache.MicrometerCacheStatsRecorder;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 
 @AutoConfiguration
 @Configuration
 @ConditionalOnClass(CachedAspect.class)
+@EnableConfigurationProperties(CacheProperties.class)
 public class CachedAutoConfiguration {
     @Bean
     @ConditionalOnMissingBean
-    public CachedAspect cachedAspect() {
-        return new CachedAspect();
+    public CacheStatsRecorder cacheStatsRecorder(ObjectProvider<MeterRegistry> meterRegistry) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        return registry != null ? new MicrometerCacheStatsRecorder(registry) : CacheStatsRecorder.NOOP;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CacheRegistry cacheRegistry(CacheProperties cacheProperties, CacheStatsRecorder cacheStatsRecorder) {
+        return new CacheRegistry(cacheProperties, cacheStatsRecorder);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CachedAspect cachedAspect(CacheRegistry cacheRegistry,
+                                     ObjectProvider<CacheInvalidationPublisher> invalidationPublisher) {
+        return new CachedAspect(cacheRegistry, invalidationPublisher.getIfAvailable(() -> CacheInvalidationPublisher.NOOP));
+    }
+
+    /**
+     * Рассылка инвалидаций между репликами ({@code cache.invalidation.enabled=true}).
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "cache.invalidation", name = "enabled", havingValue = "true")
+    static class InvalidationBusConfiguration {
+        @Bean
+        @ConditionalOnMissingBean(CacheInvalidationPublisher.class)
+        public KafkaCacheInvalidationBus cacheInvalidationBus(CacheRegistry cacheRegistry,
+                                                              KafkaTemplate<String, Object> kafkaTemplate,
+                                                              CacheProperties cacheProperties,
+                                                              KafkaProperties kafkaProperties,
+                                                              Environment environment) {
+            return new KafkaCacheInvalidationBus(cacheRegistry, kafkaTemplate, cacheProperties.getInvalidation(),
+                    kafkaProperties.buildConsumerProperties(null),
+                    instanceId(cacheProperties.getInvalidation(), environment));
+        }
+
+        /**
+         * {@code cache.invalidation.instance-id}, иначе {@code spring.application.name} и имя хоста
+         * (имя сервиса не даёт разным сервисам на одном хосте делить consumer group).
+         */
+        static String instanceId(CacheProperties.Invalidation invalidation, Environment environment) {
+            if (StringUtils.hasText(invalidation.getInstanceId())) {
+                return invalidation.getInstanceId();
+            }
+            String host;
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                host = environment.getProperty("HOSTNAME", "localhost");
+            }
+            String application = environment.getProperty("spring.application.name");
+            return StringUtils.hasText(application) ? application + "-" + host : host;
+        }
+
+        @Bean
+        public NewTopic cacheInvalidationTopic(CacheProperties cacheProperties) {
+            return TopicBuilder.name(cacheProperties.getInvalidation().getTopic())
+                    .partitions(1)
+                    .replicas(1)
+                    .config("retention.ms", "3600000") // инвалидации нужны только работающим репликам
+                    .build();
+        }
     }
-}
\ No newline at end of file
+}
@@ -6,8 +6,9 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.kafka.core.KafkaTemplate;
 import ru.t1.starter.aop.HttpOutcomeRequestLogAspect;
+import ru.t1.starter.log.LogPipeline;
+import ru.t1.starter.log.LogPipeline;
 
 @Slf4j
 @AutoConfiguration
@@ -17,8 +18,8 @@ public class HttpOutcomeRequestLoggingAutoConfiguration {
     @Bean
     @ConditionalOnMissingBean
     public HttpOutcomeRequestLogAspect httpOutcomeRequestLogAspect(
-            KafkaTemplate<String, Object> kafkaTemplate
+            LogPipeline logPipeline
     ) {
-        return new HttpOutcomeRequestLogAspect(kafkaTemplate);
+        return new HttpOutcomeRequestLogAspect(logPipeline);
     }
 }
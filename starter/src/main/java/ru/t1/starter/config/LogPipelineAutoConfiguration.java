@@ -0,0 +1,72 @@
+package ru.t1.starter.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import ru.t1.starter.log.LogPipeline;
+import ru.t1.starter.log.LogPipelineProperties;
+import ru.t1.starter.log.LogSpool;
+import ru.t1.starter.log.LogSpoolDrainer;
+import ru.t1.starter.repository.ErrorLogBatchRepository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@AutoConfiguration
+@Configuration
+@ConditionalOnClass(LogPipeline.class)
+@EnableConfigurationProperties(LogPipelineProperties.class)
+public class LogPipelineAutoConfiguration {
+    @Bean
+    @ConditionalOnMissingBean
+    public LogPipeline logPipeline(
+            KafkaTemplate<String, Object> kafkaTemplate,
+            LogPipelineProperties properties,
+            @Value("${app.kafka.topics.service-logs}") String topic,
+            @Value("${app.service-name}") String serviceName,
+            ObjectProvider<LogSpoolDrainer> logSpoolDrainer,
+            ObjectProvider<MeterRegistry> meterRegistry
+    ) {
+        return new LogPipeline(kafkaTemplate, properties, topic, serviceName, logSpoolDrainer.getIfAvailable(),
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    @Configuration
+    @ConditionalOnProperty(prefix = "log-pipeline.spool", name = "enabled", havingValue = "true", matchIfMissing = true)
+    static class LogSpoolConfiguration {
+        @Bean(destroyMethod = "close")
+        @ConditionalOnMissingBean
+        public LogSpool logSpool(LogPipelineProperties properties) throws IOException {
+            LogPipelineProperties.Spool spool = properties.getSpool();
+            return new LogSpool(Path.of(spool.getPath()), spool.getMaxSizeBytes());
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        public LogSpoolDrainer logSpoolDrainer(
+                LogSpool logSpool,
+                KafkaTemplate<String, Object> kafkaTemplate,
+                ObjectProvider<JdbcTemplate> jdbcTemplate,
+                LogPipelineProperties properties,
+                @Value("${app.kafka.topics.service-logs}") String topic,
+                @Value("${app.service-name}") String serviceName,
+                ObjectProvider<MeterRegistry> meterRegistry
+        ) {
+            JdbcTemplate template = jdbcTemplate.getIfAvailable();
+            return new LogSpoolDrainer(logSpool, kafkaTemplate,
+                    template != null ? new ErrorLogBatchRepository(template) : null,
+                    properties.getSpool(), topic, serviceName,
+                    meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+        }
+    }
+}
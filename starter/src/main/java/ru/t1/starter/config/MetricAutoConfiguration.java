@@ -1,20 +1,40 @@
 package ru.t1.starter.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.kafka.core.KafkaTemplate;
 import ru.t1.starter.aop.MetricAspect;
+import ru.t1.starter.log.LogPipeline;
+import ru.t1.starter.metric.MetricProperties;
+import ru.t1.starter.metric.SlowCallAggregator;
+import ru.t1.starter.trace.Tracer;
 
 @AutoConfiguration
 @Configuration
 @ConditionalOnClass(MetricAspect.class)
+@EnableConfigurationProperties(MetricProperties.class)
 public class MetricAutoConfiguration {
     @Bean
     @ConditionalOnMissingBean
-    public MetricAspect metricAspect(KafkaTemplate<String, Object> kafkaTemplate) {
-        return new MetricAspect(kafkaTemplate);
+    public SlowCallAggregator slowCallAggregator(LogPipeline logPipeline, MetricProperties properties) {
+        return new SlowCallAggregator(logPipeline, properties.getAlertWindowMs());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public MetricAspect metricAspect(
+            ObjectProvider<MeterRegistry> meterRegistry,
+            MetricProperties properties,
+            SlowCallAggregator slowCallAggregator,
+            Tracer tracer
+    ) {
+        return new MetricAspect(meterRegistry.getIfAvailable(SimpleMeterRegistry::new), properties,
+                slowCallAggregator, tracer);
     }
 }
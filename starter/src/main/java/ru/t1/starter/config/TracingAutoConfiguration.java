@@ -0,0 +1,55 @@
+package ru.t1.starter.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.RecordInterceptor;
+import ru.t1.starter.trace.JsonFileSpanExporter;
+import ru.t1.starter.trace.SpanExporter;
+import ru.t1.starter.trace.Tracer;
+import ru.t1.starter.trace.TracingBatchInterceptor;
+import ru.t1.starter.trace.TracingProperties;
+import ru.t1.starter.trace.TracingRecordInterceptor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@AutoConfiguration
+@Configuration
+@ConditionalOnClass(Tracer.class)
+@EnableConfigurationProperties(TracingProperties.class)
+public class TracingAutoConfiguration {
+    @Bean
+    @ConditionalOnMissingBean
+    public SpanExporter spanExporter(TracingProperties properties) throws IOException {
+        if (!properties.isEnabled()) {
+            return SpanExporter.NOOP;
+        }
+        return new JsonFileSpanExporter(Path.of(properties.getExportPath()), properties.getQueueCapacity(),
+                properties.getMaxFileBytes());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public Tracer tracer(SpanExporter spanExporter, TracingProperties properties,
+                         @Value("${app.service-name}") String serviceName) {
+        return new Tracer(spanExporter, serviceName, properties.getSampleRatio());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RecordInterceptor<Object, Object> tracingRecordInterceptor(Tracer tracer) {
+        return new TracingRecordInterceptor(tracer);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BatchInterceptor<Object, Object> tracingBatchInterceptor(Tracer tracer) {
+        return new TracingBatchInterceptor(tracer);
+    }
+}
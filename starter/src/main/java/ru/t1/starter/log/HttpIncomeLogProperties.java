@@ -0,0 +1,39 @@
+package ru.t1.starter.log;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Настройки логирования входящих HTTP-запросов {@link ru.t1.starter.aop.annotation.HttpIncomeRequestLog}
+ * ({@code http-income-log.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "http-income-log")
+public class HttpIncomeLogProperties {
+
+    /** Доля логируемых успешных запросов в процентах (0..100). */
+    private double samplePercent = 100;
+
+    /**
+     * Доля логируемых запросов для отдельных эндпоинтов по ключу {@code Контроллер.метод};
+     * важнее значения в аннотации.
+     */
+    private Map<String, Double> endpoints = new HashMap<>();
+
+    /** Максимум логируемых успешных запросов в секунду на сервис ({@code 0} — без ограничения). */
+    private double rateLimitPerSecond = 0;
+
+    /** Сколько запросов можно залогировать подряд сверх средней частоты. */
+    private int rateLimitBurst = 50;
+
+    /** Запросы дольше порога логируются всегда ({@code 0} — правило выключено). */
+    private long slowThresholdMs = 1000;
+
+    /** Логировать все запросы, завершившиеся исключением. */
+    private boolean alwaysLogErrors = true;
+}
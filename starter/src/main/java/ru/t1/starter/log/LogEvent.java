@@ -0,0 +1,15 @@
+package ru.t1.starter.log;
+
+/**
+ * Событие для топика логов сервисов.
+ *
+ * @param type       тип сообщения (заголовок {@code type}: INFO, WARNING, ERROR)
+ * @param payload    тело сообщения
+ * @param enqueuedAt момент постановки в очередь ({@link System#nanoTime()})
+ */
+public record LogEvent(String type, Object payload, long enqueuedAt) {
+
+    public LogEvent(String type, Object payload) {
+        this(type, payload, System.nanoTime());
+    }
+}
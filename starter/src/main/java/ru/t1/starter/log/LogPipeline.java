@@ -0,0 +1,239 @@
+package ru.t1.starter.log;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронная отправка логов аспектов стартера в топик логов сервисов.
+ * <p>
+ * Аспекты только кладут событие в {@link LogRingBuffer} и сразу возвращают управление бизнес-потоку.
+ * Фоновый поток забирает события пачками до {@code batch-size} и отправляет их через
+ * {@link KafkaTemplate} без ожидания подтверждения; пакетирование на уровне брокера выполняет
+ * сам продюсер. Неудачные отправки тем же фоновым потоком пишутся в локальный журнал
+ * ({@link LogSpoolDrainer}); пока журнал не пуст, новые события тоже идут в него,
+ * чтобы переотправка сохранила порядок.
+ * <p>
+ * Поведение при переполнении задаётся {@link LogPipelineProperties.OverflowPolicy}.
+ * Метрики: {@code log_pipeline_queue_depth}, {@code log_pipeline_dropped_total{reason}},
+ * {@code log_pipeline_sent_total{result}}, {@code log_pipeline_send_latency} (от постановки в очередь
+ * до подтверждения брокером).
+ */
+@Slf4j
+public class LogPipeline implements SmartLifecycle {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final LogPipelineProperties properties;
+    private final String topic;
+    private final String serviceName;
+    private final LogSpoolDrainer spool;
+
+    private final LogRingBuffer<LogEvent> buffer;
+    private final int sampleThreshold;
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final Queue<LogEvent> failed = new ConcurrentLinkedQueue<>();
+
+    private final Counter droppedOverflow;
+    private final Counter droppedSampled;
+    private final Counter droppedTimeout;
+    private final Counter sent;
+    private final Counter sendFailed;
+    private final Timer sendLatency;
+
+    private volatile boolean running;
+    private Thread sender;
+
+    /**
+     * @param kafkaTemplate шаблон для отправки
+     * @param properties    настройки {@code log-pipeline.*}
+     * @param topic         топик логов сервисов
+     * @param serviceName   имя сервиса (ключ сообщений)
+     * @param spool         журнал неотправленных событий, может быть {@code null} (такие события теряются)
+     * @param meterRegistry реестр метрик
+     */
+    public LogPipeline(KafkaTemplate<String, Object> kafkaTemplate, LogPipelineProperties properties,
+                       String topic, String serviceName, LogSpoolDrainer spool, MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.properties = properties;
+        this.topic = topic;
+        this.serviceName = serviceName;
+        this.spool = spool;
+        this.buffer = new LogRingBuffer<>(properties.getCapacity());
+        this.sampleThreshold = buffer.capacity() / 4 * 3;
+
+        Gauge.builder("log.pipeline.queue.depth", buffer, LogRingBuffer::size).register(meterRegistry);
+        this.droppedOverflow = dropped(meterRegistry, "overflow");
+        this.droppedSampled = dropped(meterRegistry, "sampled");
+        this.droppedTimeout = dropped(meterRegistry, "timeout");
+        this.sent = Counter.builder("log.pipeline.sent").tag("result", "success").register(meterRegistry);
+        this.sendFailed = Counter.builder("log.pipeline.sent").tag("result", "failure").register(meterRegistry);
+        this.sendLatency = Timer.builder("log.pipeline.send.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ставит событие в очередь отправки.
+     *
+     * @param type    тип сообщения (INFO, WARNING, ERROR)
+     * @param payload тело сообщения
+     * @return {@code false}, если событие отброшено политикой переполнения
+     */
+    public boolean publish(String type, Object payload) {
+        LogEvent event = new LogEvent(type, payload);
+        return switch (properties.getOverflowPolicy()) {
+            case DROP -> offerOrDrop(event);
+            case SAMPLE -> {
+                if (buffer.size() >= sampleThreshold
+                        && sampleCounter.incrementAndGet() % Math.max(1, properties.getSampleRate()) != 0) {
+                    droppedSampled.increment();
+                    yield false;
+                }
+                yield offerOrDrop(event);
+            }
+            case BLOCK -> offerOrWait(event);
+        };
+    }
+
+    private boolean offerOrDrop(LogEvent event) {
+        if (buffer.offer(event)) {
+            return true;
+        }
+        droppedOverflow.increment();
+        return false;
+    }
+
+    private boolean offerOrWait(LogEvent event) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getBlockTimeoutMs());
+        while (!buffer.offer(event)) {
+            if (System.nanoTime() >= deadline) {
+                droppedTimeout.increment();
+                return false;
+            }
+            LockSupport.parkNanos(100_000);
+        }
+        return true;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        sender = Thread.ofPlatform().daemon().name("log-pipeline-sender").start(this::runSender);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (sender != null) {
+            LockSupport.unpark(sender);
+            try {
+                sender.join(properties.getShutdownTimeoutMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (buffer.size() > 0) {
+            log.warn("При остановке не отправлено {} событий логов", buffer.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Останавливается после веб-сервера и Kafka-листенеров, чтобы отправить их последние события.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void runSender() {
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(properties.getPollIntervalMs());
+        while (true) {
+            int drained = 0;
+            LogEvent event;
+            boolean spooling = spool != null && spool.hasPending();
+            while (drained < properties.getBatchSize() && (event = buffer.poll()) != null) {
+                if (spooling) {
+                    failed.add(event);
+                } else {
+                    send(event);
+                }
+                drained++;
+            }
+            handleFailures();
+            if (drained == 0) {
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(idleNanos);
+            }
+        }
+        try {
+            kafkaTemplate.flush();
+        } catch (Exception e) {
+            log.warn("Не удалось дождаться отправки логов: {}", e.getMessage());
+        }
+        handleFailures();
+    }
+
+    private void send(LogEvent event) {
+        try {
+            Message<Object> message = MessageBuilder
+                    .withPayload(event.payload())
+                    .setHeader(KafkaHeaders.KEY, serviceName)
+                    .setHeader("type", event.type())
+                    .setHeader(KafkaHeaders.TOPIC, topic)
+                    .build();
+            kafkaTemplate.send(message).whenComplete((result, ex) -> {
+                if (ex == null) {
+                    sent.increment();
+                    sendLatency.record(System.nanoTime() - event.enqueuedAt(), TimeUnit.NANOSECONDS);
+                } else {
+                    failed(event, ex);
+                }
+            });
+        } catch (Exception e) {
+            failed(event, e);
+        }
+    }
+
+    private void failed(LogEvent event, Throwable ex) {
+        sendFailed.increment();
+        log.error("Не удалось отправить событие {} в Kafka: {}", event.type(), ex.getMessage());
+        if (spool != null) {
+            failed.add(event);
+        }
+    }
+
+    private void handleFailures() {
+        boolean stored = false;
+        LogEvent event;
+        while ((event = failed.poll()) != null) {
+            stored |= spool.store(event);
+        }
+        if (stored) {
+            spool.flush();
+        }
+    }
+
+    private static Counter dropped(MeterRegistry registry, String reason) {
+        return Counter.builder("log.pipeline.dropped").tag("reason", reason).register(registry);
+    }
+}
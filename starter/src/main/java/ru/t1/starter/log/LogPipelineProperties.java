@@ -0,0 +1,79 @@
+package ru.t1.starter.log;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки асинхронной отправки логов аспектов в {@code service_logs} ({@code log-pipeline.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "log-pipeline")
+public class LogPipelineProperties {
+
+    /** Ёмкость очереди событий (округляется до степени двойки). */
+    private int capacity = 8192;
+
+    /** Поведение при заполненной очереди. */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.SAMPLE;
+
+    /** Для {@link OverflowPolicy#SAMPLE}: при заполнении очереди выше 3/4 сохраняется каждое N-е событие. */
+    private int sampleRate = 10;
+
+    /** Для {@link OverflowPolicy#BLOCK}: сколько максимум ждать места в очереди, после чего событие отбрасывается. */
+    private long blockTimeoutMs = 50;
+
+    /** Максимум событий, отправляемых за один проход фонового потока. */
+    private int batchSize = 256;
+
+    /** Пауза фонового потока при пустой очереди. */
+    private long pollIntervalMs = 20;
+
+    /** Сколько ждать отправки оставшихся событий при остановке приложения. */
+    private long shutdownTimeoutMs = 5000;
+
+    /** Локальный журнал событий, которые не удалось отправить в Kafka. */
+    private Spool spool = new Spool();
+
+    public enum OverflowPolicy {
+        /** Отбрасывать новые события, пока очередь заполнена. */
+        DROP,
+        /** Под нагрузкой сохранять только каждое {@code sample-rate}-е событие, при полной очереди — отбрасывать. */
+        SAMPLE,
+        /** Ждать места в очереди не дольше {@code block-timeout-ms}. */
+        BLOCK
+    }
+
+    @Getter
+    @Setter
+    public static class Spool {
+
+        /** Сохранять неотправленные события в журнал ({@code false} — такие события теряются). */
+        private boolean enabled = true;
+
+        /** Файл журнала. */
+        private String path = "spool/service-logs.spool";
+
+        /** Размер файла журнала; при заполнении новые события отбрасываются. */
+        private int maxSizeBytes = 64 * 1024 * 1024;
+
+        /** Период попыток переотправки журнала. */
+        private long drainIntervalMs = 5000;
+
+        /** Максимум событий в одной пачке переотправки. */
+        private int replayBatchSize = 500;
+
+        /** Сколько ждать подтверждения брокера для события из журнала. */
+        private long replayTimeoutMs = 5000;
+
+        /** Через сколько после записи самого старого события переносить журнал в {@code error_log}. */
+        private long bulkCopyAfterMs = 600_000;
+
+        /** При какой заполненности журнала (0..1) переносить его в {@code error_log}, не дожидаясь срока. */
+        private double bulkCopyUsage = 0.8;
+
+        /** Максимум строк в одном JDBC batch при переносе в {@code error_log}. */
+        private int bulkCopyBatchSize = 500;
+    }
+}
@@ -0,0 +1,246 @@
+package ru.t1.starter.log;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Локальный журнал событий логов, которые не удалось отправить в Kafka.
+ * <p>
+ * Файл фиксированного размера ({@code max-size-bytes}) отображается в память целиком.
+ * Заголовок хранит позицию чтения, за ним идут записи {@code [len][crc][timestamp][data]},
+ * после последней записи всегда лежит {@code 0}. Запись добавляется так, что до записи длины
+ * она невидима, а CRC отсекает оборванный хвост, поэтому после падения процесса
+ * {@link #recover()} восстанавливает очередь сканированием от позиции чтения.
+ * <p>
+ * Журнал рассчитан на одного писателя (поток отправки {@link LogPipeline})
+ * и одного читателя ({@link LogSpoolDrainer}); методы синхронизированы.
+ */
+@Slf4j
+public class LogSpool implements AutoCloseable {
+
+    private static final int MAGIC = 0x54315350; // "T1SP"
+    private static final int VERSION = 1;
+    private static final int READ_POS_OFFSET = 8;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_HEADER_SIZE = 16;
+    private static final int TERMINATOR_SIZE = 4;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    private int readPos;
+    private int writePos;
+    private int count;
+
+    /**
+     * Запись журнала.
+     *
+     * @param timestamp время постановки в журнал (epoch millis)
+     * @param data      сериализованное событие
+     */
+    public record Entry(long timestamp, byte[] data) {}
+
+    /**
+     * @param path     путь к файлу журнала
+     * @param maxBytes размер файла; журнал больше не растёт
+     */
+    public LogSpool(Path path, int maxBytes) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.path = path;
+        this.capacity = Math.max(maxBytes, HEADER_SIZE + RECORD_HEADER_SIZE + TERMINATOR_SIZE + 1024);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        recover();
+    }
+
+    /**
+     * Восстанавливает позиции чтения и записи по содержимому файла.
+     */
+    synchronized void recover() {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            buffer.putInt(HEADER_SIZE, 0);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(READ_POS_OFFSET, HEADER_SIZE);
+            readPos = writePos = HEADER_SIZE;
+            count = 0;
+            return;
+        }
+        long storedReadPos = buffer.getLong(READ_POS_OFFSET);
+        readPos = storedReadPos >= HEADER_SIZE && storedReadPos <= capacity - TERMINATOR_SIZE
+                ? (int) storedReadPos : HEADER_SIZE;
+        int pos = readPos;
+        int records = 0;
+        int next;
+        while ((next = nextRecord(pos)) > 0) {
+            pos = next;
+            records++;
+        }
+        if (buffer.getInt(pos) != 0) {
+            log.warn("Журнал логов {}: отброшен повреждённый хвост с позиции {}", path, pos);
+            buffer.putInt(pos, 0);
+        }
+        writePos = pos;
+        count = records;
+        if (records > 0) {
+            log.info("Журнал логов {}: восстановлено {} неотправленных событий", path, records);
+        }
+    }
+
+    /**
+     * Добавляет запись в конец журнала.
+     *
+     * @param data сериализованное событие
+     * @return {@code false}, если журнал заполнен
+     */
+    public synchronized boolean append(byte[] data) {
+        int size = RECORD_HEADER_SIZE + data.length;
+        if (writePos + size + TERMINATOR_SIZE > capacity) {
+            compact();
+            if (writePos + size + TERMINATOR_SIZE > capacity) {
+                return false;
+            }
+        }
+        long timestamp = System.currentTimeMillis();
+        CRC32 crc = new CRC32();
+        crc.update(longBytes(timestamp));
+        crc.update(data);
+
+        // сначала новый терминатор и тело, длина — последней: до этого запись не видна при восстановлении
+        buffer.putInt(writePos + size, 0);
+        buffer.put(writePos + RECORD_HEADER_SIZE, data);
+        buffer.putLong(writePos + 8, timestamp);
+        buffer.putInt(writePos + 4, (int) crc.getValue());
+        buffer.putInt(writePos, data.length);
+        writePos += size;
+        count++;
+        return true;
+    }
+
+    /**
+     * Возвращает первые записи журнала, не удаляя их.
+     *
+     * @param max максимум записей
+     * @return записи в порядке добавления
+     */
+    public synchronized List<Entry> peek(int max) {
+        List<Entry> entries = new ArrayList<>(Math.min(max, count));
+        int pos = readPos;
+        while (entries.size() < max && pos < writePos) {
+            int length = buffer.getInt(pos);
+            byte[] data = new byte[length];
+            buffer.get(pos + RECORD_HEADER_SIZE, data);
+            entries.add(new Entry(buffer.getLong(pos + 8), data));
+            pos += RECORD_HEADER_SIZE + length;
+        }
+        return entries;
+    }
+
+    /**
+     * Удаляет первые {@code records} записей (после их доставки).
+     */
+    public synchronized void commit(int records) {
+        int pos = readPos;
+        for (int i = 0; i < records && pos < writePos; i++) {
+            pos += RECORD_HEADER_SIZE + buffer.getInt(pos);
+            count--;
+        }
+        if (pos >= writePos) {
+            // журнал пуст: начинаем с начала файла; терминатор пишется до сдвига позиции чтения
+            buffer.putInt(HEADER_SIZE, 0);
+            readPos = writePos = HEADER_SIZE;
+            count = 0;
+        } else {
+            readPos = pos;
+        }
+        buffer.putLong(READ_POS_OFFSET, readPos);
+    }
+
+    /**
+     * Сбрасывает изменения файла на диск.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /** @return количество записей в журнале */
+    public synchronized int size() {
+        return count;
+    }
+
+    /** @return занятая доля файла от 0 до 1 */
+    public synchronized double usage() {
+        return (double) (writePos - readPos) / (capacity - HEADER_SIZE);
+    }
+
+    /** @return время добавления самой старой записи или {@code 0}, если журнал пуст */
+    public synchronized long oldestTimestamp() {
+        return readPos < writePos ? buffer.getLong(readPos + 8) : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    /**
+     * Переносит непрочитанные записи в начало файла, если они не пересекаются с освобождаемой областью
+     * (иначе падение во время копирования испортило бы ещё не перенесённые данные).
+     */
+    private void compact() {
+        int live = writePos - readPos;
+        if (readPos == HEADER_SIZE || live > readPos - HEADER_SIZE) {
+            return;
+        }
+        byte[] data = new byte[live];
+        buffer.get(readPos, data);
+        buffer.put(HEADER_SIZE, data);
+        buffer.putInt(HEADER_SIZE + live, 0);
+        readPos = HEADER_SIZE;
+        writePos = HEADER_SIZE + live;
+        buffer.putLong(READ_POS_OFFSET, readPos);
+    }
+
+    /**
+     * @return позиция следующей записи или {@code -1}, если по позиции нет целой записи
+     */
+    private int nextRecord(int pos) {
+        if (pos + RECORD_HEADER_SIZE + TERMINATOR_SIZE > capacity) {
+            return -1;
+        }
+        int length = buffer.getInt(pos);
+        if (length <= 0 || pos + RECORD_HEADER_SIZE + length + TERMINATOR_SIZE > capacity) {
+            return -1;
+        }
+        byte[] data = new byte[length];
+        buffer.get(pos + RECORD_HEADER_SIZE, data);
+        CRC32 crc = new CRC32();
+        crc.update(longBytes(buffer.getLong(pos + 8)));
+        crc.update(data);
+        return (int) crc.getValue() == buffer.getInt(pos + 4) ? pos + RECORD_HEADER_SIZE + length : -1;
+    }
+
+    private static byte[] longBytes(long value) {
+        byte[] bytes = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,348 @@
+package ru.t1.starter.log;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.JacksonUtils;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.ClassUtils;
+import ru.t1.starter.entity.ErrorLog;
+import ru.t1.starter.repository.ErrorLogBatchRepository;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Доставка событий из {@link LogSpool}.
+ * <p>
+ * {@link LogPipeline} сохраняет сюда события, которые не удалось отправить в Kafka.
+ * Раз в {@code log-pipeline.spool.drain-interval-ms} журнал переотправляется в топик логов
+ * в исходном порядке: сначала одно событие как проверка доступности брокера, затем пачками.
+ * Запись удаляется из журнала только после подтверждения брокера (at-least-once).
+ * Вместе с событием хранится класс исходного payload: при переотправке тело восстанавливается
+ * в этот класс, поэтому {@code JsonSerializer} ставит тот же заголовок {@code __TypeId__}, что и при
+ * прямой отправке.
+ * <p>
+ * Если брокер недоступен дольше {@code bulk-copy-after-ms} или журнал заполнен больше чем на
+ * {@code bulk-copy-usage}, ошибки переносятся в {@code error_log} одним JDBC batch на пачку,
+ * остальные события (INFO/WARNING без исключения) отбрасываются.
+ */
+@Slf4j
+public class LogSpoolDrainer implements SmartLifecycle {
+
+    private static final int STACK_TRACE_LENGTH = 8000;
+    private static final int COLUMN_LENGTH = 2000;
+    private static final int SIGNATURE_LENGTH = 255;
+
+    private final LogSpool spool;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ErrorLogBatchRepository errorLogBatchRepository;
+    private final LogPipelineProperties.Spool properties;
+    private final String topic;
+    private final String serviceName;
+    private final ObjectMapper objectMapper = JacksonUtils.enhancedObjectMapper();
+
+    private final Counter replayed;
+    private final Counter copied;
+    private final Counter discarded;
+    private final Counter rejected;
+
+    private final ScheduledExecutorService drainer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "log-spool-drainer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running;
+
+    /**
+     * @param spool                   журнал неотправленных событий
+     * @param kafkaTemplate           шаблон для переотправки
+     * @param errorLogBatchRepository запись в {@code error_log}, может быть {@code null} (без переноса в БД)
+     * @param properties              настройки {@code log-pipeline.spool.*}
+     * @param topic                   топик логов сервисов
+     * @param serviceName             имя сервиса (ключ сообщений)
+     * @param meterRegistry           реестр метрик
+     */
+    public LogSpoolDrainer(LogSpool spool, KafkaTemplate<String, Object> kafkaTemplate,
+                           ErrorLogBatchRepository errorLogBatchRepository, LogPipelineProperties.Spool properties,
+                           String topic, String serviceName, MeterRegistry meterRegistry) {
+        this.spool = spool;
+        this.kafkaTemplate = kafkaTemplate;
+        this.errorLogBatchRepository = errorLogBatchRepository;
+        this.properties = properties;
+        this.topic = topic;
+        this.serviceName = serviceName;
+
+        Gauge.builder("log.pipeline.spool.size", spool, LogSpool::size).register(meterRegistry);
+        Gauge.builder("log.pipeline.spool.usage", spool, LogSpool::usage).register(meterRegistry);
+        this.replayed = spooled(meterRegistry, "replayed");
+        this.copied = spooled(meterRegistry, "copied");
+        this.discarded = spooled(meterRegistry, "discarded");
+        this.rejected = spooled(meterRegistry, "rejected");
+    }
+
+    /**
+     * @return {@code true}, если в журнале есть недоставленные события
+     */
+    public boolean hasPending() {
+        return spool.size() > 0;
+    }
+
+    /**
+     * Сохраняет событие в журнал (вызывается потоком отправки {@link LogPipeline}).
+     *
+     * @return {@code false}, если журнал заполнен или событие не сериализуется
+     */
+    public boolean store(LogEvent event) {
+        try {
+            ObjectNode record = objectMapper.createObjectNode();
+            record.put("type", event.type());
+            record.put("payloadType", event.payload().getClass().getName());
+            record.set("payload", objectMapper.valueToTree(event.payload()));
+            if (spool.append(objectMapper.writeValueAsBytes(record))) {
+                return true;
+            }
+            log.error("Журнал логов заполнен, событие {} отброшено", event.type());
+        } catch (Exception e) {
+            log.error("Не удалось сохранить событие {} в журнал логов: {}", event.type(), e.getMessage());
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Сбрасывает журнал на диск после пачки {@link #store(LogEvent)}.
+     */
+    public void flush() {
+        spool.force();
+    }
+
+    /**
+     * Переотправляет журнал в Kafka, а при затянувшейся недоступности брокера переносит ошибки в БД.
+     */
+    public void drain() {
+        if (spool.size() == 0) {
+            return;
+        }
+        try {
+            if (replay()) {
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("Переотправка журнала логов прервана: {}", e.getMessage());
+        }
+        if (errorLogBatchRepository != null && shouldBulkCopy()) {
+            bulkCopy();
+        }
+    }
+
+    /**
+     * @return {@code true}, если журнал доставлен целиком
+     */
+    boolean replay() throws Exception {
+        List<LogSpool.Entry> probe = spool.peek(1);
+        if (probe.isEmpty()) {
+            return true;
+        }
+        if (!await(send(probe.get(0)))) {
+            return false;
+        }
+        spool.commit(1);
+        replayed.increment();
+
+        List<LogSpool.Entry> batch;
+        while (running && !(batch = spool.peek(properties.getReplayBatchSize())).isEmpty()) {
+            List<CompletableFuture<SendResult<String, Object>>> futures = new ArrayList<>(batch.size());
+            for (LogSpool.Entry entry : batch) {
+                futures.add(send(entry));
+            }
+            // удаляем из журнала только непрерывный подтверждённый префикс, чтобы не нарушить порядок
+            int delivered = 0;
+            while (delivered < futures.size() && await(futures.get(delivered))) {
+                delivered++;
+            }
+            spool.commit(delivered);
+            spool.force();
+            replayed.increment(delivered);
+            if (delivered < batch.size()) {
+                return false;
+            }
+        }
+        log.info("Журнал логов переотправлен в {}", topic);
+        return spool.size() == 0;
+    }
+
+    /**
+     * Переносит ошибки из журнала в {@code error_log} и очищает журнал.
+     */
+    void bulkCopy() {
+        List<LogSpool.Entry> batch;
+        while (running && !(batch = spool.peek(properties.getBulkCopyBatchSize())).isEmpty()) {
+            List<ErrorLog> errorLogs = new ArrayList<>(batch.size());
+            for (LogSpool.Entry entry : batch) {
+                ErrorLog errorLog = toErrorLog(entry);
+                if (errorLog != null) {
+                    errorLogs.add(errorLog);
+                }
+            }
+            try {
+                errorLogBatchRepository.insertAll(errorLogs);
+            } catch (Exception e) {
+                log.error("Не удалось перенести журнал логов в error_log: {}", e.getMessage());
+                return;
+            }
+            spool.commit(batch.size());
+            spool.force();
+            copied.increment(errorLogs.size());
+            discarded.increment(batch.size() - errorLogs.size());
+            log.warn("Kafka недоступна: {} ошибок из журнала логов перенесено в error_log", errorLogs.size());
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        long interval = properties.getDrainIntervalMs();
+        drainer.scheduleWithFixedDelay(this::drainSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        drainer.shutdownNow();
+        spool.force();
+        if (spool.size() > 0) {
+            log.info("В журнале логов осталось {} событий, они будут отправлены после перезапуска", spool.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Останавливается после {@link LogPipeline}, который при остановке может дописать журнал.
+     */
+    @Override
+    public int getPhase() {
+        return -1;
+    }
+
+    private void drainSafely() {
+        try {
+            drain();
+        } catch (Exception e) {
+            log.error("Ошибка обработки журнала логов", e);
+        }
+    }
+
+    private boolean shouldBulkCopy() {
+        long oldest = spool.oldestTimestamp();
+        return spool.usage() >= properties.getBulkCopyUsage()
+                || oldest > 0 && System.currentTimeMillis() - oldest >= properties.getBulkCopyAfterMs();
+    }
+
+    private CompletableFuture<SendResult<String, Object>> send(LogSpool.Entry entry) throws IOException {
+        JsonNode record = objectMapper.readTree(entry.data());
+        return kafkaTemplate.send(MessageBuilder
+                .withPayload(payload(record))
+                .setHeader(KafkaHeaders.KEY, serviceName)
+                .setHeader("type", record.path("type").asText())
+                .setHeader(KafkaHeaders.TOPIC, topic)
+                .build());
+    }
+
+    /**
+     * Восстанавливает payload в исходный класс; если класс недоступен (например, после обновления сервиса),
+     * отправляется JSON как есть.
+     */
+    private Object payload(JsonNode record) {
+        JsonNode payload = record.get("payload");
+        String payloadType = record.path("payloadType").asText(null);
+        if (payloadType == null) {
+            return payload;
+        }
+        try {
+            return objectMapper.treeToValue(payload, ClassUtils.forName(payloadType, getClass().getClassLoader()));
+        } catch (ClassNotFoundException | LinkageError | IOException e) {
+            log.debug("Не удалось восстановить событие журнала логов как {}: {}", payloadType, e.getMessage());
+            return payload;
+        }
+    }
+
+    private boolean await(CompletableFuture<SendResult<String, Object>> future) {
+        try {
+            future.get(properties.getReplayTimeoutMs(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.debug("Kafka не подтвердила событие из журнала логов: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return строка {@code error_log} или {@code null}, если событие не описывает ошибку
+     */
+    private ErrorLog toErrorLog(LogSpool.Entry entry) {
+        JsonNode payload;
+        try {
+            payload = objectMapper.readTree(entry.data()).path("payload");
+        } catch (IOException e) {
+            return null;
+        }
+        if (!payload.hasNonNull("exceptionMessage") && !payload.hasNonNull("stackTrace")) {
+            return null;
+        }
+        ErrorLog errorLog = new ErrorLog();
+        errorLog.setTimestamp(timestamp(payload, entry.timestamp()));
+        errorLog.setMethodSignature(text(payload, "methodSignature", SIGNATURE_LENGTH));
+        errorLog.setExceptionMessage(text(payload, "exceptionMessage", COLUMN_LENGTH));
+        errorLog.setStackTrace(text(payload, "stackTrace", STACK_TRACE_LENGTH));
+        errorLog.setMethodArgs(text(payload, "methodArgs", COLUMN_LENGTH));
+        return errorLog;
+    }
+
+    private static LocalDateTime timestamp(JsonNode payload, long spooledAt) {
+        if (payload.hasNonNull("timestamp")) {
+            try {
+                return LocalDateTime.parse(payload.get("timestamp").asText());
+            } catch (DateTimeParseException e) {
+                // берём время записи в журнал
+            }
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(spooledAt), ZoneId.systemDefault());
+    }
+
+    private static String text(JsonNode payload, String field, int maxLength) {
+        if (!payload.hasNonNull(field)) {
+            return null;
+        }
+        String value = payload.get(field).asText();
+        return value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    private static Counter spooled(MeterRegistry registry, String result) {
+        return Counter.builder("log.pipeline.spool.events").tag("result", result).register(registry);
+    }
+}
@@ -0,0 +1,44 @@
+package ru.t1.starter.log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Неблокирующий ограничитель частоты «token bucket».
+ * <p>
+ * Вместо счётчика токенов хранится теоретическое время прихода следующего события (GCRA):
+ * каждое событие сдвигает его на {@code 1 / rate}, событие пропускается, пока сдвиг
+ * опережает текущее время не больше чем на {@code burst} интервалов. Состояние — один {@link AtomicLong}.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param ratePerSecond средняя допустимая частота событий
+     * @param burst         сколько событий можно пропустить подряд сверх средней частоты
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        this.toleranceNanos = intervalNanos * Math.max(1, burst);
+    }
+
+    /**
+     * @return {@code true}, если событие укладывается в лимит
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long next = (tat == Long.MIN_VALUE || tat - now < 0 ? now : tat) + intervalNanos;
+            if (next - now > toleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(tat, next)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ru.t1.starter.metric;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки аннотации {@link ru.t1.starter.aop.annotation.Metric} ({@code metric.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "metric")
+public class MetricProperties {
+
+    /** Порог медленного вызова по умолчанию (переопределяется {@code @Metric(limitMs)}). */
+    private long executionLimitMs = 10_000;
+
+    /** Имя таймера по умолчанию (переопределяется {@code @Metric(name)}). */
+    private String timerName = "method.execution";
+
+    /** Публикуемые процентили. */
+    private List<Double> percentiles = new ArrayList<>(List.of(0.5, 0.95, 0.99));
+
+    /** Границы SLO-бакетов гистограммы, мс. */
+    private List<Long> sloMs = new ArrayList<>(List.of(10L, 50L, 100L, 250L, 500L, 1000L, 2500L, 5000L, 10000L));
+
+    /** Окно агрегации предупреждений о медленных вызовах: одно сообщение на метод за окно. */
+    private long alertWindowMs = 60_000;
+}
@@ -0,0 +1,151 @@
+package ru.t1.starter.metric;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.t1.starter.log.LogPipeline;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Агрегирует медленные вызовы методов {@link ru.t1.starter.aop.annotation.Metric}.
+ * <p>
+ * Вместо сообщения на каждый медленный вызов за окно {@code metric.alert-window-ms}
+ * копятся количество, максимальная длительность и аргументы самого медленного вызова;
+ * по окончании окна по каждому методу отправляется одно сообщение WARNING.
+ */
+@Slf4j
+public class SlowCallAggregator implements AutoCloseable {
+
+    /** Максимальная длина строки аргументов в сводке. */
+    static final int MAX_ARGS_LENGTH = 1000;
+
+    private final LogPipeline logPipeline;
+    private final long windowMs;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "metric-slow-calls");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SlowCallAggregator(LogPipeline logPipeline, long windowMs) {
+        this.logPipeline = logPipeline;
+        this.windowMs = windowMs;
+        flusher.scheduleAtFixedRate(this::flushSafely, windowMs, windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Учитывает медленный вызов.
+     *
+     * @param methodSignature сигнатура метода
+     * @param limitMs         порог метода
+     * @param durationMs      длительность вызова
+     * @param args            аргументы вызова (в строку приводятся только для нового максимума,
+     *                        ссылки на сами объекты не сохраняются)
+     */
+    public void record(String methodSignature, long limitMs, long durationMs, Object[] args) {
+        windows.computeIfAbsent(methodSignature, k -> new Window()).record(limitMs, durationMs, args);
+    }
+
+    /**
+     * Отправляет накопленные за окно сводки.
+     */
+    public void flush() {
+        for (Map.Entry<String, Window> entry : windows.entrySet()) {
+            SlowCallSummary summary = entry.getValue().drain(entry.getKey(), windowMs);
+            if (summary != null) {
+                log.warn("Метод {}: {} медленных вызовов за {} мс, максимум {} мс (лимит {} мс)",
+                        summary.methodSignature(), summary.slowCalls(), windowMs,
+                        summary.maxExecutionTimeMs(), summary.limitMs());
+                logPipeline.publish("WARNING", summary);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        flushSafely();
+    }
+
+    /**
+     * Исключение в задаче {@code scheduleAtFixedRate} отменяет все последующие запуски,
+     * поэтому ошибки отправки только логируются.
+     */
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Ошибка отправки сводки медленных вызовов: {}", e.getMessage(), e);
+        }
+    }
+
+    static String describeArgs(Object[] args) {
+        String description;
+        try {
+            description = Arrays.toString(args);
+        } catch (RuntimeException e) {
+            description = "<toString failed: " + e.getClass().getSimpleName() + ">";
+        }
+        return description.length() > MAX_ARGS_LENGTH
+                ? description.substring(0, MAX_ARGS_LENGTH) + "..."
+                : description;
+    }
+
+    /**
+     * Накопитель медленных вызовов одного метода за текущее окно.
+     */
+    private static final class Window {
+        private long count;
+        private long maxMs;
+        private long limitMs;
+        private String slowestArgs;
+
+        synchronized void record(long limitMs, long durationMs, Object[] args) {
+            count++;
+            this.limitMs = limitMs;
+            if (durationMs >= maxMs) {
+                maxMs = durationMs;
+                slowestArgs = describeArgs(args);
+            }
+        }
+
+        synchronized SlowCallSummary drain(String methodSignature, long windowMs) {
+            if (count == 0) {
+                return null;
+            }
+            SlowCallSummary summary = new SlowCallSummary(LocalDateTime.now(), methodSignature, windowMs,
+                    count, maxMs, limitMs, slowestArgs);
+            count = 0;
+            maxMs = 0;
+            slowestArgs = null;
+            return summary;
+        }
+    }
+
+    /**
+     * DTO для Kafka-сообщений о медленных вызовах метода за окно.
+     *
+     * @param timestamp          время формирования сводки
+     * @param methodSignature    сигнатура метода
+     * @param windowMs           длительность окна
+     * @param slowCalls          количество вызовов дольше лимита
+     * @param maxExecutionTimeMs максимальное время выполнения в окне
+     * @param limitMs            лимит метода
+     * @param args               аргументы самого медленного вызова
+     */
+    public record SlowCallSummary(
+            LocalDateTime timestamp,
+            String methodSignature,
+            long windowMs,
+            long slowCalls,
+            long maxExecutionTimeMs,
+            long limitMs,
+            String args
+    ) {}
+}
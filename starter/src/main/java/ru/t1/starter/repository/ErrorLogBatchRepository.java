@@ -0,0 +1,54 @@
+package ru.t1.starter.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.t1.starter.entity.ErrorLog;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * JDBC-репозиторий для пакетной записи в {@code error_log}.
+ * <p>
+ * Используется при переносе накопленного журнала логов в БД: IDENTITY-ключ не даёт
+ * Hibernate группировать INSERT, поэтому строки пишутся одним JDBC batch.
+ */
+@RequiredArgsConstructor
+public class ErrorLogBatchRepository {
+
+    private static final String INSERT_ERROR_LOG_SQL =
+            "INSERT INTO error_log (timestamp, method_signature, exception_message, stack_trace, method_args) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Вставляет записи одним JDBC batch.
+     *
+     * @param errorLogs записи для сохранения
+     */
+    public void insertAll(List<ErrorLog> errorLogs) {
+        if (errorLogs.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_ERROR_LOG_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ErrorLog errorLog = errorLogs.get(i);
+                ps.setTimestamp(1, Timestamp.valueOf(errorLog.getTimestamp()));
+                ps.setString(2, errorLog.getMethodSignature());
+                ps.setString(3, errorLog.getExceptionMessage());
+                ps.setString(4, errorLog.getStackTrace());
+                ps.setString(5, errorLog.getMethodArgs());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return errorLogs.size();
+            }
+        });
+    }
+}
@@ -1,10 +0,0 @@
-package ru.t1.starter.repository;
-
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.stereotype.Repository;
-import ru.t1.starter.entity.ErrorLog;
-
-@Repository
-public interface ErrorLogRepository extends JpaRepository<ErrorLog, Long> {
-}
-
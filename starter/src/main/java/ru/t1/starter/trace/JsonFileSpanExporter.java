@@ -0,0 +1,129 @@
+package ru.t1.starter.trace;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Экспорт спанов в локальный файл, по одному JSON-объекту {@link SpanData} в строке.
+ * <p>
+ * Прикладные потоки только кладут спан в ограниченную очередь (при переполнении спан отбрасывается);
+ * запись в файл выполняет фоновый поток пачками. При превышении {@code tracing.max-file-bytes}
+ * файл переименовывается в {@code <имя>.1}, и запись начинается в новый.
+ * Файлы разных сервисов можно объединить по {@code traceId} для анализа сквозной задержки.
+ */
+@Slf4j
+public class JsonFileSpanExporter implements SpanExporter, AutoCloseable {
+
+    private static final int BATCH_SIZE = 512;
+
+    private final Path path;
+    private final long maxFileBytes;
+    private final BlockingQueue<SpanData> queue;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private BufferedWriter writer;
+    private long written;
+
+    /**
+     * @param path          файл спанов
+     * @param queueCapacity ёмкость очереди спанов
+     * @param maxFileBytes  размер файла, после которого он ротируется
+     */
+    public JsonFileSpanExporter(Path path, int queueCapacity, long maxFileBytes) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.path = path;
+        this.maxFileBytes = maxFileBytes;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        openWriter();
+        this.writerThread = Thread.ofPlatform().daemon().name("span-exporter").start(this::run);
+    }
+
+    @Override
+    public void export(SpanData span) {
+        if (!queue.offer(span) && dropped.incrementAndGet() % 10_000 == 1) {
+            log.warn("Очередь экспорта спанов заполнена, отброшено {} спанов", dropped.get());
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<SpanData> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                SpanData first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                // остановка: дописываем то, что уже в очереди
+            }
+            queue.drainTo(batch, BATCH_SIZE - batch.size());
+            write(batch);
+            batch.clear();
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("Не удалось закрыть файл спанов {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void write(List<SpanData> batch) {
+        try {
+            for (SpanData span : batch) {
+                String line = objectMapper.writeValueAsString(span);
+                writer.write(line);
+                writer.newLine();
+                written += line.length() + 1;
+            }
+            writer.flush();
+            if (written >= maxFileBytes) {
+                rotate();
+            }
+        } catch (IOException e) {
+            log.warn("Не удалось записать {} спанов в {}: {}", batch.size(), path, e.getMessage());
+        }
+    }
+
+    private void rotate() throws IOException {
+        writer.close();
+        Files.move(path, path.resolveSibling(path.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        openWriter();
+    }
+
+    private void openWriter() throws IOException {
+        writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        written = Files.size(path);
+    }
+}
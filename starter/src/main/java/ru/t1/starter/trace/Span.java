@@ -0,0 +1,106 @@
+package ru.t1.starter.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Выполняемая операция трассы.
+ * <p>
+ * Создание спана не меняет контекст потока: чтобы дочерние операции стали его потомками,
+ * спан делается текущим через {@link #makeCurrent()} в try-with-resources.
+ * {@link #end()} можно вызвать из любого потока (например, в колбэке отправки в Kafka).
+ */
+public class Span {
+
+    private final SpanExporter exporter;
+    private final String service;
+    private final TraceContext context;
+    private final String parentSpanId;
+    private final String name;
+    private final SpanKind kind;
+    private final long startEpochNanos;
+    private final long startNanos;
+    private final Map<String, String> attributes = new LinkedHashMap<>();
+    private volatile boolean error;
+    private volatile boolean ended;
+
+    Span(SpanExporter exporter, String service, TraceContext context, String parentSpanId,
+         String name, SpanKind kind, long startEpochNanos) {
+        this.exporter = exporter;
+        this.service = service;
+        this.context = context;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.kind = kind;
+        this.startEpochNanos = startEpochNanos;
+        this.startNanos = System.nanoTime();
+    }
+
+    /** @return контекст спана */
+    public TraceContext context() {
+        return context;
+    }
+
+    /** @return значение заголовка {@value TraceContext#HEADER} для исходящего запроса */
+    public String traceparent() {
+        return context.toTraceparent();
+    }
+
+    /**
+     * Добавляет атрибут (только для экспортируемых трасс).
+     */
+    public Span tag(String key, Object value) {
+        if (context.sampled() && value != null) {
+            synchronized (attributes) {
+                attributes.put(key, String.valueOf(value));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Отмечает спан как завершившийся ошибкой.
+     */
+    public Span error(Throwable throwable) {
+        error = true;
+        return tag("exception", throwable.getClass().getName()).tag("exception.message", throwable.getMessage());
+    }
+
+    /**
+     * Делает спан текущим для потока до закрытия возвращённой области.
+     */
+    public Scope makeCurrent() {
+        TraceContext previous = TraceContextHolder.get();
+        TraceContextHolder.set(context);
+        return () -> TraceContextHolder.set(previous);
+    }
+
+    /**
+     * Завершает спан и передаёт его экспортеру; повторные вызовы игнорируются.
+     */
+    public void end() {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        if (!context.sampled()) {
+            return;
+        }
+        Map<String, String> snapshot;
+        synchronized (attributes) {
+            snapshot = Map.copyOf(attributes);
+        }
+        exporter.export(new SpanData(context.traceId(), context.spanId(), parentSpanId, name, kind, service,
+                startEpochNanos, startEpochNanos + (System.nanoTime() - startNanos),
+                error ? "ERROR" : "OK", snapshot));
+    }
+
+    /**
+     * Область, в которой спан является текущим.
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
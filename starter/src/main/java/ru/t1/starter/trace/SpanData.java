@@ -0,0 +1,30 @@
+package ru.t1.starter.trace;
+
+import java.util.Map;
+
+/**
+ * Завершённый спан для экспорта. Поля соответствуют спану OTLP.
+ *
+ * @param traceId           идентификатор трассы
+ * @param spanId            идентификатор спана
+ * @param parentSpanId      идентификатор родительского спана или {@code null}
+ * @param name              имя операции
+ * @param kind              роль спана
+ * @param service           имя сервиса
+ * @param startTimeUnixNano время начала, нс от эпохи
+ * @param endTimeUnixNano   время окончания, нс от эпохи
+ * @param status            {@code OK} или {@code ERROR}
+ * @param attributes        атрибуты
+ */
+public record SpanData(
+        String traceId,
+        String spanId,
+        String parentSpanId,
+        String name,
+        SpanKind kind,
+        String service,
+        long startTimeUnixNano,
+        long endTimeUnixNano,
+        String status,
+        Map<String, String> attributes
+) {}
@@ -0,0 +1,15 @@
+package ru.t1.starter.trace;
+
+/**
+ * Получатель завершённых спанов.
+ */
+public interface SpanExporter {
+
+    /** Экспортер, отбрасывающий спаны (трассировка выключена). */
+    SpanExporter NOOP = span -> { };
+
+    /**
+     * Принимает завершённый спан. Вызывается из прикладных потоков, поэтому не должен блокировать.
+     */
+    void export(SpanData span);
+}
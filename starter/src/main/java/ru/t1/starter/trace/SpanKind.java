@@ -0,0 +1,12 @@
+package ru.t1.starter.trace;
+
+/**
+ * Роль спана в обмене (совпадает с видами спанов OpenTelemetry).
+ */
+public enum SpanKind {
+    SERVER,
+    CLIENT,
+    PRODUCER,
+    CONSUMER,
+    INTERNAL
+}
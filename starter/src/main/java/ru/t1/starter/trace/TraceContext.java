@@ -0,0 +1,84 @@
+package ru.t1.starter.trace;
+
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Контекст трассировки в формате W3C Trace Context.
+ * <p>
+ * Передаётся между сервисами заголовком {@value #HEADER} вида
+ * {@code 00-<traceId, 32 hex>-<spanId, 16 hex>-<flags>} в HTTP-запросах и Kafka-сообщениях.
+ *
+ * @param traceId идентификатор трассы
+ * @param spanId  идентификатор спана
+ * @param sampled экспортировать ли спаны трассы
+ */
+public record TraceContext(String traceId, String spanId, boolean sampled) {
+
+    /** Имя HTTP-заголовка и заголовка Kafka-сообщения. */
+    public static final String HEADER = "traceparent";
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final String INVALID_TRACE_ID = "0".repeat(32);
+    private static final String INVALID_SPAN_ID = "0".repeat(16);
+
+    /**
+     * @param sampled экспортировать ли спаны новой трассы
+     * @return контекст новой трассы
+     */
+    public static TraceContext newRoot(boolean sampled) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new TraceContext(HEX.toHexDigits(random.nextLong()) + HEX.toHexDigits(random.nextLong()),
+                newSpanId(), sampled);
+    }
+
+    /**
+     * @return контекст дочернего спана той же трассы
+     */
+    public TraceContext child() {
+        return new TraceContext(traceId, newSpanId(), sampled);
+    }
+
+    /**
+     * @return значение заголовка {@value #HEADER}
+     */
+    public String toTraceparent() {
+        return "00-" + traceId + "-" + spanId + (sampled ? "-01" : "-00");
+    }
+
+    /**
+     * @param traceparent значение заголовка {@value #HEADER}
+     * @return контекст или {@code null}, если заголовок отсутствует или некорректен
+     */
+    public static TraceContext parse(String traceparent) {
+        if (traceparent == null || traceparent.length() != 55
+                || traceparent.charAt(2) != '-' || traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-') {
+            return null;
+        }
+        String traceId = traceparent.substring(3, 35);
+        String spanId = traceparent.substring(36, 52);
+        if (!isHex(traceId) || !isHex(spanId) || INVALID_TRACE_ID.equals(traceId) || INVALID_SPAN_ID.equals(spanId)) {
+            return null;
+        }
+        int flags = Character.digit(traceparent.charAt(54), 16);
+        return new TraceContext(traceId, spanId, (flags & 1) == 1);
+    }
+
+    private static String newSpanId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return HEX.toHexDigits(id);
+    }
+
+    private static boolean isHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
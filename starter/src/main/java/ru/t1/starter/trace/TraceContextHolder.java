@@ -0,0 +1,75 @@
+package ru.t1.starter.trace;
+
+import java.util.function.Supplier;
+
+/**
+ * Текущий контекст трассировки потока.
+ * <p>
+ * Устанавливается входящими точками (HTTP-фильтр, Kafka-листенер) через {@link Span#makeCurrent()}
+ * и читается исходящими (HTTP-клиент, продюсер) как родитель новых спанов.
+ * При передаче работы в другой поток контекст нужно переносить явно ({@link #wrap(Supplier)}, {@link #wrap(Runnable)}).
+ */
+public final class TraceContextHolder {
+
+    private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+
+    private TraceContextHolder() {
+    }
+
+    /** @return контекст текущего потока или {@code null} */
+    public static TraceContext get() {
+        return CURRENT.get();
+    }
+
+    static void set(TraceContext context) {
+        if (context == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(context);
+        }
+    }
+
+    /**
+     * Переносит контекст вызывающего потока в задачу, выполняемую в другом потоке.
+     *
+     * @param task задача
+     * @return задача, выполняемая с контекстом вызывающего потока
+     */
+    public static <T> Supplier<T> wrap(Supplier<T> task) {
+        TraceContext context = CURRENT.get();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            TraceContext previous = CURRENT.get();
+            CURRENT.set(context);
+            try {
+                return task.get();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    /**
+     * Переносит контекст вызывающего потока в задачу, выполняемую в другом потоке.
+     *
+     * @param task задача
+     * @return задача, выполняемая с контекстом вызывающего потока
+     */
+    public static Runnable wrap(Runnable task) {
+        TraceContext context = CURRENT.get();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            TraceContext previous = CURRENT.get();
+            CURRENT.set(context);
+            try {
+                task.run();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+}
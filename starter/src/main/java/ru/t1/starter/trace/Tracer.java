@@ -0,0 +1,57 @@
+package ru.t1.starter.trace;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Создание спанов с учётом текущего контекста потока.
+ * <p>
+ * Новая трасса начинается, только если у потока нет контекста и во входящем запросе нет заголовка
+ * {@value TraceContext#HEADER}; решение о выборке ({@code tracing.sample-ratio}) принимается
+ * в этот момент и наследуется всеми потомками, в том числе в других сервисах.
+ */
+public class Tracer {
+
+    private final SpanExporter exporter;
+    private final String service;
+    private final double sampleRatio;
+
+    /**
+     * @param exporter    получатель завершённых спанов
+     * @param service     имя сервиса в спанах
+     * @param sampleRatio доля экспортируемых новых трасс (0..1)
+     */
+    public Tracer(SpanExporter exporter, String service, double sampleRatio) {
+        this.exporter = exporter;
+        this.service = service;
+        this.sampleRatio = sampleRatio;
+    }
+
+    /**
+     * Создаёт спан — потомок текущего спана потока или корень новой трассы.
+     */
+    public Span startSpan(String name, SpanKind kind) {
+        return startSpan(name, kind, TraceContextHolder.get());
+    }
+
+    /**
+     * Создаёт спан входящей операции — потомок спана из заголовка {@value TraceContext#HEADER}.
+     *
+     * @param traceparent значение заголовка; если он отсутствует, используется текущий контекст потока
+     */
+    public Span startSpan(String name, SpanKind kind, String traceparent) {
+        TraceContext remote = TraceContext.parse(traceparent);
+        return startSpan(name, kind, remote != null ? remote : TraceContextHolder.get());
+    }
+
+    private Span startSpan(String name, SpanKind kind, TraceContext parent) {
+        TraceContext context = parent != null ? parent.child() : TraceContext.newRoot(sample());
+        Instant now = Instant.now();
+        return new Span(exporter, service, context, parent != null ? parent.spanId() : null, name, kind,
+                now.getEpochSecond() * 1_000_000_000L + now.getNano());
+    }
+
+    private boolean sample() {
+        return sampleRatio >= 1 || sampleRatio > 0 && ThreadLocalRandom.current().nextDouble() < sampleRatio;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.t1.starter.trace;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.listener.BatchInterceptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Продолжает трассы из заголовков {@value TraceContext#HEADER} для batch-листенеров.
+ * <p>
+ * На каждую запись пакета создаётся спан {@link SpanKind#CONSUMER} в трассе этой записи, поэтому
+ * ни одна входящая трасса не обрывается на пакетной обработке. Спаны завершаются вместе с пакетом.
+ * Текущим для потока становится спан первой записи: HTTP-вызовы и отправки из листенера
+ * продолжают её трассу. Применяется Spring Boot ко всем фабрикам листенеров, настроенным через
+ * {@code ConcurrentKafkaListenerContainerFactoryConfigurer}, в паре с {@link TracingRecordInterceptor}.
+ */
+public class TracingBatchInterceptor implements BatchInterceptor<Object, Object> {
+
+    private final Tracer tracer;
+    private final ThreadLocal<Active> active = new ThreadLocal<>();
+
+    public TracingBatchInterceptor(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public ConsumerRecords<Object, Object> intercept(ConsumerRecords<Object, Object> records,
+                                                     Consumer<Object, Object> consumer) {
+        finish(null); // пакет, для которого контейнер не вызвал success/failure
+        if (records.isEmpty()) {
+            return records;
+        }
+        List<Span> spans = new ArrayList<>(records.count());
+        for (ConsumerRecord<Object, Object> record : records) {
+            Header header = record.headers().lastHeader(TraceContext.HEADER);
+            String traceparent = header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+            spans.add(tracer.startSpan("receive " + record.topic(), SpanKind.CONSUMER, traceparent)
+                    .tag("messaging.destination", record.topic())
+                    .tag("messaging.kafka.partition", record.partition())
+                    .tag("messaging.kafka.offset", record.offset())
+                    .tag("messaging.batch.message_count", records.count()));
+        }
+        active.set(new Active(spans, spans.get(0).makeCurrent()));
+        return records;
+    }
+
+    @Override
+    public void success(ConsumerRecords<Object, Object> records, Consumer<Object, Object> consumer) {
+        finish(null);
+    }
+
+    @Override
+    public void failure(ConsumerRecords<Object, Object> records, Exception exception,
+                        Consumer<Object, Object> consumer) {
+        finish(exception);
+    }
+
+    @Override
+    public void clearThreadState(Consumer<?, ?> consumer) {
+        finish(null);
+    }
+
+    private void finish(Exception exception) {
+        Active current = active.get();
+        if (current == null) {
+            return;
+        }
+        active.remove();
+        current.scope().close();
+        for (Span span : current.spans()) {
+            if (exception != null) {
+                span.error(exception);
+            }
+            span.end();
+        }
+    }
+
+    private record Active(List<Span> spans, Span.Scope scope) {}
+}
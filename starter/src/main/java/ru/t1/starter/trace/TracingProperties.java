@@ -0,0 +1,29 @@
+package ru.t1.starter.trace;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки трассировки ({@code tracing.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "tracing")
+public class TracingProperties {
+
+    /** Экспортировать спаны; контекст передаётся между сервисами в любом случае. */
+    private boolean enabled = true;
+
+    /** Доля новых трасс, спаны которых экспортируются (0..1). */
+    private double sampleRatio = 1.0;
+
+    /** Файл спанов (JSON lines). */
+    private String exportPath = "traces/spans.jsonl";
+
+    /** Ёмкость очереди спанов перед записью в файл. */
+    private int queueCapacity = 10_000;
+
+    /** Размер файла, после которого он ротируется. */
+    private long maxFileBytes = 100L * 1024 * 1024;
+}
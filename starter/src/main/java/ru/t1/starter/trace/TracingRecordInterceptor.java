@@ -0,0 +1,59 @@
+package ru.t1.starter.trace;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.listener.RecordInterceptor;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Продолжает трассу из заголовка {@value TraceContext#HEADER} Kafka-сообщения.
+ * <p>
+ * На время обработки записи листенером текущим становится спан {@link SpanKind#CONSUMER},
+ * поэтому HTTP-вызовы и отправки из {@code @KafkaListener}-методов попадают в ту же трассу.
+ * Применяется Spring Boot ко всем фабрикам листенеров, настроенным через
+ * {@code ConcurrentKafkaListenerContainerFactoryConfigurer}; для batch-листенеров — {@link TracingBatchInterceptor}.
+ */
+public class TracingRecordInterceptor implements RecordInterceptor<Object, Object> {
+
+    private final Tracer tracer;
+    private final ThreadLocal<Active> active = new ThreadLocal<>();
+
+    public TracingRecordInterceptor(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public ConsumerRecord<Object, Object> intercept(ConsumerRecord<Object, Object> record,
+                                                    Consumer<Object, Object> consumer) {
+        Header header = record.headers().lastHeader(TraceContext.HEADER);
+        String traceparent = header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+        Span span = tracer.startSpan("receive " + record.topic(), SpanKind.CONSUMER, traceparent)
+                .tag("messaging.destination", record.topic())
+                .tag("messaging.kafka.partition", record.partition())
+                .tag("messaging.kafka.offset", record.offset());
+        active.set(new Active(span, span.makeCurrent()));
+        return record;
+    }
+
+    @Override
+    public void failure(ConsumerRecord<Object, Object> record, Exception exception, Consumer<Object, Object> consumer) {
+        Active current = active.get();
+        if (current != null) {
+            current.span().error(exception);
+        }
+    }
+
+    @Override
+    public void afterRecord(ConsumerRecord<Object, Object> record, Consumer<Object, Object> consumer) {
+        Active current = active.get();
+        if (current != null) {
+            active.remove();
+            current.scope().close();
+            current.span().end();
+        }
+    }
+
+    private record Active(Span span, Span.Scope scope) {}
+}
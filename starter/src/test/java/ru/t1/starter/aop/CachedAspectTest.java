@@ -0,0 +1,166 @@
+package ru.t1.starter.aop;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.t1.starter.aop.annotation.CacheEvict;
+import ru.t1.starter.aop.annotation.CachePut;
+import ru.t1.starter.aop.annotation.Cached;
+import ru.t1.starter.cache.CacheInvalidationPublisher;
+import ru.t1.starter.cache.CacheProperties;
+import ru.t1.starter.cache.CacheRegistry;
+import ru.t1.starter.cache.CacheStatsRecorder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CachedAspectTest {
+
+    private CacheRegistry cacheRegistry;
+    private CacheInvalidationPublisher invalidationPublisher;
+    private ProductService service;
+    private ProductService target;
+
+    @BeforeEach
+    void setUp() {
+        cacheRegistry = new CacheRegistry(new CacheProperties(), CacheStatsRecorder.NOOP);
+        invalidationPublisher = mock(CacheInvalidationPublisher.class);
+        target = new ProductService();
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new CachedAspect(cacheRegistry, invalidationPublisher));
+        service = factory.getProxy();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        cacheRegistry.close();
+    }
+
+    @Test
+    void cached_ShouldCallMethodOncePerKey() {
+        // Act
+        assertEquals("product-1-v0", service.findById(1L));
+        assertEquals("product-1-v0", service.findById(1L));
+        assertEquals("product-2-v0", service.findById(2L));
+
+        // Assert
+        assertEquals(2, target.loads.get());
+    }
+
+    @Test
+    void cacheEvict_ShouldRemoveKeyAndNotifyReplicas() {
+        // Arrange
+        service.findById(1L);
+
+        // Act
+        service.delete(1L);
+
+        // Assert
+        assertEquals("product-1-v1", service.findById(1L));
+        verify(invalidationPublisher).keyInvalidated(eq("product"), any());
+    }
+
+    @Test
+    void cacheEvict_InsideTransaction_ShouldApplyAfterCommit() {
+        // Arrange
+        service.findById(1L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        service.delete(1L);
+
+        // Assert: до коммита кэш отдаёт прежнее значение
+        assertEquals("product-1-v0", service.findById(1L));
+        verifyNoInteractions(invalidationPublisher);
+
+        // Act: коммит
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        // Assert
+        assertEquals("product-1-v1", service.findById(1L));
+        verify(invalidationPublisher).keyInvalidated(eq("product"), any());
+    }
+
+    @Test
+    void cacheEvict_WhenTransactionRollsBack_ShouldKeepCachedValue() {
+        // Arrange
+        service.findById(1L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        service.delete(1L);
+        TransactionSynchronizationManager.clearSynchronization(); // откат: afterCommit не вызывается
+
+        // Assert
+        assertEquals("product-1-v0", service.findById(1L));
+        verifyNoInteractions(invalidationPublisher);
+    }
+
+    @Test
+    void cachePut_ShouldStoreResultForCachedMethod() {
+        // Arrange
+        service.findById(1L);
+
+        // Act
+        service.rename(1L, "renamed");
+
+        // Assert
+        assertEquals("renamed", service.findById(1L));
+        assertEquals(1, target.loads.get());
+        verify(invalidationPublisher).keyInvalidated(eq("product"), any());
+    }
+
+    @Test
+    void cacheEvict_AllEntries_ShouldClearCache() {
+        // Arrange
+        service.findById(1L);
+        service.findById(2L);
+
+        // Act
+        service.deleteAll();
+
+        // Assert
+        assertEquals(0, cacheRegistry.getCache("product").size());
+        verify(invalidationPublisher).cacheCleared("product");
+    }
+
+    static class ProductService {
+
+        final AtomicInteger loads = new AtomicInteger();
+        final Map<Long, Integer> versions = new HashMap<>();
+
+        @Cached(cacheName = "product")
+        public String findById(Long id) {
+            loads.incrementAndGet();
+            return "product-" + id + "-v" + versions.getOrDefault(id, 0);
+        }
+
+        @CacheEvict(cacheName = "product", method = "findById", key = "#p0")
+        public void delete(Long id) {
+            versions.merge(id, 1, Integer::sum);
+        }
+
+        @CachePut(cacheName = "product", method = "findById", key = "#p0")
+        public String rename(Long id, String name) {
+            return name;
+        }
+
+        @CacheEvict(cacheName = "product", allEntries = true)
+        public void deleteAll() {
+            versions.clear();
+        }
+    }
+}
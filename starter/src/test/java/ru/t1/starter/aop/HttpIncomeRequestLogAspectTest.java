@@ -0,0 +1,137 @@
+package ru.t1.starter.aop;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.t1.starter.aop.annotation.HttpIncomeRequestLog;
+import ru.t1.starter.log.HttpIncomeLogProperties;
+import ru.t1.starter.log.LogPipeline;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class HttpIncomeRequestLogAspectTest {
+
+    private static final long SLOW_THRESHOLD_MS = 50;
+
+    private final LogPipeline logPipeline = mock(LogPipeline.class);
+
+    @Test
+    void logIncomingRequest_ShouldSkipFastSuccess_WhenSampledOut() {
+        // Arrange
+        AccountController controller = controller(properties(0));
+
+        // Act
+        controller.getAccount(1L);
+
+        // Assert
+        verifyNoInteractions(logPipeline);
+    }
+
+    @Test
+    void logIncomingRequest_ShouldLogError_WhenSampledOut() {
+        // Arrange
+        AccountController controller = controller(properties(0));
+
+        // Act
+        assertThrows(IllegalStateException.class, controller::failing);
+
+        // Assert
+        verify(logPipeline).publish(eq("ERROR"), any());
+    }
+
+    @Test
+    void logIncomingRequest_ShouldLogSlowRequest_WhenSampledOut() {
+        // Arrange
+        AccountController controller = controller(properties(0));
+
+        // Act
+        controller.slow();
+
+        // Assert
+        verify(logPipeline).publish(eq("INFO"), any());
+    }
+
+    @Test
+    void logIncomingRequest_ShouldLogSuccess_WhenSampledIn() {
+        // Arrange
+        AccountController controller = controller(properties(100));
+
+        // Act
+        controller.getAccount(1L);
+
+        // Assert
+        verify(logPipeline).publish(eq("INFO"), any());
+    }
+
+    @Test
+    void logIncomingRequest_ShouldRespectEndpointOverride() {
+        // Arrange: общий процент 100, но для эндпоинта выборка отключена
+        HttpIncomeLogProperties properties = properties(100);
+        properties.setEndpoints(Map.of("AccountController.getAccount", 0.0));
+        AccountController controller = controller(properties);
+
+        // Act
+        controller.getAccount(1L);
+
+        // Assert
+        verifyNoInteractions(logPipeline);
+    }
+
+    @Test
+    void logIncomingRequest_ShouldRateLimitSampledSuccesses() {
+        // Arrange
+        HttpIncomeLogProperties properties = properties(100);
+        properties.setRateLimitPerSecond(1);
+        properties.setRateLimitBurst(2);
+        AccountController controller = controller(properties);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            controller.getAccount(1L);
+        }
+
+        // Assert
+        verify(logPipeline, times(2)).publish(eq("INFO"), any());
+    }
+
+    private AccountController controller(HttpIncomeLogProperties properties) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new AccountController());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new HttpIncomeRequestLogAspect(logPipeline, properties));
+        return factory.getProxy();
+    }
+
+    private static HttpIncomeLogProperties properties(double samplePercent) {
+        HttpIncomeLogProperties properties = new HttpIncomeLogProperties();
+        properties.setSamplePercent(samplePercent);
+        properties.setSlowThresholdMs(SLOW_THRESHOLD_MS);
+        return properties;
+    }
+
+    static class AccountController {
+
+        @HttpIncomeRequestLog
+        public String getAccount(Long id) {
+            return "account-" + id;
+        }
+
+        @HttpIncomeRequestLog
+        public String failing() {
+            throw new IllegalStateException("boom");
+        }
+
+        @HttpIncomeRequestLog
+        public String slow() {
+            try {
+                Thread.sleep(SLOW_THRESHOLD_MS + 20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "slow";
+        }
+    }
+}
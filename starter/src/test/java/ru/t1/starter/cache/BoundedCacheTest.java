@@ -0,0 +1,189 @@
+package ru.t1.starter.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedCacheTest {
+
+    private static final long TTL_MS = 60_000;
+
+    @Test
+    void get_ShouldLoadOnceForConcurrentMisses() throws Exception {
+        // Arrange
+        BoundedCache cache = new BoundedCache("test", 100, TTL_MS, CacheStatsRecorder.NOOP);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        BoundedCache.Loader<String> loader = context -> {
+            loads.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            return context;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Object>> results = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> getUnchecked(cache, loader)));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        // Assert
+        for (Future<Object> result : results) {
+            assertEquals("value", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals("value", cache.get("key"));
+        executor.shutdownNow();
+    }
+
+    private static Object getUnchecked(BoundedCache cache, BoundedCache.Loader<String> loader) throws Exception {
+        try {
+            return cache.get("key", TTL_MS, loader, "value", v -> true);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void get_ShouldPropagateLoaderExceptionToAllWaiters() throws Exception {
+        // Arrange
+        BoundedCache cache = new BoundedCache("test", 100, TTL_MS, CacheStatsRecorder.NOOP);
+        BoundedCache.Loader<Object> failing = context -> {
+            throw new IllegalStateException("boom");
+        };
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> cache.get("key", TTL_MS, failing, null, v -> true));
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void get_ShouldNotStoreRejectedOrNullValues() throws Throwable {
+        // Arrange
+        BoundedCache cache = new BoundedCache("test", 100, TTL_MS, CacheStatsRecorder.NOOP);
+
+        // Act
+        cache.get("empty", TTL_MS, context -> List.of(), null, v -> !(v instanceof List<?> list && list.isEmpty()));
+        cache.get("null", TTL_MS, context -> null, null, v -> true);
+
+        // Assert
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidate_DuringLoad_ShouldDiscardLoadedValue() throws Throwable {
+        // Arrange
+        BoundedCache cache = new BoundedCache("test", 100, TTL_MS, CacheStatsRecorder.NOOP);
+
+        // Act
+        Object value = cache.get("key", TTL_MS, context -> {
+            cache.invalidate("key"); // данные изменились, пока выполнялась загрузка
+            return "stale";
+        }, null, v -> true);
+
+        // Assert
+        assertEquals("stale", value);
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    void get_ShouldExpireEntriesAfterTtl() throws Exception {
+        // Arrange
+        BoundedCache cache = new BoundedCache("test", 100, TTL_MS, CacheStatsRecorder.NOOP);
+        cache.put("short", "value", 20);
+        cache.put("long", "value");
+
+        // Act
+        Thread.sleep(50);
+        int evicted = cache.evictExpired();
+
+        // Assert
+        assertEquals(1, evicted);
+        assertNull(cache.get("short"));
+        assertEquals("value", cache.get("long"));
+    }
+
+    @Test
+    void put_ShouldEvictLeastRecentlyUsedWhenFull() {
+        // Arrange
+        BoundedCache cache = new BoundedCache("test", 2, TTL_MS, CacheStatsRecorder.NOOP);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+
+        // Act
+        cache.put("c", 3);
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+    }
+
+    @Test
+    void put_ShouldKeepTotalSizeWithinLimitAcrossSegments() {
+        // Arrange
+        BoundedCache cache = new BoundedCache("test", 1024, TTL_MS, CacheStatsRecorder.NOOP);
+
+        // Act
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, i);
+        }
+
+        // Assert
+        assertTrue(cache.size() <= 1024 + 16, "size=" + cache.size());
+        assertEquals(9_999, cache.get(9_999));
+    }
+
+    @Test
+    void invalidateByHash_ShouldRemoveKeysWithHash() {
+        // Arrange
+        BoundedCache cache = new BoundedCache("test", 100, TTL_MS, CacheStatsRecorder.NOOP);
+        CacheKey key = CacheKey.of("findById", new Object[]{1L});
+        cache.put(key, "value");
+        cache.put(CacheKey.of("findById", new Object[]{2L}), "other");
+
+        // Act
+        int removed = cache.invalidateByHash(key.hashCode());
+
+        // Assert
+        assertEquals(1, removed);
+        assertNull(cache.get(key));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void get_ShouldRefreshAheadAndServePreviousValue() throws Throwable {
+        // Arrange
+        ExecutorService refreshExecutor = Executors.newSingleThreadExecutor();
+        BoundedCache cache = new BoundedCache("test", 100, 200, 0.25, refreshExecutor, CacheStatsRecorder.NOOP);
+        AtomicInteger version = new AtomicInteger();
+        BoundedCache.Loader<Object> loader = context -> version.incrementAndGet();
+        assertEquals(1, cache.get("key", 200, loader, null, v -> true));
+
+        // Act
+        Thread.sleep(80); // старше 1/4 TTL, но ещё не истекла
+        Object served = cache.get("key", 200, loader, null, v -> true);
+        refreshExecutor.shutdown();
+        assertTrue(refreshExecutor.awaitTermination(5, TimeUnit.SECONDS));
+
+        // Assert
+        assertEquals(1, served);
+        assertEquals(2, cache.get("key"));
+    }
+}
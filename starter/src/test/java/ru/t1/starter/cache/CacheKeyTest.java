@@ -0,0 +1,44 @@
+package ru.t1.starter.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheKeyTest {
+
+    @Test
+    void of_ShouldBuildEqualKeysForEqualArguments() {
+        // Arrange
+        CacheKey longKey = CacheKey.of("findById", new Object[]{42L});
+        CacheKey stringKey = CacheKey.of("findByNumber", new Object[]{"4276"});
+        CacheKey argsKey = CacheKey.of("find", new Object[]{1L, "a"});
+
+        // Act & Assert
+        assertInstanceOf(CacheKey.LongKey.class, longKey);
+        assertInstanceOf(CacheKey.StringKey.class, stringKey);
+        assertInstanceOf(CacheKey.ArgsKey.class, argsKey);
+        assertEquals(longKey, CacheKey.of("findById", new Object[]{42L}));
+        assertEquals(longKey.hashCode(), CacheKey.of("findById", new Object[]{42L}).hashCode());
+        assertEquals(stringKey, CacheKey.of("findByNumber", new Object[]{new String("4276")}));
+        assertEquals(argsKey, CacheKey.of("find", new Object[]{1L, "a"}));
+        assertEquals(CacheKey.noArgs("findAll"), CacheKey.of("findAll", new Object[0]));
+    }
+
+    @Test
+    void of_ShouldDistinguishMethodsAndArguments() {
+        // Act & Assert
+        assertNotEquals(CacheKey.of("findById", new Object[]{1L}), CacheKey.of("findById", new Object[]{2L}));
+        assertNotEquals(CacheKey.of("findById", new Object[]{1L}), CacheKey.of("findByOwner", new Object[]{1L}));
+        assertNotEquals(CacheKey.of("find", new Object[]{1L}), CacheKey.of("find", new Object[]{1}));
+        assertNotEquals(CacheKey.of("find", new Object[]{"1"}), CacheKey.of("find", new Object[]{1L}));
+    }
+
+    @Test
+    void hashCode_ShouldDependOnlyOnValues() {
+        // Хэш передаётся между репликами, поэтому не должен зависеть от identity объектов
+        assertEquals(31 * "findById".hashCode() + Long.hashCode(7L),
+                CacheKey.of("findById", new Object[]{7L}).hashCode());
+        assertEquals(31 * "find".hashCode() + java.util.Arrays.hashCode(new Object[]{1L, "a"}),
+                CacheKey.of("find", new Object[]{1L, "a"}).hashCode());
+    }
+}
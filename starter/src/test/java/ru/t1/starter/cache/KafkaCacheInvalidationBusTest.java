@@ -0,0 +1,97 @@
+package ru.t1.starter.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class KafkaCacheInvalidationBusTest {
+
+    private final CacheRegistry cacheRegistry = new CacheRegistry(new CacheProperties(), CacheStatsRecorder.NOOP);
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+
+    private final CacheProperties.Invalidation properties = new CacheProperties.Invalidation();
+
+    private final KafkaCacheInvalidationBus bus =
+            new KafkaCacheInvalidationBus(cacheRegistry, kafkaTemplate, properties, Map.of(), "test-instance");
+
+    @AfterEach
+    void tearDown() {
+        cacheRegistry.close();
+    }
+
+    @Test
+    void flush_ShouldSendCoalescedInvalidationsInOneMessage() {
+        // Arrange
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(new CompletableFuture<>());
+        CacheKey key = CacheKey.of("findById", new Object[]{1L});
+
+        // Act
+        bus.keyInvalidated("product", key);
+        bus.keyInvalidated("product", key);
+        bus.keyInvalidated("", CacheKey.of("Service.find", new Object[]{2L}));
+        bus.cacheCleared("client");
+        bus.flush();
+        bus.flush();
+
+        // Assert
+        ArgumentCaptor<Object> message = ArgumentCaptor.forClass(Object.class);
+        verify(kafkaTemplate, times(1)).send(eq(properties.getTopic()), anyString(), message.capture());
+        CacheInvalidationMessage sent = (CacheInvalidationMessage) message.getValue();
+        assertEquals(Set.of(key.hashCode()), sent.getKeys().get("product"));
+        assertTrue(sent.getKeys().containsKey(CacheRegistry.COMMON));
+        assertEquals(Set.of("client"), sent.getCleared());
+    }
+
+    @Test
+    void apply_ShouldInvalidateKeysFromOtherReplica() {
+        // Arrange
+        BoundedCache product = cacheRegistry.getCache("product");
+        BoundedCache client = cacheRegistry.getCache("client");
+        CacheKey key = CacheKey.of("findById", new Object[]{1L});
+        CacheKey other = CacheKey.of("findById", new Object[]{2L});
+        product.put(key, "stale");
+        product.put(other, "fresh");
+        client.put("any", "value");
+
+        // Act
+        bus.apply(new CacheInvalidationMessage("other-replica",
+                Map.of("product", Set.of(key.hashCode()), "unknown", Set.of(1)), Set.of("client")));
+
+        // Assert
+        assertNull(product.get(key));
+        assertEquals("fresh", product.get(other));
+        assertEquals(0, client.size());
+    }
+
+    @Test
+    void apply_ShouldSkipOwnMessages() {
+        // Arrange
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(new CompletableFuture<>());
+        BoundedCache product = cacheRegistry.getCache("product");
+        CacheKey key = CacheKey.of("findById", new Object[]{1L});
+        bus.keyInvalidated("product", key);
+        bus.flush();
+        ArgumentCaptor<Object> message = ArgumentCaptor.forClass(Object.class);
+        verify(kafkaTemplate).send(anyString(), anyString(), message.capture());
+        product.put(key, "updated-locally");
+
+        // Act
+        bus.apply((CacheInvalidationMessage) message.getValue());
+
+        // Assert
+        assertEquals("updated-locally", product.get(key));
+    }
+}
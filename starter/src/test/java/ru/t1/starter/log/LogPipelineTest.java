@@ -0,0 +1,92 @@
+package ru.t1.starter.log;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Политики переполнения очереди; поток отправки не запускается, поэтому очередь только заполняется.
+ */
+class LogPipelineTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+
+    @Test
+    void publish_WithDropPolicy_ShouldDropWhenQueueIsFull() {
+        // Arrange
+        LogPipeline pipeline = pipeline(LogPipelineProperties.OverflowPolicy.DROP);
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            assertTrue(pipeline.publish("INFO", i));
+        }
+        boolean accepted = pipeline.publish("INFO", 4);
+
+        // Assert
+        assertFalse(accepted);
+        assertEquals(1.0, dropped("overflow"));
+        assertEquals(4.0, meterRegistry.get("log.pipeline.queue.depth").gauge().value());
+    }
+
+    @Test
+    void publish_WithSamplePolicy_ShouldKeepEveryNthEventAboveThreshold() {
+        // Arrange: ёмкость 4, порог выборки 3, сохраняется каждое 2-е событие
+        LogPipeline pipeline = pipeline(LogPipelineProperties.OverflowPolicy.SAMPLE);
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            assertTrue(pipeline.publish("INFO", i));
+        }
+        boolean first = pipeline.publish("INFO", 3);
+        boolean second = pipeline.publish("INFO", 4);
+        boolean third = pipeline.publish("INFO", 5);
+        boolean fourth = pipeline.publish("INFO", 6);
+
+        // Assert
+        assertFalse(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertFalse(fourth);
+        assertEquals(2.0, dropped("sampled"));
+        assertEquals(1.0, dropped("overflow"));
+    }
+
+    @Test
+    void publish_WithBlockPolicy_ShouldGiveUpAfterTimeout() {
+        // Arrange
+        LogPipeline pipeline = pipeline(LogPipelineProperties.OverflowPolicy.BLOCK);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(pipeline.publish("INFO", i));
+        }
+
+        // Act
+        long start = System.nanoTime();
+        boolean accepted = pipeline.publish("INFO", 4);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Assert
+        assertFalse(accepted);
+        assertTrue(elapsedMs >= 20, "elapsed=" + elapsedMs);
+        assertEquals(1.0, dropped("timeout"));
+    }
+
+    private LogPipeline pipeline(LogPipelineProperties.OverflowPolicy policy) {
+        LogPipelineProperties properties = new LogPipelineProperties();
+        properties.setCapacity(4);
+        properties.setOverflowPolicy(policy);
+        properties.setSampleRate(2);
+        properties.setBlockTimeoutMs(20);
+        return new LogPipeline(kafkaTemplate, properties, "service_logs", "test-service", null, meterRegistry);
+    }
+
+    private double dropped(String reason) {
+        return meterRegistry.get("log.pipeline.dropped").tag("reason", reason).counter().count();
+    }
+}
@@ -0,0 +1,74 @@
+package ru.t1.starter.log;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogRingBufferTest {
+
+    @Test
+    void offer_ShouldRejectWhenFullAndKeepOrder() {
+        // Arrange
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(3);
+
+        // Act
+        for (int i = 0; i < buffer.capacity(); i++) {
+            assertTrue(buffer.offer(i));
+        }
+        boolean overflow = buffer.offer(100);
+
+        // Assert
+        assertEquals(4, buffer.capacity());
+        assertFalse(overflow);
+        assertEquals(4, buffer.size());
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, buffer.poll());
+        }
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    void offer_FromManyThreads_ShouldDeliverEveryElementOnce() throws Exception {
+        // Arrange
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(1024);
+        int writers = 4;
+        int perWriter = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch done = new CountDownLatch(writers);
+        Set<Integer> received = new HashSet<>();
+
+        // Act
+        for (int w = 0; w < writers; w++) {
+            int base = w * perWriter;
+            executor.execute(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    while (!buffer.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                done.countDown();
+            });
+        }
+        while (received.size() < writers * perWriter) {
+            Integer element = buffer.poll();
+            if (element != null) {
+                assertTrue(received.add(element), "повтор " + element);
+            } else if (done.await(0, TimeUnit.MILLISECONDS) && buffer.size() == 0) {
+                break;
+            }
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(writers * perWriter, received.size());
+    }
+}
@@ -0,0 +1,64 @@
+package ru.t1.starter.log;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.support.mapping.AbstractJavaTypeMapper;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.messaging.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class LogSpoolDrainerTest {
+
+    @TempDir
+    Path dir;
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+
+    @Test
+    void replay_ShouldRestoreOriginalPayloadTypeHeader() throws Exception {
+        // Arrange
+        when(kafkaTemplate.send(any(Message.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+        ErrorMessage original = new ErrorMessage("Service.call()", "boom", 3);
+        try (LogSpool spool = new LogSpool(dir.resolve("logs.spool"), 64 * 1024)) {
+            LogSpoolDrainer drainer = new LogSpoolDrainer(spool, kafkaTemplate, null,
+                    new LogPipelineProperties.Spool(), "service_logs", "test-service", new SimpleMeterRegistry());
+            assertTrue(drainer.store(new LogEvent("ERROR", original)));
+
+            // Act
+            boolean delivered = drainer.replay();
+
+            // Assert
+            assertTrue(delivered);
+            assertEquals(0, spool.size());
+        }
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<Object>> sent = ArgumentCaptor.forClass(Message.class);
+        verify(kafkaTemplate).send(sent.capture());
+        assertEquals(original, sent.getValue().getPayload());
+        assertEquals("ERROR", sent.getValue().getHeaders().get("type"));
+
+        RecordHeaders headers = new RecordHeaders();
+        try (JsonSerializer<Object> serializer = new JsonSerializer<>()) {
+            serializer.serialize("service_logs", headers, sent.getValue().getPayload());
+        }
+        assertEquals(ErrorMessage.class.getName(), new String(
+                headers.lastHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME).value(), StandardCharsets.UTF_8));
+    }
+
+    private record ErrorMessage(String methodSignature, String exceptionMessage, int attempts) {
+    }
+}
@@ -0,0 +1,121 @@
+package ru.t1.starter.log;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogSpoolTest {
+
+    private static final int SIZE = 64 * 1024;
+    /** Заголовок файла и заголовок записи, см. {@link LogSpool}. */
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_HEADER_SIZE = 16;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void append_ShouldSurviveReopen() throws Exception {
+        // Arrange
+        Path path = dir.resolve("logs.spool");
+        try (LogSpool spool = new LogSpool(path, SIZE)) {
+            spool.append(bytes("first"));
+            spool.append(bytes("second"));
+            spool.append(bytes("third"));
+            spool.commit(1);
+        }
+
+        // Act
+        try (LogSpool reopened = new LogSpool(path, SIZE)) {
+            List<LogSpool.Entry> entries = reopened.peek(10);
+
+            // Assert
+            assertEquals(2, reopened.size());
+            assertEquals(List.of("second", "third"), entries.stream().map(e -> text(e.data())).toList());
+        }
+    }
+
+    @Test
+    void recover_ShouldDropTruncatedTail() throws Exception {
+        // Arrange
+        Path path = dir.resolve("logs.spool");
+        try (LogSpool spool = new LogSpool(path, SIZE)) {
+            spool.append(bytes("one"));
+            spool.append(bytes("two"));
+        }
+        // Процесс упал посреди записи третьей: длина записана, тело и CRC — нет
+        int tail = HEADER_SIZE + 2 * RECORD_HEADER_SIZE + "one".length() + "two".length();
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(tail);
+            file.writeInt(100);
+        }
+
+        // Act
+        try (LogSpool reopened = new LogSpool(path, SIZE)) {
+            // Assert
+            assertEquals(2, reopened.size());
+            assertTrue(reopened.append(bytes("three")));
+            assertEquals(List.of("one", "two", "three"),
+                    reopened.peek(10).stream().map(e -> text(e.data())).toList());
+        }
+        try (LogSpool again = new LogSpool(path, SIZE)) {
+            assertEquals(3, again.size());
+        }
+    }
+
+    @Test
+    void append_ShouldRejectWhenFullAndReuseSpaceAfterCommit() throws Exception {
+        // Arrange
+        byte[] data = new byte[1000];
+        try (LogSpool spool = new LogSpool(dir.resolve("logs.spool"), 8 * 1024)) {
+            int appended = 0;
+            while (spool.append(data)) {
+                appended++;
+            }
+
+            // Act
+            spool.commit(appended);
+
+            // Assert
+            assertEquals(0, spool.size());
+            assertEquals(0, spool.oldestTimestamp());
+            assertTrue(spool.append(data));
+            assertEquals(1, spool.size());
+        }
+    }
+
+    @Test
+    void append_ShouldCompactWhenCommittedPrefixIsLargeEnough() throws Exception {
+        // Arrange
+        byte[] data = new byte[1000];
+        try (LogSpool spool = new LogSpool(dir.resolve("logs.spool"), 8 * 1024)) {
+            int appended = 0;
+            while (spool.append(data)) {
+                appended++;
+            }
+            spool.commit(appended - 1);
+
+            // Act
+            boolean accepted = spool.append(bytes("after-compact"));
+
+            // Assert
+            assertTrue(accepted);
+            assertEquals(2, spool.size());
+            assertEquals("after-compact", text(spool.peek(2).get(1).data()));
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] data) {
+        return new String(data, StandardCharsets.UTF_8);
+    }
+}
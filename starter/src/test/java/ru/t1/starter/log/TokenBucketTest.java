@@ -0,0 +1,39 @@
+package ru.t1.starter.log;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    @Test
+    void tryAcquire_ShouldAllowBurstThenReject() {
+        // Arrange
+        TokenBucket bucket = new TokenBucket(1, 5);
+
+        // Act
+        int allowed = 0;
+        for (int i = 0; i < 20; i++) {
+            if (bucket.tryAcquire()) {
+                allowed++;
+            }
+        }
+
+        // Assert
+        assertEquals(5, allowed);
+    }
+
+    @Test
+    void tryAcquire_ShouldRefillWithRate() throws Exception {
+        // Arrange
+        TokenBucket bucket = new TokenBucket(100, 1);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        // Act
+        Thread.sleep(30);
+
+        // Assert
+        assertTrue(bucket.tryAcquire());
+    }
+}
@@ -0,0 +1,75 @@
+package ru.t1.starter.metric;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import ru.t1.starter.log.LogPipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SlowCallAggregatorTest {
+
+    private final LogPipeline logPipeline = mock(LogPipeline.class);
+    private final SlowCallAggregator aggregator = new SlowCallAggregator(logPipeline, 3_600_000);
+
+    @AfterEach
+    void tearDown() {
+        aggregator.close();
+    }
+
+    @Test
+    void flush_ShouldPublishOneSummaryPerMethod() {
+        // Arrange
+        aggregator.record("Service.slow()", 100, 150, new Object[]{1L});
+        aggregator.record("Service.slow()", 100, 400, new Object[]{2L});
+        aggregator.record("Service.slow()", 100, 200, new Object[]{3L});
+
+        // Act
+        aggregator.flush();
+        aggregator.flush();
+
+        // Assert
+        ArgumentCaptor<Object> summary = ArgumentCaptor.forClass(Object.class);
+        verify(logPipeline, times(1)).publish(eq("WARNING"), summary.capture());
+        SlowCallAggregator.SlowCallSummary sent = (SlowCallAggregator.SlowCallSummary) summary.getValue();
+        assertEquals("Service.slow()", sent.methodSignature());
+        assertEquals(3, sent.slowCalls());
+        assertEquals(400, sent.maxExecutionTimeMs());
+        assertEquals(100, sent.limitMs());
+        assertEquals("[2]", sent.args());
+    }
+
+    @Test
+    void close_ShouldFlushEvenIfPublishFails() {
+        // Arrange
+        when(logPipeline.publish(any(), any())).thenThrow(new IllegalStateException("closed"));
+        aggregator.record("Service.slow()", 100, 150, new Object[0]);
+
+        // Act & Assert
+        assertDoesNotThrow(aggregator::close);
+        verify(logPipeline).publish(eq("WARNING"), any());
+    }
+
+    @Test
+    void describeArgs_ShouldTruncateAndSurviveFailingToString() {
+        // Arrange
+        Object failing = new Object() {
+            @Override
+            public String toString() {
+                throw new IllegalStateException("lazy");
+            }
+        };
+
+        // Act
+        String truncated = SlowCallAggregator.describeArgs(new Object[]{"x".repeat(5000)});
+        String failed = SlowCallAggregator.describeArgs(new Object[]{failing});
+
+        // Assert
+        assertEquals(SlowCallAggregator.MAX_ARGS_LENGTH + 3, truncated.length());
+        assertTrue(truncated.endsWith("..."));
+        assertEquals("<toString failed: IllegalStateException>", failed);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.t1.starter.trace;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceContextTest {
+
+    @Test
+    void toTraceparent_ShouldRoundTripThroughParse() {
+        // Arrange
+        TraceContext sampled = TraceContext.newRoot(true);
+        TraceContext notSampled = TraceContext.newRoot(false).child();
+
+        // Act & Assert
+        assertEquals(sampled, TraceContext.parse(sampled.toTraceparent()));
+        assertEquals(notSampled, TraceContext.parse(notSampled.toTraceparent()));
+        assertEquals(55, sampled.toTraceparent().length());
+    }
+
+    @Test
+    void child_ShouldKeepTraceAndChangeSpan() {
+        // Arrange
+        TraceContext parent = TraceContext.newRoot(true);
+
+        // Act
+        TraceContext child = parent.child();
+
+        // Assert
+        assertEquals(parent.traceId(), child.traceId());
+        assertNotEquals(parent.spanId(), child.spanId());
+        assertTrue(child.sampled());
+    }
+
+    @Test
+    void parse_ShouldAcceptW3cExample() {
+        // Act
+        TraceContext context = TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+
+        // Assert
+        assertNotNull(context);
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", context.traceId());
+        assertEquals("00f067aa0ba902b7", context.spanId());
+        assertTrue(context.sampled());
+    }
+
+    @Test
+    void parse_ShouldRejectInvalidHeaders() {
+        assertNull(TraceContext.parse(null));
+        assertNull(TraceContext.parse(""));
+        assertNull(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7"));
+        assertNull(TraceContext.parse("00-4BF92F3577B34DA6A3CE929D0E0E4736-00f067aa0ba902b7-01"));
+        assertNull(TraceContext.parse("00-00000000000000000000000000000000-00f067aa0ba902b7-01"));
+        assertNull(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01"));
+        assertNull(TraceContext.parse("00_4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"));
+    }
+}
@@ -0,0 +1,85 @@
+package ru.t1.starter.trace;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TracingBatchInterceptorTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("client_transactions", 0);
+
+    private final List<SpanData> exported = new CopyOnWriteArrayList<>();
+    private final TracingBatchInterceptor interceptor =
+            new TracingBatchInterceptor(new Tracer(exported::add, "test-service", 1.0));
+
+    @Test
+    void intercept_ShouldContinueTraceOfEveryRecord() {
+        // Arrange
+        TraceContext first = TraceContext.newRoot(true);
+        TraceContext second = TraceContext.newRoot(true);
+        ConsumerRecords<Object, Object> records = records(first, second);
+
+        // Act
+        interceptor.intercept(records, null);
+        TraceContext current = TraceContextHolder.get();
+        interceptor.success(records, null);
+
+        // Assert
+        assertEquals(first.traceId(), current.traceId());
+        assertNull(TraceContextHolder.get());
+        assertEquals(2, exported.size());
+        assertEquals(first.traceId(), exported.get(0).traceId());
+        assertEquals(first.spanId(), exported.get(0).parentSpanId());
+        assertEquals(second.traceId(), exported.get(1).traceId());
+        assertEquals(second.spanId(), exported.get(1).parentSpanId());
+        assertEquals(SpanKind.CONSUMER, exported.get(1).kind());
+    }
+
+    @Test
+    void failure_ShouldMarkAllSpansAsError() {
+        // Arrange
+        ConsumerRecords<Object, Object> records = records(TraceContext.newRoot(true), TraceContext.newRoot(true));
+        interceptor.intercept(records, null);
+
+        // Act
+        interceptor.failure(records, new IllegalStateException("boom"), null);
+
+        // Assert
+        assertNull(TraceContextHolder.get());
+        assertEquals(2, exported.size());
+        assertTrue(exported.stream().allMatch(span -> "ERROR".equals(span.status())));
+    }
+
+    @Test
+    void clearThreadState_ShouldEndSpans_WhenBatchNotCompleted() {
+        // Arrange
+        interceptor.intercept(records(TraceContext.newRoot(true)), null);
+
+        // Act
+        interceptor.clearThreadState(null);
+
+        // Assert
+        assertNull(TraceContextHolder.get());
+        assertEquals(1, exported.size());
+    }
+
+    private static ConsumerRecords<Object, Object> records(TraceContext... contexts) {
+        List<ConsumerRecord<Object, Object>> records = new ArrayList<>();
+        for (int i = 0; i < contexts.length; i++) {
+            ConsumerRecord<Object, Object> record = new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(),
+                    i, "key-" + i, "value-" + i);
+            record.headers().add(TraceContext.HEADER, contexts[i].toTraceparent().getBytes(StandardCharsets.UTF_8));
+            records.add(record);
+        }
+        return new ConsumerRecords<>(Map.of(PARTITION, records));
+    }
+}